@@ -1,16 +1,52 @@
 package com.chartdb.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class AsyncConfig {
     
+    @Value("${app.async.core-pool-size:8}")
+    private int corePoolSize;
+    
+    @Value("${app.async.max-pool-size:64}")
+    private int maxPoolSize;
+    
+    @Value("${app.async.queue-capacity:500}")
+    private int queueCapacity;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    // Bounded replacement for the former cached pool: bursts queue work (and then run
+    // it on the caller) instead of spawning unbounded threads. Also the MVC async
+    // executor for streamed query results and exports (see WebMvcConfig)
     @Bean(destroyMethod = "shutdown")
-    public ExecutorService executorService() {
-        return Executors.newCachedThreadPool();
+    public ExecutorService executorService(MeterRegistry meterRegistry) {
+        ThreadPools.CountingCallerRunsPolicy rejectionPolicy = new ThreadPools.CountingCallerRunsPolicy();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            corePoolSize,
+            Math.max(corePoolSize, maxPoolSize),
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            ThreadPools.threadFactory("app-async-", virtualThreads),
+            rejectionPolicy
+        );
+        executor.allowCoreThreadTimeOut(true);
+        
+        FunctionCounter.builder("chartdb.executor.caller.runs", rejectionPolicy, ThreadPools.CountingCallerRunsPolicy::getRejectedCount)
+            .description("Tasks run on the submitting thread because the queue was full")
+            .tag("name", "app.async")
+            .register(meterRegistry);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "app.async");
     }
 }
@@ -0,0 +1,68 @@
+package com.chartdb.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread factories and rejection policies shared by the application executors.
+ */
+@Slf4j
+public final class ThreadPools {
+    
+    private ThreadPools() {
+    }
+    
+    /**
+     * Named thread factory; uses virtual threads when requested and the runtime is Java 21+.
+     * Resolved reflectively because the default build targets Java 17.
+     */
+    public static ThreadFactory threadFactory(String prefix, boolean virtual) {
+        if (virtual) {
+            try {
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Method name = builderType.getMethod("name", String.class, long.class);
+                Method factory = builderType.getMethod("factory");
+                Object builder = name.invoke(Thread.class.getMethod("ofVirtual").invoke(null), prefix, 0L);
+                return (ThreadFactory) factory.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads requested for {} but not supported by this JVM; using platform threads", prefix);
+            }
+        }
+        
+        ThreadFactory delegate = Executors.defaultThreadFactory();
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = delegate.newThread(runnable);
+            thread.setName(prefix + counter.getAndIncrement());
+            return thread;
+        };
+    }
+    
+    /**
+     * Caller-runs rejection that counts how often the queue was full, so
+     * backpressure on the submitting thread shows up in metrics.
+     */
+    public static final class CountingCallerRunsPolicy implements RejectedExecutionHandler {
+        
+        private final AtomicLong rejected = new AtomicLong();
+        
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            rejected.incrementAndGet();
+            if (!executor.isShutdown()) {
+                task.run();
+            }
+        }
+        
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.chartdb.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    
+    private final ExecutorService executorService;
+    
+    @Value("${app.async.request-timeout-minutes:30}")
+    private long requestTimeoutMinutes;
+    
+    @Value("${query.execution.default-timeout-seconds:300}")
+    private long defaultQueryTimeoutSeconds;
+    
+    public WebMvcConfig(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+    
+    // Streamed responses (NDJSON query results, SQL/JSON exports) run as async requests; the
+    // container default of 30 s would cut them off long before the statement timeout is reached.
+    // They run on the bounded app.async pool, not MVC's thread-per-request fallback executor.
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        long timeoutMillis = Math.max(
+            Duration.ofMinutes(requestTimeoutMinutes).toMillis(),
+            Duration.ofSeconds(defaultQueryTimeoutSeconds).toMillis());
+        configurer.setDefaultTimeout(timeoutMillis);
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executorService));
+    }
+}
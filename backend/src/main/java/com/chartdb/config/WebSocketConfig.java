@@ -1,11 +1,19 @@
 package com.chartdb.config;
 
 import com.chartdb.websocket.WebSocketAuthInterceptor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -22,9 +30,70 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${cors.allowed-origins:http://localhost:5173,http://localhost:3000}")
     private List<String> allowedOrigins;
     
+    // simple: in-JVM broker (single node)
+    // redis:  in-JVM broker plus Redis pub/sub fan-out between nodes (see RedisBrokerFanout)
+    // relay:  external STOMP broker (RabbitMQ, ActiveMQ Artemis, ...)
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+    
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+    
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+    
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+    
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+    
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+    
+    @Value("${websocket.channels.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+    
+    @Value("${websocket.channels.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+    
+    @Value("${websocket.channels.inbound.queue-capacity:2000}")
+    private int inboundQueueCapacity;
+    
+    @Value("${websocket.channels.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+    
+    @Value("${websocket.channels.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+    
+    @Value("${websocket.channels.outbound.queue-capacity:5000}")
+    private int outboundQueueCapacity;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    private final ThreadPools.CountingCallerRunsPolicy inboundRejections = new ThreadPools.CountingCallerRunsPolicy();
+    private final ThreadPools.CountingCallerRunsPolicy outboundRejections = new ThreadPools.CountingCallerRunsPolicy();
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                // Let /user destinations resolve to sessions connected to other nodes
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -48,5 +117,46 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         registration.interceptors(webSocketAuthInterceptor);
+        registration.taskExecutor(channelExecutor("ws-inbound-", inboundCorePoolSize, inboundMaxPoolSize,
+            inboundQueueCapacity, inboundRejections));
+    }
+    
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutor("ws-outbound-", outboundCorePoolSize, outboundMaxPoolSize,
+            outboundQueueCapacity, outboundRejections));
+    }
+    
+    @Bean
+    public MeterBinder webSocketChannelMetrics(
+            @Qualifier("clientInboundChannelExecutor") ThreadPoolTaskExecutor inboundExecutor,
+            @Qualifier("clientOutboundChannelExecutor") ThreadPoolTaskExecutor outboundExecutor) {
+        return registry -> {
+            bindChannelMetrics(registry, "ws.inbound", inboundExecutor, inboundRejections);
+            bindChannelMetrics(registry, "ws.outbound", outboundExecutor, outboundRejections);
+        };
+    }
+    
+    // Bounded pools: when the queue is full the submitting thread runs the task itself,
+    // which slows the socket reader (inbound) or the broker (outbound) instead of growing threads
+    private ThreadPoolTaskExecutor channelExecutor(String prefix, int corePoolSize, int maxPoolSize,
+                                                   int queueCapacity, ThreadPools.CountingCallerRunsPolicy rejections) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(ThreadPools.threadFactory(prefix, virtualThreads));
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(Math.max(corePoolSize, maxPoolSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler(rejections);
+        return executor;
+    }
+    
+    private static void bindChannelMetrics(MeterRegistry registry, String name, ThreadPoolTaskExecutor executor,
+                                           ThreadPools.CountingCallerRunsPolicy rejections) {
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, List.of()).bindTo(registry);
+        FunctionCounter.builder("chartdb.executor.caller.runs", rejections, ThreadPools.CountingCallerRunsPolicy::getRejectedCount)
+            .description("Tasks run on the submitting thread because the queue was full")
+            .tag("name", name)
+            .register(registry);
     }
 }
@@ -18,11 +18,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Slf4j
 @RestController
@@ -32,7 +32,6 @@ public class AIAssistantController {
     
     private final AIAssistantService aiAssistantService;
     private final ObjectMapper objectMapper;
-    private final ExecutorService executorService;
     
     @PostMapping("/sessions")
     public ResponseEntity<ApiResponse<AIChatSessionResponse>> startChatSession(
@@ -59,59 +58,68 @@ public class AIAssistantController {
         
         SseEmitter emitter = new SseEmitter(300000L); // 5 minute timeout
         
+        // Disposing the turn cancels the AI call once nobody is listening for the reply
+        Disposable.Swap turn = Disposables.swap();
+        
         // Handle timeout and completion
+        emitter.onCompletion(turn::dispose);
+        
         emitter.onTimeout(() -> {
             log.warn("SSE emitter timeout for session: {}", sessionId);
+            turn.dispose();
             emitter.complete();
         });
         
         emitter.onError((ex) -> {
             log.error("SSE emitter error for session: {}", sessionId, ex);
+            turn.dispose();
             emitter.completeWithError(ex);
         });
         
-        // Run streaming in managed thread pool
-        executorService.execute(() -> {
-            try {
-                log.debug("Starting SSE stream for session: {}", sessionId);
-                
-                AIMessageResponse response = aiAssistantService.sendMessageStreaming(
-                    sessionId, 
-                    currentUser.getId(), 
-                    request,
-                    (chunk) -> {
-                        try {
-                            // Send each chunk as SSE event
-                            emitter.send(SseEmitter.event()
-                                .data("{\"content\":\"" + escapeJson(chunk) + "\"}")
-                                .name("message"));
-                        } catch (IOException e) {
-                            log.error("Failed to send SSE chunk", e);
-                            emitter.completeWithError(e);
-                        }
-                    }
-                );
-                
-                log.debug("Completed AI response, sending final event");
-                
-                // Send final completion event with full message
-                emitter.send(SseEmitter.event()
-                    .data(objectMapper.writeValueAsString(ApiResponse.success(response)))
-                    .name("done"));
-                
-                emitter.complete();
-                log.debug("SSE stream completed for session: {}", sessionId);
-                
-            } catch (Exception e) {
+        // The pipeline runs on Reactor threads; neither this request thread nor a DB connection waits for the AI
+        log.debug("Starting SSE stream for session: {}", sessionId);
+        turn.update(aiAssistantService.sendMessageStreaming(
+            sessionId, 
+            currentUser.getId(), 
+            request,
+            (chunk) -> {
+                try {
+                    // Send each chunk as SSE event
+                    emitter.send(SseEmitter.event()
+                        .data("{\"content\":\"" + escapeJson(chunk) + "\"}")
+                        .name("message"));
+                } catch (IOException e) {
+                    log.error("Failed to send SSE chunk", e);
+                    emitter.completeWithError(e);
+                }
+            }
+        ).subscribe(
+            response -> {
+                try {
+                    log.debug("Completed AI response, sending final event");
+                    
+                    // Send final completion event with full message
+                    emitter.send(SseEmitter.event()
+                        .data(objectMapper.writeValueAsString(ApiResponse.success(response)))
+                        .name("done"));
+                    
+                    emitter.complete();
+                    log.debug("SSE stream completed for session: {}", sessionId);
+                } catch (IOException e) {
+                    log.error("Failed to send SSE completion for session: {}", sessionId, e);
+                    emitter.completeWithError(e);
+                }
+            },
+            e -> {
                 log.error("Error in SSE stream for session: {}", sessionId, e);
                 try {
                     emitter.send(SseEmitter.event()
-                        .data("{\"error\":\"" + escapeJson(e.getMessage()) + "\"}")
+                        .data("{\"error\":\"" + escapeJson(String.valueOf(e.getMessage())) + "\"}")
                         .name("error"));
                 } catch (IOException ignored) {}
                 emitter.completeWithError(e);
             }
-        });
+        ));
         
         return emitter;
     }
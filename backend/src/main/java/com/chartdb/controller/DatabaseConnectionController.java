@@ -1,13 +1,16 @@
 package com.chartdb.controller;
 
 import com.chartdb.dto.request.CreateConnectionRequest;
+import com.chartdb.dto.request.SchemaImportRequest;
 import com.chartdb.dto.request.TestConnectionRequest;
 import com.chartdb.dto.response.ApiResponse;
 import com.chartdb.dto.response.ConnectionResponse;
 import com.chartdb.dto.response.ConnectionTestResult;
+import com.chartdb.dto.response.SchemaImportJobResponse;
 import com.chartdb.security.CurrentUser;
 import com.chartdb.security.UserPrincipal;
 import com.chartdb.service.DatabaseConnectionService;
+import com.chartdb.service.schema.SchemaImportService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -22,6 +25,7 @@ import java.util.List;
 public class DatabaseConnectionController {
     
     private final DatabaseConnectionService connectionService;
+    private final SchemaImportService schemaImportService;
     
     @PostMapping
     public ResponseEntity<ApiResponse<ConnectionResponse>> createConnection(
@@ -70,4 +74,23 @@ public class DatabaseConnectionController {
         ConnectionTestResult result = connectionService.testExistingConnection(connectionId, currentUser.getId());
         return ResponseEntity.ok(ApiResponse.success(result));
     }
+    
+    @PostMapping("/{connectionId}/import")
+    public ResponseEntity<ApiResponse<SchemaImportJobResponse>> importSchema(
+            @CurrentUser UserPrincipal currentUser,
+            @PathVariable String connectionId,
+            @Valid @RequestBody(required = false) SchemaImportRequest request) {
+        SchemaImportJobResponse job = schemaImportService.startImport(connectionId, currentUser.getId(),
+            request != null ? request : new SchemaImportRequest());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(ApiResponse.success("Schema import queued", job));
+    }
+    
+    @GetMapping("/imports/{jobId}")
+    public ResponseEntity<ApiResponse<SchemaImportJobResponse>> getImportJob(
+            @CurrentUser UserPrincipal currentUser,
+            @PathVariable String jobId) {
+        SchemaImportJobResponse job = schemaImportService.getJob(jobId, currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success(job));
+    }
 }
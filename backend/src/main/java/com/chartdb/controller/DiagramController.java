@@ -14,7 +14,10 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,6 +28,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DiagramController {
     
+    private static final String REVISION_HEADER = "X-Diagram-Revision";
+    
     private final DiagramService diagramService;
     private final PermissionService permissionService;
     
@@ -66,10 +71,37 @@ public class DiagramController {
      * This is the main endpoint for loading a diagram in the editor.
      */
     @GetMapping("/{diagramId}/full")
-    public ResponseEntity<ApiResponse<DiagramFullResponse>> getFullDiagram(
+    public ResponseEntity<byte[]> getFullDiagram(
             @CurrentUser UserPrincipal currentUser,
-            @PathVariable String diagramId) {
-        DiagramFullResponse response = diagramService.getFullDiagram(diagramId, currentUser.getId());
+            @PathVariable String diagramId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Pre-serialized ApiResponse<DiagramFullResponse>, see DiagramSnapshotCache
+        DiagramService.FullDiagramJson full = diagramService.getFullDiagramJson(diagramId, currentUser.getId(), ifNoneMatch);
+        
+        ResponseEntity.BodyBuilder response = full.notModified()
+            ? ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            : ResponseEntity.ok();
+        response.cacheControl(CacheControl.noCache().cachePrivate())
+            .header(REVISION_HEADER, String.valueOf(full.revision()));
+        if (full.eTag() != null) {
+            response.eTag(full.eTag());
+        }
+        if (full.notModified()) {
+            return response.build();
+        }
+        return response.contentType(MediaType.APPLICATION_JSON).body(full.body());
+    }
+    
+    /**
+     * Tables, relationships, areas and notes changed since the given revision.
+     * Reconnecting clients use this instead of reloading the full diagram.
+     */
+    @GetMapping("/{diagramId}/changes")
+    public ResponseEntity<ApiResponse<DiagramChangesResponse>> getChanges(
+            @CurrentUser UserPrincipal currentUser,
+            @PathVariable String diagramId,
+            @RequestParam long since) {
+        DiagramChangesResponse response = diagramService.getChangesSince(diagramId, currentUser.getId(), since);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
@@ -1,13 +1,25 @@
 package com.chartdb.controller;
 
+import com.chartdb.dto.response.ApiResponse;
+import com.chartdb.dto.response.ExportJobResponse;
 import com.chartdb.security.CurrentUser;
 import com.chartdb.security.UserPrincipal;
 import com.chartdb.service.ExportService;
+import com.chartdb.service.export.ExportFormat;
+import com.chartdb.service.export.ExportJobService;
+import com.chartdb.service.export.ExportRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/export")
@@ -15,39 +27,48 @@ import org.springframework.web.bind.annotation.*;
 public class ExportController {
     
     private final ExportService exportService;
+    private final ExportJobService exportJobService;
+    
+    @Value("${export.json.gzip-enabled:true}")
+    private boolean gzipEnabled;
     
     /**
-     * Export diagram as SQL DDL
+     * Export diagram as SQL DDL, streamed to the client as it is generated
      */
     @GetMapping("/diagram/{diagramId}/sql")
-    public ResponseEntity<String> exportAsSql(
+    public ResponseEntity<StreamingResponseBody> exportAsSql(
             @PathVariable String diagramId,
             @RequestParam(defaultValue = "postgresql") String dialect,
             @CurrentUser UserPrincipal currentUser) {
-        String sql = exportService.exportAsSql(diagramId, dialect, currentUser.getId());
+        StreamingResponseBody sql = exportService.streamSql(diagramId, dialect, currentUser.getId());
         return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"schema.sql\"")
-            .contentType(MediaType.TEXT_PLAIN)
+            .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
             .body(sql);
     }
     
     /**
-     * Export diagram as JSON
+     * Export diagram as JSON, streamed and gzip-compressed when the client accepts it
      */
     @GetMapping("/diagram/{diagramId}/json")
-    public ResponseEntity<String> exportAsJson(
+    public ResponseEntity<StreamingResponseBody> exportAsJson(
             @PathVariable String diagramId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
             @CurrentUser UserPrincipal currentUser) {
-        String json = exportService.exportAsJson(diagramId, currentUser.getId());
-        return ResponseEntity.ok()
+        boolean gzip = gzipEnabled && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        StreamingResponseBody json = exportService.streamJson(diagramId, currentUser.getId(), gzip);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"diagram.json\"")
-            .contentType(MediaType.APPLICATION_JSON)
-            .body(json);
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(json);
     }
     
     /**
-     * Export diagram as PNG (server-side rendering)
-     * Note: Currently not implemented - use client-side export
+     * Export diagram as PNG, rendered server-side and cached per diagram revision
      */
     @GetMapping("/diagram/{diagramId}/png")
     public ResponseEntity<byte[]> exportAsPng(
@@ -60,4 +81,72 @@ public class ExportController {
             .contentType(MediaType.IMAGE_PNG)
             .body(image);
     }
+    
+    /**
+     * Single PNG tile at full resolution, for diagrams too large to export in one image
+     */
+    @GetMapping("/diagram/{diagramId}/png/tiles/{column}/{row}")
+    public ResponseEntity<byte[]> exportPngTile(
+            @PathVariable String diagramId,
+            @PathVariable int column,
+            @PathVariable int row,
+            @RequestParam(defaultValue = "2") int scale,
+            @CurrentUser UserPrincipal currentUser) {
+        byte[] tile = exportService.exportPngTile(diagramId, scale, column, row, currentUser.getId());
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_PNG)
+            .body(tile);
+    }
+    
+    /**
+     * Export diagram as SVG
+     */
+    @GetMapping("/diagram/{diagramId}/svg")
+    public ResponseEntity<byte[]> exportAsSvg(
+            @PathVariable String diagramId,
+            @CurrentUser UserPrincipal currentUser) {
+        byte[] svg = exportService.exportAsSvg(diagramId, currentUser.getId());
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"diagram.svg\"")
+            .contentType(MediaType.valueOf("image/svg+xml"))
+            .body(svg);
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // BACKGROUND EXPORT JOBS
+    // ═══════════════════════════════════════════════════════════════
+    
+    /**
+     * Queue an export; progress is available by polling the job or on /topic/export-jobs/{jobId}
+     */
+    @PostMapping("/diagram/{diagramId}/jobs")
+    public ResponseEntity<ApiResponse<ExportJobResponse>> submitExportJob(
+            @PathVariable String diagramId,
+            @RequestParam(defaultValue = "sql") String format,
+            @RequestParam(defaultValue = "postgresql") String dialect,
+            @RequestParam(defaultValue = "2") int scale,
+            @CurrentUser UserPrincipal currentUser) {
+        ExportRequest request = new ExportRequest(ExportFormat.from(format), dialect, scale);
+        ExportJobResponse job = exportJobService.submit(diagramId, request, currentUser.getId());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(ApiResponse.success("Export queued", job));
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<ExportJobResponse>> getExportJob(
+            @PathVariable String jobId,
+            @CurrentUser UserPrincipal currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(exportJobService.getJob(jobId, currentUser.getId())));
+    }
+    
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(
+            @PathVariable String jobId,
+            @CurrentUser UserPrincipal currentUser) {
+        ExportJobService.ExportDownload download = exportJobService.download(jobId, currentUser.getId());
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + download.fileName() + "\"")
+            .contentType(MediaType.parseMediaType(download.contentType()))
+            .body(new FileSystemResource(download.file()));
+    }
 }
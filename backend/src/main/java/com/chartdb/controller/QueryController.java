@@ -12,8 +12,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -33,6 +35,38 @@ public class QueryController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
     
+    /**
+     * Execute a query and stream the result as NDJSON, beyond the 1000-row limit of /execute
+     */
+    @PostMapping("/execute/{connectionId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamQuery(
+            @CurrentUser UserPrincipal currentUser,
+            @PathVariable String connectionId,
+            @Valid @RequestBody ExecuteQueryRequest request) {
+        StreamingResponseBody rows = queryExecutionService.streamQuery(connectionId, currentUser.getId(), request);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(rows);
+    }
+    
+    /**
+     * Cancel a queued or running query by the queryId given in (or returned for) its execute request
+     */
+    @PostMapping("/{queryId}/cancel")
+    public ResponseEntity<ApiResponse<Void>> cancelQuery(
+            @CurrentUser UserPrincipal currentUser,
+            @PathVariable String queryId) {
+        queryExecutionService.cancelQuery(queryId, currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success("Query cancelled", null));
+    }
+    
+    @GetMapping("/active")
+    public ResponseEntity<ApiResponse<ActiveQueriesResponse>> getActiveQueries(
+            @CurrentUser UserPrincipal currentUser) {
+        ActiveQueriesResponse active = queryExecutionService.getActiveQueries(currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success(active));
+    }
+    
     @GetMapping("/history")
     public ResponseEntity<ApiResponse<Page<QueryHistoryResponse>>> getQueryHistory(
             @CurrentUser UserPrincipal currentUser,
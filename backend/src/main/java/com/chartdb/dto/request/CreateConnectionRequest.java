@@ -45,4 +45,9 @@ public class CreateConnectionRequest {
     private Boolean sslEnabled = true;
     
     private Map<String, Object> additionalParams;
+    
+    @Min(value = 1, message = "Query timeout must be at least 1 second")
+    // Streamed results must finish within app.async.request-timeout-minutes (30 by default)
+    @Max(value = 1800, message = "Query timeout must be at most 1800 seconds")
+    private Integer queryTimeoutSeconds;
 }
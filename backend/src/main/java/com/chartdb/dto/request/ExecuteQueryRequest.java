@@ -1,6 +1,7 @@
 package com.chartdb.dto.request;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ExecuteQueryRequest {
     
+    // Optional client-chosen handle, so the query can be cancelled while the request is still running
+    @Size(max = 64, message = "Query id must be at most 64 characters")
+    private String queryId;
+    
     @NotBlank(message = "Query is required")
     private String query;
     
@@ -0,0 +1,23 @@
+package com.chartdb.dto.request;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchemaImportRequest {
+    
+    // Schemas to import; empty means every non-system schema (the database itself on MySQL)
+    @Size(max = 100, message = "At most 100 schemas can be imported at once")
+    private List<String> schemas;
+    
+    @Builder.Default
+    private Boolean includeViews = false;
+}
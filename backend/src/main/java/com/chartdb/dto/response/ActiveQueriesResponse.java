@@ -0,0 +1,19 @@
+package com.chartdb.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveQueriesResponse {
+    private List<QueryHandleResponse> queries;
+    // Across all users
+    private int queueDepth;
+    private int running;
+}
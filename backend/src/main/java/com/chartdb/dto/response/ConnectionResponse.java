@@ -23,6 +23,7 @@ public class ConnectionResponse {
     private String username;
     // Password is never returned
     private Boolean sslEnabled;
+    private Integer queryTimeoutSeconds;
     private ConnectionStatus status;
     private Instant lastConnectedAt;
     private String lastError;
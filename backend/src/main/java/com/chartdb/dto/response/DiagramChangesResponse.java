@@ -0,0 +1,41 @@
+package com.chartdb.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Everything that changed in a diagram between two revisions.
+ * Changed entities are returned in full; ids that no longer resolve are listed as deleted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiagramChangesResponse {
+    
+    private String diagramId;
+    private Long since;
+    private Long revision;
+    
+    // True when the change log no longer covers 'since'; the client must load /full instead
+    private Boolean fullReload;
+    
+    // Present only when diagram-level fields changed
+    private DiagramResponse diagram;
+    
+    private List<TableResponse> tables;
+    private List<String> deletedTableIds;
+    
+    private List<RelationshipResponse> relationships;
+    private List<String> deletedRelationshipIds;
+    
+    private List<AreaResponse> areas;
+    private List<String> deletedAreaIds;
+    
+    private List<NoteResponse> notes;
+    private List<String> deletedNoteIds;
+}
@@ -27,6 +27,9 @@ public class DiagramFullResponse {
     private BigDecimal offsetX;
     private BigDecimal offsetY;
     
+    // Content revision, usable as 'since' for /changes
+    private Long revision;
+    
     // Statistics
     private Integer tableCount;
     private Integer relationshipCount;
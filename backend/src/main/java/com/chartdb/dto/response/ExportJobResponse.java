@@ -0,0 +1,29 @@
+package com.chartdb.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobResponse {
+    
+    private String id;
+    private String diagramId;
+    private Long revision;
+    private String format;
+    private String status;
+    private Integer progress;
+    private String error;
+    
+    // Set once the job has completed
+    private String downloadUrl;
+    
+    private Instant createdAt;
+    private Instant finishedAt;
+}
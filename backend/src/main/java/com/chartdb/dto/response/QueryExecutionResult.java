@@ -13,6 +13,7 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 public class QueryExecutionResult {
+    private String queryId;
     private boolean success;
     private String message;
     private List<Map<String, String>> columns;
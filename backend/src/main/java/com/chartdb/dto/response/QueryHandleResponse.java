@@ -0,0 +1,20 @@
+package com.chartdb.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryHandleResponse {
+    private String id;
+    private String connectionId;
+    private String status; // QUEUED, RUNNING
+    private Instant queuedAt;
+    private Instant startedAt;
+}
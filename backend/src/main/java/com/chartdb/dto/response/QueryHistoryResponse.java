@@ -19,5 +19,6 @@ public class QueryHistoryResponse {
     private Integer rowsAffected;
     private QueryStatus status;
     private String errorMessage;
+    private String fingerprint;
     private Instant executedAt;
 }
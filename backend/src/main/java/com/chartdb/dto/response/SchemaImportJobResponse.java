@@ -0,0 +1,31 @@
+package com.chartdb.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchemaImportJobResponse {
+    
+    private String id;
+    private String diagramId;
+    private String connectionId;
+    private String status; // QUEUED, READING, WRITING, COMPLETED, FAILED
+    private Integer progress;
+    private String error;
+    
+    // Set once the job has completed
+    private Integer tablesImported;
+    private Integer columnsImported;
+    private Integer relationshipsImported;
+    private Integer tablesSkipped;
+    
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,24 @@
+package com.chartdb.dto.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorBatchBroadcast {
+    
+    private String type; // CURSOR_BATCH
+    private String diagramId;
+    
+    // Latest state per user within the tick window
+    private List<CursorBroadcast> cursors;
+    private List<SelectionBroadcast> selections;
+    
+    private Long timestamp;
+}
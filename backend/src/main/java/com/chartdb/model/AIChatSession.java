@@ -53,4 +53,15 @@ public class AIChatSession extends BaseEntity {
     @Column(name = "is_active")
     @Builder.Default
     private Boolean isActive = true;
+    
+    // Folded-in turns that fell out of the prompt window, oldest first
+    @Column(name = "history_summary", columnDefinition = "TEXT")
+    private String historySummary;
+    
+    // (created_at, id) of the newest message in historySummary; only later messages are loaded
+    @Column(name = "summarized_through")
+    private Instant summarizedThrough;
+    
+    @Column(name = "summarized_through_id", length = 36)
+    private String summarizedThroughId;
 }
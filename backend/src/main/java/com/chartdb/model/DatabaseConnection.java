@@ -59,6 +59,10 @@ public class DatabaseConnection extends BaseEntity {
     @Column(name = "additional_params", columnDefinition = "jsonb")
     private Map<String, Object> additionalParams;
     
+    // Statement timeout for console queries; null uses the configured default
+    @Column(name = "query_timeout_seconds")
+    private Integer queryTimeoutSeconds;
+    
     @Enumerated(EnumType.STRING)
     @Column(length = 20)
     @Builder.Default
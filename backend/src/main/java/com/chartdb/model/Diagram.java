@@ -101,6 +101,10 @@ public class Diagram extends BaseEntity {
     @Builder.Default
     private Integer versionNumber = 1;
     
+    // Content revision, only ever changed by DiagramRevisionService
+    @Column(name = "revision", insertable = false, updatable = false)
+    private Long revision;
+    
     // Status
     @Enumerated(EnumType.STRING)
     @Column(length = 20)
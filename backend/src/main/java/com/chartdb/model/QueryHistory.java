@@ -43,6 +43,10 @@ public class QueryHistory extends BaseEntity {
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
     
+    // Normalized-query hash, shared by executions that differ only in literals (see query_fingerprints)
+    @Column(length = 32)
+    private String fingerprint;
+    
     @Column(name = "executed_at", nullable = false)
     @Builder.Default
     private Instant executedAt = Instant.now();
@@ -2,5 +2,6 @@ package com.chartdb.model.enums;
 
 public enum QueryStatus {
     SUCCESS,
-    ERROR
+    ERROR,
+    CANCELLED
 }
@@ -1,9 +1,13 @@
 package com.chartdb.repository;
 
 import com.chartdb.model.AIMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
@@ -12,4 +16,29 @@ public interface AIMessageRepository extends JpaRepository<AIMessage, String> {
     List<AIMessage> findBySessionIdOrderByCreatedAtAsc(String sessionId);
     
     List<AIMessage> findTop50BySessionIdOrderByCreatedAtDesc(String sessionId);
+    
+    // Newest messages after the (created_at, id) boundary, newest first
+    @Query("SELECT m FROM AIMessage m WHERE m.session.id = :sessionId " +
+           "AND (m.createdAt > :afterTime OR (m.createdAt = :afterTime AND m.id > :afterId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<AIMessage> findNewestAfter(
+        @Param("sessionId") String sessionId,
+        @Param("afterTime") Instant afterTime,
+        @Param("afterId") String afterId,
+        Pageable pageable
+    );
+    
+    // Messages strictly between two (created_at, id) boundaries, newest first
+    @Query("SELECT m FROM AIMessage m WHERE m.session.id = :sessionId " +
+           "AND (m.createdAt > :afterTime OR (m.createdAt = :afterTime AND m.id > :afterId)) " +
+           "AND (m.createdAt < :beforeTime OR (m.createdAt = :beforeTime AND m.id < :beforeId)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<AIMessage> findNewestBetween(
+        @Param("sessionId") String sessionId,
+        @Param("afterTime") Instant afterTime,
+        @Param("afterId") String afterId,
+        @Param("beforeTime") Instant beforeTime,
+        @Param("beforeId") String beforeId,
+        Pageable pageable
+    );
 }
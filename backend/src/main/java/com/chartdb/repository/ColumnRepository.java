@@ -81,4 +81,8 @@ public interface ColumnRepository extends JpaRepository<TableColumn, String> {
     @Query("UPDATE TableColumn c SET c.fkTable = null, c.fkColumn = null, c.isForeignKey = false " +
            "WHERE c.fkTable.id = :tableId")
     void clearForeignKeyReferences(@Param("tableId") String tableId);
+    
+    // Tables whose columns reference the given table
+    @Query("SELECT DISTINCT c.table.id FROM TableColumn c WHERE c.fkTable.id = :tableId")
+    List<String> findTableIdsReferencing(@Param("tableId") String tableId);
 }
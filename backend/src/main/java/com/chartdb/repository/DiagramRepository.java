@@ -88,6 +88,11 @@ public interface DiagramRepository extends JpaRepository<Diagram, String> {
     @Query("UPDATE Diagram d SET d.exportCount = d.exportCount + 1 WHERE d.id = :diagramId")
     void incrementExportCount(@Param("diagramId") String diagramId);
     
+    // Add a batch of buffered export counts
+    @Modifying
+    @Query("UPDATE Diagram d SET d.exportCount = COALESCE(d.exportCount, 0) + :count WHERE d.id = :diagramId")
+    void incrementExportCount(@Param("diagramId") String diagramId, @Param("count") int count);
+    
     // Archive diagram
     @Modifying
     @Query("UPDATE Diagram d SET d.status = com.chartdb.model.enums.DiagramStatus.ARCHIVED, d.archivedAt = :timestamp WHERE d.id = :diagramId")
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,18 @@ public interface RelationshipRepository extends JpaRepository<Relationship, Stri
            "WHERE r.diagram.id = :diagramId")
     List<Relationship> findByDiagramIdWithTables(@Param("diagramId") String diagramId);
     
+    // Find a subset of a diagram's relationships (delta sync)
+    @Query("SELECT r FROM Relationship r " +
+           "LEFT JOIN FETCH r.sourceTable " +
+           "LEFT JOIN FETCH r.targetTable " +
+           "LEFT JOIN FETCH r.sourceColumn " +
+           "LEFT JOIN FETCH r.targetColumn " +
+           "WHERE r.diagram.id = :diagramId AND r.id IN :relationshipIds")
+    List<Relationship> findByDiagramIdAndIdInWithTables(
+        @Param("diagramId") String diagramId,
+        @Param("relationshipIds") Collection<String> relationshipIds
+    );
+    
     // Find by id with tables
     @Query("SELECT r FROM Relationship r " +
            "LEFT JOIN FETCH r.sourceTable " +
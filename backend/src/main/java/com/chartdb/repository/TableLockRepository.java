@@ -30,6 +30,10 @@ public interface TableLockRepository extends JpaRepository<TableLock, String> {
            "FROM TableLock l WHERE l.table.id = :tableId AND l.expiresAt > :now")
     boolean existsByTableIdAndExpiresAtAfter(@Param("tableId") String tableId, @Param("now") Instant now);
     
+    // Find all unexpired locks with their tables (lock recovery on startup)
+    @Query("SELECT l FROM TableLock l JOIN FETCH l.table WHERE l.expiresAt > :now")
+    List<TableLock> findActiveWithTable(@Param("now") Instant now);
+    
     // Find locks by user
     List<TableLock> findByUserId(String userId);
     
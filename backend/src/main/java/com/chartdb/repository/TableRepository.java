@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +29,23 @@ public interface TableRepository extends JpaRepository<DiagramTable, String> {
            "ORDER BY t.sortOrder ASC")
     List<DiagramTable> findByDiagramIdWithColumns(@Param("diagramId") String diagramId);
     
+    // Find a subset of a diagram's tables with columns (delta sync)
+    @Query("SELECT DISTINCT t FROM DiagramTable t " +
+           "LEFT JOIN FETCH t.columns " +
+           "WHERE t.diagram.id = :diagramId AND t.id IN :tableIds " +
+           "ORDER BY t.sortOrder ASC")
+    List<DiagramTable> findByDiagramIdAndIdInWithColumns(
+        @Param("diagramId") String diagramId,
+        @Param("tableIds") Collection<String> tableIds
+    );
+    
+    // Ids of the given tables that belong to the diagram
+    @Query("SELECT t.id FROM DiagramTable t WHERE t.diagram.id = :diagramId AND t.id IN :tableIds")
+    List<String> findIdsByDiagramIdAndIdIn(
+        @Param("diagramId") String diagramId,
+        @Param("tableIds") Collection<String> tableIds
+    );
+    
     // Find by id with columns
     @Query("SELECT t FROM DiagramTable t " +
            "LEFT JOIN FETCH t.columns " +
@@ -37,6 +55,9 @@ public interface TableRepository extends JpaRepository<DiagramTable, String> {
     // Find by name in diagram
     Optional<DiagramTable> findByDiagramIdAndName(String diagramId, String name);
     
+    // Check that a table belongs to a diagram
+    boolean existsByIdAndDiagramId(String id, String diagramId);
+    
     // Check if name exists in diagram
     boolean existsByDiagramIdAndName(String diagramId, String name);
     
@@ -11,13 +11,22 @@ import com.chartdb.model.enums.MessageRole;
 import com.chartdb.repository.*;
 import com.chartdb.service.ai.AIProvider;
 import com.chartdb.service.ai.AIProviderFactory;
+import com.chartdb.service.ai.ChatHistoryWindow;
+import com.chartdb.service.ai.SchemaPromptCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -42,6 +51,18 @@ public class AIAssistantService {
     private final DiagramActionService diagramActionService;
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SchemaPromptCache schemaPrompts;
+    private final ChatHistoryWindow historyWindow;
+    
+    @Value("${ai.chat.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+    
+    @Value("${ai.chat.retry.initial-backoff-ms:1000}")
+    private long retryInitialBackoffMs;
+    
+    @Value("${ai.chat.stream.flush-interval-ms:50}")
+    private long streamFlushIntervalMs;
     
     @Transactional
     public AIChatSessionResponse startChatSession(String userId, StartChatSessionRequest request) {
@@ -82,13 +103,51 @@ public class AIAssistantService {
         return mapSessionToResponse(session);
     }
     
-    @Transactional
     public AIMessageResponse sendMessage(String sessionId, String userId, ChatMessageRequest request) {
-        return sendMessageStreaming(sessionId, userId, request, null);
+        return sendMessageStreaming(sessionId, userId, request, null).block();
     }
     
-    @Transactional
-    public AIMessageResponse sendMessageStreaming(String sessionId, String userId, ChatMessageRequest request, Consumer<String> onChunk) {
+    /**
+     * One chat turn as a non-blocking pipeline: a short transaction stores the user message and builds the
+     * prompt, the provider call runs with no transaction or request thread held, and a second short
+     * transaction stores the reply (or the error shown in its place).
+     */
+    public Mono<AIMessageResponse> sendMessageStreaming(String sessionId, String userId, ChatMessageRequest request, Consumer<String> onChunk) {
+        return Mono.fromCallable(() -> transactionTemplate.execute(status -> beginTurn(sessionId, userId, request)))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(turn -> {
+                Sinks.Many<String> chunks = chunkFrames(turn, onChunk);
+                return callAIWithRetry(turn.providerCode(), turn.request(), turn.apiKey(), chunks::tryEmitNext)
+                    // Flush the last partial frame before the reply is stored and returned
+                    .doOnTerminate(chunks::tryEmitComplete)
+                    .doOnCancel(chunks::tryEmitComplete)
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(aiResponse -> transactionTemplate.execute(status -> completeTurn(turn, aiResponse)))
+                    .onErrorResume(e -> Mono.fromCallable(() -> transactionTemplate.execute(status -> failTurn(turn, e)))
+                        .subscribeOn(Schedulers.boundedElastic()));
+            });
+    }
+    
+    /**
+     * Streamed tokens merged into at most one frame per flush interval and handed to {@code onChunk}
+     * (the SSE emitter). Providers emit a chunk per token; forwarding each one would flood the
+     * connection and the browser's render loop.
+     */
+    private Sinks.Many<String> chunkFrames(ChatTurn turn, Consumer<String> onChunk) {
+        Sinks.Many<String> chunks = Sinks.many().unicast().onBackpressureBuffer();
+        chunks.asFlux()
+            .buffer(Duration.ofMillis(streamFlushIntervalMs))
+            .filter(batch -> !batch.isEmpty())
+            .map(batch -> String.join("", batch))
+            .subscribe(frame -> {
+                if (onChunk != null) {
+                    onChunk.accept(frame);
+                }
+            }, e -> log.warn("Failed to forward AI response chunk for session {}", turn.sessionId(), e));
+        return chunks;
+    }
+    
+    private ChatTurn beginTurn(String sessionId, String userId, ChatMessageRequest request) {
         AIChatSession session = sessionRepository.findByIdAndUserId(sessionId, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Chat session not found"));
         
@@ -123,93 +182,109 @@ public class AIAssistantService {
         session.setMessageCount(session.getMessageCount() + 1);
         sessionRepository.save(session);
         
-        try {
-            // Get conversation history
-            List<com.chartdb.model.AIMessage> history = messageRepository
-                .findBySessionIdOrderByCreatedAtAsc(sessionId);
-            
-            // Build AI request with conversation history
-            List<com.chartdb.dto.ai.AIMessage> messages = new ArrayList<>();
-            
-            // Add system message with context
-            String systemContext = buildSystemPrompt(session.getContext());
+        // Get the recent conversation; older turns are folded into the session summary
+        List<com.chartdb.model.AIMessage> history = historyWindow.load(session);
+        
+        // Build AI request with conversation history
+        List<com.chartdb.dto.ai.AIMessage> messages = new ArrayList<>();
+        
+        // Add system message with the schema; the last two questions pick the tables on large diagrams,
+        // so follow-ups like "and its indexes?" keep the tables of the question before
+        String question = request.getMessage();
+        for (int i = history.size() - 2; i >= 0; i--) {
+            if (history.get(i).getRole() == MessageRole.USER) {
+                question += "\n" + history.get(i).getContent();
+                break;
+            }
+        }
+        String systemContext = buildSystemPrompt(session.getDiagram().getId(), question, session.getHistorySummary());
+        messages.add(com.chartdb.dto.ai.AIMessage.builder()
+            .role("system")
+            .content(systemContext)
+            .build());
+        
+        // Add conversation history
+        for (com.chartdb.model.AIMessage msg : history) {
             messages.add(com.chartdb.dto.ai.AIMessage.builder()
-                .role("system")
-                .content(systemContext)
+                .role(msg.getRole().name().toLowerCase())
+                .content(msg.getContent())
                 .build());
-            
-            // Add conversation history
-            for (com.chartdb.model.AIMessage msg : history) {
-                messages.add(com.chartdb.dto.ai.AIMessage.builder()
-                    .role(msg.getRole().name().toLowerCase())
-                    .content(msg.getContent())
-                    .build());
-            }
-            
-            AIRequest aiRequest = AIRequest.builder()
-                .messages(messages)
-                .model(model)
-                .temperature(0.7)
-                .maxTokens(2000)
-                .tools(AIToolDefinitions.getDiagramTools())  // Enable agent mode with tools
-                .build();
-            
-            // Call AI provider with retry logic for rate limiting
-            AIResponse aiResponse = callAIWithRetry(providerCode, aiRequest, apiKey, onChunk);
-            
-            // Check if AI wants to call a function
-            if (aiResponse.getFunctionCall() != null) {
-                return handleFunctionCall(session, aiResponse.getFunctionCall(), 
-                    userId, providerCode, apiKey, model);
-            }
-            
-            // Save assistant response
-            Map<String, Object> metadata = new HashMap<>(aiResponse.getMetadata());
-            metadata.put("tokens", aiResponse.getTokensUsed());
-            metadata.put("model", aiResponse.getModel());
-            
-            com.chartdb.model.AIMessage assistantMessage = com.chartdb.model.AIMessage.builder()
-                .session(session)
-                .role(MessageRole.ASSISTANT)
-                .content(aiResponse.getContent())
-                .metadata(metadata)
-                .build();
-            
-            assistantMessage = messageRepository.save(assistantMessage);
-            
-            session.setMessageCount(session.getMessageCount() + 1);
-            sessionRepository.save(session);
-            
-            // Update usage stats
-            updateUsageStats(aiConfig, aiResponse.getTokensUsed());
-            
-            return mapMessageToResponse(assistantMessage);
-            
-        } catch (Exception e) {
-            log.error("Error getting AI response", e);
-            
-            // Create user-friendly error message
-            String errorMessageStr = "Sorry, I encountered an error: " + e.getMessage();
-            if (e.getMessage() != null && 
-                (e.getMessage().contains("429") || e.getMessage().contains("Too Many Requests"))) {
-                errorMessageStr = "I'm receiving too many requests right now. Please wait a moment and try again. " +
-                              "If this persists, check your API rate limits or consider upgrading your plan.";
-            }
-            
-            // Save error message
-            com.chartdb.model.AIMessage errorMessage = com.chartdb.model.AIMessage.builder()
-                .session(session)
-                .role(MessageRole.ASSISTANT)
-                .content(errorMessageStr)
-                .metadata(Map.of("error", true, "errorMessage", e.getMessage()))
-                .build();
-            
-            errorMessage = messageRepository.save(errorMessage);
-            session.setMessageCount(session.getMessageCount() + 1);
-            sessionRepository.save(session);
-            
-            return mapMessageToResponse(errorMessage);
         }
+        
+        AIRequest aiRequest = AIRequest.builder()
+            .messages(messages)
+            .model(model)
+            .temperature(0.7)
+            .maxTokens(2000)
+            .tools(AIToolDefinitions.getDiagramTools())  // Enable agent mode with tools
+            .build();
+        
+        return new ChatTurn(sessionId, userId, providerCode, apiKey, aiRequest);
+    }
+    
+    private AIMessageResponse completeTurn(ChatTurn turn, AIResponse aiResponse) {
+        AIChatSession session = sessionRepository.findById(turn.sessionId())
+            .orElseThrow(() -> new ResourceNotFoundException("Chat session not found"));
+        
+        // Check if AI wants to call a function
+        if (aiResponse.getFunctionCall() != null) {
+            return handleFunctionCall(session, aiResponse.getFunctionCall());
+        }
+        
+        // Save assistant response
+        Map<String, Object> metadata = new HashMap<>(aiResponse.getMetadata());
+        metadata.put("tokens", aiResponse.getTokensUsed());
+        metadata.put("model", aiResponse.getModel());
+        
+        com.chartdb.model.AIMessage assistantMessage = com.chartdb.model.AIMessage.builder()
+            .session(session)
+            .role(MessageRole.ASSISTANT)
+            .content(aiResponse.getContent())
+            .metadata(metadata)
+            .build();
+        
+        assistantMessage = messageRepository.save(assistantMessage);
+        
+        session.setMessageCount(session.getMessageCount() + 1);
+        sessionRepository.save(session);
+        
+        // Update usage stats
+        aiConfigRepository.findByUserId(turn.userId())
+            .ifPresent(aiConfig -> updateUsageStats(aiConfig, aiResponse.getTokensUsed()));
+        
+        return mapMessageToResponse(assistantMessage);
+    }
+    
+    private AIMessageResponse failTurn(ChatTurn turn, Throwable e) {
+        log.error("Error getting AI response", e);
+        
+        AIChatSession session = sessionRepository.findById(turn.sessionId())
+            .orElseThrow(() -> new ResourceNotFoundException("Chat session not found"));
+        
+        // Create user-friendly error message
+        String errorMessageStr = "Sorry, I encountered an error: " + e.getMessage();
+        if (isRateLimitError(e)) {
+            errorMessageStr = "I'm receiving too many requests right now. Please wait a moment and try again. " +
+                          "If this persists, check your API rate limits or consider upgrading your plan.";
+        }
+        
+        // Save error message
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("error", true);
+        metadata.put("errorMessage", String.valueOf(e.getMessage()));
+        
+        com.chartdb.model.AIMessage errorMessage = com.chartdb.model.AIMessage.builder()
+            .session(session)
+            .role(MessageRole.ASSISTANT)
+            .content(errorMessageStr)
+            .metadata(metadata)
+            .build();
+        
+        errorMessage = messageRepository.save(errorMessage);
+        session.setMessageCount(session.getMessageCount() + 1);
+        sessionRepository.save(session);
+        
+        return mapMessageToResponse(errorMessage);
     }
     
     private String getDefaultModel(String providerCode) {
@@ -225,9 +300,7 @@ public class AIAssistantService {
     /**
      * Handle AI function call - return to frontend for instant execution (Copilot-style)
      */
-    @Transactional
-    private AIMessageResponse handleFunctionCall(AIChatSession session, AIFunctionCall functionCall,
-                                                  String userId, String providerCode, String apiKey, String model) {
+    private AIMessageResponse handleFunctionCall(AIChatSession session, AIFunctionCall functionCall) {
         log.info("AI requested function call: {} - returning to frontend for instant execution", functionCall.getName());
         
         // Save function call as a message for audit
@@ -264,68 +337,22 @@ public class AIAssistantService {
         return mapMessageToResponse(functionCallMessage);
     }
     
-    private String buildSystemPrompt(Map<String, Object> context) {
+    private String buildSystemPrompt(String diagramId, String question, String historySummary) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("You are an AI assistant helping with database schema design. ");
-        prompt.append("Current diagram context:\n");
-        prompt.append("- Diagram: ").append(context.get("diagramName")).append("\n");
-        prompt.append("- Database Type: ").append(context.get("databaseType")).append("\n\n");
-        
-        // Add tables information
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> tables = (List<Map<String, Object>>) context.get("tables");
-        if (tables != null && !tables.isEmpty()) {
-            prompt.append("CURRENT SCHEMA:\n");
-            for (Map<String, Object> table : tables) {
-                prompt.append("\nTable: ").append(table.get("name")).append("\n");
-                
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> columns = (List<Map<String, Object>>) table.get("columns");
-                if (columns != null && !columns.isEmpty()) {
-                    prompt.append("Columns:\n");
-                    for (Map<String, Object> col : columns) {
-                        prompt.append("  - ").append(col.get("name"))
-                            .append(" (").append(col.get("type")).append(")");
-                        if (Boolean.TRUE.equals(col.get("primaryKey"))) {
-                            prompt.append(" [PK]");
-                        }
-                        if (Boolean.FALSE.equals(col.get("nullable"))) {
-                            prompt.append(" NOT NULL");
-                        }
-                        if (Boolean.TRUE.equals(col.get("unique"))) {
-                            prompt.append(" UNIQUE");
-                        }
-                        prompt.append("\n");
-                    }
-                }
-                
-                @SuppressWarnings("unchecked")
-                List<String> indexes = (List<String>) table.get("indexes");
-                if (indexes != null && !indexes.isEmpty()) {
-                    prompt.append("Indexes: ").append(String.join(", ", indexes)).append("\n");
-                }
-            }
-            
-            // Add relationships
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> relationships = (List<Map<String, Object>>) context.get("relationships");
-            if (relationships != null && !relationships.isEmpty()) {
-                prompt.append("\nRELATIONSHIPS:\n");
-                for (Map<String, Object> rel : relationships) {
-                    prompt.append("- ").append(rel.get("from"))
-                        .append(" -> ").append(rel.get("to"))
-                        .append(" (").append(rel.get("type")).append(")\n");
-                }
-            }
-        } else {
-            prompt.append("\n[Empty diagram - no tables yet]\n");
-        }
+        prompt.append("Current diagram schema:\n\n");
+        prompt.append(schemaPrompts.render(diagramId, question).orElse("[Diagram not available]\n"));
         
-        prompt.append("\nYou can see the complete schema above. When the user asks about 'this diagram' or 'the diagram', ");
+        prompt.append("\nYou can see the schema above; on large diagrams only the tables relevant to the question are ");
+        prompt.append("spelled out and the rest are listed by name. When the user asks about 'this diagram' or 'the diagram', ");
         prompt.append("you are referring to the schema shown above. Help with schema design, relationships, queries, ");
         prompt.append("optimization, and best practices. If the user asks you to review or modify the diagram, ");
         prompt.append("you can reference the specific tables and columns shown above.");
         
+        if (historySummary != null && !historySummary.isBlank()) {
+            prompt.append("\n\nEARLIER IN THIS CONVERSATION (condensed, oldest first):\n").append(historySummary);
+        }
+        
         return prompt.toString();
     }
     
@@ -374,91 +401,36 @@ public class AIAssistantService {
         log.info("Ended AI chat session: {}", sessionId);
     }
     
+    /**
+     * Session metadata only; the schema itself is rendered per message by {@link SchemaPromptCache}.
+     */
     private Map<String, Object> buildDiagramContext(Diagram diagram) {
         Map<String, Object> context = new HashMap<>();
         context.put("diagramId", diagram.getId());
         context.put("diagramName", diagram.getName());
         context.put("databaseType", diagram.getDatabaseType());
-        
-        // Include tables and their structure
-        List<Map<String, Object>> tables = new ArrayList<>();
-        for (DiagramTable table : diagram.getTables()) {
-            Map<String, Object> tableInfo = new HashMap<>();
-            tableInfo.put("name", table.getName());
-            
-            // Include columns
-            List<Map<String, Object>> columns = new ArrayList<>();
-            for (TableColumn column : table.getColumns()) {
-                Map<String, Object> columnInfo = new HashMap<>();
-                columnInfo.put("name", column.getName());
-                columnInfo.put("type", column.getDataType());
-                columnInfo.put("nullable", column.getIsNullable());
-                columnInfo.put("primaryKey", column.getIsPrimaryKey());
-                columnInfo.put("unique", column.getIsUnique());
-                columns.add(columnInfo);
-            }
-            tableInfo.put("columns", columns);
-            
-            tables.add(tableInfo);
-        }
-        context.put("tables", tables);
-        
-        // Include relationships
-        List<Map<String, Object>> relationships = new ArrayList<>();
-        for (Relationship rel : diagram.getRelationships()) {
-            Map<String, Object> relInfo = new HashMap<>();
-            relInfo.put("from", rel.getSourceTable().getName());
-            relInfo.put("to", rel.getTargetTable().getName());
-            relInfo.put("type", rel.getRelationshipType().toString());
-            relationships.add(relInfo);
-        }
-        context.put("relationships", relationships);
-        
         return context;
     }
     
     /**
-     * Call AI with exponential backoff retry for rate limiting (429 errors)
+     * Call AI with exponential backoff retry for rate limiting (429 errors). Retries are scheduled on the
+     * Reactor timer, so no thread sleeps while waiting for the next attempt.
      */
-    private AIResponse callAIWithRetry(String providerCode, AIRequest aiRequest, String apiKey) {
-        return callAIWithRetry(providerCode, aiRequest, apiKey, null);
+    private Mono<AIResponse> callAIWithRetry(String providerCode, AIRequest aiRequest, String apiKey, Consumer<String> onChunk) {
+        return Mono.defer(() -> providerFactory.getProvider(providerCode).sendRequestAsync(aiRequest, apiKey, onChunk))
+            .retryWhen(Retry.backoff(Math.max(0, retryMaxAttempts - 1), Duration.ofMillis(retryInitialBackoffMs))
+                .filter(this::isRateLimitError)
+                .doBeforeRetry(signal -> log.warn("Rate limit hit (attempt {}/{}), retrying with backoff...",
+                    signal.totalRetries() + 1, retryMaxAttempts))
+                // Surface the provider error itself so callers still see the 429
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
     }
     
-    private AIResponse callAIWithRetry(String providerCode, AIRequest aiRequest, String apiKey, Consumer<String> onChunk) {
-        int maxRetries = 3;
-        int baseDelayMs = 1000; // Start with 1 second
-        
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            try {
-                return providerFactory.getProvider(providerCode)
-                    .sendRequest(aiRequest, apiKey, onChunk);
-            } catch (Exception e) {
-                // Check if it's a rate limiting error
-                boolean isRateLimitError = e.getMessage() != null && 
-                    (e.getMessage().contains("429") || 
-                     e.getMessage().contains("Too Many Requests") ||
-                     e.getMessage().contains("rate limit"));
-                
-                if (!isRateLimitError || attempt == maxRetries - 1) {
-                    // Not a rate limit error, or last attempt - throw it
-                    throw e;
-                }
-                
-                // Calculate delay with exponential backoff
-                int delayMs = baseDelayMs * (int) Math.pow(2, attempt);
-                log.warn("Rate limit hit (attempt {}/{}), retrying in {}ms...", 
-                    attempt + 1, maxRetries, delayMs);
-                
-                try {
-                    Thread.sleep(delayMs);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Retry interrupted", ie);
-                }
-            }
-        }
-        
-        throw new RuntimeException("Failed after " + maxRetries + " retries");
+    private boolean isRateLimitError(Throwable e) {
+        return e.getMessage() != null &&
+            (e.getMessage().contains("429") ||
+             e.getMessage().contains("Too Many Requests") ||
+             e.getMessage().contains("rate limit"));
     }
     
     private AIChatSessionResponse mapSessionToResponse(AIChatSession session) {
@@ -482,4 +454,11 @@ public class AIAssistantService {
             .createdAt(message.getCreatedAt())
             .build();
     }
+    
+    /**
+     * What the provider call needs from the first transaction; no entities, so nothing lazy escapes it.
+     */
+    private record ChatTurn(String sessionId, String userId, String providerCode, String apiKey,
+                            AIRequest request) {
+    }
 }
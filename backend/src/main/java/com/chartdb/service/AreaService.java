@@ -7,6 +7,7 @@ import com.chartdb.mapper.AreaMapper;
 import com.chartdb.model.Diagram;
 import com.chartdb.model.DiagramArea;
 import com.chartdb.repository.AreaRepository;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -22,6 +23,7 @@ public class AreaService {
     private final AreaRepository areaRepository;
     private final AreaMapper areaMapper;
     private final DiagramService diagramService;
+    private final DiagramRevisionService revisionService;
 
     @Transactional(readOnly = true)
     public List<AreaResponse> getAreas(String diagramId, String userId) {
@@ -59,6 +61,7 @@ public class AreaService {
         }
 
         area = areaRepository.save(area);
+        revisionService.record(diagramId, EntityType.AREA, area.getId());
         log.info("Area created: {} in diagram {} by user {}", area.getId(), diagramId, userId);
         
         return areaMapper.toResponse(area);
@@ -77,6 +80,7 @@ public class AreaService {
 
         areaMapper.updateEntity(request, area);
         area = areaRepository.save(area);
+        revisionService.record(diagramId, EntityType.AREA, areaId);
         
         log.info("Area updated: {} in diagram {} by user {}", areaId, diagramId, userId);
         return areaMapper.toResponse(area);
@@ -95,6 +99,7 @@ public class AreaService {
         }
 
         areaRepository.deleteById(areaId);
+        revisionService.record(diagramId, EntityType.AREA, areaId);
         log.info("Area deleted: {} from diagram {} by user {}", areaId, diagramId, userId);
     }
 }
@@ -7,16 +7,22 @@ import com.chartdb.exception.ResourceNotFoundException;
 import com.chartdb.mapper.CollaboratorMapper;
 import com.chartdb.repository.ActiveCollaboratorRepository;
 import com.chartdb.repository.TableRepository;
-import com.chartdb.repository.TableLockRepository;
 import com.chartdb.repository.UserRepository;
+import com.chartdb.service.collaboration.PresenceEntry;
+import com.chartdb.service.collaboration.PresenceRegistry;
+import com.chartdb.service.collaboration.TableLease;
+import com.chartdb.service.collaboration.TableLockManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -31,14 +37,26 @@ public class CollaborationService {
     private final ActiveCollaboratorRepository collaboratorRepository;
     private final UserRepository userRepository;
     private final TableRepository tableRepository;
-    private final TableLockRepository lockRepository;
     private final DiagramService diagramService;
     private final CollaboratorMapper collaboratorMapper;
     private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceRegistry presenceRegistry;
+    private final TableLockManager lockManager;
+    private final TablePositionBuffer positionBuffer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    
+    // Rows deleted by a leave are not recreated, and a row refreshed since the snapshot (e.g. by a
+    // rejoin) is not overwritten with older state. Selections of deleted tables or columns become null.
+    private static final String UPDATE_PRESENCE =
+        "UPDATE active_collaborators SET cursor_x = ?, cursor_y = ?, " +
+        "selected_table_id = (SELECT id FROM tables WHERE id = ?), " +
+        "selected_column_id = (SELECT id FROM columns WHERE id = ?), " +
+        "is_idle = ?, status = ?, last_seen = ?, last_activity = ? " +
+        "WHERE id = ? AND (last_seen IS NULL OR last_seen <= ?)";
     
     private static final long SESSION_TIMEOUT_SECONDS = 60;
     private static final long IDLE_TIMEOUT_SECONDS = 300;
-    private static final long LOCK_TIMEOUT_SECONDS = 120;
     
     // ═══════════════════════════════════════════════════════════════
     // COLLABORATION SESSION MANAGEMENT
@@ -50,6 +68,8 @@ public class CollaborationService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
         
+        boolean canEdit = diagramService.canUserEdit(diagram, userId);
+        
         // Check if already in diagram
         ActiveCollaborator existing = collaboratorRepository
             .findByDiagramIdAndUserId(diagramId, userId)
@@ -60,7 +80,11 @@ public class CollaborationService {
             existing.setIsActive(true);
             existing.setLastSeen(Instant.now());
             existing = collaboratorRepository.save(existing);
-            return collaboratorMapper.toResponse(existing);
+            CollaboratorResponse response = collaboratorMapper.toResponse(existing);
+            if (!presenceRegistry.rebind(diagramId, userId, websocketSessionId)) {
+                presenceRegistry.register(response, websocketSessionId, canEdit);
+            }
+            return response;
         }
         
         // Assign cursor color based on number of existing collaborators
@@ -85,20 +109,25 @@ public class CollaborationService {
         collaborator = collaboratorRepository.save(collaborator);
         log.info("User {} joined diagram {} with cursor color {}", userId, diagramId, cursorColor);
         
+        CollaboratorResponse response = collaboratorMapper.toResponse(collaborator);
+        presenceRegistry.register(response, websocketSessionId, canEdit);
+        
         // Broadcast join event
-        broadcastPresence(diagramId, "JOIN", collaboratorMapper.toResponse(collaborator));
+        broadcastPresence(diagramId, "JOIN", response);
         
-        return collaboratorMapper.toResponse(collaborator);
+        return response;
     }
     
     @Transactional
     public void leaveDiagram(String diagramId, String userId) {
+        presenceRegistry.remove(diagramId, userId);
         collaboratorRepository.findByDiagramIdAndUserId(diagramId, userId)
             .ifPresent(collaborator -> {
                 CollaboratorResponse response = collaboratorMapper.toResponse(collaborator);
                 
                 // Release any locks held by this user
-                lockRepository.deleteByDiagramIdAndLockedByUserId(diagramId, userId);
+                lockManager.releaseAll(diagramId, userId);
+                positionBuffer.flushDiagram(diagramId);
                 
                 collaboratorRepository.delete(collaborator);
                 log.info("User {} left diagram {}", userId, diagramId);
@@ -110,6 +139,8 @@ public class CollaborationService {
     
     @Transactional
     public void leaveByWebsocketSession(String websocketSessionId) {
+        presenceRegistry.findByWebsocketSession(websocketSessionId)
+            .ifPresent(entry -> presenceRegistry.remove(entry.getDiagramId(), entry.getUserId()));
         collaboratorRepository.findByWebsocketSessionId(websocketSessionId)
             .ifPresent(collaborator -> {
                 String diagramId = collaborator.getDiagram().getId();
@@ -117,7 +148,8 @@ public class CollaborationService {
                 CollaboratorResponse response = collaboratorMapper.toResponse(collaborator);
                 
                 // Release any locks held by this user
-                lockRepository.deleteByDiagramIdAndLockedByUserId(diagramId, userId);
+                lockManager.releaseAll(diagramId, userId);
+                positionBuffer.flushDiagram(diagramId);
                 
                 collaboratorRepository.delete(collaborator);
                 log.info("User {} disconnected from diagram {}", userId, diagramId);
@@ -130,145 +162,134 @@ public class CollaborationService {
     // CURSOR AND SELECTION TRACKING
     // ═══════════════════════════════════════════════════════════════
     
-    @Transactional
+    // Cursor, selection and idle changes are kept in the presence registry and
+    // written to active_collaborators by flushPresence(), never per event.
+    
     public void updateCursorPosition(String diagramId, String userId, BigDecimal x, BigDecimal y) {
-        collaboratorRepository.findByDiagramIdAndUserId(diagramId, userId)
-            .ifPresent(collaborator -> {
-                collaboratorRepository.updateCursorPosition(collaborator.getId(), x, y, Instant.now());
-            });
+        presenceRegistry.updateCursor(diagramId, userId, x, y);
     }
     
-    @Transactional
     public void updateSelection(String diagramId, String userId, String tableId, String columnId) {
-        collaboratorRepository.findByDiagramIdAndUserId(diagramId, userId)
-            .ifPresent(collaborator -> {
-                if (tableId != null) {
-                    DiagramTable table = tableRepository.findById(tableId).orElse(null);
-                    collaborator.setSelectedTable(table);
-                } else {
-                    collaborator.setSelectedTable(null);
-                }
-                collaborator.setLastActivity(Instant.now());
-                collaboratorRepository.save(collaborator);
-            });
+        presenceRegistry.updateSelection(diagramId, userId, tableId, columnId);
+    }
+    
+    /**
+     * Whether real-time moves from this user may be persisted (edit permission checked at join).
+     */
+    public boolean canPersistChanges(String diagramId, String userId) {
+        return presenceRegistry.get(diagramId, userId).map(PresenceEntry::isCanEdit).orElse(false);
     }
     
     @Transactional(readOnly = true)
     public List<CollaboratorResponse> getActiveCollaborators(String diagramId) {
         List<ActiveCollaborator> collaborators = collaboratorRepository.findByDiagramIdAndIsActiveTrue(diagramId);
-        return collaboratorMapper.toResponseList(collaborators);
+        return collaborators.stream()
+            .map(collaborator -> presenceRegistry.get(diagramId, collaborator.getUser().getId())
+                .map(PresenceEntry::toResponse)
+                .orElseGet(() -> collaboratorMapper.toResponse(collaborator)))
+            .toList();
     }
     
     @Transactional(readOnly = true)
     public String getUserCursorColor(String diagramId, String userId) {
+        Optional<PresenceEntry> live = presenceRegistry.get(diagramId, userId);
+        if (live.isPresent() && live.get().getCursorColor() != null) {
+            return live.get().getCursorColor();
+        }
         return collaboratorRepository.findByDiagramIdAndUserId(diagramId, userId)
             .map(ActiveCollaborator::getCursorColor)
             .orElse("#6366f1"); // default indigo
     }
     
-    @Transactional
     public void markIdle(String diagramId, String userId, boolean idle) {
-        collaboratorRepository.findByDiagramIdAndUserId(diagramId, userId)
-            .ifPresent(collaborator -> {
-                collaboratorRepository.updateIdleStatus(
-                    collaborator.getId(), 
-                    idle, 
-                    idle ? "IDLE" : "ACTIVE"
-                );
-                
-                // Broadcast idle status change
-                CollaboratorResponse response = collaboratorMapper.toResponse(collaborator);
-                response.setIsIdle(idle);
-                response.setStatus(idle ? "IDLE" : "ACTIVE");
-                broadcastPresence(diagramId, "UPDATE", response);
-            });
+        presenceRegistry.markIdle(diagramId, userId, idle)
+            .ifPresent(entry -> broadcastPresence(diagramId, "UPDATE", entry.toResponse()));
     }
     
     // ═══════════════════════════════════════════════════════════════
     // TABLE LOCKING MECHANISM
     // ═══════════════════════════════════════════════════════════════
     
-    @Transactional
+    // Locks are leases in TableLockManager: acquiring one is a compare-and-set on
+    // an in-memory map (or on Redis with a multi-node broker), and expiry is handled by its timer wheel.
+    
     public boolean lockTable(String diagramId, String tableId, String userId) {
-        // Check if already locked by another user
-        Optional<TableLock> existingLock = lockRepository.findByTableId(tableId);
-        
-        if (existingLock.isPresent()) {
-            TableLock lock = existingLock.get();
-            
-            // If locked by same user, extend the lock
-            if (lock.getUser().getId().equals(userId)) {
-                lock.setExpiresAt(Instant.now().plusSeconds(LOCK_TIMEOUT_SECONDS));
-                lockRepository.save(lock);
-                return true;
-            }
-            
-            // If lock has expired, release it
-            if (lock.getExpiresAt().isBefore(Instant.now())) {
-                lockRepository.delete(lock);
-            } else {
-                // Lock is held by another user and not expired
-                log.info("Table {} is locked by user {}", tableId, lock.getUser().getId());
-                return false;
-            }
+        // Extending a lease the user already holds needs no lookup; anything else must name a table of this diagram
+        boolean extending = lockManager.getLease(tableId).filter(lease -> lease.isHeldBy(userId)).isPresent();
+        if (!extending && !tableRepository.existsByIdAndDiagramId(tableId, diagramId)) {
+            throw new ResourceNotFoundException("Table", "id", tableId);
         }
         
-        // Create new lock
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-        DiagramTable table = tableRepository.findById(tableId)
-            .orElseThrow(() -> new ResourceNotFoundException("Table", "id", tableId));
-        
-        TableLock lock = TableLock.builder()
-            .table(table)
-            .user(user)
-            .acquiredAt(Instant.now())
-            .expiresAt(Instant.now().plusSeconds(LOCK_TIMEOUT_SECONDS))
-            .build();
-        
-        lockRepository.save(lock);
-        log.info("User {} acquired lock on table {}", userId, tableId);
-        
+        TableLease holder = lockManager.tryAcquire(diagramId, tableId, userId);
+        if (!holder.isHeldBy(userId)) {
+            log.info("Table {} is locked by user {}", tableId, holder.userId());
+            return false;
+        }
+        log.debug("User {} holds lock on table {} until {}", userId, tableId, holder.expiresAt());
         return true;
     }
     
-    @Transactional
     public void unlockTable(String diagramId, String tableId, String userId) {
-        lockRepository.findByTableIdAndLockedByUserId(tableId, userId)
-            .ifPresent(lock -> {
-                lockRepository.delete(lock);
-                log.info("User {} released lock on table {}", userId, tableId);
-            });
+        if (lockManager.release(tableId, userId)) {
+            log.info("User {} released lock on table {}", userId, tableId);
+        }
     }
     
-    @Transactional
     public void unlockTable(String diagramId, String tableId) {
-        lockRepository.deleteByTableId(tableId);
+        lockManager.forceRelease(tableId);
         log.info("Released all locks on table {}", tableId);
     }
     
-    @Transactional(readOnly = true)
     public boolean isTableLocked(String tableId) {
-        return lockRepository.existsByTableIdAndExpiresAtAfter(tableId, Instant.now());
+        return lockManager.isLocked(tableId);
     }
     
-    @Transactional(readOnly = true)
-    public Optional<TableLock> getTableLock(String tableId) {
-        return lockRepository.findByTableIdAndExpiresAtAfter(tableId, Instant.now());
+    public Optional<TableLease> getTableLock(String tableId) {
+        return lockManager.getLease(tableId);
     }
     
     // ═══════════════════════════════════════════════════════════════
     // SCHEDULED CLEANUP
     // ═══════════════════════════════════════════════════════════════
     
+    @Scheduled(fixedDelayString = "${collaboration.presence.flush-interval-ms:5000}")
+    public void flushPresence() {
+        List<PresenceEntry.Snapshot> dirty = presenceRegistry.drainDirty();
+        if (dirty.isEmpty()) {
+            return;
+        }
+        
+        List<Object[]> updates = dirty.stream()
+            .map(snapshot -> new Object[] {
+                snapshot.cursorX(),
+                snapshot.cursorY(),
+                snapshot.selectedTableId(),
+                snapshot.selectedColumnId(),
+                snapshot.idle(),
+                snapshot.idle() ? "IDLE" : "ACTIVE",
+                Timestamp.from(snapshot.lastSeen()),
+                Timestamp.from(snapshot.lastActivity()),
+                snapshot.collaboratorId(),
+                Timestamp.from(snapshot.lastSeen())
+            })
+            .toList();
+        
+        // The transaction template commits before returning, so a failed commit still reaches the requeue
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_PRESENCE, updates));
+            log.debug("Flushed presence for {} collaborators", updates.size());
+        } catch (RuntimeException e) {
+            presenceRegistry.requeue(dirty);
+            log.warn("Failed to flush presence for {} collaborators, will retry: {}", updates.size(), e.getMessage());
+        }
+    }
+    
     @Scheduled(fixedRate = 30000)
     @Transactional
     public void cleanupStaleSessions() {
         Instant staleThreshold = Instant.now().minus(SESSION_TIMEOUT_SECONDS, ChronoUnit.SECONDS);
+        presenceRegistry.evictStale(staleThreshold);
         collaboratorRepository.deleteStaleSessions(staleThreshold);
-        
-        // Also cleanup expired locks
-        lockRepository.deleteExpiredLocks(Instant.now());
     }
     
     // ═══════════════════════════════════════════════════════════════
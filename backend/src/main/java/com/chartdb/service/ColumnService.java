@@ -9,10 +9,12 @@ import com.chartdb.exception.ResourceNotFoundException;
 import com.chartdb.mapper.ColumnMapper;
 import com.chartdb.model.Diagram;
 import com.chartdb.model.DiagramTable;
+import com.chartdb.model.Relationship;
 import com.chartdb.model.TableColumn;
 import com.chartdb.repository.ColumnRepository;
 import com.chartdb.repository.RelationshipRepository;
 import com.chartdb.repository.TableRepository;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,6 +32,7 @@ public class ColumnService {
     private final RelationshipRepository relationshipRepository;
     private final DiagramService diagramService;
     private final ColumnMapper columnMapper;
+    private final DiagramRevisionService revisionService;
     
     @Transactional
     public ColumnResponse createColumn(String tableId, String userId, CreateColumnRequest request) {
@@ -67,6 +70,7 @@ public class ColumnService {
         }
         
         column = columnRepository.save(column);
+        revisionService.record(diagram.getId(), EntityType.TABLE, tableId);
         log.info("Column created: {} in table {} by user {}", column.getId(), tableId, userId);
         
         return columnMapper.toResponse(column);
@@ -132,6 +136,7 @@ public class ColumnService {
         }
         
         column = columnRepository.save(column);
+        revisionService.record(diagram.getId(), EntityType.TABLE, table.getId());
         return columnMapper.toResponse(column);
     }
     
@@ -148,6 +153,9 @@ public class ColumnService {
         int orderIndex = column.getOrderIndex();
         
         // Delete relationships involving this column
+        List<String> relationshipIds = relationshipRepository.findByColumnId(columnId).stream()
+            .map(Relationship::getId)
+            .toList();
         relationshipRepository.deleteByColumnId(columnId);
         
         // Delete the column
@@ -155,6 +163,10 @@ public class ColumnService {
         
         // Shift order indices
         columnRepository.shiftOrderIndicesDown(table.getId(), orderIndex);
+        revisionService.record(diagram.getId(), EntityType.TABLE, table.getId());
+        if (!relationshipIds.isEmpty()) {
+            revisionService.recordAll(diagram.getId(), EntityType.RELATIONSHIP, relationshipIds);
+        }
         
         log.info("Column deleted: {} from table {} by user {}", columnId, table.getId(), userId);
     }
@@ -172,6 +184,7 @@ public class ColumnService {
         for (int i = 0; i < columnIds.size(); i++) {
             columnRepository.updateOrderIndex(columnIds.get(i), i);
         }
+        revisionService.record(diagram.getId(), EntityType.TABLE, tableId);
     }
     
     public TableColumn findColumnById(String columnId) {
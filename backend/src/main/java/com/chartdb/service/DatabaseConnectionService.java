@@ -12,6 +12,7 @@ import com.chartdb.model.enums.ConnectionStatus;
 import com.chartdb.repository.DatabaseConnectionRepository;
 import com.chartdb.repository.DiagramRepository;
 import com.chartdb.repository.UserRepository;
+import com.chartdb.service.query.ConnectionPoolRegistry;
 import com.chartdb.util.EncryptionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +33,7 @@ public class DatabaseConnectionService {
     private final DiagramRepository diagramRepository;
     private final UserRepository userRepository;
     private final EncryptionUtil encryptionUtil;
+    private final ConnectionPoolRegistry connectionPools;
     
     @Transactional
     public ConnectionResponse createConnection(String userId, CreateConnectionRequest request) {
@@ -67,6 +69,7 @@ public class DatabaseConnectionService {
             .encryptedPassword(encryptedPassword)
             .sslEnabled(request.getSslEnabled())
             .additionalParams(request.getAdditionalParams())
+            .queryTimeoutSeconds(request.getQueryTimeoutSeconds())
             .status(ConnectionStatus.UNKNOWN)
             .build();
         
@@ -101,6 +104,7 @@ public class DatabaseConnectionService {
             .orElseThrow(() -> new ResourceNotFoundException("Connection not found"));
         
         connectionRepository.delete(connection);
+        connectionPools.invalidate(connectionId);
         log.info("Deleted database connection: {}", connectionId);
     }
     
@@ -108,35 +112,17 @@ public class DatabaseConnectionService {
         long startTime = System.currentTimeMillis();
         
         try {
-            String jdbcUrl = buildJdbcUrl(request.getDatabaseType(), request.getHost(), 
+            String jdbcUrl = ConnectionPoolRegistry.buildJdbcUrl(request.getDatabaseType(), request.getHost(), 
                 request.getPort(), request.getDatabaseName(), false);// as of now hardcoded
             
             try (Connection conn = DriverManager.getConnection(
                     jdbcUrl, 
                     request.getUsername(), 
                     request.getPassword())) {
-                
-                DatabaseMetaData metaData = conn.getMetaData();
-                long duration = System.currentTimeMillis() - startTime;
-                
-                return ConnectionTestResult.builder()
-                    .success(true)
-                    .message("Connection successful")
-                    .databaseProduct(metaData.getDatabaseProductName())
-                    .databaseVersion(metaData.getDatabaseProductVersion())
-                    .responseTimeMs(duration)
-                    .build();
+                return successResult(conn, startTime);
             }
         } catch (SQLException e) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.error("Connection test failed", e);
-            
-            return ConnectionTestResult.builder()
-                .success(false)
-                .message("Connection failed: " + e.getMessage())
-                .errorCode(String.valueOf(e.getErrorCode()))
-                .responseTimeMs(duration)
-                .build();
+            return failureResult(e, startTime);
         }
     }
     
@@ -145,19 +131,14 @@ public class DatabaseConnectionService {
         DatabaseConnection connection = connectionRepository.findByIdAndUserId(connectionId, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Connection not found"));
         
-        String decryptedPassword = encryptionUtil.decrypt(connection.getEncryptedPassword());
-        
-        TestConnectionRequest request = TestConnectionRequest.builder()
-            .databaseType(connection.getDatabaseType())
-            .host(connection.getHost())
-            .port(connection.getPort())
-            .databaseName(connection.getDatabaseName())
-            .username(connection.getUsername())
-            .password(decryptedPassword)
-            .sslEnabled(connection.getSslEnabled())
-            .build();
-        
-        ConnectionTestResult result = testConnection(request);
+        // Goes through the saved connection's pool, so a successful test also warms it for queries
+        ConnectionTestResult result;
+        long startTime = System.currentTimeMillis();
+        try (Connection conn = connectionPools.getConnection(connection)) {
+            result = successResult(conn, startTime);
+        } catch (SQLException e) {
+            result = failureResult(e, startTime);
+        }
         
         // Update connection status
         if (result.isSuccess()) {
@@ -174,26 +155,29 @@ public class DatabaseConnectionService {
         return result;
     }
     
-    private String buildJdbcUrl(String databaseType, String host, Integer port, 
-                                 String databaseName, Boolean sslEnabled) {
-        boolean useSsl = Boolean.TRUE.equals(sslEnabled);
-        
-        return switch (databaseType.toLowerCase()) {
-            case "postgresql" -> {
-                String sslParam = useSsl ? "ssl=true&sslmode=require" : "sslmode=disable";
-                yield String.format("jdbc:postgresql://%s:%d/%s?%s", host, port, databaseName, sslParam);
-            }
-            case "mysql" -> {
-                String sslParam = useSsl ? "useSSL=true&requireSSL=true" : "useSSL=false";
-                yield String.format("jdbc:mysql://%s:%d/%s?%s", host, port, databaseName, sslParam);
-            }
-            case "sqlserver" -> 
-                String.format("jdbc:sqlserver://%s:%d;databaseName=%s;encrypt=%s", 
-                    host, port, databaseName, useSsl ? "true" : "false");
-            case "oracle" -> 
-                String.format("jdbc:oracle:thin:@%s:%d:%s", host, port, databaseName);
-            default -> throw new IllegalArgumentException("Unsupported database type: " + databaseType);
-        };
+    private ConnectionTestResult successResult(Connection conn, long startTime) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        long duration = System.currentTimeMillis() - startTime;
+        
+        return ConnectionTestResult.builder()
+            .success(true)
+            .message("Connection successful")
+            .databaseProduct(metaData.getDatabaseProductName())
+            .databaseVersion(metaData.getDatabaseProductVersion())
+            .responseTimeMs(duration)
+            .build();
+    }
+    
+    private ConnectionTestResult failureResult(SQLException e, long startTime) {
+        long duration = System.currentTimeMillis() - startTime;
+        log.error("Connection test failed", e);
+        
+        return ConnectionTestResult.builder()
+            .success(false)
+            .message("Connection failed: " + e.getMessage())
+            .errorCode(String.valueOf(e.getErrorCode()))
+            .responseTimeMs(duration)
+            .build();
     }
     
     private ConnectionResponse mapToResponse(DatabaseConnection connection) {
@@ -207,6 +191,7 @@ public class DatabaseConnectionService {
             .databaseName(connection.getDatabaseName())
             .username(connection.getUsername())
             .sslEnabled(connection.getSslEnabled())
+            .queryTimeoutSeconds(connection.getQueryTimeoutSeconds())
             .status(connection.getStatus())
             .lastConnectedAt(connection.getLastConnectedAt())
             .lastError(connection.getLastError())
@@ -4,6 +4,7 @@ import com.chartdb.dto.ai.AIFunctionCall;
 import com.chartdb.model.*;
 import com.chartdb.model.enums.RelationshipType;
 import com.chartdb.repository.*;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,7 @@ public class DiagramActionService {
     private final ColumnRepository columnRepository;
     private final RelationshipRepository relationshipRepository;
     private final ObjectMapper objectMapper;
+    private final DiagramRevisionService revisionService;
     
     @Transactional
     public Map<String, Object> executeFunction(AIFunctionCall functionCall, String diagramId, String userId) {
@@ -90,6 +92,7 @@ public class DiagramActionService {
             columnRepository.save(column);
             createdColumns.add(column.getName());
         }
+        revisionService.record(diagramId, EntityType.TABLE, table.getId());
         
         return Map.of(
             "success", true,
@@ -128,6 +131,7 @@ public class DiagramActionService {
         column.setIsUnique(unique instanceof Boolean ? (Boolean) unique : Boolean.FALSE);
         
         columnRepository.save(column);
+        revisionService.record(diagramId, EntityType.TABLE, table.getId());
         
         return Map.of(
             "success", true,
@@ -166,6 +170,7 @@ public class DiagramActionService {
         }
         
         columnRepository.save(column);
+        revisionService.record(diagramId, EntityType.TABLE, table.getId());
         
         return Map.of(
             "success", true,
@@ -181,6 +186,7 @@ public class DiagramActionService {
             .orElseThrow(() -> new RuntimeException("Table '" + tableName + "' not found"));
         
         tableRepository.delete(table);
+        revisionService.record(diagramId, EntityType.TABLE, table.getId());
         
         return Map.of(
             "success", true,
@@ -199,6 +205,7 @@ public class DiagramActionService {
             .orElseThrow(() -> new RuntimeException("Column '" + columnName + "' not found"));
         
         columnRepository.delete(column);
+        revisionService.record(diagramId, EntityType.TABLE, table.getId());
         
         return Map.of(
             "success", true,
@@ -224,6 +231,7 @@ public class DiagramActionService {
         relationship.setTargetTable(target);
         relationship.setRelationshipType(type);
         relationshipRepository.save(relationship);
+        revisionService.record(diagramId, EntityType.RELATIONSHIP, relationship.getId());
         
         return Map.of(
             "success", true,
@@ -250,6 +258,8 @@ public class DiagramActionService {
         }
         
         relationshipRepository.deleteAll(relationships);
+        revisionService.recordAll(diagramId, EntityType.RELATIONSHIP,
+            relationships.stream().map(Relationship::getId).toList());
         
         return Map.of(
             "success", true,
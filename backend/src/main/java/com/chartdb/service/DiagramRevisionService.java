@@ -0,0 +1,130 @@
+package com.chartdb.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Monotonic per-diagram content revision plus a log of which entities changed at each revision.
+ * Every mutating service records its change here inside its own transaction. The UPDATE on the
+ * diagram row serializes writers of the same diagram, so revisions follow commit order.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DiagramRevisionService {
+    
+    public enum EntityType { DIAGRAM, TABLE, RELATIONSHIP, AREA, NOTE }
+    
+    private static final String BUMP_REVISION =
+        "UPDATE diagrams SET revision = revision + 1 WHERE id = ? RETURNING revision";
+    private static final String INSERT_CHANGE =
+        "INSERT INTO diagram_changes (diagram_id, revision, entity_type, entity_id, changed_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_CHANGES =
+        "SELECT entity_type, entity_id FROM diagram_changes WHERE diagram_id = ? AND revision > ? AND revision <= ?";
+    private static final String PRUNE_CHANGES =
+        "WITH pruned AS (DELETE FROM diagram_changes WHERE changed_at < ? RETURNING diagram_id, revision) " +
+        "UPDATE diagrams d SET changes_floor = GREATEST(d.changes_floor, p.max_revision) " +
+        "FROM (SELECT diagram_id, MAX(revision) AS max_revision FROM pruned GROUP BY diagram_id) p " +
+        "WHERE d.id = p.diagram_id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final DiagramSnapshotCache snapshotCache;
+    
+    @Value("${diagram.changes.retention-days:7}")
+    private int retentionDays;
+    
+    @Transactional
+    public long record(String diagramId, EntityType type, String entityId) {
+        return recordAll(diagramId, type, List.of(entityId));
+    }
+    
+    /**
+     * Bump the diagram revision once and log every given entity at the new revision.
+     * Returns 0 if the diagram row no longer exists.
+     */
+    @Transactional
+    public long recordAll(String diagramId, EntityType type, Collection<String> entityIds) {
+        List<Long> bumped = jdbcTemplate.queryForList(BUMP_REVISION, Long.class, diagramId);
+        snapshotCache.invalidate(diagramId);
+        if (bumped.isEmpty()) {
+            return 0L;
+        }
+        
+        long revision = bumped.get(0);
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = entityIds.stream()
+            .distinct()
+            .map(entityId -> new Object[]{diagramId, revision, type.name(), entityId, now})
+            .toList();
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_CHANGE, rows);
+        }
+        return revision;
+    }
+    
+    /**
+     * Current revision of an active diagram, without loading the entity.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> currentRevision(String diagramId) {
+        return jdbcTemplate.queryForList(
+            "SELECT revision FROM diagrams WHERE id = ? AND status <> 'ARCHIVED'", Long.class, diagramId)
+            .stream().findFirst();
+    }
+    
+    /**
+     * Entities changed after {@code since}, grouped by type. {@code complete} is false when part
+     * of that range has already been pruned and the caller must reload the whole diagram.
+     */
+    @Transactional(readOnly = true)
+    public ChangeSet changesSince(String diagramId, long since) {
+        Map<String, Object> state = jdbcTemplate.queryForMap(
+            "SELECT revision, changes_floor FROM diagrams WHERE id = ?", diagramId);
+        long revision = ((Number) state.get("revision")).longValue();
+        long floor = ((Number) state.get("changes_floor")).longValue();
+        
+        Map<EntityType, Set<String>> changed = new EnumMap<>(EntityType.class);
+        if (since < floor || since > revision) {
+            return new ChangeSet(revision, false, changed);
+        }
+        
+        jdbcTemplate.query(SELECT_CHANGES, rs -> {
+            changed.computeIfAbsent(EntityType.valueOf(rs.getString(1)), type -> new LinkedHashSet<>())
+                .add(rs.getString(2));
+        }, diagramId, since, revision);
+        return new ChangeSet(revision, true, changed);
+    }
+    
+    @Scheduled(fixedDelayString = "${diagram.changes.prune-interval-ms:3600000}")
+    @Transactional
+    public void pruneChanges() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(retentionDays));
+        int diagrams = jdbcTemplate.update(PRUNE_CHANGES, Timestamp.from(cutoff));
+        if (diagrams > 0) {
+            log.info("Pruned diagram change log for {} diagrams older than {}", diagrams, cutoff);
+        }
+    }
+    
+    public record ChangeSet(long revision, boolean complete, Map<EntityType, Set<String>> changed) {
+        
+        public Set<String> ids(EntityType type) {
+            return changed.getOrDefault(type, Set.of());
+        }
+    }
+}
@@ -5,19 +5,26 @@ import com.chartdb.dto.request.UpdateDiagramRequest;
 import com.chartdb.dto.response.*;
 import com.chartdb.exception.AccessDeniedException;
 import com.chartdb.exception.ResourceNotFoundException;
+import com.chartdb.mapper.AreaMapper;
 import com.chartdb.mapper.DiagramMapper;
+import com.chartdb.mapper.NoteMapper;
 import com.chartdb.mapper.RelationshipMapper;
 import com.chartdb.mapper.TableMapper;
 import com.chartdb.model.Diagram;
+import com.chartdb.model.DiagramArea;
+import com.chartdb.model.DiagramNote;
 import com.chartdb.model.DiagramTable;
 import com.chartdb.model.Relationship;
 import com.chartdb.model.User;
 import com.chartdb.model.enums.DiagramStatus;
 import com.chartdb.model.enums.PermissionLevel;
+import com.chartdb.repository.AreaRepository;
 import com.chartdb.repository.DiagramRepository;
+import com.chartdb.repository.NoteRepository;
 import com.chartdb.repository.RelationshipRepository;
 import com.chartdb.repository.TableRepository;
 import com.chartdb.repository.UserRepository;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -27,8 +34,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -43,6 +53,13 @@ public class DiagramService {
     private final TableMapper tableMapper;
     private final RelationshipMapper relationshipMapper;
     private final PermissionService permissionService;
+    private final TablePositionBuffer positionBuffer;
+    private final DiagramSnapshotCache snapshotCache;
+    private final DiagramRevisionService revisionService;
+    private final AreaRepository areaRepository;
+    private final NoteRepository noteRepository;
+    private final AreaMapper areaMapper;
+    private final NoteMapper noteMapper;
     
     @Transactional
     public DiagramResponse createDiagram(String userId, CreateDiagramRequest request) {
@@ -107,37 +124,117 @@ public class DiagramService {
             throw new AccessDeniedException("You don't have permission to view this diagram");
         }
         
-        // Load tables with columns
-        List<DiagramTable> tables = tableRepository.findByDiagramIdWithColumns(diagramId);
-        List<Relationship> relationships = relationshipRepository.findByDiagramId(diagramId);
-        
         // Get user's permission level
         PermissionLevel permissionLevel = permissionService.getPermissionLevel(diagramId, userId);
         
         // Update last accessed
         diagramRepository.updateLastAccessed(diagramId, Instant.now());
         
-        return DiagramFullResponse.builder()
-            .id(diagram.getId())
-            .name(diagram.getName())
-            .description(diagram.getDescription())
-            .databaseType(diagram.getDatabaseType())
-            .isPublic(diagram.getIsPublic())
-            .zoom(diagram.getCanvasZoom())
-            .offsetX(diagram.getCanvasOffsetX())
-            .offsetY(diagram.getCanvasOffsetY())
-            .tableCount(tables.size())
-            .relationshipCount(relationships.size())
-            .ownerId(diagram.getOwner().getId())
-            .ownerDisplayName(diagram.getOwner().getDisplayName())
-            .createdAt(diagram.getCreatedAt())
-            .updatedAt(diagram.getUpdatedAt())
-            .tables(tableMapper.toResponseList(tables))
+        DiagramFullResponse response = buildFullResponse(diagram, diagram.getRevision() != null ? diagram.getRevision() : 0L);
+        response.setPermissionLevel(permissionLevel != null ? permissionLevel.name() : "VIEWER");
+        return response;
+    }
+    
+    /**
+     * Same content as {@link #getFullDiagram}, already wrapped in an ApiResponse and serialized.
+     * Served from {@link DiagramSnapshotCache} while the diagram revision is unchanged. The ETag
+     * combines revision and permission level; a matching If-None-Match skips the body entirely.
+     */
+    @Transactional
+    public FullDiagramJson getFullDiagramJson(String diagramId, String userId, String ifNoneMatch) {
+        long revision = revisionService.currentRevision(diagramId)
+            .orElseThrow(() -> new ResourceNotFoundException("Diagram", "id", diagramId));
+        
+        // Buffered moves are overlaid per request and are not covered by the revision yet
+        boolean pendingMoves = positionBuffer.hasPending(diagramId);
+        DiagramSnapshotCache.Snapshot snapshot = pendingMoves ? null : snapshotCache.get(diagramId, revision).orElse(null);
+        Diagram diagram = snapshot == null ? findDiagramById(diagramId) : null;
+        
+        String ownerId = snapshot != null ? snapshot.ownerId() : diagram.getOwner().getId();
+        boolean isPublic = snapshot != null ? snapshot.isPublic() : Boolean.TRUE.equals(diagram.getIsPublic());
+        PermissionLevel level = permissionService.getPermissionLevel(diagramId, userId);
+        if (!isPublic && !ownerId.equals(userId) && level == null) {
+            throw new AccessDeniedException("You don't have permission to view this diagram");
+        }
+        String permissionLevel = level != null ? level.name() : "VIEWER";
+        
+        if (snapshotCache.shouldTouch(diagramId)) {
+            diagramRepository.updateLastAccessed(diagramId, Instant.now());
+        }
+        
+        String eTag = pendingMoves ? null : "W/\"" + revision + "-" + permissionLevel + "\"";
+        if (eTag != null && matchesETag(ifNoneMatch, eTag)) {
+            return new FullDiagramJson(revision, eTag, null);
+        }
+        
+        if (snapshot == null) {
+            snapshot = snapshotCache.serialize(revision, buildFullResponse(diagram, revision));
+            if (!pendingMoves) {
+                snapshotCache.store(snapshot);
+            }
+        }
+        return new FullDiagramJson(revision, eTag, snapshotCache.render(snapshot, permissionLevel));
+    }
+    
+    /**
+     * Tables, relationships, areas and notes changed after the given revision.
+     */
+    @Transactional(readOnly = true)
+    public DiagramChangesResponse getChangesSince(String diagramId, String userId, long since) {
+        Diagram diagram = findDiagramById(diagramId);
+        
+        if (!canUserView(diagram, userId)) {
+            throw new AccessDeniedException("You don't have permission to view this diagram");
+        }
+        
+        DiagramRevisionService.ChangeSet changes = revisionService.changesSince(diagramId, since);
+        DiagramChangesResponse.DiagramChangesResponseBuilder response = DiagramChangesResponse.builder()
+            .diagramId(diagramId)
+            .since(since)
+            .revision(changes.revision())
+            .fullReload(!changes.complete());
+        if (!changes.complete()) {
+            return response.build();
+        }
+        
+        if (!changes.ids(EntityType.DIAGRAM).isEmpty()) {
+            response.diagram(diagramMapper.toResponse(diagram));
+        }
+        
+        Set<String> tableIds = changes.ids(EntityType.TABLE);
+        List<DiagramTable> tables = tableIds.isEmpty()
+            ? List.of()
+            : tableRepository.findByDiagramIdAndIdInWithColumns(diagramId, tableIds);
+        List<TableResponse> tableResponses = tableMapper.toResponseList(tables);
+        positionBuffer.applyPending(tableResponses);
+        
+        Set<String> relationshipIds = changes.ids(EntityType.RELATIONSHIP);
+        List<Relationship> relationships = relationshipIds.isEmpty()
+            ? List.of()
+            : relationshipRepository.findByDiagramIdAndIdInWithTables(diagramId, relationshipIds);
+        
+        Set<String> areaIds = changes.ids(EntityType.AREA);
+        List<DiagramArea> areas = areaRepository.findAllById(areaIds).stream()
+            .filter(area -> area.getDiagram().getId().equals(diagramId))
+            .toList();
+        
+        Set<String> noteIds = changes.ids(EntityType.NOTE);
+        List<DiagramNote> notes = noteRepository.findAllById(noteIds).stream()
+            .filter(note -> note.getDiagram().getId().equals(diagramId))
+            .toList();
+        
+        return response
+            .tables(tableResponses)
+            .deletedTableIds(missing(tableIds, tables.stream().map(DiagramTable::getId)))
             .relationships(relationshipMapper.toResponseList(relationships))
-            .permissionLevel(permissionLevel != null ? permissionLevel.name() : "VIEWER")
+            .deletedRelationshipIds(missing(relationshipIds, relationships.stream().map(Relationship::getId)))
+            .areas(areaMapper.toResponseList(areas))
+            .deletedAreaIds(missing(areaIds, areas.stream().map(DiagramArea::getId)))
+            .notes(noteMapper.toResponseList(notes))
+            .deletedNoteIds(missing(noteIds, notes.stream().map(DiagramNote::getId)))
             .build();
     }
-
+    
     @Transactional(readOnly = true)
     public Page<DiagramSummaryResponse> getUserDiagrams(String userId, Pageable pageable) {
         Page<Diagram> diagrams = diagramRepository.findAccessibleByUser(userId, DiagramStatus.ACTIVE, pageable);
@@ -176,6 +273,7 @@ public class DiagramService {
         if (request.getCanvasOffsetY() != null) diagram.setCanvasOffsetY(request.getCanvasOffsetY());
         
         diagram = diagramRepository.save(diagram);
+        revisionService.record(diagramId, EntityType.DIAGRAM, diagramId);
         log.info("Diagram updated: {} by user {}", diagramId, userId);
         
         return diagramMapper.toResponse(diagram);
@@ -190,6 +288,7 @@ public class DiagramService {
         }
         
         diagramRepository.archiveDiagram(diagramId, Instant.now());
+        revisionService.record(diagramId, EntityType.DIAGRAM, diagramId);
         log.info("Diagram archived: {} by user {}", diagramId, userId);
     }
     
@@ -233,6 +332,58 @@ public class DiagramService {
         return diagram.getOwner().getId().equals(userId);
     }
     
+    private DiagramFullResponse buildFullResponse(Diagram diagram, long revision) {
+        String diagramId = diagram.getId();
+        
+        // Load tables with columns
+        List<DiagramTable> tables = tableRepository.findByDiagramIdWithColumns(diagramId);
+        List<Relationship> relationships = relationshipRepository.findByDiagramId(diagramId);
+        
+        // Read through the position write-behind buffer
+        List<TableResponse> tableResponses = tableMapper.toResponseList(tables);
+        positionBuffer.applyPending(tableResponses);
+        
+        return DiagramFullResponse.builder()
+            .id(diagram.getId())
+            .name(diagram.getName())
+            .description(diagram.getDescription())
+            .databaseType(diagram.getDatabaseType())
+            .isPublic(diagram.getIsPublic())
+            .zoom(diagram.getCanvasZoom())
+            .offsetX(diagram.getCanvasOffsetX())
+            .offsetY(diagram.getCanvasOffsetY())
+            .revision(revision)
+            .tableCount(tables.size())
+            .relationshipCount(relationships.size())
+            .ownerId(diagram.getOwner().getId())
+            .ownerDisplayName(diagram.getOwner().getDisplayName())
+            .createdAt(diagram.getCreatedAt())
+            .updatedAt(diagram.getUpdatedAt())
+            .tables(tableResponses)
+            .relationships(relationshipMapper.toResponseList(relationships))
+            .build();
+    }
+    
+    private static List<String> missing(Set<String> requested, Stream<String> found) {
+        Set<String> deleted = new LinkedHashSet<>(requested);
+        found.forEach(deleted::remove);
+        return List.copyOf(deleted);
+    }
+    
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = eTag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(eTag) || value.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     private String generateUniqueSlug() {
         String slug;
         do {
@@ -240,4 +391,14 @@ public class DiagramService {
         } while (diagramRepository.existsByPublicSlug(slug));
         return slug;
     }
+    
+    /**
+     * Serialized full-diagram response; {@code body} is null when the client's copy is current.
+     */
+    public record FullDiagramJson(long revision, String eTag, byte[] body) {
+        
+        public boolean notModified() {
+            return body == null;
+        }
+    }
 }
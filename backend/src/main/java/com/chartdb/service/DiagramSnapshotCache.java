@@ -0,0 +1,142 @@
+package com.chartdb.service;
+
+import com.chartdb.dto.response.DiagramFullResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialized {@link DiagramFullResponse} per diagram, so repeated opens skip entity loading and mapping.
+ * A snapshot is keyed by the diagram revision it was built at and only served while that revision
+ * is still current (see {@link DiagramRevisionService}). The user-specific permission level is not
+ * part of the cached bytes and is spliced in when the response is rendered.
+ */
+@Component
+public class DiagramSnapshotCache {
+    
+    private static final byte[] ENVELOPE_START = "{\"success\":true,\"data\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PERMISSION_FIELD = ",\"permissionLevel\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TIMESTAMP_FIELD = "},\"timestamp\":".getBytes(StandardCharsets.UTF_8);
+    
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration touchInterval;
+    
+    private final Map<String, Instant> lastTouched = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> snapshots;
+    
+    public DiagramSnapshotCache(
+            ObjectMapper objectMapper,
+            @Value("${diagram.snapshot.enabled:true}") boolean enabled,
+            @Value("${diagram.snapshot.max-entries:256}") int maxEntries,
+            @Value("${diagram.snapshot.access-touch-interval-ms:60000}") long touchIntervalMillis) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.touchInterval = Duration.ofMillis(touchIntervalMillis);
+        this.snapshots = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+    
+    public Optional<Snapshot> get(String diagramId, long revision) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Snapshot snapshot = snapshots.get(diagramId);
+        if (snapshot == null || snapshot.revision() != revision) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+    
+    /**
+     * Serialize a freshly built response. The permission level is dropped; see {@link #render}.
+     */
+    public Snapshot serialize(long revision, DiagramFullResponse response) {
+        ObjectNode tree = objectMapper.valueToTree(response);
+        tree.remove("permissionLevel");
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(tree);
+            // Keep the object open so per-user fields can be appended
+            byte[] body = Arrays.copyOf(json, json.length - 1);
+            return new Snapshot(response.getId(), revision, response.getOwnerId(),
+                Boolean.TRUE.equals(response.getIsPublic()), body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize diagram " + response.getId(), e);
+        }
+    }
+    
+    /**
+     * Keep the snapshot unless one built at a later revision is already cached.
+     */
+    public void store(Snapshot snapshot) {
+        if (!enabled) {
+            return;
+        }
+        snapshots.merge(snapshot.diagramId(), snapshot,
+            (existing, candidate) -> candidate.revision() >= existing.revision() ? candidate : existing);
+    }
+    
+    /**
+     * Free the memory of an outdated snapshot early; correctness only relies on the revision check.
+     */
+    public void invalidate(String diagramId) {
+        snapshots.remove(diagramId);
+    }
+    
+    /**
+     * Whether the diagram's lastAccessedAt is due for an update; opens within the interval skip the write.
+     */
+    public boolean shouldTouch(String diagramId) {
+        Instant now = Instant.now();
+        Instant previous = lastTouched.get(diagramId);
+        if (previous != null && previous.plus(touchInterval).isAfter(now)) {
+            return false;
+        }
+        return previous == null
+            ? lastTouched.putIfAbsent(diagramId, now) == null
+            : lastTouched.replace(diagramId, previous, now);
+    }
+    
+    /**
+     * Write the ApiResponse envelope around the cached bytes with the caller's permission level.
+     */
+    public byte[] render(Snapshot snapshot, String permissionLevel) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(snapshot.body().length + 128);
+            out.write(ENVELOPE_START);
+            out.write(snapshot.body());
+            out.write(PERMISSION_FIELD);
+            out.write(objectMapper.writeValueAsBytes(permissionLevel));
+            out.write(TIMESTAMP_FIELD);
+            out.write(objectMapper.writeValueAsBytes(Instant.now()));
+            out.write('}');
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to render diagram " + snapshot.diagramId(), e);
+        }
+    }
+    
+    public int size() {
+        return snapshots.size();
+    }
+    
+    public record Snapshot(String diagramId, long revision, String ownerId, boolean isPublic, byte[] body) {}
+}
@@ -1,20 +1,55 @@
 package com.chartdb.service;
 
 import com.chartdb.model.*;
+import com.chartdb.exception.BadRequestException;
 import com.chartdb.exception.ResourceNotFoundException;
 import com.chartdb.repository.DiagramRepository;
 import com.chartdb.repository.TableRepository;
 import com.chartdb.repository.RelationshipRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.chartdb.service.export.DiagramImageRenderer;
+import com.chartdb.service.export.DiagramLayout;
+import com.chartdb.service.export.ExportCountBuffer;
+import com.chartdb.service.export.ExportRequest;
+import com.chartdb.service.export.RenderCache;
+import com.chartdb.service.export.dialect.DialectGenerator;
+import com.chartdb.service.export.dialect.DialectRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @Service
@@ -26,323 +61,613 @@ public class ExportService {
     private final RelationshipRepository relationshipRepository;
     private final PermissionService permissionService;
     private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final TablePositionBuffer positionBuffer;
+    private final DiagramRevisionService revisionService;
+    private final DiagramImageRenderer imageRenderer;
+    private final RenderCache renderCache;
+    private final ExportCountBuffer exportCounts;
+    private final DialectRegistry dialects;
     
-    @Transactional(readOnly = true)
+    @Value("${export.sql.parallel-batch-size:128}")
+    private int parallelBatchSize;
+    
+    // Tables joined to their columns, one row per column, grouped by table by TableCursor
+    private static final String TABLE_CURSOR =
+        "SELECT t.id AS table_id, t.name AS table_name, t.display_name, t.schema_name, " +
+        "t.description AS table_description, t.position_x, t.position_y, t.width, t.color, " +
+        "c.id AS column_id, c.name AS column_name, c.data_type, c.is_primary_key, c.is_foreign_key, " +
+        "c.is_nullable, c.is_unique, c.default_value, c.description AS column_description, c.order_index " +
+        "FROM tables t LEFT JOIN columns c ON c.table_id = t.id " +
+        "WHERE t.diagram_id = ? " +
+        "ORDER BY t.created_at, t.id, c.order_index";
+    
+    private static final String RELATIONSHIP_CURSOR =
+        "SELECT id, name, relationship_type, source_table_id, target_table_id, source_column_id, target_column_id, " +
+        "on_delete, on_update FROM relationships WHERE diagram_id = ?";
+    
+    // Names only, for dialects that need every foreign key target before the first CREATE TABLE
+    private static final String NAME_CURSOR =
+        "SELECT t.id AS table_id, t.name AS table_name, c.id AS column_id, c.name AS column_name " +
+        "FROM tables t LEFT JOIN columns c ON c.table_id = t.id WHERE t.diagram_id = ?";
+    
+    private static final int CURSOR_FETCH_SIZE = 500;
+    private static final Runnable NO_PROGRESS = () -> {};
+    
+    // Configured once; each export only creates a generator from it
+    private ObjectWriter prettyWriter;
+    
+    @PostConstruct
+    void initJsonWriter() {
+        // The caller owns the output stream (and finishes gzip), so generators must not close it
+        prettyWriter = objectMapper.writer()
+            .with(SerializationFeature.INDENT_OUTPUT)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+    
+    // No @Transactional on the buffering wrappers: the streamed bodies open their own read-only transaction
     public String exportAsSql(String diagramId, String dialect, String userId) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            streamSql(diagramId, dialect, userId).writeTo(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate SQL export", e);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Streaming variant of {@link #exportAsSql} for very large diagrams.
+     * Access is checked up front; the returned body then reads through JDBC cursors.
+     */
+    public StreamingResponseBody streamSql(String diagramId, String dialect, String userId) {
         permissionService.checkReadAccess(diagramId, userId);
-        
+        exportCounts.increment(diagramId);
+        return sqlBody(diagramId, dialect, NO_PROGRESS);
+    }
+    
+    public String exportAsJson(String diagramId, String userId) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            streamJson(diagramId, userId, false).writeTo(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate JSON export", e);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Streaming JSON export. Entities go straight from the JDBC cursors through a JsonGenerator
+     * into the response, optionally gzip-compressed, without building an intermediate map graph.
+     */
+    public StreamingResponseBody streamJson(String diagramId, String userId, boolean gzip) {
+        permissionService.checkReadAccess(diagramId, userId);
+        exportCounts.increment(diagramId);
+        // Positions are read from the database, so write out buffered moves first
+        positionBuffer.flushDiagram(diagramId);
+        return jsonBody(diagramId, gzip, NO_PROGRESS);
+    }
+    
+    /**
+     * Server-side PNG of the whole diagram at the requested scale. Images are cached per diagram
+     * revision, so repeated requests for an unchanged diagram skip loading and drawing entirely.
+     */
+    public byte[] exportAsPng(String diagramId, int scale, String userId) {
+        permissionService.checkReadAccess(diagramId, userId);
+        exportCounts.increment(diagramId);
+        return renderPng(diagramId, scale);
+    }
+    
+    /**
+     * One full-resolution tile of the PNG, for canvases too large to export as a single image.
+     */
+    public byte[] exportPngTile(String diagramId, int scale, int column, int row, String userId) {
+        permissionService.checkReadAccess(diagramId, userId);
+        if (column < 0 || row < 0) {
+            throw new BadRequestException("Tile coordinates must not be negative");
+        }
+        double clamped = imageRenderer.clampScale(scale);
+        return render(diagramId,
+            revision -> RenderCache.Key.tile(diagramId, revision, clamped, column, row),
+            layout -> imageRenderer.pngTile(layout, clamped, column, row));
+    }
+    
+    public byte[] exportAsSvg(String diagramId, String userId) {
+        permissionService.checkReadAccess(diagramId, userId);
+        exportCounts.increment(diagramId);
+        return renderSvg(diagramId);
+    }
+    
+    /**
+     * Write an export for a background job; the caller has already checked access and counted it.
+     * {@code onTable} runs after each table is written, for progress reporting.
+     */
+    public void writeExport(String diagramId, ExportRequest request, OutputStream out, Runnable onTable) throws IOException {
+        switch (request.format()) {
+            case SQL -> sqlBody(diagramId, request.dialect(), onTable).writeTo(out);
+            case JSON -> jsonBody(diagramId, false, onTable).writeTo(out);
+            case PNG -> out.write(renderPng(diagramId, request.scale()));
+            case SVG -> out.write(renderSvg(diagramId));
+        }
+    }
+    
+    /**
+     * Reads tables and relationships through forward-only JDBC cursors and writes each statement
+     * as soon as it is generated, so only the id-to-name index used for foreign keys grows with the diagram.
+     */
+    private StreamingResponseBody sqlBody(String diagramId, String dialect, Runnable onTable) {
+        DialectGenerator generator = dialects.forName(dialect);
         Diagram diagram = diagramRepository.findById(diagramId)
             .orElseThrow(() -> new ResourceNotFoundException("Diagram not found"));
+        String diagramName = diagram.getName();
         
-        List<DiagramTable> tables = tableRepository.findByDiagramIdOrderByCreatedAtAsc(diagramId);
-        List<Relationship> relationships = relationshipRepository.findByDiagramId(diagramId);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
         
-        return generateSqlDdl(diagram, tables, relationships, dialect);
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            try {
+                // A transaction keeps autocommit off, which the PostgreSQL driver needs to honour the fetch size
+                readOnly.executeWithoutResult(status -> writeSqlDdl(diagramId, diagramName, dialect, generator, writer, onTable));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        };
     }
     
-    @Transactional(readOnly = true)
-    public String exportAsJson(String diagramId, String userId) {
-        permissionService.checkReadAccess(diagramId, userId);
-        
+    private StreamingResponseBody jsonBody(String diagramId, boolean gzip, Runnable onTable) {
         Diagram diagram = diagramRepository.findById(diagramId)
             .orElseThrow(() -> new ResourceNotFoundException("Diagram not found"));
         
-        List<DiagramTable> tables = tableRepository.findByDiagramIdOrderByCreatedAtAsc(diagramId);
-        List<Relationship> relationships = relationshipRepository.findByDiagramId(diagramId);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
         
-        return generateJsonExport(diagram, tables, relationships);
+        return out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            try (JsonGenerator generator = prettyWriter.createGenerator(target)) {
+                readOnly.executeWithoutResult(status -> writeJsonExport(diagram, generator, onTable));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (target instanceof GZIPOutputStream compressed) {
+                compressed.finish();
+            }
+        };
     }
     
-    @Transactional(readOnly = true)
-    public byte[] exportAsPng(String diagramId, int scale, String userId) {
-        permissionService.checkReadAccess(diagramId, userId);
-        // Server-side PNG rendering would require additional libraries
-        // This is a placeholder - in production you might use a headless browser
-        throw new UnsupportedOperationException("Server-side PNG export not implemented. Use client-side export.");
+    private byte[] renderPng(String diagramId, int scale) {
+        double clamped = imageRenderer.clampScale(scale);
+        return render(diagramId,
+            revision -> RenderCache.Key.image(diagramId, revision, "png", clamped),
+            layout -> imageRenderer.png(layout, clamped));
     }
     
-    private String generateSqlDdl(Diagram diagram, List<DiagramTable> tables, 
-                                   List<Relationship> relationships, String dialect) {
-        StringBuilder sql = new StringBuilder();
+    private byte[] renderSvg(String diagramId) {
+        return render(diagramId,
+            revision -> RenderCache.Key.image(diagramId, revision, "svg", 1),
+            layout -> imageRenderer.svg(layout).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private void writeSqlDdl(String diagramId, String diagramName, String dialectName, DialectGenerator dialect,
+                             Writer writer, Runnable onTable) {
+        write(writer, "-- Generated by ChartDB\n");
+        write(writer, "-- Diagram: " + diagramName + "\n");
+        write(writer, "-- Database: " + dialectName.toUpperCase() + "\n");
+        write(writer, "-- Generated at: " + new Date() + "\n\n");
         
-        // Header comment
-        sql.append("-- Generated by ChartDB\n");
-        sql.append("-- Diagram: ").append(diagram.getName()).append("\n");
-        sql.append("-- Database: ").append(dialect.toUpperCase()).append("\n");
-        sql.append("-- Generated at: ").append(new Date()).append("\n\n");
+        // Inline foreign keys need every referenced name before the first CREATE TABLE
+        boolean inline = dialect.inlineForeignKeys();
+        NameIndex names = inline ? loadNames(diagramId) : new NameIndex(new HashMap<>(), new HashMap<>());
+        Map<String, List<RelationshipRef>> inlineForeignKeys = new HashMap<>();
+        if (inline) {
+            streamRelationships(diagramId, rel ->
+                inlineForeignKeys.computeIfAbsent(rel.sourceTableId(), id -> new ArrayList<>()).add(rel));
+        }
         
-        // Group relationships by source table for FK generation
-        Map<String, List<Relationship>> relationshipsByTable = relationships.stream()
-            .collect(Collectors.groupingBy(rel -> rel.getSourceTable().getId()));
+        Function<DiagramTable, String> createTable = table ->
+            generateCreateTable(table, dialect, inlineForeignKeys.getOrDefault(table.getId(), List.of()), names);
+        List<DiagramTable> batch = new ArrayList<>();
+        streamTables(diagramId, table -> {
+            if (!inline) {
+                names.add(table);
+            }
+            batch.add(table);
+            if (batch.size() >= parallelBatchSize) {
+                writeCreateTables(batch, createTable, writer, onTable);
+                batch.clear();
+            }
+        });
+        writeCreateTables(batch, createTable, writer, onTable);
         
-        // Generate CREATE TABLE statements
-        for (DiagramTable table : tables) {
-            sql.append(generateCreateTable(table, relationshipsByTable.get(table.getId()), dialect));
-            sql.append("\n\n");
+        if (!inline) {
+            streamRelationships(diagramId, rel -> write(writer, generateForeignKey(rel, names, dialect)));
         }
-        
-        // Generate ALTER TABLE for foreign keys (safer approach)
-        for (Relationship rel : relationships) {
-            sql.append(generateForeignKey(rel, tables, dialect));
+    }
+    
+    /**
+     * Full batches are generated in parallel on the common fork-join pool; statements are still
+     * written in cursor order. Generation only touches the detached batch and immutable dialect tables.
+     */
+    private void writeCreateTables(List<DiagramTable> batch, Function<DiagramTable, String> createTable,
+                                   Writer writer, Runnable onTable) {
+        Stream<DiagramTable> tables = batch.size() >= parallelBatchSize ? batch.parallelStream() : batch.stream();
+        for (String statement : tables.map(createTable).toList()) {
+            write(writer, statement);
+            write(writer, "\n\n");
+            onTable.run();
         }
-        
-        return sql.toString();
     }
     
-    private String generateCreateTable(DiagramTable table, List<Relationship> tableFks, String dialect) {
-        StringBuilder sql = new StringBuilder();
+    private byte[] render(String diagramId, LongFunction<RenderCache.Key> keyFor, Function<DiagramLayout, byte[]> draw) {
+        // Flushing buffered moves bumps the revision, so it must happen before the cache lookup
+        positionBuffer.flushDiagram(diagramId);
+        long revision = revisionService.currentRevision(diagramId)
+            .orElseThrow(() -> new ResourceNotFoundException("Diagram not found"));
+        Optional<byte[]> cached = renderCache.get(keyFor.apply(revision));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         
-        String tableName = quoteIdentifier(table.getName(), dialect);
-        sql.append("CREATE TABLE ").append(tableName).append(" (\n");
+        // Read the revision and the entities from one snapshot so the image matches its cache key
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        LayoutAtRevision source = snapshot.execute(status -> new LayoutAtRevision(
+            revisionService.currentRevision(diagramId)
+                .orElseThrow(() -> new ResourceNotFoundException("Diagram not found")),
+            DiagramLayout.of(
+                tableRepository.findByDiagramIdWithColumns(diagramId),
+                relationshipRepository.findByDiagramId(diagramId))));
         
-        List<TableColumn> columns = table.getColumns();
+        // Drawing happens outside the transaction, on the detached layout
+        byte[] image = draw.apply(source.layout());
+        renderCache.put(keyFor.apply(source.revision()), image);
+        return image;
+    }
+    
+    private void streamTables(String diagramId, Consumer<DiagramTable> onTable) {
+        TableCursor tableCursor = new TableCursor(onTable);
+        jdbcTemplate.query(connection -> cursor(connection, TABLE_CURSOR, diagramId), tableCursor);
+        tableCursor.finish();
+    }
+    
+    private void streamRelationships(String diagramId, Consumer<RelationshipRef> onRelationship) {
+        jdbcTemplate.query(connection -> cursor(connection, RELATIONSHIP_CURSOR, diagramId), (ResultSet rs) -> {
+            onRelationship.accept(new RelationshipRef(
+                rs.getString("id"),
+                rs.getString("name"),
+                rs.getString("relationship_type"),
+                rs.getString("source_table_id"),
+                rs.getString("target_table_id"),
+                rs.getString("source_column_id"),
+                rs.getString("target_column_id"),
+                rs.getString("on_delete"),
+                rs.getString("on_update")));
+        });
+    }
+    
+    private NameIndex loadNames(String diagramId) {
+        NameIndex names = new NameIndex(new HashMap<>(), new HashMap<>());
+        jdbcTemplate.query(connection -> cursor(connection, NAME_CURSOR, diagramId), (ResultSet rs) -> {
+            names.tables().put(rs.getString("table_id"), rs.getString("table_name"));
+            String columnId = rs.getString("column_id");
+            if (columnId != null) {
+                names.columns().put(columnId, rs.getString("column_name"));
+            }
+        });
+        return names;
+    }
+    
+    private static PreparedStatement cursor(Connection connection, String sql, String diagramId) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(CURSOR_FETCH_SIZE);
+        statement.setString(1, diagramId);
+        return statement;
+    }
+    
+    private static void write(Writer writer, String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private String generateCreateTable(DiagramTable table, DialectGenerator dialect,
+                                       List<RelationshipRef> inlineForeignKeys, NameIndex names) {
+        List<String> definitions = new ArrayList<>();
+        List<String> comments = new ArrayList<>();
         List<String> primaryKeys = new ArrayList<>();
         
-        for (int i = 0; i < columns.size(); i++) {
-            TableColumn col = columns.get(i);
-            sql.append("    ");
-            sql.append(quoteIdentifier(col.getName(), dialect));
-            sql.append(" ").append(mapDataType(col.getDataType(), dialect));
+        for (TableColumn col : table.getColumns()) {
+            StringBuilder definition = new StringBuilder();
+            definition.append(dialect.quote(col.getName()));
+            definition.append(" ").append(dialect.mapType(col.getDataType()));
             
-            if (Boolean.FALSE.equals(col.getIsNullable())) {
-                sql.append(" NOT NULL");
+            // DEFAULT before the constraints: accepted everywhere, required by Oracle
+            if (col.getDefaultValue() != null && !col.getDefaultValue().isEmpty()) {
+                definition.append(" DEFAULT ").append(col.getDefaultValue());
             }
             
-            if (Boolean.TRUE.equals(col.getIsUnique()) && !Boolean.TRUE.equals(col.getIsPrimaryKey())) {
-                sql.append(" UNIQUE");
+            if (Boolean.FALSE.equals(col.getIsNullable())) {
+                definition.append(" NOT NULL");
             }
             
-            if (col.getDefaultValue() != null && !col.getDefaultValue().isEmpty()) {
-                sql.append(" DEFAULT ").append(col.getDefaultValue());
+            if (Boolean.TRUE.equals(col.getIsUnique()) && !Boolean.TRUE.equals(col.getIsPrimaryKey())) {
+                definition.append(" UNIQUE");
             }
             
             if (Boolean.TRUE.equals(col.getIsPrimaryKey())) {
                 primaryKeys.add(col.getName());
             }
             
-            if (i < columns.size() - 1 || !primaryKeys.isEmpty()) {
-                sql.append(",");
-            }
-            
-            if (col.getDescription() != null && !col.getDescription().isEmpty()) {
-                sql.append(" -- ").append(col.getDescription());
-            }
-            
-            sql.append("\n");
+            definitions.add(definition.toString());
+            comments.add(col.getDescription());
         }
         
         // Primary key constraint
         if (!primaryKeys.isEmpty()) {
-            sql.append("    CONSTRAINT ").append(quoteIdentifier("pk_" + table.getName(), dialect));
-            sql.append(" PRIMARY KEY (");
-            sql.append(primaryKeys.stream()
-                .map(pk -> quoteIdentifier(pk, dialect))
-                .collect(Collectors.joining(", ")));
-            sql.append(")\n");
+            definitions.add("CONSTRAINT " + dialect.quote("pk_" + table.getName()) + " PRIMARY KEY ("
+                + primaryKeys.stream().map(dialect::quote).collect(Collectors.joining(", ")) + ")");
+            comments.add(null);
         }
         
+        for (RelationshipRef rel : inlineForeignKeys) {
+            String constraint = foreignKeyConstraint(rel, names, dialect);
+            if (constraint != null) {
+                definitions.add(constraint);
+                comments.add(null);
+            }
+        }
+        
+        StringBuilder sql = new StringBuilder();
+        sql.append("CREATE TABLE ").append(dialect.quote(table.getName())).append(" (\n");
+        for (int i = 0; i < definitions.size(); i++) {
+            sql.append("    ").append(definitions.get(i));
+            if (i < definitions.size() - 1) {
+                sql.append(",");
+            }
+            String comment = comments.get(i);
+            if (comment != null && !comment.isEmpty()) {
+                // A line comment must not spill onto the next line
+                sql.append(" -- ").append(comment.replaceAll("[\\r\\n]+", " "));
+            }
+            sql.append("\n");
+        }
         sql.append(");");
         
         // Table comment
         if (table.getDescription() != null && !table.getDescription().isEmpty()) {
-            sql.append("\n");
-            sql.append(generateTableComment(table, dialect));
+            String comment = dialect.tableComment(table.getName(), table.getDescription());
+            if (comment != null) {
+                sql.append("\n").append(comment);
+            }
         }
         
         return sql.toString();
     }
     
-    private String generateForeignKey(Relationship rel, List<DiagramTable> tables, String dialect) {
-        StringBuilder sql = new StringBuilder();
-        
-        String sourceTableId = rel.getSourceTable() != null ? rel.getSourceTable().getId() : null;
-        String targetTableId = rel.getTargetTable() != null ? rel.getTargetTable().getId() : null;
-        String sourceColumnId = rel.getSourceColumn() != null ? rel.getSourceColumn().getId() : null;
-        String targetColumnId = rel.getTargetColumn() != null ? rel.getTargetColumn().getId() : null;
-        
-        String sourceTableName = findTableName(sourceTableId, tables);
-        String targetTableName = findTableName(targetTableId, tables);
-        String sourceColumnName = findColumnName(sourceColumnId, tables);
-        String targetColumnName = findColumnName(targetColumnId, tables);
+    private String generateForeignKey(RelationshipRef rel, NameIndex names, DialectGenerator dialect) {
+        String constraint = foreignKeyConstraint(rel, names, dialect);
+        if (constraint == null) {
+            return "";
+        }
+        return "ALTER TABLE " + dialect.quote(names.tables().get(rel.sourceTableId()))
+            + "\n    ADD " + constraint + ";\n\n";
+    }
+    
+    /**
+     * The CONSTRAINT ... FOREIGN KEY ... REFERENCES clause, or null if an endpoint cannot be resolved.
+     */
+    private String foreignKeyConstraint(RelationshipRef rel, NameIndex names, DialectGenerator dialect) {
+        String sourceTableName = names.tables().get(rel.sourceTableId());
+        String targetTableName = names.tables().get(rel.targetTableId());
+        String sourceColumnName = names.columns().get(rel.sourceColumnId());
+        String targetColumnName = names.columns().get(rel.targetColumnId());
         
         if (sourceTableName == null || targetTableName == null || 
             sourceColumnName == null || targetColumnName == null) {
-            return "";
+            return null;
         }
         
-        String constraintName = rel.getName() != null ? rel.getName() : 
+        String constraintName = rel.name() != null ? rel.name() : 
             "fk_" + sourceTableName + "_" + targetTableName;
         
-        sql.append("ALTER TABLE ").append(quoteIdentifier(sourceTableName, dialect));
-        sql.append("\n    ADD CONSTRAINT ").append(quoteIdentifier(constraintName, dialect));
-        sql.append("\n    FOREIGN KEY (").append(quoteIdentifier(sourceColumnName, dialect)).append(")");
-        sql.append("\n    REFERENCES ").append(quoteIdentifier(targetTableName, dialect));
-        sql.append("(").append(quoteIdentifier(targetColumnName, dialect)).append(")");
-        
-        if (rel.getOnDelete() != null && !rel.getOnDelete().isEmpty()) {
-            sql.append("\n    ON DELETE ").append(rel.getOnDelete().replace("_", " "));
-        }
-        if (rel.getOnUpdate() != null && !rel.getOnUpdate().isEmpty()) {
-            sql.append("\n    ON UPDATE ").append(rel.getOnUpdate().replace("_", " "));
-        }
-        
-        sql.append(";\n\n");
-        
-        return sql.toString();
+        return "CONSTRAINT " + dialect.quote(constraintName)
+            + "\n    FOREIGN KEY (" + dialect.quote(sourceColumnName) + ")"
+            + "\n    REFERENCES " + dialect.quote(targetTableName)
+            + "(" + dialect.quote(targetColumnName) + ")"
+            + dialect.referentialActions(rel.onDelete(), rel.onUpdate());
     }
     
-    private String findTableName(String tableId, List<DiagramTable> tables) {
-        return tables.stream()
-            .filter(t -> t.getId().equals(tableId))
-            .map(DiagramTable::getName)
-            .findFirst()
-            .orElse(null);
+    private void writeJsonExport(Diagram diagram, JsonGenerator json, Runnable onTable) {
+        try {
+            json.writeStartObject();
+            
+            // Diagram metadata
+            json.writeObjectFieldStart("diagram");
+            json.writeStringField("id", diagram.getId());
+            json.writeStringField("name", diagram.getName());
+            json.writeStringField("description", diagram.getDescription());
+            json.writeStringField("databaseType", diagram.getDatabaseType());
+            writeInstant(json, "createdAt", diagram.getCreatedAt());
+            writeInstant(json, "updatedAt", diagram.getUpdatedAt());
+            json.writeEndObject();
+            
+            // Tables with columns
+            json.writeArrayFieldStart("tables");
+            streamTables(diagram.getId(), table -> {
+                writeTableJson(json, table);
+                onTable.run();
+            });
+            json.writeEndArray();
+            
+            // Relationships
+            json.writeArrayFieldStart("relationships");
+            streamRelationships(diagram.getId(), rel -> writeRelationshipJson(json, rel));
+            json.writeEndArray();
+            
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
     
-    private String findColumnName(String columnId, List<DiagramTable> tables) {
-        for (DiagramTable table : tables) {
+    private void writeTableJson(JsonGenerator json, DiagramTable table) {
+        try {
+            json.writeStartObject();
+            json.writeStringField("id", table.getId());
+            json.writeStringField("name", table.getName());
+            json.writeStringField("displayName", table.getDisplayName());
+            json.writeStringField("schema", table.getSchemaName());
+            json.writeStringField("comment", table.getDescription());
+            writeDecimal(json, "positionX", table.getPositionX());
+            writeDecimal(json, "positionY", table.getPositionY());
+            writeDecimal(json, "width", table.getWidth());
+            json.writeStringField("color", table.getColor());
+            
+            json.writeArrayFieldStart("columns");
             for (TableColumn col : table.getColumns()) {
-                if (col.getId().equals(columnId)) {
-                    return col.getName();
+                json.writeStartObject();
+                json.writeStringField("id", col.getId());
+                json.writeStringField("name", col.getName());
+                json.writeStringField("dataType", col.getDataType());
+                writeBoolean(json, "isPrimaryKey", col.getIsPrimaryKey());
+                writeBoolean(json, "isForeignKey", col.getIsForeignKey());
+                writeBoolean(json, "isNullable", col.getIsNullable());
+                writeBoolean(json, "isUnique", col.getIsUnique());
+                json.writeStringField("defaultValue", col.getDefaultValue());
+                json.writeStringField("comment", col.getDescription());
+                if (col.getOrderIndex() != null) {
+                    json.writeNumberField("orderIndex", col.getOrderIndex());
+                } else {
+                    json.writeNullField("orderIndex");
                 }
+                json.writeEndObject();
             }
+            json.writeEndArray();
+            
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return null;
     }
     
-    private String quoteIdentifier(String identifier, String dialect) {
-        return switch (dialect.toLowerCase()) {
-            case "mysql", "mariadb" -> "`" + identifier + "`";
-            case "mssql", "sqlserver" -> "[" + identifier + "]";
-            default -> "\"" + identifier + "\""; // PostgreSQL, Oracle, standard SQL
-        };
+    private void writeRelationshipJson(JsonGenerator json, RelationshipRef rel) {
+        try {
+            json.writeStartObject();
+            json.writeStringField("id", rel.id());
+            json.writeStringField("name", rel.name());
+            json.writeStringField("sourceTableId", rel.sourceTableId());
+            json.writeStringField("sourceColumnId", rel.sourceColumnId());
+            json.writeStringField("targetTableId", rel.targetTableId());
+            json.writeStringField("targetColumnId", rel.targetColumnId());
+            json.writeStringField("type", rel.type());
+            json.writeStringField("onDelete", rel.onDelete());
+            json.writeStringField("onUpdate", rel.onUpdate());
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
     
-    private String mapDataType(String dataType, String dialect) {
-        // Basic type mapping - can be extended
-        String upperType = dataType.toUpperCase();
-        
-        return switch (dialect.toLowerCase()) {
-            case "mysql", "mariadb" -> mapToMySql(upperType);
-            case "mssql", "sqlserver" -> mapToMsSql(upperType);
-            case "sqlite" -> mapToSqlite(upperType);
-            default -> dataType; // PostgreSQL - use as-is
-        };
+    private static void writeInstant(JsonGenerator json, String field, Instant value) throws IOException {
+        if (value != null) {
+            json.writeStringField(field, value.toString());
+        } else {
+            json.writeNullField(field);
+        }
     }
     
-    private String mapToMySql(String type) {
-        if (type.contains("SERIAL")) return type.replace("SERIAL", "INT AUTO_INCREMENT");
-        if (type.equals("TEXT")) return "LONGTEXT";
-        if (type.equals("BOOLEAN")) return "TINYINT(1)";
-        if (type.equals("UUID")) return "CHAR(36)";
-        return type;
-    }
-    
-    private String mapToMsSql(String type) {
-        if (type.contains("SERIAL")) return type.replace("SERIAL", "INT IDENTITY");
-        if (type.equals("TEXT")) return "NVARCHAR(MAX)";
-        if (type.equals("BOOLEAN")) return "BIT";
-        if (type.equals("UUID")) return "UNIQUEIDENTIFIER";
-        if (type.startsWith("VARCHAR")) return type.replace("VARCHAR", "NVARCHAR");
-        return type;
-    }
-    
-    private String mapToSqlite(String type) {
-        if (type.contains("SERIAL")) return "INTEGER PRIMARY KEY AUTOINCREMENT";
-        if (type.contains("INT")) return "INTEGER";
-        if (type.equals("BOOLEAN")) return "INTEGER";
-        return type;
-    }
-    
-    private String generateTableComment(DiagramTable table, String dialect) {
-        return switch (dialect.toLowerCase()) {
-            case "mysql", "mariadb" -> String.format("ALTER TABLE %s COMMENT = '%s';",
-                quoteIdentifier(table.getName(), dialect),
-                escapeString(table.getDescription()));
-            case "postgresql" -> String.format("COMMENT ON TABLE %s IS '%s';",
-                quoteIdentifier(table.getName(), dialect),
-                escapeString(table.getDescription()));
-            case "mssql", "sqlserver" -> String.format(
-                "EXEC sp_addextendedproperty 'MS_Description', '%s', 'SCHEMA', 'dbo', 'TABLE', '%s';",
-                escapeString(table.getDescription()), table.getName());
-            default -> "";
-        };
+    private static void writeDecimal(JsonGenerator json, String field, BigDecimal value) throws IOException {
+        if (value != null) {
+            json.writeNumberField(field, value);
+        } else {
+            json.writeNullField(field);
+        }
     }
     
-    private String escapeString(String str) {
-        return str != null ? str.replace("'", "''") : "";
+    private static void writeBoolean(JsonGenerator json, String field, Boolean value) throws IOException {
+        if (value != null) {
+            json.writeBooleanField(field, value);
+        } else {
+            json.writeNullField(field);
+        }
     }
     
-    private String generateJsonExport(Diagram diagram, List<DiagramTable> tables, 
-                                       List<Relationship> relationships) {
-        Map<String, Object> export = new LinkedHashMap<>();
+    /**
+     * Table and column names by id, so foreign keys resolve in O(1) instead of scanning every column.
+     */
+    private record NameIndex(Map<String, String> tables, Map<String, String> columns) {
         
-        // Diagram metadata
-        Map<String, Object> diagramData = new LinkedHashMap<>();
-        diagramData.put("id", diagram.getId());
-        diagramData.put("name", diagram.getName());
-        diagramData.put("description", diagram.getDescription());
-        diagramData.put("databaseType", diagram.getDatabaseType());
-        diagramData.put("createdAt", diagram.getCreatedAt());
-        diagramData.put("updatedAt", diagram.getUpdatedAt());
-        export.put("diagram", diagramData);
+        void add(DiagramTable table) {
+            tables.put(table.getId(), table.getName());
+            for (TableColumn col : table.getColumns()) {
+                columns.put(col.getId(), col.getName());
+            }
+        }
+    }
+    
+    private record RelationshipRef(String id, String name, String type, String sourceTableId, String targetTableId,
+                                   String sourceColumnId, String targetColumnId, String onDelete, String onUpdate) {}
+    
+    private record LayoutAtRevision(long revision, DiagramLayout layout) {}
+    
+    /**
+     * Consumes the table/column join row by row and hands each table on once its last column
+     * has been read. Only the table currently being assembled is held in memory.
+     */
+    private static class TableCursor implements RowCallbackHandler {
         
-        // Tables with columns
-        List<Map<String, Object>> tablesData = tables.stream().map(table -> {
-            Map<String, Object> tableData = new LinkedHashMap<>();
-            tableData.put("id", table.getId());
-            tableData.put("name", table.getName());
-            tableData.put("displayName", table.getDisplayName());
-            tableData.put("schema", table.getSchemaName());
-            tableData.put("comment", table.getDescription());
-            tableData.put("positionX", table.getPositionX());
-            tableData.put("positionY", table.getPositionY());
-            tableData.put("width", table.getWidth());
-            tableData.put("color", table.getColor());
-            
-            List<Map<String, Object>> columnsData = table.getColumns().stream().map(col -> {
-                Map<String, Object> colData = new LinkedHashMap<>();
-                colData.put("id", col.getId());
-                colData.put("name", col.getName());
-                colData.put("dataType", col.getDataType());
-                colData.put("isPrimaryKey", col.getIsPrimaryKey());
-                colData.put("isForeignKey", col.getIsForeignKey());
-                colData.put("isNullable", col.getIsNullable());
-                colData.put("isUnique", col.getIsUnique());
-                colData.put("defaultValue", col.getDefaultValue());
-                colData.put("comment", col.getDescription());
-                colData.put("orderIndex", col.getOrderIndex());
-                return colData;
-            }).collect(Collectors.toList());
-            
-            tableData.put("columns", columnsData);
-            return tableData;
-        }).collect(Collectors.toList());
-        export.put("tables", tablesData);
+        private final Consumer<DiagramTable> onTable;
+        private DiagramTable current;
         
-        // Relationships
-        List<Map<String, Object>> relData = relationships.stream().map(rel -> {
-            Map<String, Object> r = new LinkedHashMap<>();
-            r.put("id", rel.getId());
-            r.put("name", rel.getName());
-            r.put("sourceTableId", rel.getSourceTable() != null ? rel.getSourceTable().getId() : null);
-            r.put("sourceColumnId", rel.getSourceColumn() != null ? rel.getSourceColumn().getId() : null);
-            r.put("targetTableId", rel.getTargetTable() != null ? rel.getTargetTable().getId() : null);
-            r.put("targetColumnId", rel.getTargetColumn() != null ? rel.getTargetColumn().getId() : null);
-            r.put("type", rel.getRelationshipType() != null ? rel.getRelationshipType().name() : null);
-            r.put("onDelete", rel.getOnDelete());
-            r.put("onUpdate", rel.getOnUpdate());
-            return r;
-        }).collect(Collectors.toList());
-        export.put("relationships", relData);
+        TableCursor(Consumer<DiagramTable> onTable) {
+            this.onTable = onTable;
+        }
         
-        try {
-            ObjectMapper prettyMapper = objectMapper.copy();
-            prettyMapper.enable(SerializationFeature.INDENT_OUTPUT);
-            return prettyMapper.writeValueAsString(export);
-        } catch (JsonProcessingException e) {
-            log.error("Error generating JSON export", e);
-            throw new RuntimeException("Failed to generate JSON export", e);
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            String tableId = rs.getString("table_id");
+            if (current == null || !current.getId().equals(tableId)) {
+                finish();
+                current = DiagramTable.builder()
+                    .id(tableId)
+                    .name(rs.getString("table_name"))
+                    .displayName(rs.getString("display_name"))
+                    .schemaName(rs.getString("schema_name"))
+                    .description(rs.getString("table_description"))
+                    .positionX(rs.getBigDecimal("position_x"))
+                    .positionY(rs.getBigDecimal("position_y"))
+                    .width(rs.getBigDecimal("width"))
+                    .color(rs.getString("color"))
+                    .build();
+            }
+            
+            String columnId = rs.getString("column_id");
+            if (columnId != null) {
+                current.getColumns().add(TableColumn.builder()
+                    .id(columnId)
+                    .name(rs.getString("column_name"))
+                    .dataType(rs.getString("data_type"))
+                    .isPrimaryKey((Boolean) rs.getObject("is_primary_key"))
+                    .isForeignKey((Boolean) rs.getObject("is_foreign_key"))
+                    .isNullable((Boolean) rs.getObject("is_nullable"))
+                    .isUnique((Boolean) rs.getObject("is_unique"))
+                    .defaultValue(rs.getString("default_value"))
+                    .description(rs.getString("column_description"))
+                    .orderIndex((Integer) rs.getObject("order_index"))
+                    .build());
+            }
+        }
+        
+        void finish() {
+            if (current != null) {
+                onTable.accept(current);
+                current = null;
+            }
         }
     }
 }
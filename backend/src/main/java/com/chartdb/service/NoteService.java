@@ -7,6 +7,7 @@ import com.chartdb.mapper.NoteMapper;
 import com.chartdb.model.Diagram;
 import com.chartdb.model.DiagramNote;
 import com.chartdb.repository.NoteRepository;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -22,6 +23,7 @@ public class NoteService {
     private final NoteRepository noteRepository;
     private final NoteMapper noteMapper;
     private final DiagramService diagramService;
+    private final DiagramRevisionService revisionService;
 
     @Transactional(readOnly = true)
     public List<NoteResponse> getNotes(String diagramId, String userId) {
@@ -56,6 +58,7 @@ public class NoteService {
         }
 
         note = noteRepository.save(note);
+        revisionService.record(diagramId, EntityType.NOTE, note.getId());
         log.info("Note created: {} in diagram {} by user {}", note.getId(), diagramId, userId);
         
         return noteMapper.toResponse(note);
@@ -74,6 +77,7 @@ public class NoteService {
 
         noteMapper.updateEntity(request, note);
         note = noteRepository.save(note);
+        revisionService.record(diagramId, EntityType.NOTE, noteId);
         
         log.info("Note updated: {} in diagram {} by user {}", noteId, diagramId, userId);
         return noteMapper.toResponse(note);
@@ -92,6 +96,7 @@ public class NoteService {
         }
 
         noteRepository.deleteById(noteId);
+        revisionService.record(diagramId, EntityType.NOTE, noteId);
         log.info("Note deleted: {} from diagram {} by user {}", noteId, diagramId, userId);
     }
 }
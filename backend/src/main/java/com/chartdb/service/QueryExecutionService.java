@@ -2,24 +2,37 @@ package com.chartdb.service;
 
 import com.chartdb.dto.request.ExecuteQueryRequest;
 import com.chartdb.dto.request.SaveQueryRequest;
+import com.chartdb.dto.response.ActiveQueriesResponse;
 import com.chartdb.dto.response.QueryExecutionResult;
+import com.chartdb.dto.response.QueryHandleResponse;
 import com.chartdb.dto.response.QueryHistoryResponse;
 import com.chartdb.dto.response.SavedQueryResponse;
+import com.chartdb.exception.ConflictException;
 import com.chartdb.exception.ResourceNotFoundException;
+import com.chartdb.exception.ServiceUnavailableException;
 import com.chartdb.model.*;
 import com.chartdb.model.enums.QueryStatus;
 import com.chartdb.repository.*;
-import com.chartdb.util.EncryptionUtil;
+import com.chartdb.service.query.ConnectionPoolRegistry;
+import com.chartdb.service.query.QueryGovernor;
+import com.chartdb.service.query.QueryHandle;
+import com.chartdb.service.query.QueryHistoryWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -29,27 +42,47 @@ public class QueryExecutionService {
     
     private final DatabaseConnectionRepository connectionRepository;
     private final QueryHistoryRepository queryHistoryRepository;
+    private final QueryHistoryWriter historyWriter;
     private final SavedQueryRepository savedQueryRepository;
     private final UserRepository userRepository;
-    private final EncryptionUtil encryptionUtil;
+    private final ConnectionPoolRegistry connectionPools;
+    private final ObjectMapper objectMapper;
+    private final QueryGovernor queryGovernor;
     
-    @Transactional
+    // Rows kept in memory by the buffered endpoint; larger results should use the streaming one
+    private static final int MAX_BUFFERED_ROWS = 1000;
+    
+    @Value("${query.execution.default-timeout-seconds:300}")
+    private int defaultTimeoutSeconds;
+    
+    @Value("${query.stream.fetch-size:500}")
+    private int streamFetchSize;
+    
+    @Value("${query.stream.max-rows:1000000}")
+    private int streamMaxRows;
+    
+    // No transaction: the call may wait for a governor slot and run for a long time on the remote database
     public QueryExecutionResult executeQuery(String connectionId, String userId, ExecuteQueryRequest request) {
         DatabaseConnection connection = connectionRepository.findByIdAndUserId(connectionId, userId)
             .orElseThrow(() -> new ResourceNotFoundException("Connection not found"));
         
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        
-        String decryptedPassword = encryptionUtil.decrypt(connection.getEncryptedPassword());
-        String jdbcUrl = buildJdbcUrl(connection);
+        QueryHandle handle;
+        try {
+            handle = queryGovernor.admit(request.getQueryId(), userId, connectionId);
+        } catch (CancellationException e) {
+            return cancelledResult(request.getQueryId(), 0);
+        }
         
         long startTime = System.currentTimeMillis();
         QueryExecutionResult result;
         
-        try (Connection conn = DriverManager.getConnection(jdbcUrl, connection.getUsername(), decryptedPassword);
+        try (Connection conn = connectionPools.getConnection(connection);
              Statement stmt = conn.createStatement()) {
             
+            handle.attach(stmt);
+            stmt.setQueryTimeout(timeoutSeconds(connection, request));
+            // Only the rows that are returned are transferred
+            stmt.setMaxRows(MAX_BUFFERED_ROWS);
             boolean isResultSet = stmt.execute(request.getQuery());
             long executionTime = System.currentTimeMillis() - startTime;
             
@@ -70,28 +103,215 @@ public class QueryExecutionService {
             }
             
             // Save to history
-            saveToHistory(connection, user, request.getQuery(), executionTime, 
+            saveToHistory(connection, userId, request.getQuery(), executionTime, 
                 result.getRowsAffected(), QueryStatus.SUCCESS, null);
             
         } catch (SQLException e) {
             long executionTime = System.currentTimeMillis() - startTime;
-            log.error("Query execution failed", e);
             
-            result = QueryExecutionResult.builder()
-                .success(false)
-                .message("Query failed: " + e.getMessage())
-                .errorCode(String.valueOf(e.getErrorCode()))
-                .executionTimeMs(executionTime)
-                .build();
-            
-            // Save error to history
-            saveToHistory(connection, user, request.getQuery(), executionTime, 
-                0, QueryStatus.ERROR, e.getMessage());
+            if (handle.isCancelled()) {
+                result = cancelledResult(handle.getId(), executionTime);
+                saveToHistory(connection, userId, request.getQuery(), executionTime,
+                    0, QueryStatus.CANCELLED, "Cancelled by user");
+            } else {
+                log.error("Query execution failed", e);
+                
+                result = QueryExecutionResult.builder()
+                    .success(false)
+                    .message("Query failed: " + e.getMessage())
+                    .errorCode(String.valueOf(e.getErrorCode()))
+                    .executionTimeMs(executionTime)
+                    .build();
+                
+                // Save error to history
+                saveToHistory(connection, userId, request.getQuery(), executionTime, 
+                    0, QueryStatus.ERROR, e.getMessage());
+            }
+        } finally {
+            queryGovernor.release(handle);
         }
         
+        result.setQueryId(handle.getId());
         return result;
     }
     
+    /**
+     * Streaming variant of {@link #executeQuery} for large results, written as NDJSON: a
+     * {@code {"queryId":...,"columns":[...]}} line, one JSON array per row, then a {@code {"rowCount":...}}
+     * summary (or an {@code {"error":...}} line). Rows are read through a server-side cursor and written as
+     * they arrive, so memory does not grow with the result; {@code maxRows} applies up to query.stream.max-rows.
+     */
+    public StreamingResponseBody streamQuery(String connectionId, String userId, ExecuteQueryRequest request) {
+        DatabaseConnection connection = connectionRepository.findByIdAndUserId(connectionId, userId)
+            .orElseThrow(() -> new ResourceNotFoundException("Connection not found"));
+        
+        int maxRows = request.getMaxRows() != null && request.getMaxRows() > 0
+            ? Math.min(request.getMaxRows(), streamMaxRows) : streamMaxRows;
+        int timeout = timeoutSeconds(connection, request);
+        
+        return out -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out)) {
+                // Lines are terminated explicitly instead of space-separated
+                json.setRootValueSeparator(null);
+                
+                // The response is already committed, so admission failures go into the stream too
+                QueryHandle handle;
+                try {
+                    handle = queryGovernor.admit(request.getQueryId(), userId, connectionId);
+                } catch (CancellationException e) {
+                    writeErrorLine(json, "Query cancelled", null, 0);
+                    return;
+                } catch (ServiceUnavailableException | ConflictException e) {
+                    writeErrorLine(json, e.getMessage(), null, 0);
+                    return;
+                }
+                
+                long startTime = System.currentTimeMillis();
+                try {
+                    int rows = writeQueryResult(connection, handle, request.getQuery(), maxRows, timeout, json, startTime);
+                    saveToHistory(connection, userId, request.getQuery(), System.currentTimeMillis() - startTime,
+                        rows, QueryStatus.SUCCESS, null);
+                } catch (SQLException e) {
+                    long executionTime = System.currentTimeMillis() - startTime;
+                    if (handle.isCancelled()) {
+                        writeErrorLine(json, "Query cancelled", null, executionTime);
+                        saveToHistory(connection, userId, request.getQuery(), executionTime,
+                            0, QueryStatus.CANCELLED, "Cancelled by user");
+                    } else {
+                        log.error("Streaming query execution failed", e);
+                        writeErrorLine(json, "Query failed: " + e.getMessage(), String.valueOf(e.getErrorCode()), executionTime);
+                        saveToHistory(connection, userId, request.getQuery(), executionTime,
+                            0, QueryStatus.ERROR, e.getMessage());
+                    }
+                } finally {
+                    queryGovernor.release(handle);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Cancel one of the user's queued or running queries by its query id.
+     */
+    public void cancelQuery(String queryId, String userId) {
+        queryGovernor.cancel(queryId, userId);
+    }
+    
+    public ActiveQueriesResponse getActiveQueries(String userId) {
+        List<QueryHandleResponse> queries = queryGovernor.activeQueries(userId).stream()
+            .map(handle -> QueryHandleResponse.builder()
+                .id(handle.getId())
+                .connectionId(handle.getConnectionId())
+                .status(handle.getStatus().name())
+                .queuedAt(handle.getQueuedAt())
+                .startedAt(handle.getStartedAt())
+                .build())
+            .collect(Collectors.toList());
+        
+        return ActiveQueriesResponse.builder()
+            .queries(queries)
+            .queueDepth(queryGovernor.queueDepth())
+            .running(queryGovernor.runningCount())
+            .build();
+    }
+    
+    private int writeQueryResult(DatabaseConnection connection, QueryHandle handle, String query, int maxRows,
+                                 int timeout, JsonGenerator json, long startTime) throws SQLException, IOException {
+        try (Connection conn = connectionPools.getConnection(connection)) {
+            // Fetch-size cursors: PostgreSQL needs autocommit off, MySQL needs useCursorFetch (set in the pool URL);
+            // Oracle honours the fetch size as is, and SQL Server streams through adaptive response buffering
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                handle.attach(stmt);
+                stmt.setQueryTimeout(timeout);
+                stmt.setFetchSize(streamFetchSize);
+                stmt.setMaxRows(maxRows);
+                
+                int rows;
+                if (stmt.execute(query)) {
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        rows = writeRows(handle.getId(), rs, json);
+                    }
+                } else {
+                    rows = stmt.getUpdateCount();
+                }
+                conn.commit();
+                
+                json.writeStartObject();
+                json.writeNumberField("rowCount", rows);
+                json.writeBooleanField("truncated", rows >= maxRows);
+                json.writeNumberField("executionTimeMs", System.currentTimeMillis() - startTime);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                return rows;
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    private int writeRows(String queryId, ResultSet rs, JsonGenerator json) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        
+        json.writeStartObject();
+        json.writeStringField("queryId", queryId);
+        json.writeArrayFieldStart("columns");
+        for (int i = 1; i <= columnCount; i++) {
+            json.writeStartObject();
+            json.writeStringField("name", metaData.getColumnName(i));
+            json.writeStringField("type", metaData.getColumnTypeName(i));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+        // Let the client render the header before the first rows arrive
+        json.flush();
+        
+        int rowCount = 0;
+        while (rs.next()) {
+            json.writeStartArray();
+            for (int i = 1; i <= columnCount; i++) {
+                json.writeObject(rs.getObject(i));
+            }
+            json.writeEndArray();
+            json.writeRaw('\n');
+            rowCount++;
+        }
+        return rowCount;
+    }
+    
+    private static void writeErrorLine(JsonGenerator json, String message, String errorCode,
+                                       long executionTime) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("error", message);
+        if (errorCode != null) {
+            json.writeStringField("errorCode", errorCode);
+        }
+        json.writeNumberField("executionTimeMs", executionTime);
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+    
+    // The connection's timeout (or the default) bounds the statement; a request may only ask for less
+    private int timeoutSeconds(DatabaseConnection connection, ExecuteQueryRequest request) {
+        int limit = connection.getQueryTimeoutSeconds() != null
+            ? connection.getQueryTimeoutSeconds() : defaultTimeoutSeconds;
+        Integer requested = request.getTimeoutSeconds();
+        return requested != null && requested > 0 ? Math.min(requested, limit) : limit;
+    }
+    
+    private static QueryExecutionResult cancelledResult(String queryId, long executionTime) {
+        return QueryExecutionResult.builder()
+            .queryId(queryId)
+            .success(false)
+            .message("Query cancelled")
+            .executionTimeMs(executionTime)
+            .build();
+    }
+    
     private QueryExecutionResult processResultSet(ResultSet rs, long executionTime) throws SQLException {
         ResultSetMetaData metaData = rs.getMetaData();
         int columnCount = metaData.getColumnCount();
@@ -108,7 +328,7 @@ public class QueryExecutionService {
         // Build rows
         List<List<Object>> rows = new ArrayList<>();
         int rowCount = 0;
-        while (rs.next() && rowCount < 1000) { // Limit to 1000 rows
+        while (rs.next() && rowCount < MAX_BUFFERED_ROWS) {
             List<Object> row = new ArrayList<>();
             for (int i = 1; i <= columnCount; i++) {
                 row.add(rs.getObject(i));
@@ -127,20 +347,10 @@ public class QueryExecutionService {
             .build();
     }
     
-    private void saveToHistory(DatabaseConnection connection, User user, String query, 
+    // Written asynchronously in batches, off the query latency path
+    private void saveToHistory(DatabaseConnection connection, String userId, String query, 
                                 long executionTime, int rowsAffected, QueryStatus status, String error) {
-        QueryHistory history = QueryHistory.builder()
-            .connection(connection)
-            .user(user)
-            .query(query)
-            .executionTimeMs((int) executionTime)
-            .rowsAffected(rowsAffected)
-            .status(status)
-            .errorMessage(error)
-            .executedAt(Instant.now())
-            .build();
-        
-        queryHistoryRepository.save(history);
+        historyWriter.record(connection.getId(), userId, query, executionTime, rowsAffected, status, error);
     }
     
     @Transactional(readOnly = true)
@@ -174,24 +384,6 @@ public class QueryExecutionService {
             .collect(Collectors.toList());
     }
     
-    private String buildJdbcUrl(DatabaseConnection connection) {
-        String sslParam = Boolean.TRUE.equals(connection.getSslEnabled()) ? "&ssl=true" : "";
-        
-        return switch (connection.getDatabaseType().toLowerCase()) {
-            case "postgresql" -> 
-                String.format("jdbc:postgresql://%s:%d/%s?%s", 
-                    connection.getHost(), connection.getPort(), connection.getDatabaseName(), sslParam);
-            case "mysql" -> 
-                String.format("jdbc:mysql://%s:%d/%s?%s", 
-                    connection.getHost(), connection.getPort(), connection.getDatabaseName(), sslParam);
-            case "sqlserver" -> 
-                String.format("jdbc:sqlserver://%s:%d;databaseName=%s;encrypt=%s", 
-                    connection.getHost(), connection.getPort(), connection.getDatabaseName(), 
-                    connection.getSslEnabled() ? "true" : "false");
-            default -> throw new IllegalArgumentException("Unsupported database type: " + connection.getDatabaseType());
-        };
-    }
-    
     private QueryHistoryResponse mapHistoryToResponse(QueryHistory history) {
         return QueryHistoryResponse.builder()
             .id(history.getId())
@@ -200,6 +392,7 @@ public class QueryExecutionService {
             .rowsAffected(history.getRowsAffected())
             .status(history.getStatus())
             .errorMessage(history.getErrorMessage())
+            .fingerprint(history.getFingerprint())
             .executedAt(history.getExecutedAt())
             .build();
     }
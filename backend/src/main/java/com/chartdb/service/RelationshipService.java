@@ -14,6 +14,7 @@ import com.chartdb.model.TableColumn;
 import com.chartdb.repository.ColumnRepository;
 import com.chartdb.repository.RelationshipRepository;
 import com.chartdb.repository.TableRepository;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -31,6 +32,7 @@ public class RelationshipService {
     private final ColumnRepository columnRepository;
     private final DiagramService diagramService;
     private final RelationshipMapper relationshipMapper;
+    private final DiagramRevisionService revisionService;
     
     @Transactional
     public RelationshipResponse createRelationship(String diagramId, String userId, CreateRelationshipRequest request) {
@@ -72,6 +74,7 @@ public class RelationshipService {
         }
         
         relationship = relationshipRepository.save(relationship);
+        revisionService.record(diagramId, EntityType.RELATIONSHIP, relationship.getId());
         log.info("Relationship created: {} in diagram {} by user {}", relationship.getId(), diagramId, userId);
         
         return relationshipMapper.toResponse(relationship);
@@ -107,6 +110,7 @@ public class RelationshipService {
         if (request.getTargetCardinality() != null) relationship.setCardinalityTarget(request.getTargetCardinality());
         
         relationship = relationshipRepository.save(relationship);
+        revisionService.record(diagram.getId(), EntityType.RELATIONSHIP, relationshipId);
         return relationshipMapper.toResponse(relationship);
     }
     
@@ -120,6 +124,7 @@ public class RelationshipService {
         }
         
         relationshipRepository.delete(relationship);
+        revisionService.record(diagram.getId(), EntityType.RELATIONSHIP, relationshipId);
         log.info("Relationship deleted: {} from diagram {} by user {}", relationshipId, diagram.getId(), userId);
     }
     
@@ -0,0 +1,211 @@
+package com.chartdb.service;
+
+import com.chartdb.dto.response.TableResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for table positions.
+ * Accepts moves at any rate, keeps only the latest position (or accumulated
+ * delta) per table, and writes them as one JDBC batch per flush. Readers overlay
+ * pending positions so a diagram load never shows a position older than the last move.
+ */
+@Slf4j
+@Component
+public class TablePositionBuffer {
+    
+    private static final String UPDATE_ABSOLUTE =
+        "UPDATE tables SET position_x = ?, position_y = ?, updated_at = ? WHERE id = ? AND diagram_id = ?";
+    private static final String UPDATE_DELTA =
+        "UPDATE tables SET position_x = position_x + ?, position_y = position_y + ?, updated_at = ? WHERE id = ? AND diagram_id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final DiagramRevisionService revisionService;
+    private final TransactionTemplate transactionTemplate;
+    
+    // Keyed by diagram and table, so an id sent for the wrong diagram can never touch another diagram's move
+    private final Map<Key, PendingMove> pending = new ConcurrentHashMap<>();
+    
+    public TablePositionBuffer(JdbcTemplate jdbcTemplate, DiagramRevisionService revisionService,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.revisionService = revisionService;
+        // Flushes may be triggered from inside a caller's (possibly read-only) transaction; a failed
+        // flush must not mark that transaction rollback-only
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    // Client-supplied ids are not looked up here: the flush UPDATE matches on diagram_id as well,
+    // so ids of other diagrams or of deleted tables are dropped there without a query per move
+    
+    /**
+     * Buffer an absolute position. Idempotent, so a repeated message has no further effect.
+     */
+    public void moveTo(String diagramId, String tableId, BigDecimal x, BigDecimal y) {
+        if (tableId == null) {
+            return;
+        }
+        pending.put(new Key(diagramId, tableId), new PendingMove(diagramId, false, x, y, Instant.now()));
+    }
+    
+    /**
+     * Buffer a relative move. Deltas accumulate, so each drag must reach this through one path only.
+     */
+    public void moveBy(String diagramId, Collection<String> tableIds, BigDecimal deltaX, BigDecimal deltaY) {
+        Instant now = Instant.now();
+        for (String tableId : tableIds) {
+            if (tableId != null) {
+                pending.merge(new Key(diagramId, tableId), new PendingMove(diagramId, true, deltaX, deltaY, now), PendingMove::then);
+            }
+        }
+    }
+    
+    /**
+     * Forget a pending move, e.g. when the table was deleted or repositioned through a full update.
+     */
+    public void discard(String diagramId, String tableId) {
+        pending.remove(new Key(diagramId, tableId));
+    }
+    
+    public void applyPending(TableResponse table) {
+        PendingMove move = pending.get(new Key(table.getDiagramId(), table.getId()));
+        if (move == null) {
+            return;
+        }
+        if (move.delta()) {
+            table.setPositionX(add(table.getPositionX(), move.x()));
+            table.setPositionY(add(table.getPositionY(), move.y()));
+        } else {
+            table.setPositionX(move.x());
+            table.setPositionY(move.y());
+        }
+    }
+    
+    public void applyPending(List<TableResponse> tables) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        tables.forEach(this::applyPending);
+    }
+    
+    public boolean hasPending(String diagramId) {
+        return pending.values().stream().anyMatch(move -> move.diagramId().equals(diagramId));
+    }
+    
+    @Scheduled(fixedDelayString = "${diagram.positions.flush-interval-ms:500}")
+    public void flush() {
+        flushMatching(null);
+    }
+    
+    public void flushDiagram(String diagramId) {
+        flushMatching(diagramId);
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private void flushMatching(String diagramId) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        List<Object[]> absolute = new ArrayList<>();
+        List<Key> absoluteKeys = new ArrayList<>();
+        List<Object[]> deltas = new ArrayList<>();
+        List<Key> deltaKeys = new ArrayList<>();
+        List<Map.Entry<Key, PendingMove>> drained = new ArrayList<>();
+        
+        for (Map.Entry<Key, PendingMove> entry : pending.entrySet()) {
+            PendingMove move = entry.getValue();
+            if (diagramId != null && !diagramId.equals(move.diagramId())) {
+                continue;
+            }
+            // Only drain the exact value we read; a newer move stays queued for the next flush
+            if (!pending.remove(entry.getKey(), move)) {
+                continue;
+            }
+            drained.add(Map.entry(entry.getKey(), move));
+            Object[] args = {move.x(), move.y(), Timestamp.from(move.updatedAt()), entry.getKey().tableId(), move.diagramId()};
+            (move.delta() ? deltas : absolute).add(args);
+            (move.delta() ? deltaKeys : absoluteKeys).add(entry.getKey());
+        }
+        
+        if (drained.isEmpty()) {
+            return;
+        }
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Key> moved = new ArrayList<>(drained.size());
+                if (!absolute.isEmpty()) {
+                    collectUpdated(jdbcTemplate.batchUpdate(UPDATE_ABSOLUTE, absolute), absoluteKeys, moved);
+                }
+                if (!deltas.isEmpty()) {
+                    collectUpdated(jdbcTemplate.batchUpdate(UPDATE_DELTA, deltas), deltaKeys, moved);
+                }
+                // Moved tables become part of the next diagram revision, in the same transaction as the writes
+                moved.stream()
+                    .collect(Collectors.groupingBy(Key::diagramId, Collectors.mapping(Key::tableId, Collectors.toList())))
+                    .forEach((id, tableIds) -> revisionService.recordAll(id, DiagramRevisionService.EntityType.TABLE, tableIds));
+            });
+            log.debug("Flushed {} table positions", drained.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} table positions, will retry: {}", drained.size(), e.getMessage());
+            // Put back anything not superseded in the meantime, merging deltas that arrived since
+            for (Map.Entry<Key, PendingMove> entry : drained) {
+                pending.merge(entry.getKey(), entry.getValue(), (newer, failed) -> failed.then(newer));
+            }
+        }
+    }
+    
+    // Rows that matched no table of the diagram (foreign or deleted ids) updated nothing and are not recorded
+    private static void collectUpdated(int[] counts, List<Key> keys, List<Key> moved) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                moved.add(keys.get(i));
+            }
+        }
+    }
+    
+    private static BigDecimal add(BigDecimal base, BigDecimal delta) {
+        if (base == null) return delta;
+        if (delta == null) return base;
+        return base.add(delta);
+    }
+    
+    private record Key(String diagramId, String tableId) {}
+    
+    private record PendingMove(String diagramId, boolean delta, BigDecimal x, BigDecimal y, Instant updatedAt) {
+        
+        // Combine this move with a later one
+        PendingMove then(PendingMove next) {
+            if (!next.delta()) {
+                return next;
+            }
+            return new PendingMove(diagramId, delta, add(x, next.x()), add(y, next.y()), next.updatedAt());
+        }
+    }
+}
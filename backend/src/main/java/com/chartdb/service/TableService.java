@@ -12,11 +12,13 @@ import com.chartdb.mapper.ColumnMapper;
 import com.chartdb.mapper.TableMapper;
 import com.chartdb.model.Diagram;
 import com.chartdb.model.DiagramTable;
+import com.chartdb.model.Relationship;
 import com.chartdb.model.TableColumn;
 import com.chartdb.repository.ColumnRepository;
 import com.chartdb.repository.RelationshipRepository;
 import com.chartdb.repository.TableRepository;
 import com.chartdb.dto.websocket.TableCreateMessage;
+import com.chartdb.service.DiagramRevisionService.EntityType;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +28,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,6 +46,8 @@ public class TableService {
     private final ColumnMapper columnMapper;
     private final EntityManager entityManager;
     private final SimpMessagingTemplate messagingTemplate;
+    private final TablePositionBuffer positionBuffer;
+    private final DiagramRevisionService revisionService;
     
     @Transactional
     public TableResponse createTable(String diagramId, String userId, CreateTableRequest request) {
@@ -69,6 +74,7 @@ public class TableService {
         if (table.getIsCollapsed() == null) table.setIsCollapsed(false);
         
         table = tableRepository.save(table);
+        revisionService.record(diagramId, EntityType.TABLE, table.getId());
         
         // Create columns if provided
         if (request.getColumns() != null && !request.getColumns().isEmpty()) {
@@ -121,7 +127,9 @@ public class TableService {
         }
         
         List<DiagramTable> tables = tableRepository.findByDiagramIdWithColumns(diagramId);
-        return tableMapper.toResponseList(tables);
+        List<TableResponse> responses = tableMapper.toResponseList(tables);
+        positionBuffer.applyPending(responses);
+        return responses;
     }
     
     @Transactional(readOnly = true)
@@ -133,7 +141,9 @@ public class TableService {
             throw new AccessDeniedException("You don't have permission to view this table");
         }
         
-        return tableMapper.toResponse(table);
+        TableResponse response = tableMapper.toResponse(table);
+        positionBuffer.applyPending(response);
+        return response;
     }
     
     @Transactional
@@ -160,6 +170,10 @@ public class TableService {
         String comment = request.getEffectiveComment();
         if (comment != null) table.setDescription(comment);
         
+        if (request.getPositionX() != null || request.getPositionY() != null) {
+            // An explicit position supersedes any buffered drag
+            positionBuffer.discard(diagram.getId(), tableId);
+        }
         if (request.getPositionX() != null) table.setPositionX(request.getPositionX());
         if (request.getPositionY() != null) table.setPositionY(request.getPositionY());
         if (request.getWidth() != null) table.setWidth(request.getWidth());
@@ -183,10 +197,13 @@ public class TableService {
         }
         
         table = tableRepository.save(table);
+        revisionService.record(diagram.getId(), EntityType.TABLE, tableId);
         
         // Reload with columns
         table = findTableById(tableId);
-        return tableMapper.toResponse(table);
+        TableResponse response = tableMapper.toResponse(table);
+        positionBuffer.applyPending(response);
+        return response;
     }
     
     /**
@@ -252,7 +269,8 @@ public class TableService {
         columnRepository.save(column);
     }
     
-    @Transactional
+    // Positions go through the write-behind buffer; see TablePositionBuffer
+    @Transactional(readOnly = true)
     public TableResponse moveTable(String tableId, String userId, MoveTableRequest request) {
         DiagramTable table = findTableById(tableId);
         Diagram diagram = table.getDiagram();
@@ -261,15 +279,15 @@ public class TableService {
             throw new AccessDeniedException("You don't have permission to edit this table");
         }
         
-        tableRepository.updatePosition(tableId, request.getPositionX(), request.getPositionY(), Instant.now());
+        positionBuffer.moveTo(diagram.getId(), tableId, request.getPositionX(), request.getPositionY());
         
-        table.setPositionX(request.getPositionX());
-        table.setPositionY(request.getPositionY());
-        
-        return tableMapper.toResponse(table);
+        TableResponse response = tableMapper.toResponse(table);
+        response.setPositionX(request.getPositionX());
+        response.setPositionY(request.getPositionY());
+        return response;
     }
     
-    @Transactional
+    @Transactional(readOnly = true)
     public void batchMoveTables(String diagramId, String userId, List<String> tableIds, BigDecimal deltaX, BigDecimal deltaY) {
         Diagram diagram = diagramService.findDiagramById(diagramId);
         
@@ -277,7 +295,7 @@ public class TableService {
             throw new AccessDeniedException("You don't have permission to edit this diagram");
         }
         
-        tableRepository.updatePositionsByDelta(tableIds, deltaX, deltaY, Instant.now());
+        positionBuffer.moveBy(diagramId, tableIds, deltaX, deltaY);
     }
     
     @Transactional
@@ -290,13 +308,25 @@ public class TableService {
         }
         
         // Clear FK references to this table
+        List<String> referencingTableIds = columnRepository.findTableIdsReferencing(tableId);
         columnRepository.clearForeignKeyReferences(tableId);
         
         // Delete relationships
+        List<String> relationshipIds = relationshipRepository.findByTableId(tableId).stream()
+            .map(Relationship::getId)
+            .toList();
         relationshipRepository.deleteByTableId(tableId);
         
         // Delete the table (cascades to columns)
+        positionBuffer.discard(diagram.getId(), tableId);
         tableRepository.delete(table);
+        
+        List<String> changedTableIds = new ArrayList<>(referencingTableIds);
+        changedTableIds.add(tableId);
+        revisionService.recordAll(diagram.getId(), EntityType.TABLE, changedTableIds);
+        if (!relationshipIds.isEmpty()) {
+            revisionService.recordAll(diagram.getId(), EntityType.RELATIONSHIP, relationshipIds);
+        }
         log.info("Table deleted: {} from diagram {} by user {}", tableId, diagram.getId(), userId);
     }
     
@@ -0,0 +1,115 @@
+package com.chartdb.service.ai;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared HTTP clients for the AI providers: one Reactor Netty connection pool per provider host, reused
+ * across chat messages so calls skip the TCP and TLS handshake. HTTPS hosts negotiate HTTP/2 when the
+ * server offers it. Pool meters are published as reactor.netty.connection.provider.* tagged with the pool
+ * name ai-&lt;host&gt;. Credentials differ per user, so providers add them per request, not as default headers.
+ */
+@Slf4j
+@Component
+public class AIHttpClientRegistry {
+    
+    private final int maxConnections;
+    private final Duration pendingAcquireTimeout;
+    private final Duration maxIdleTime;
+    private final Duration maxLifeTime;
+    private final int connectTimeoutMs;
+    private final Duration responseTimeout;
+    private final boolean http2Enabled;
+    
+    private final Map<String, ConnectionProvider> pools = new ConcurrentHashMap<>();
+    private final Map<String, WebClient> clients = new ConcurrentHashMap<>();
+    
+    public AIHttpClientRegistry(
+            @Value("${ai.http.max-connections:50}") int maxConnections,
+            @Value("${ai.http.pending-acquire-timeout-ms:10000}") long pendingAcquireTimeoutMs,
+            @Value("${ai.http.max-idle-time-seconds:55}") long maxIdleTimeSeconds,
+            @Value("${ai.http.max-life-time-minutes:10}") long maxLifeTimeMinutes,
+            @Value("${ai.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${ai.http.response-timeout-seconds:120}") long responseTimeoutSeconds,
+            @Value("${ai.http.http2-enabled:true}") boolean http2Enabled) {
+        this.maxConnections = maxConnections;
+        this.pendingAcquireTimeout = Duration.ofMillis(pendingAcquireTimeoutMs);
+        this.maxIdleTime = Duration.ofSeconds(maxIdleTimeSeconds);
+        this.maxLifeTime = Duration.ofMinutes(maxLifeTimeMinutes);
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.responseTimeout = Duration.ofSeconds(responseTimeoutSeconds);
+        this.http2Enabled = http2Enabled;
+    }
+    
+    /**
+     * A JSON client for the given base URL. Clients with the same scheme, host and port share one pool.
+     */
+    public WebClient client(String baseUrl) {
+        return clients.computeIfAbsent(baseUrl, url -> WebClient.builder()
+            .baseUrl(url)
+            .clientConnector(new ReactorClientHttpConnector(httpClient(URI.create(url))))
+            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .build());
+    }
+    
+    @PreDestroy
+    void closeAll() {
+        clients.clear();
+        pools.values().forEach(ConnectionProvider::dispose);
+        pools.clear();
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private HttpClient httpClient(URI uri) {
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        ConnectionProvider pool = pools.computeIfAbsent(origin(uri), this::connectionProvider);
+        HttpClient client = HttpClient.create(pool)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .keepAlive(true)
+            // Between reads, so long streamed answers are fine as long as tokens keep arriving
+            .responseTimeout(responseTimeout)
+            .compress(true);
+        if (secure && http2Enabled) {
+            // ALPN picks HTTP/2 when the server supports it, HTTP/1.1 otherwise
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return client;
+    }
+    
+    private ConnectionProvider connectionProvider(String origin) {
+        log.debug("Creating AI provider connection pool for {}", origin);
+        return ConnectionProvider.builder("ai-" + URI.create(origin).getHost())
+            .maxConnections(maxConnections)
+            .pendingAcquireTimeout(pendingAcquireTimeout)
+            // Below typical load balancer idle timeouts, so a pooled connection is not reset under us
+            .maxIdleTime(maxIdleTime)
+            .maxLifeTime(maxLifeTime)
+            .evictInBackground(Duration.ofSeconds(30))
+            .metrics(true)
+            .build();
+    }
+    
+    private static String origin(URI uri) {
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return uri.getScheme().toLowerCase() + "://" + uri.getHost() + ":" + port;
+    }
+}
@@ -2,6 +2,7 @@ package com.chartdb.service.ai;
 
 import com.chartdb.dto.ai.AIRequest;
 import com.chartdb.dto.ai.AIResponse;
+import reactor.core.publisher.Mono;
 
 import java.util.function.Consumer;
 
@@ -11,15 +12,16 @@ import java.util.function.Consumer;
 public interface AIProviderService {
     
     /**
-     * Send a request to the AI provider and get a response
+     * Send a request to the AI provider without blocking the calling thread.
+     * Streamed content is passed to {@code onChunk} as it arrives when the callback is not null.
      */
-    AIResponse sendRequest(AIRequest request, String apiKey);
+    Mono<AIResponse> sendRequestAsync(AIRequest request, String apiKey, Consumer<String> onChunk);
     
     /**
-     * Send a request with streaming support
+     * Send a request to the AI provider and wait for the response
      */
-    default AIResponse sendRequest(AIRequest request, String apiKey, Consumer<String> onChunk) {
-        return sendRequest(request, apiKey);
+    default AIResponse sendRequest(AIRequest request, String apiKey) {
+        return sendRequestAsync(request, apiKey, null).block();
     }
     
     /**
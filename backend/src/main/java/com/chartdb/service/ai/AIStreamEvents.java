@@ -0,0 +1,39 @@
+package com.chartdb.service.ai;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads a provider's text/event-stream response as JSON events. WebClient decodes the SSE framing
+ * itself, so the data of each event arrives without its "data:" prefix; keep-alive comments and the
+ * OpenAI-style [DONE] sentinel are dropped.
+ */
+@Slf4j
+final class AIStreamEvents {
+    
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+        new ParameterizedTypeReference<>() {};
+    
+    private AIStreamEvents() {
+    }
+    
+    static Flux<JsonNode> jsonEvents(WebClient.ResponseSpec response, ObjectMapper objectMapper) {
+        return response.bodyToFlux(EVENT_TYPE)
+            .mapNotNull(ServerSentEvent::data)
+            .filter(data -> !data.isBlank() && !"[DONE]".equals(data.trim()))
+            .mapNotNull(data -> {
+                try {
+                    return objectMapper.readTree(data);
+                } catch (JsonProcessingException e) {
+                    log.warn("Failed to parse streaming chunk: {}", data, e);
+                    return null;
+                }
+            });
+    }
+}
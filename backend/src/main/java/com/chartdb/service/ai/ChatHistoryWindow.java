@@ -0,0 +1,149 @@
+package com.chartdb.service.ai;
+
+import com.chartdb.model.AIChatSession;
+import com.chartdb.model.AIMessage;
+import com.chartdb.model.enums.MessageRole;
+import com.chartdb.repository.AIMessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Token-budgeted sliding window over a chat session's history. Only the newest messages after the
+ * session's summary point are loaded; everything older than what fits the budget is folded into
+ * {@link AIChatSession#getHistorySummary()} as one line per message, without a model call, so a
+ * turn's prompt stays roughly constant in size however long the session runs.
+ */
+@Slf4j
+@Component
+public class ChatHistoryWindow {
+    
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    private final AIMessageRepository messageRepository;
+    private final int tokenBudget;
+    private final int maxMessages;
+    private final int summaryMaxChars;
+    private final int lineMaxChars;
+    
+    public ChatHistoryWindow(
+            AIMessageRepository messageRepository,
+            @Value("${ai.chat.history.token-budget:6000}") int tokenBudget,
+            @Value("${ai.chat.history.max-messages:40}") int maxMessages,
+            @Value("${ai.chat.history.summary-max-chars:4000}") int summaryMaxChars,
+            @Value("${ai.chat.history.summary-line-max-chars:200}") int lineMaxChars) {
+        this.messageRepository = messageRepository;
+        this.tokenBudget = tokenBudget;
+        this.maxMessages = maxMessages;
+        this.summaryMaxChars = summaryMaxChars;
+        this.lineMaxChars = lineMaxChars;
+    }
+    
+    /**
+     * Messages for the next prompt, oldest first, always including the newest one. Every unsummarized
+     * message older than the window is added to the session summary; the caller's transaction persists it.
+     */
+    public List<AIMessage> load(AIChatSession session) {
+        Instant afterTime = session.getSummarizedThrough() != null ? session.getSummarizedThrough() : Instant.EPOCH;
+        // Sessions summarized before the boundary carried an id re-read that instant's messages once
+        String afterId = session.getSummarizedThroughId() != null ? session.getSummarizedThroughId() : "";
+        
+        // One row past the cap shows whether older unsummarized messages remain beyond this page
+        List<AIMessage> recent = messageRepository.findNewestAfter(
+            session.getId(), afterTime, afterId, PageRequest.of(0, maxMessages + 1));
+        
+        // Newest first: keep messages while they fit the budget and the cap
+        int used = 0;
+        int keep = 0;
+        for (AIMessage message : recent) {
+            int tokens = estimateTokens(message.getContent());
+            if (keep == maxMessages || (keep > 0 && used + tokens > tokenBudget)) {
+                break;
+            }
+            used += tokens;
+            keep++;
+        }
+        // Providers such as Claude expect the conversation to open with a user turn
+        while (keep > 1 && recent.get(keep - 1).getRole() != MessageRole.USER) {
+            keep--;
+        }
+        
+        List<AIMessage> window = new ArrayList<>(recent.subList(0, keep));
+        Collections.reverse(window);
+        if (keep < recent.size()) {
+            fold(session, new ArrayList<>(recent.subList(keep, recent.size())), afterTime, afterId,
+                recent.size() > maxMessages);
+        }
+        return window;
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    /**
+     * Folds {@code folded} (newest first) into the summary, reading further back when the page was full.
+     * Only as many lines as the rolling summary can hold are read; anything older would be cut anyway.
+     */
+    private void fold(AIChatSession session, List<AIMessage> folded, Instant afterTime, String afterId,
+                      boolean more) {
+        AIMessage newest = folded.get(0);
+        Deque<String> lines = new ArrayDeque<>();
+        int length = 0;
+        int count = 0;
+        List<AIMessage> batch = folded;
+        while (!batch.isEmpty() && length < summaryMaxChars) {
+            for (AIMessage message : batch) {
+                count++;
+                // Error replies say nothing about the conversation
+                if (message.getMetadata() != null && Boolean.TRUE.equals(message.getMetadata().get("error"))) {
+                    continue;
+                }
+                String line = (message.getRole() == MessageRole.USER ? "User: " : "Assistant: ")
+                    + line(message.getContent()) + '\n';
+                lines.addFirst(line);
+                length += line.length();
+            }
+            if (!more) {
+                break;
+            }
+            AIMessage oldest = batch.get(batch.size() - 1);
+            batch = messageRepository.findNewestBetween(session.getId(), afterTime, afterId,
+                oldest.getCreatedAt(), oldest.getId(), PageRequest.of(0, maxMessages));
+            more = batch.size() == maxMessages;
+        }
+        
+        StringBuilder summary = new StringBuilder(session.getHistorySummary() != null ? session.getHistorySummary() : "");
+        lines.forEach(summary::append);
+        // Rolling: the oldest lines go first once the summary is full
+        if (summary.length() > summaryMaxChars) {
+            int cut = summary.indexOf("\n", summary.length() - summaryMaxChars);
+            summary.delete(0, cut >= 0 ? cut + 1 : summary.length() - summaryMaxChars);
+        }
+        session.setHistorySummary(summary.toString());
+        session.setSummarizedThrough(newest.getCreatedAt());
+        session.setSummarizedThroughId(newest.getId());
+        log.debug("Folded {} messages of chat session {} into its summary", count, session.getId());
+    }
+    
+    private String line(String content) {
+        String line = WHITESPACE.matcher(content != null ? content : "").replaceAll(" ").trim();
+        return line.length() > lineMaxChars ? line.substring(0, lineMaxChars) + "…" : line;
+    }
+    
+    /**
+     * Rough count of about four characters per token, plus the per-message framing overhead.
+     */
+    private static int estimateTokens(String content) {
+        return (content != null ? content.length() : 0) / 4 + 4;
+    }
+}
@@ -2,17 +2,19 @@ package com.chartdb.service.ai;
 
 import com.chartdb.dto.ai.AIRequest;
 import com.chartdb.dto.ai.AIResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,17 +23,13 @@ import java.util.stream.Collectors;
 public class ClaudeProviderService implements AIProviderService {
     
     private final ObjectMapper objectMapper;
+    private final AIHttpClientRegistry httpClients;
     private static final String API_URL = "https://api.anthropic.com/v1/messages";
     private static final String ANTHROPIC_VERSION = "2023-06-01";
     
     @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey) {
-        WebClient client = WebClient.builder()
-            .baseUrl(API_URL)
-            .defaultHeader("x-api-key", apiKey)
-            .defaultHeader("anthropic-version", ANTHROPIC_VERSION)
-            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .build();
+    public Mono<AIResponse> sendRequestAsync(AIRequest request, String apiKey, Consumer<String> onChunk) {
+        WebClient client = httpClients.client(API_URL);
         
         // Build request body - Claude has different format
         Map<String, Object> requestBody = new HashMap<>();
@@ -60,39 +58,91 @@ public class ClaudeProviderService implements AIProviderService {
         if (request.getTemperature() != null) {
             requestBody.put("temperature", request.getTemperature());
         }
+        if (onChunk != null) {
+            requestBody.put("stream", true);
+        }
         
-        try {
-            String responseJson = client.post()
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-            
-            // Parse response
-            JsonNode root = objectMapper.readTree(responseJson);
-            String content = root.path("content").get(0).path("text").asText();
-            String model = root.path("model").asText();
-            
-            int inputTokens = root.path("usage").path("input_tokens").asInt();
-            int outputTokens = root.path("usage").path("output_tokens").asInt();
-            
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("provider", "claude");
-            metadata.put("prompt_tokens", inputTokens);
-            metadata.put("completion_tokens", outputTokens);
-            metadata.put("stop_reason", root.path("stop_reason").asText());
-            
-            return AIResponse.builder()
-                .content(content)
-                .model(model)
-                .tokensUsed(inputTokens + outputTokens)
+        WebClient.ResponseSpec response = client.post()
+            .header("x-api-key", apiKey)
+            .header("anthropic-version", ANTHROPIC_VERSION)
+            .bodyValue(requestBody)
+            .retrieve();
+        
+        Mono<AIResponse> result = onChunk != null
+            ? streamResponse(response, onChunk)
+            : response.bodyToMono(String.class).flatMap(responseJson -> Mono.fromCallable(() -> parseResponse(responseJson)));
+        return result
+            .doOnError(e -> log.error("Error calling Claude API", e))
+            .onErrorMap(e -> new RuntimeException("Failed to get response from Claude: " + e.getMessage(), e));
+    }
+    
+    /**
+     * Messages API stream: message_start carries the model and input tokens, content_block_delta the
+     * text, message_delta the stop reason and output tokens.
+     */
+    private Mono<AIResponse> streamResponse(WebClient.ResponseSpec response, Consumer<String> onChunk) {
+        StringBuilder content = new StringBuilder();
+        AtomicReference<String> model = new AtomicReference<>();
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "claude");
+        metadata.put("streaming", true);
+        metadata.put("prompt_tokens", 0);
+        metadata.put("completion_tokens", 0);
+        
+        return AIStreamEvents.jsonEvents(response, objectMapper)
+            .handle((event, sink) -> {
+                switch (event.path("type").asText()) {
+                    case "message_start" -> {
+                        JsonNode message = event.path("message");
+                        model.set(message.path("model").asText());
+                        metadata.put("prompt_tokens", message.path("usage").path("input_tokens").asInt());
+                    }
+                    case "content_block_delta" -> {
+                        String delta = event.path("delta").path("text").asText("");
+                        if (!delta.isEmpty()) {
+                            content.append(delta);
+                            onChunk.accept(delta);
+                        }
+                    }
+                    case "message_delta" -> {
+                        metadata.put("stop_reason", event.path("delta").path("stop_reason").asText());
+                        metadata.put("completion_tokens", event.path("usage").path("output_tokens").asInt());
+                    }
+                    case "error" -> sink.error(new IllegalStateException(
+                        event.path("error").path("type").asText() + ": " + event.path("error").path("message").asText()));
+                    default -> {
+                        // ping, content_block_start/stop and message_stop carry nothing we keep
+                    }
+                }
+            })
+            .then(Mono.fromSupplier(() -> AIResponse.builder()
+                .content(content.toString())
+                .model(model.get())
+                .tokensUsed((int) metadata.get("prompt_tokens") + (int) metadata.get("completion_tokens"))
                 .metadata(metadata)
-                .build();
-                
-        } catch (Exception e) {
-            log.error("Error calling Claude API", e);
-            throw new RuntimeException("Failed to get response from Claude: " + e.getMessage(), e);
-        }
+                .build()));
+    }
+    
+    private AIResponse parseResponse(String responseJson) throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(responseJson);
+        String content = root.path("content").get(0).path("text").asText();
+        String model = root.path("model").asText();
+        
+        int inputTokens = root.path("usage").path("input_tokens").asInt();
+        int outputTokens = root.path("usage").path("output_tokens").asInt();
+        
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "claude");
+        metadata.put("prompt_tokens", inputTokens);
+        metadata.put("completion_tokens", outputTokens);
+        metadata.put("stop_reason", root.path("stop_reason").asText());
+        
+        return AIResponse.builder()
+            .content(content)
+            .model(model)
+            .tokensUsed(inputTokens + outputTokens)
+            .metadata(metadata)
+            .build();
     }
     
     @Override
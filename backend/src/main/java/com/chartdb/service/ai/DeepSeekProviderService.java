@@ -4,15 +4,16 @@ import com.chartdb.dto.ai.AIFunctionCall;
 import com.chartdb.dto.ai.AIRequest;
 import com.chartdb.dto.ai.AIResponse;
 import com.chartdb.dto.ai.AITool;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 import java.util.function.Consumer;
@@ -23,6 +24,7 @@ import java.util.function.Consumer;
 public class DeepSeekProviderService implements AIProviderService {
     
     private final ObjectMapper objectMapper;
+    private final AIHttpClientRegistry httpClients;
     
     @Value("${ai.deepseek.base-url:https://api.deepseek.com}")
     private String baseUrl;
@@ -31,20 +33,11 @@ public class DeepSeekProviderService implements AIProviderService {
     private String defaultApiKey;
     
     @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey) {
-        return sendRequest(request, apiKey, null);
-    }
-    
-    @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey, Consumer<String> onChunk) {
+    public Mono<AIResponse> sendRequestAsync(AIRequest request, String apiKey, Consumer<String> onChunk) {
         // Use default API key if none provided
         String effectiveApiKey = (apiKey != null && !apiKey.isEmpty()) ? apiKey : defaultApiKey;
         
-        WebClient client = WebClient.builder()
-            .baseUrl(baseUrl)
-            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + effectiveApiKey)
-            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .build();
+        WebClient client = httpClients.client(baseUrl);
         
         // Build request body - DeepSeek uses OpenAI-compatible API
         Map<String, Object> requestBody = new HashMap<>();
@@ -86,113 +79,108 @@ public class DeepSeekProviderService implements AIProviderService {
             requestBody.put("tool_choice", "auto");
         }
         
-        try {
-            log.debug("Sending request to DeepSeek API: {}/v1/chat/completions", baseUrl);
+        log.debug("Sending request to DeepSeek API: {}/v1/chat/completions", baseUrl);
+        
+        Mono<AIResponse> response;
+        if (onChunk != null) {
+            // Streaming mode
+            StringBuilder fullResponse = new StringBuilder();
+            StreamedToolCalls toolCalls = new StreamedToolCalls();
             
-            if (onChunk != null) {
-                // Streaming mode
-                StringBuilder fullResponse = new StringBuilder();
-                
-                client.post()
+            response = AIStreamEvents.jsonEvents(client.post()
                     .uri("/v1/chat/completions")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + effectiveApiKey)
                     .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToFlux(String.class)
-                    .doOnNext(chunk -> {
-                        // Process each SSE chunk
-                        if (chunk.startsWith("data: ") && !chunk.contains("[DONE]")) {
-                            try {
-                                String jsonData = chunk.substring(6).trim();
-                                JsonNode chunkNode = objectMapper.readTree(jsonData);
-                                JsonNode choices = chunkNode.path("choices");
-                                if (choices.isArray() && choices.size() > 0) {
-                                    JsonNode delta = choices.get(0).path("delta");
-                                    String content = delta.path("content").asText("");
-                                    if (!content.isEmpty()) {
-                                        fullResponse.append(content);
-                                        onChunk.accept(content);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                log.warn("Failed to parse streaming chunk: {}", chunk, e);
-                            }
+                    .retrieve(), objectMapper)
+                .doOnNext(event -> {
+                    JsonNode choices = event.path("choices");
+                    if (choices.isArray() && choices.size() > 0) {
+                        JsonNode delta = choices.get(0).path("delta");
+                        toolCalls.accept(delta);
+                        String content = delta.path("content").asText("");
+                        if (!content.isEmpty()) {
+                            fullResponse.append(content);
+                            onChunk.accept(content);
                         }
-                    })
-                    .blockLast();
-                
-                String content = fullResponse.toString();
-                
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("provider", "deepseek");
-                metadata.put("model", request.getModel());
-                metadata.put("streaming", true);
-                
-                return AIResponse.builder()
-                    .content(content)
-                    .model(request.getModel())
-                    .tokensUsed(0)
-                    .metadata(metadata)
-                    .build();
-            } else {
-                // Non-streaming mode
-                String responseJson = client.post()
-                    .uri("/v1/chat/completions")
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-                
-                // Parse response
-                JsonNode root = objectMapper.readTree(responseJson);
-                JsonNode choices = root.path("choices");
-                
-                if (!choices.isArray() || choices.size() == 0) {
-                    throw new RuntimeException("No choices in DeepSeek response");
-                }
-                
-                JsonNode message = choices.get(0).path("message");
-                String content = message.path("content").asText();
-                String model = root.path("model").asText();
-                int totalTokens = root.path("usage").path("total_tokens").asInt(0);
-                
-                // Check for function calls
-                AIFunctionCall functionCall = null;
-                JsonNode toolCalls = message.path("tool_calls");
-                if (toolCalls.isArray() && toolCalls.size() > 0) {
-                    JsonNode firstCall = toolCalls.get(0);
-                    JsonNode function = firstCall.path("function");
-                    String functionName = function.path("name").asText();
-                    String argumentsJson = function.path("arguments").asText();
-                    
-                    try {
-                        Map<String, Object> arguments = objectMapper.readValue(argumentsJson, Map.class);
-                        functionCall = AIFunctionCall.builder()
-                            .name(functionName)
-                            .arguments(arguments)
-                            .build();
-                    } catch (Exception e) {
-                        log.warn("Failed to parse function arguments", e);
                     }
-                }
-                
-                Map<String, Object> metadata = new HashMap<>();
-                metadata.put("provider", "deepseek");
-                metadata.put("prompt_tokens", root.path("usage").path("prompt_tokens").asInt(0));
-                metadata.put("completion_tokens", root.path("usage").path("completion_tokens").asInt(0));
-                
-                return AIResponse.builder()
-                    .content(content)
-                    .functionCall(functionCall)
-                    .model(model)
-                    .tokensUsed(totalTokens)
-                    .metadata(metadata)
+                })
+                .then(Mono.fromSupplier(() -> {
+                    Map<String, Object> metadata = new HashMap<>();
+                    metadata.put("provider", "deepseek");
+                    metadata.put("model", request.getModel());
+                    metadata.put("streaming", true);
+                    
+                    AIFunctionCall functionCall = toolCalls.first(objectMapper);
+                    return AIResponse.builder()
+                        .content(functionCall != null ? null : fullResponse.toString())
+                        .functionCall(functionCall)
+                        .model(request.getModel())
+                        .tokensUsed(0)
+                        .metadata(metadata)
+                        .build();
+                }));
+        } else {
+            // Non-streaming mode
+            response = client.post()
+                .uri("/v1/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + effectiveApiKey)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .flatMap(responseJson -> Mono.fromCallable(() -> parseResponse(responseJson)));
+        }
+        
+        return response
+            .doOnError(e -> log.error("Error calling DeepSeek API", e))
+            .onErrorMap(e -> new RuntimeException("Failed to get response from DeepSeek: " + e.getMessage(), e));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private AIResponse parseResponse(String responseJson) throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(responseJson);
+        JsonNode choices = root.path("choices");
+        
+        if (!choices.isArray() || choices.size() == 0) {
+            throw new RuntimeException("No choices in DeepSeek response");
+        }
+        
+        JsonNode message = choices.get(0).path("message");
+        String content = message.path("content").asText();
+        String model = root.path("model").asText();
+        int totalTokens = root.path("usage").path("total_tokens").asInt(0);
+        
+        // Check for function calls
+        AIFunctionCall functionCall = null;
+        JsonNode toolCalls = message.path("tool_calls");
+        if (toolCalls.isArray() && toolCalls.size() > 0) {
+            JsonNode firstCall = toolCalls.get(0);
+            JsonNode function = firstCall.path("function");
+            String functionName = function.path("name").asText();
+            String argumentsJson = function.path("arguments").asText();
+            
+            try {
+                Map<String, Object> arguments = objectMapper.readValue(argumentsJson, Map.class);
+                functionCall = AIFunctionCall.builder()
+                    .name(functionName)
+                    .arguments(arguments)
                     .build();
+            } catch (Exception e) {
+                log.warn("Failed to parse function arguments", e);
             }
-            
-        } catch (Exception e) {
-            log.error("Error calling DeepSeek API", e);
-            throw new RuntimeException("Failed to get response from DeepSeek: " + e.getMessage(), e);
         }
+        
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "deepseek");
+        metadata.put("prompt_tokens", root.path("usage").path("prompt_tokens").asInt(0));
+        metadata.put("completion_tokens", root.path("usage").path("completion_tokens").asInt(0));
+        
+        return AIResponse.builder()
+            .content(content)
+            .functionCall(functionCall)
+            .model(model)
+            .tokensUsed(totalTokens)
+            .metadata(metadata)
+            .build();
     }
     
     @Override
@@ -4,16 +4,18 @@ import com.chartdb.dto.ai.AIFunctionCall;
 import com.chartdb.dto.ai.AIRequest;
 import com.chartdb.dto.ai.AIResponse;
 import com.chartdb.dto.ai.AITool;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,19 +24,17 @@ import java.util.stream.Collectors;
 public class GeminiProviderService implements AIProviderService {
     
     private final ObjectMapper objectMapper;
-    private static final String API_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
+    private final AIHttpClientRegistry httpClients;
+    private static final String API_URL = "https://generativelanguage.googleapis.com/v1beta/models";
     
     @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey) {
+    public Mono<AIResponse> sendRequestAsync(AIRequest request, String apiKey, Consumer<String> onChunk) {
         String model = request.getModel() != null ? request.getModel() : "gemini-1.5-flash";
         
         // Map common model names to Gemini API model names
         String apiModel = mapToGeminiModel(model);
         
-        WebClient client = WebClient.builder()
-            .baseUrl(API_URL + apiModel + ":generateContent")
-            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .build();
+        WebClient client = httpClients.client(API_URL);
         
         // Build request body - Gemini has different format
         Map<String, Object> requestBody = new HashMap<>();
@@ -77,93 +77,142 @@ public class GeminiProviderService implements AIProviderService {
             requestBody.put("generationConfig", generationConfig);
         }
         
-        try {
-            String responseJson = client.post()
+        Mono<AIResponse> result;
+        if (onChunk != null) {
+            // alt=sse streams one GenerateContentResponse per event instead of a JSON array
+            result = streamResponse(client.post()
+                .uri("/{model}:streamGenerateContent?alt=sse", apiModel)
+                .header("x-goog-api-key", apiKey)
+                .bodyValue(requestBody)
+                .retrieve(), model, onChunk);
+        } else {
+            result = client.post()
+                .uri("/{model}:generateContent", apiModel)
                 .header("x-goog-api-key", apiKey)
                 .bodyValue(requestBody)
                 .retrieve()
                 .bodyToMono(String.class)
-                .block();
-            
-            // Parse response
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode candidate = root.path("candidates").get(0);
-            JsonNode content = candidate.path("content");
-            JsonNode parts = content.path("parts");
-            
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("provider", "gemini");
-            
-            // Check if response contains a function call
-            if (parts.size() > 0 && parts.get(0).has("functionCall")) {
-                JsonNode functionCallNode = parts.get(0).path("functionCall");
-                String functionName = functionCallNode.path("name").asText();
-                
-                // Parse function arguments
-                Map<String, Object> arguments = new HashMap<>();
-                JsonNode argsNode = functionCallNode.path("args");
-                argsNode.fields().forEachRemaining(entry -> {
-                    JsonNode value = entry.getValue();
-                    if (value.isTextual()) {
-                        arguments.put(entry.getKey(), value.asText());
-                    } else if (value.isBoolean()) {
-                        arguments.put(entry.getKey(), value.asBoolean());
-                    } else if (value.isNumber()) {
-                        arguments.put(entry.getKey(), value.asDouble());
-                    } else if (value.isArray()) {
-                        List<Object> list = new ArrayList<>();
-                        value.forEach(item -> {
-                            if (item.isTextual()) list.add(item.asText());
-                            else if (item.isObject()) list.add(objectMapper.convertValue(item, Map.class));
-                        });
-                        arguments.put(entry.getKey(), list);
-                    } else if (value.isObject()) {
-                        arguments.put(entry.getKey(), objectMapper.convertValue(value, Map.class));
-                    }
-                });
-                
-                AIFunctionCall functionCall = AIFunctionCall.builder()
-                    .name(functionName)
-                    .arguments(arguments)
-                    .build();
-                
-                return AIResponse.builder()
-                    .content(null)
-                    .model(model)
-                    .functionCall(functionCall)
-                    .tokensUsed(root.has("usageMetadata") ? root.path("usageMetadata").path("totalTokenCount").asInt() : 0)
-                    .metadata(metadata)
-                    .build();
-            }
-            
-            // Normal text response
-            String textContent = parts.get(0).path("text").asText();
+                .flatMap(responseJson -> Mono.fromCallable(() -> parseResponse(responseJson, model)));
+        }
+        return result
+            .doOnError(e -> log.error("Error calling Gemini API", e))
+            .onErrorMap(e -> new RuntimeException("Failed to get response from Gemini: " + e.getMessage(), e));
+    }
+    
+    private AIResponse parseResponse(String responseJson, String model) throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(responseJson);
+        JsonNode candidate = root.path("candidates").get(0);
+        JsonNode content = candidate.path("content");
+        JsonNode parts = content.path("parts");
+        
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "gemini");
+        
+        // Check if response contains a function call
+        if (parts.size() > 0 && parts.get(0).has("functionCall")) {
+            AIFunctionCall functionCall = parseFunctionCall(parts.get(0).path("functionCall"));
             
-            // Gemini may not return token counts in all cases
-            if (root.has("usageMetadata")) {
-                int totalTokens = root.path("usageMetadata").path("totalTokenCount").asInt();
-                metadata.put("prompt_tokens", root.path("usageMetadata").path("promptTokenCount").asInt());
-                metadata.put("completion_tokens", root.path("usageMetadata").path("candidatesTokenCount").asInt());
-                
-                return AIResponse.builder()
-                    .content(textContent)
-                    .model(model)
-                    .tokensUsed(totalTokens)
-                    .metadata(metadata)
-                    .build();
-            }
+            return AIResponse.builder()
+                .content(null)
+                .model(model)
+                .functionCall(functionCall)
+                .tokensUsed(root.has("usageMetadata") ? root.path("usageMetadata").path("totalTokenCount").asInt() : 0)
+                .metadata(metadata)
+                .build();
+        }
+        
+        // Normal text response
+        String textContent = parts.get(0).path("text").asText();
+        
+        // Gemini may not return token counts in all cases
+        if (root.has("usageMetadata")) {
+            int totalTokens = root.path("usageMetadata").path("totalTokenCount").asInt();
+            metadata.put("prompt_tokens", root.path("usageMetadata").path("promptTokenCount").asInt());
+            metadata.put("completion_tokens", root.path("usageMetadata").path("candidatesTokenCount").asInt());
             
             return AIResponse.builder()
                 .content(textContent)
                 .model(model)
-                .tokensUsed(0)
+                .tokensUsed(totalTokens)
                 .metadata(metadata)
                 .build();
-                
-        } catch (Exception e) {
-            log.error("Error calling Gemini API", e);
-            throw new RuntimeException("Failed to get response from Gemini: " + e.getMessage(), e);
         }
+        
+        return AIResponse.builder()
+            .content(textContent)
+            .model(model)
+            .tokensUsed(0)
+            .metadata(metadata)
+            .build();
+    }
+    
+    private Mono<AIResponse> streamResponse(WebClient.ResponseSpec response, String model, Consumer<String> onChunk) {
+        StringBuilder content = new StringBuilder();
+        AtomicReference<AIFunctionCall> functionCall = new AtomicReference<>();
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "gemini");
+        metadata.put("streaming", true);
+        
+        return AIStreamEvents.jsonEvents(response, objectMapper)
+            .doOnNext(event -> {
+                for (JsonNode part : event.path("candidates").path(0).path("content").path("parts")) {
+                    if (part.has("functionCall")) {
+                        functionCall.compareAndSet(null, parseFunctionCall(part.path("functionCall")));
+                    } else {
+                        String delta = part.path("text").asText("");
+                        if (!delta.isEmpty()) {
+                            content.append(delta);
+                            onChunk.accept(delta);
+                        }
+                    }
+                }
+                // Usage is cumulative; the last event has the totals
+                JsonNode usage = event.path("usageMetadata");
+                if (usage.isObject()) {
+                    metadata.put("prompt_tokens", usage.path("promptTokenCount").asInt());
+                    metadata.put("completion_tokens", usage.path("candidatesTokenCount").asInt());
+                    metadata.put("total_tokens", usage.path("totalTokenCount").asInt());
+                }
+            })
+            .then(Mono.fromSupplier(() -> AIResponse.builder()
+                .content(functionCall.get() != null ? null : content.toString())
+                .model(model)
+                .functionCall(functionCall.get())
+                .tokensUsed((int) metadata.getOrDefault("total_tokens", 0))
+                .metadata(metadata)
+                .build()));
+    }
+    
+    private AIFunctionCall parseFunctionCall(JsonNode functionCallNode) {
+        String functionName = functionCallNode.path("name").asText();
+        
+        // Parse function arguments
+        Map<String, Object> arguments = new HashMap<>();
+        JsonNode argsNode = functionCallNode.path("args");
+        argsNode.fields().forEachRemaining(entry -> {
+            JsonNode value = entry.getValue();
+            if (value.isTextual()) {
+                arguments.put(entry.getKey(), value.asText());
+            } else if (value.isBoolean()) {
+                arguments.put(entry.getKey(), value.asBoolean());
+            } else if (value.isNumber()) {
+                arguments.put(entry.getKey(), value.asDouble());
+            } else if (value.isArray()) {
+                List<Object> list = new ArrayList<>();
+                value.forEach(item -> {
+                    if (item.isTextual()) list.add(item.asText());
+                    else if (item.isObject()) list.add(objectMapper.convertValue(item, Map.class));
+                });
+                arguments.put(entry.getKey(), list);
+            } else if (value.isObject()) {
+                arguments.put(entry.getKey(), objectMapper.convertValue(value, Map.class));
+            }
+        });
+        
+        return AIFunctionCall.builder()
+            .name(functionName)
+            .arguments(arguments)
+            .build();
     }
     
     @Override
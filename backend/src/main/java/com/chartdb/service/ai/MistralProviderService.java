@@ -10,11 +10,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 @Slf4j
@@ -23,6 +24,7 @@ import java.util.function.Consumer;
 public class MistralProviderService implements AIProviderService {
     
     private final ObjectMapper objectMapper;
+    private final AIHttpClientRegistry httpClients;
     
     @Value("${mistral.base-url:https://mistral-ai.chartdb.in}")
     private String baseUrl;
@@ -39,17 +41,8 @@ public class MistralProviderService implements AIProviderService {
     }
     
     @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey) {
-        return sendRequest(request, apiKey, null);
-    }
-    
-    @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey, Consumer<String> onChunk) {
-        WebClient client = WebClient.builder()
-            .baseUrl(baseUrl)
-            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .defaultHeader("Authorization", "Bearer " + apiKey)
-            .build();
+    public Mono<AIResponse> sendRequestAsync(AIRequest request, String apiKey, Consumer<String> onChunk) {
+        WebClient client = httpClients.client(baseUrl);
         
         // Build request body for Mistral Chat API format
         Map<String, Object> requestBody = new HashMap<>();
@@ -91,67 +84,63 @@ public class MistralProviderService implements AIProviderService {
             requestBody.put("tool_choice", "auto");
         }
         
-        try {
-            log.debug("Sending request to Mistral API: {}/v1/chat/completions", baseUrl);
-            
-            StringBuilder fullResponse = new StringBuilder();
-            
-            // Use streaming for faster token-by-token response
-            client.post()
+        log.debug("Sending request to Mistral API: {}/v1/chat/completions", baseUrl);
+        
+        StringBuilder fullResponse = new StringBuilder();
+        AtomicInteger tokensUsed = new AtomicInteger();
+        StreamedToolCalls toolCalls = new StreamedToolCalls();
+        
+        // Use streaming for faster token-by-token response
+        return AIStreamEvents.jsonEvents(client.post()
                 .uri("/v1/chat/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                 .bodyValue(requestBody)
-                .retrieve()
-                .bodyToFlux(String.class)
-                .doOnNext(chunk -> {
-                    // Process each SSE chunk
-                    if (chunk.startsWith("data: ") && !chunk.contains("[DONE]")) {
-                        try {
-                            String jsonData = chunk.substring(6).trim();
-                            JsonNode chunkNode = objectMapper.readTree(jsonData);
-                            JsonNode choices = chunkNode.path("choices");
-                            if (choices.isArray() && choices.size() > 0) {
-                                JsonNode delta = choices.get(0).path("delta");
-                                String content = delta.path("content").asText("");
-                                if (!content.isEmpty()) {
-                                    fullResponse.append(content);
-                                    // Stream chunk to frontend if callback provided
-                                    if (onChunk != null) {
-                                        onChunk.accept(content);
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            log.warn("Failed to parse streaming chunk: {}", chunk, e);
+                .retrieve(), objectMapper)
+            .doOnNext(event -> {
+                JsonNode choices = event.path("choices");
+                if (choices.isArray() && choices.size() > 0) {
+                    JsonNode delta = choices.get(0).path("delta");
+                    toolCalls.accept(delta);
+                    String content = delta.path("content").asText("");
+                    if (!content.isEmpty()) {
+                        fullResponse.append(content);
+                        // Stream chunk to frontend if callback provided
+                        if (onChunk != null) {
+                            onChunk.accept(content);
                         }
                     }
-                })
-                .blockLast(); // Wait for all chunks
-            
-            String content = fullResponse.toString();
-            
-            // Check if response contains function call
-            AIFunctionCall functionCall = null;
-            if (content.contains("\"function_call\"") || content.contains("\"tool_calls\"")) {
-                functionCall = extractFunctionCall(content);
-            }
-            
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("provider", "mistral");
-            metadata.put("model", request.getModel());
-            metadata.put("streaming", true);
-            
-            return AIResponse.builder()
-                .content(content)
-                .functionCall(functionCall)
-                .model(request.getModel())
-                .tokensUsed(0) // Token counting not available in streaming mode
-                .metadata(metadata)
-                .build();
-            
-        } catch (Exception e) {
-            log.error("Error calling Mistral API", e);
-            throw new RuntimeException("Failed to get response from Mistral: " + e.getMessage(), e);
-        }
+                }
+                // The last chunk carries usage for the whole completion
+                if (event.path("usage").isObject()) {
+                    tokensUsed.set(event.path("usage").path("total_tokens").asInt());
+                }
+            })
+            .then(Mono.fromSupplier(() -> {
+                String content = fullResponse.toString();
+                
+                // Native tool calls arrive as delta.tool_calls; older models may write one into the text
+                AIFunctionCall functionCall = toolCalls.first(objectMapper);
+                if (functionCall != null) {
+                    content = null;
+                } else if (content.contains("\"function_call\"") || content.contains("\"tool_calls\"")) {
+                    functionCall = extractFunctionCall(content);
+                }
+                
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("provider", "mistral");
+                metadata.put("model", request.getModel());
+                metadata.put("streaming", true);
+                
+                return AIResponse.builder()
+                    .content(content)
+                    .functionCall(functionCall)
+                    .model(request.getModel())
+                    .tokensUsed(tokensUsed.get())
+                    .metadata(metadata)
+                    .build();
+            }))
+            .doOnError(e -> log.error("Error calling Mistral API", e))
+            .onErrorMap(e -> new RuntimeException("Failed to get response from Mistral: " + e.getMessage(), e));
     }
     
     private AIFunctionCall extractFunctionCall(String content) {
@@ -2,17 +2,20 @@ package com.chartdb.service.ai;
 
 import com.chartdb.dto.ai.AIRequest;
 import com.chartdb.dto.ai.AIResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -21,15 +24,12 @@ import java.util.stream.Collectors;
 public class OpenAIProviderService implements AIProviderService {
     
     private final ObjectMapper objectMapper;
+    private final AIHttpClientRegistry httpClients;
     private static final String API_URL = "https://api.openai.com/v1/chat/completions";
     
     @Override
-    public AIResponse sendRequest(AIRequest request, String apiKey) {
-        WebClient client = WebClient.builder()
-            .baseUrl(API_URL)
-            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .build();
+    public Mono<AIResponse> sendRequestAsync(AIRequest request, String apiKey, Consumer<String> onChunk) {
+        WebClient client = httpClients.client(API_URL);
         
         // Build request body
         Map<String, Object> requestBody = new HashMap<>();
@@ -44,36 +44,77 @@ public class OpenAIProviderService implements AIProviderService {
         if (request.getMaxTokens() != null) {
             requestBody.put("max_tokens", request.getMaxTokens());
         }
+        if (onChunk != null) {
+            requestBody.put("stream", true);
+            // Usage arrives in a final chunk with no choices
+            requestBody.put("stream_options", Map.of("include_usage", true));
+        }
+        
+        WebClient.ResponseSpec response = client.post()
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+            .bodyValue(requestBody)
+            .retrieve();
+        
+        Mono<AIResponse> result = onChunk != null
+            ? streamResponse(response, onChunk)
+            : response.bodyToMono(String.class).flatMap(responseJson -> Mono.fromCallable(() -> parseResponse(responseJson)));
+        return result
+            .doOnError(e -> log.error("Error calling OpenAI API", e))
+            .onErrorMap(e -> new RuntimeException("Failed to get response from OpenAI: " + e.getMessage(), e));
+    }
+    
+    private Mono<AIResponse> streamResponse(WebClient.ResponseSpec response, Consumer<String> onChunk) {
+        StringBuilder content = new StringBuilder();
+        AtomicReference<String> model = new AtomicReference<>();
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "openai");
+        metadata.put("streaming", true);
         
-        try {
-            String responseJson = client.post()
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-            
-            // Parse response
-            JsonNode root = objectMapper.readTree(responseJson);
-            String content = root.path("choices").get(0).path("message").path("content").asText();
-            String model = root.path("model").asText();
-            int totalTokens = root.path("usage").path("total_tokens").asInt();
-            
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("provider", "openai");
-            metadata.put("prompt_tokens", root.path("usage").path("prompt_tokens").asInt());
-            metadata.put("completion_tokens", root.path("usage").path("completion_tokens").asInt());
-            
-            return AIResponse.builder()
-                .content(content)
-                .model(model)
-                .tokensUsed(totalTokens)
+        return AIStreamEvents.jsonEvents(response, objectMapper)
+            .doOnNext(event -> {
+                if (event.hasNonNull("model")) {
+                    model.set(event.path("model").asText());
+                }
+                JsonNode choices = event.path("choices");
+                if (choices.isArray() && choices.size() > 0) {
+                    String delta = choices.get(0).path("delta").path("content").asText("");
+                    if (!delta.isEmpty()) {
+                        content.append(delta);
+                        onChunk.accept(delta);
+                    }
+                }
+                JsonNode usage = event.path("usage");
+                if (usage.isObject()) {
+                    metadata.put("prompt_tokens", usage.path("prompt_tokens").asInt());
+                    metadata.put("completion_tokens", usage.path("completion_tokens").asInt());
+                    metadata.put("total_tokens", usage.path("total_tokens").asInt());
+                }
+            })
+            .then(Mono.fromSupplier(() -> AIResponse.builder()
+                .content(content.toString())
+                .model(model.get())
+                .tokensUsed((int) metadata.getOrDefault("total_tokens", 0))
                 .metadata(metadata)
-                .build();
-                
-        } catch (Exception e) {
-            log.error("Error calling OpenAI API", e);
-            throw new RuntimeException("Failed to get response from OpenAI: " + e.getMessage(), e);
-        }
+                .build()));
+    }
+    
+    private AIResponse parseResponse(String responseJson) throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(responseJson);
+        String content = root.path("choices").get(0).path("message").path("content").asText();
+        String model = root.path("model").asText();
+        int totalTokens = root.path("usage").path("total_tokens").asInt();
+        
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("provider", "openai");
+        metadata.put("prompt_tokens", root.path("usage").path("prompt_tokens").asInt());
+        metadata.put("completion_tokens", root.path("usage").path("completion_tokens").asInt());
+        
+        return AIResponse.builder()
+            .content(content)
+            .model(model)
+            .tokensUsed(totalTokens)
+            .metadata(metadata)
+            .build();
     }
     
     @Override
@@ -0,0 +1,328 @@
+package com.chartdb.service.ai;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Compact, DDL-like rendering of a diagram's schema for AI prompts, one line per table:
+ * {@code orders(id bigint PK, customer_id bigint NOT NULL -> customers.id, total numeric)}.
+ * Built with three queries instead of walking the entity graph, keyed by the diagram revision
+ * (see {@link com.chartdb.service.DiagramRevisionService}) and shared by every chat session on the
+ * diagram. Large diagrams are trimmed per question to the tables it mentions plus their neighbours.
+ */
+@Slf4j
+@Component
+public class SchemaPromptCache {
+    
+    private static final String SELECT_DIAGRAM =
+        "SELECT name, database_type, revision FROM diagrams WHERE id = ?";
+    
+    private static final String SELECT_COLUMNS =
+        "SELECT t.id, t.name, t.is_view, c.name, c.data_type, c.is_nullable, c.is_primary_key, c.is_unique, " +
+        "ft.name, fc.name " +
+        "FROM tables t " +
+        "LEFT JOIN columns c ON c.table_id = t.id " +
+        "LEFT JOIN tables ft ON ft.id = c.fk_table_id " +
+        "LEFT JOIN columns fc ON fc.id = c.fk_column_id " +
+        "WHERE t.diagram_id = ? " +
+        "ORDER BY t.sort_order, t.name, t.id, c.order_index, c.name";
+    
+    private static final String SELECT_RELATIONSHIPS =
+        "SELECT r.source_table_id, r.target_table_id, sc.name, tt.name, tc.name, r.relationship_type " +
+        "FROM relationships r " +
+        "JOIN tables tt ON tt.id = r.target_table_id " +
+        "LEFT JOIN columns sc ON sc.id = r.source_column_id " +
+        "LEFT JOIN columns tc ON tc.id = r.target_column_id " +
+        "WHERE r.diagram_id = ?";
+    
+    private static final Pattern WORD = Pattern.compile("[^a-z0-9_]+");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxTables;
+    private final Map<String, SchemaPrompt> prompts;
+    
+    public SchemaPromptCache(
+            JdbcTemplate jdbcTemplate,
+            @Value("${ai.prompt.schema.max-entries:256}") int maxEntries,
+            @Value("${ai.prompt.schema.max-tables:40}") int maxTables) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxTables = maxTables;
+        this.prompts = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SchemaPrompt> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+    
+    /**
+     * Schema text for a prompt about the given question; the whole schema when the diagram has at most
+     * {@code ai.prompt.schema.max-tables} tables. Empty when the diagram no longer exists.
+     */
+    public Optional<String> render(String diagramId, String question) {
+        return prompt(diagramId).map(prompt -> prompt.render(question, maxTables));
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private Optional<SchemaPrompt> prompt(String diagramId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SELECT_DIAGRAM, diagramId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, Object> diagram = rows.get(0);
+        long revision = ((Number) diagram.get("revision")).longValue();
+        
+        SchemaPrompt cached = prompts.get(diagramId);
+        if (cached != null && cached.revision() == revision) {
+            return Optional.of(cached);
+        }
+        SchemaPrompt built = build(diagramId, revision, (String) diagram.get("name"), (String) diagram.get("database_type"));
+        // Keep the newer one if a concurrent build for a later revision got there first
+        prompts.merge(diagramId, built, (existing, candidate) -> candidate.revision() >= existing.revision() ? candidate : existing);
+        return Optional.of(built);
+    }
+    
+    private SchemaPrompt build(String diagramId, long revision, String diagramName, String databaseType) {
+        Map<String, TableBuilder> tables = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_COLUMNS, rs -> {
+            String tableId = rs.getString(1);
+            TableBuilder table = tables.get(tableId);
+            if (table == null) {
+                table = new TableBuilder(rs.getString(2), rs.getBoolean(3));
+                tables.put(tableId, table);
+            }
+            String column = rs.getString(4);
+            if (column != null) {
+                table.column(column, rs.getString(5), rs.getBoolean(6), rs.getBoolean(7), rs.getBoolean(8),
+                    rs.getString(9) != null ? rs.getString(9) + "." + rs.getString(10) : null);
+            }
+        }, diagramId);
+        
+        List<Link> looseRelationships = new ArrayList<>();
+        jdbcTemplate.query(SELECT_RELATIONSHIPS, rs -> {
+            TableBuilder source = tables.get(rs.getString(1));
+            TableBuilder target = tables.get(rs.getString(2));
+            if (source == null || target == null) {
+                return;
+            }
+            source.neighbours.add(target.name);
+            target.neighbours.add(source.name);
+            String sourceColumn = rs.getString(3);
+            String targetColumn = rs.getString(5);
+            String reference = rs.getString(4) + (targetColumn != null ? "." + targetColumn : "");
+            // The relationship source holds the foreign key, as in the SQL export
+            if (sourceColumn == null || !source.reference(sourceColumn, reference)) {
+                looseRelationships.add(new Link(source.name,
+                    source.name + " -> " + target.name + " (" + rs.getString(6).toLowerCase(Locale.ROOT) + ")"));
+            }
+        }, diagramId);
+        
+        StringBuilder header = new StringBuilder();
+        header.append("Diagram: ").append(diagramName).append(" (").append(databaseType).append(")\n");
+        header.append("Format: table(column type [PK] [NOT NULL] [UNIQUE] [-> table.column]); views are marked VIEW\n");
+        
+        List<TableEntry> entries = tables.values().stream().map(TableBuilder::build).toList();
+        log.debug("Built schema prompt for diagram {} at revision {}: {} tables", diagramId, revision, entries.size());
+        return new SchemaPrompt(revision, header.toString(), entries, List.copyOf(looseRelationships));
+    }
+    
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        for (String word : WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() > 1) {
+                words.add(word);
+                words.add(singular(word));
+                // snake_case names are also matched by their parts
+                for (String part : word.split("_")) {
+                    if (part.length() > 2) {
+                        words.add(singular(part));
+                    }
+                }
+            }
+        }
+        return words;
+    }
+    
+    private static String singular(String word) {
+        if (word.endsWith("ies") && word.length() > 4) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && word.length() > 3) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+    
+    /**
+     * One table line plus what is needed to decide whether a question is about it.
+     */
+    record TableEntry(String name, String line, Set<String> nameWords, Set<String> columnWords, Set<String> neighbours) {
+        
+        int score(Set<String> question) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (question.contains(lower) || question.contains(singular(lower))) {
+                return 10;
+            }
+            int score = 0;
+            for (String word : nameWords) {
+                if (question.contains(word)) {
+                    score += 3;
+                }
+            }
+            for (String word : columnWords) {
+                if (question.contains(word)) {
+                    score += 1;
+                }
+            }
+            return score;
+        }
+    }
+    
+    /**
+     * A relationship without a source column, listed after the tables when its source table is shown.
+     */
+    record Link(String source, String line) {
+    }
+    
+    record SchemaPrompt(long revision, String header, List<TableEntry> tables, List<Link> looseRelationships) {
+        
+        String render(String question, int maxTables) {
+            StringBuilder text = new StringBuilder(header);
+            if (tables.isEmpty()) {
+                return text.append("[Empty diagram - no tables yet]\n").toString();
+            }
+            Set<String> shown = select(question, maxTables);
+            List<String> omitted = new ArrayList<>();
+            for (TableEntry table : tables) {
+                if (shown.contains(table.name())) {
+                    text.append(table.line()).append('\n');
+                } else {
+                    omitted.add(table.name());
+                }
+            }
+            for (Link link : looseRelationships) {
+                if (shown.contains(link.source())) {
+                    text.append(link.line()).append('\n');
+                }
+            }
+            if (!omitted.isEmpty()) {
+                text.append("Other tables (columns not shown, ask to see them): ")
+                    .append(String.join(", ", omitted)).append('\n');
+            }
+            return text.toString();
+        }
+        
+        private Set<String> select(String question, int maxTables) {
+            Set<String> selected = new LinkedHashSet<>();
+            if (tables.size() <= maxTables) {
+                tables.forEach(table -> selected.add(table.name()));
+                return selected;
+            }
+            Set<String> questionWords = words(question != null ? question : "");
+            Map<String, TableEntry> byName = new LinkedHashMap<>();
+            tables.forEach(table -> byName.putIfAbsent(table.name(), table));
+            
+            Map<TableEntry, Integer> scores = new IdentityHashMap<>();
+            tables.forEach(table -> scores.put(table, table.score(questionWords)));
+            List<TableEntry> ranked = new ArrayList<>(tables);
+            ranked.sort(Comparator.comparingInt(scores::get).reversed());
+            for (TableEntry table : ranked) {
+                if (selected.size() >= maxTables || scores.get(table) == 0) {
+                    break;
+                }
+                selected.add(table.name());
+            }
+            // Tables joined to the ones asked about, so the model sees both ends of each reference
+            for (String name : List.copyOf(selected)) {
+                for (String neighbour : byName.get(name).neighbours()) {
+                    if (selected.size() >= maxTables) {
+                        return selected;
+                    }
+                    selected.add(neighbour);
+                }
+            }
+            // Nothing matched (a general question): the most connected tables describe the model best
+            if (selected.isEmpty()) {
+                List<TableEntry> central = new ArrayList<>(tables);
+                central.sort(Comparator.comparingInt((TableEntry table) -> table.neighbours().size()).reversed());
+                central.stream().limit(maxTables).forEach(table -> selected.add(table.name()));
+            }
+            return selected;
+        }
+    }
+    
+    private static final class TableBuilder {
+        
+        private final String name;
+        private final boolean view;
+        private final Map<String, StringBuilder> columns = new LinkedHashMap<>();
+        private final Set<String> referenced = new HashSet<>();
+        private final Set<String> neighbours = new LinkedHashSet<>();
+        
+        private TableBuilder(String name, boolean view) {
+            this.name = name;
+            this.view = view;
+        }
+        
+        private void column(String column, String dataType, boolean nullable, boolean primaryKey, boolean unique, String reference) {
+            StringBuilder definition = new StringBuilder(column).append(' ').append(dataType);
+            if (primaryKey) {
+                definition.append(" PK");
+            } else if (!nullable) {
+                definition.append(" NOT NULL");
+            }
+            if (unique && !primaryKey) {
+                definition.append(" UNIQUE");
+            }
+            columns.putIfAbsent(column, definition);
+            if (reference != null) {
+                reference(column, reference);
+            }
+        }
+        
+        /**
+         * Mark a column as referencing another table; false when the column is not on this table.
+         */
+        private boolean reference(String column, String target) {
+            StringBuilder definition = columns.get(column);
+            if (definition == null) {
+                return false;
+            }
+            if (referenced.add(column)) {
+                definition.append(" -> ").append(target);
+                int dot = target.indexOf('.');
+                neighbours.add(dot > 0 ? target.substring(0, dot) : target);
+            }
+            return true;
+        }
+        
+        private TableEntry build() {
+            String line = (view ? "VIEW " : "") + name + "(" + String.join(", ", columns.values()) + ")";
+            Set<String> nameWords = words(name);
+            Set<String> columnWords = new HashSet<>();
+            columns.keySet().forEach(column -> columnWords.addAll(words(column)));
+            columnWords.removeAll(Set.of("id", "created_at", "updated_at", "name"));
+            neighbours.remove(name);
+            return new TableEntry(name, line, nameWords, columnWords, Collections.unmodifiableSet(neighbours));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.chartdb.service.ai;
+
+import com.chartdb.dto.ai.AIFunctionCall;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reassembles OpenAI-style streamed tool calls. Each {@code delta.tool_calls} entry carries an
+ * index and a fragment of the function name and JSON arguments; fragments are concatenated per
+ * index and the first complete call becomes the response's function call at the end of the stream.
+ */
+@Slf4j
+final class StreamedToolCalls {
+
+    private final Map<Integer, StringBuilder> names = new TreeMap<>();
+    private final Map<Integer, StringBuilder> arguments = new TreeMap<>();
+
+    void accept(JsonNode delta) {
+        for (JsonNode call : delta.path("tool_calls")) {
+            int index = call.path("index").asInt(0);
+            JsonNode function = call.path("function");
+            String name = function.path("name").asText("");
+            if (!name.isEmpty()) {
+                names.computeIfAbsent(index, i -> new StringBuilder()).append(name);
+            }
+            JsonNode args = function.path("arguments");
+            // Mistral may send the arguments as an object instead of a JSON string
+            String fragment = args.isTextual() ? args.asText() : args.isMissingNode() || args.isNull() ? "" : args.toString();
+            if (!fragment.isEmpty()) {
+                arguments.computeIfAbsent(index, i -> new StringBuilder()).append(fragment);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    AIFunctionCall first(ObjectMapper objectMapper) {
+        for (Map.Entry<Integer, StringBuilder> entry : names.entrySet()) {
+            StringBuilder json = arguments.get(entry.getKey());
+            try {
+                Map<String, Object> args = json == null || json.isEmpty()
+                    ? new HashMap<>()
+                    : objectMapper.readValue(json.toString(), Map.class);
+                return AIFunctionCall.builder()
+                    .name(entry.getValue().toString())
+                    .arguments(args)
+                    .build();
+            } catch (Exception e) {
+                log.warn("Failed to parse streamed arguments of tool call {}", entry.getValue(), e);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.chartdb.service.collaboration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cluster-wide table leases for the multi-node broker modes (websocket.broker.mode=redis|relay).
+ * Each lease is one Redis key holding "userId|diagramId|acquiredAtMillis" with a PX expiry;
+ * acquire, release and force-release are Lua scripts, so the check and the write are one
+ * atomic step no matter which node the editors are connected to.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("!'${websocket.broker.mode:simple}'.equalsIgnoreCase('simple')")
+public class ClusterLeaseStore {
+
+    // Keeps acquiredAt when the holder extends; returns the lease holding the key afterwards
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE = new DefaultRedisScript<>("""
+        local value = ARGV[2]
+        local current = redis.call('GET', KEYS[1])
+        if current then
+          if string.sub(current, 1, #ARGV[1] + 1) ~= ARGV[1] .. '|' then
+            return {current, tostring(redis.call('PTTL', KEYS[1]))}
+          end
+          value = current
+        end
+        redis.call('SET', KEYS[1], value, 'PX', ARGV[3])
+        return {value, ARGV[3]}
+        """, List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> GET = new DefaultRedisScript<>("""
+        local current = redis.call('GET', KEYS[1])
+        if not current then
+          return nil
+        end
+        return {current, tostring(redis.call('PTTL', KEYS[1]))}
+        """, List.class);
+
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+        local current = redis.call('GET', KEYS[1])
+        if current and string.sub(current, 1, #ARGV[1] + 1) == ARGV[1] .. '|' then
+          return redis.call('DEL', KEYS[1])
+        end
+        return 0
+        """, Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TAKE = new DefaultRedisScript<>("""
+        local current = redis.call('GET', KEYS[1])
+        if not current then
+          return nil
+        end
+        local ttl = tostring(redis.call('PTTL', KEYS[1]))
+        redis.call('DEL', KEYS[1])
+        return {current, ttl}
+        """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final String brokerMode;
+
+    public ClusterLeaseStore(
+            StringRedisTemplate redisTemplate,
+            @Value("${collaboration.locks.redis-key-prefix:chartdb:lock:}") String keyPrefix,
+            @Value("${websocket.broker.mode:simple}") String brokerMode) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.brokerMode = brokerMode;
+    }
+
+    @PostConstruct
+    public void verifyConnection() {
+        // Without a shared lease store two nodes would hand out the same table, so refuse to start
+        try {
+            redisTemplate.execute(RedisConnection::ping, true);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("websocket.broker.mode=" + brokerMode
+                + " needs Redis for cluster-wide table locks, but it is not reachable", e);
+        }
+        log.info("Table locks are held in Redis under {}*", keyPrefix);
+    }
+
+    public TableLease acquire(String diagramId, String tableId, String userId, Duration ttl) {
+        String value = userId + "|" + diagramId + "|" + Instant.now().toEpochMilli();
+        List<?> result = redisTemplate.execute(ACQUIRE, List.of(key(tableId)),
+            userId, value, String.valueOf(ttl.toMillis()));
+        return toLease(tableId, result)
+            .orElseThrow(() -> new IllegalStateException("Redis returned no lease for table " + tableId));
+    }
+
+    public Optional<TableLease> get(String tableId) {
+        return toLease(tableId, redisTemplate.execute(GET, List.of(key(tableId))));
+    }
+
+    public boolean release(String tableId, String userId) {
+        Long deleted = redisTemplate.execute(RELEASE, List.of(key(tableId)), userId);
+        return deleted != null && deleted > 0;
+    }
+
+    public Optional<TableLease> forceRelease(String tableId) {
+        return toLease(tableId, redisTemplate.execute(TAKE, List.of(key(tableId))));
+    }
+
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+
+    private String key(String tableId) {
+        return keyPrefix + tableId;
+    }
+
+    private static Optional<TableLease> toLease(String tableId, List<?> result) {
+        if (result == null || result.size() < 2) {
+            return Optional.empty();
+        }
+        String[] parts = String.valueOf(result.get(0)).split("\\|", 3);
+        long ttlMillis = Long.parseLong(String.valueOf(result.get(1)));
+        if (parts.length < 3 || ttlMillis <= 0) {
+            return Optional.empty();
+        }
+        Instant acquiredAt = Instant.ofEpochMilli(Long.parseLong(parts[2]));
+        return Optional.of(new TableLease(tableId, parts[1], parts[0], acquiredAt, Instant.now().plusMillis(ttlMillis)));
+    }
+}
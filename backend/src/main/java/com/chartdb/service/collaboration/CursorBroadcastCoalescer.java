@@ -0,0 +1,128 @@
+package com.chartdb.service.collaboration;
+
+import com.chartdb.dto.websocket.CursorBatchBroadcast;
+import com.chartdb.dto.websocket.CursorBroadcast;
+import com.chartdb.dto.websocket.SelectionBroadcast;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches cursor and selection broadcasts per diagram.
+ * The first update in an empty window schedules a flush one tick later; every update
+ * until then overwrites the previous one from the same user, and the flush sends a
+ * single {@link CursorBatchBroadcast} frame to /topic/diagram/{id}/cursors.
+ */
+@Slf4j
+@Component
+public class CursorBroadcastCoalescer {
+    
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean batchingEnabled;
+    private final long tickMillis;
+    
+    private final Map<String, PendingFrame> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cursor-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public CursorBroadcastCoalescer(
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${collaboration.cursor.batching-enabled:true}") boolean batchingEnabled,
+            @Value("${collaboration.cursor.tick-ms:33}") long tickMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.batchingEnabled = batchingEnabled;
+        this.tickMillis = Math.max(1, tickMillis);
+    }
+    
+    public void publishCursor(String diagramId, CursorBroadcast cursor) {
+        if (!batchingEnabled) {
+            messagingTemplate.convertAndSend(cursorsDestination(diagramId), cursor);
+            return;
+        }
+        pending.compute(diagramId, (id, frame) -> {
+            frame = openFrame(id, frame);
+            frame.cursors.put(cursor.getUserId(), cursor);
+            return frame;
+        });
+    }
+    
+    public void publishSelection(String diagramId, SelectionBroadcast selection) {
+        if (!batchingEnabled) {
+            messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/selections", selection);
+            return;
+        }
+        pending.compute(diagramId, (id, frame) -> {
+            frame = openFrame(id, frame);
+            frame.selections.put(selection.getUserId(), selection);
+            return frame;
+        });
+    }
+    
+    /**
+     * Drop any queued updates from a user, e.g. after they left the diagram.
+     */
+    public void discard(String diagramId, String userId) {
+        pending.computeIfPresent(diagramId, (id, frame) -> {
+            frame.cursors.remove(userId);
+            frame.selections.remove(userId);
+            return frame;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    // Called inside pending.compute(), so frame maps are only touched under the bin lock
+    private PendingFrame openFrame(String diagramId, PendingFrame frame) {
+        if (frame == null) {
+            frame = new PendingFrame();
+            scheduler.schedule(() -> flush(diagramId), tickMillis, TimeUnit.MILLISECONDS);
+        }
+        return frame;
+    }
+    
+    private void flush(String diagramId) {
+        PendingFrame frame = pending.remove(diagramId);
+        if (frame == null || (frame.cursors.isEmpty() && frame.selections.isEmpty())) {
+            return;
+        }
+        
+        CursorBatchBroadcast batch = CursorBatchBroadcast.builder()
+            .type("CURSOR_BATCH")
+            .diagramId(diagramId)
+            .cursors(new ArrayList<>(frame.cursors.values()))
+            .selections(frame.selections.isEmpty() ? null : new ArrayList<>(frame.selections.values()))
+            .timestamp(System.currentTimeMillis())
+            .build();
+        
+        try {
+            messagingTemplate.convertAndSend(cursorsDestination(diagramId), batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to send cursor batch for diagram {}: {}", diagramId, e.getMessage());
+        }
+    }
+    
+    private static String cursorsDestination(String diagramId) {
+        return "/topic/diagram/" + diagramId + "/cursors";
+    }
+    
+    private static class PendingFrame {
+        private final Map<String, CursorBroadcast> cursors = new LinkedHashMap<>();
+        private final Map<String, SelectionBroadcast> selections = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,137 @@
+package com.chartdb.service.collaboration;
+
+import com.chartdb.dto.response.CollaboratorResponse;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Live presence state of one user in one diagram.
+ * Mutated on every cursor/selection event; persisted only when flushed.
+ */
+@Getter
+public class PresenceEntry {
+    
+    private final String collaboratorId;
+    private final String diagramId;
+    private final String userId;
+    private final String sessionId;
+    private final String userDisplayName;
+    private final String userAvatarUrl;
+    private final String cursorColor;
+    private final Instant joinedAt;
+    private final boolean canEdit;
+    
+    private volatile String websocketSessionId;
+    private BigDecimal cursorX;
+    private BigDecimal cursorY;
+    private String selectedTableId;
+    private String selectedColumnId;
+    private boolean idle;
+    private Instant lastSeen;
+    private Instant lastActivity;
+    private boolean dirty;
+    
+    PresenceEntry(CollaboratorResponse joined, String websocketSessionId, boolean canEdit) {
+        this.collaboratorId = joined.getId();
+        this.diagramId = joined.getDiagramId();
+        this.userId = joined.getUserId();
+        this.sessionId = joined.getSessionId();
+        this.userDisplayName = joined.getUserDisplayName();
+        this.userAvatarUrl = joined.getUserAvatarUrl();
+        this.cursorColor = joined.getCursorColor();
+        this.joinedAt = joined.getJoinedAt();
+        this.canEdit = canEdit;
+        this.websocketSessionId = websocketSessionId;
+        this.cursorX = joined.getCursorX();
+        this.cursorY = joined.getCursorY();
+        this.selectedTableId = joined.getSelectedTableId();
+        this.selectedColumnId = joined.getSelectedColumnId();
+        this.idle = Boolean.TRUE.equals(joined.getIsIdle());
+        this.lastSeen = Instant.now();
+        this.lastActivity = joined.getLastActivity() != null ? joined.getLastActivity() : this.lastSeen;
+    }
+    
+    synchronized void moveCursor(BigDecimal x, BigDecimal y, Instant now) {
+        this.cursorX = x;
+        this.cursorY = y;
+        this.lastSeen = now;
+        this.lastActivity = now;
+        this.dirty = true;
+    }
+    
+    synchronized void select(String tableId, String columnId, Instant now) {
+        this.selectedTableId = tableId;
+        this.selectedColumnId = columnId;
+        this.lastSeen = now;
+        this.lastActivity = now;
+        this.dirty = true;
+    }
+    
+    synchronized void setIdle(boolean idle, Instant now) {
+        this.idle = idle;
+        this.lastSeen = now;
+        this.dirty = true;
+    }
+    
+    synchronized void rebind(String websocketSessionId, Instant now) {
+        this.websocketSessionId = websocketSessionId;
+        this.lastSeen = now;
+        this.dirty = true;
+    }
+    
+    /**
+     * Copy the current state and clear the dirty flag, or return null if nothing changed since the last flush.
+     */
+    synchronized Snapshot drain() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        return snapshot();
+    }
+    
+    synchronized void markDirty() {
+        this.dirty = true;
+    }
+    
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(collaboratorId, diagramId, userId, cursorX, cursorY,
+            selectedTableId, selectedColumnId, idle, lastSeen, lastActivity);
+    }
+    
+    public synchronized CollaboratorResponse toResponse() {
+        return CollaboratorResponse.builder()
+            .id(collaboratorId)
+            .sessionId(sessionId)
+            .diagramId(diagramId)
+            .userId(userId)
+            .userDisplayName(userDisplayName)
+            .userAvatarUrl(userAvatarUrl)
+            .cursorColor(cursorColor)
+            .cursorX(cursorX)
+            .cursorY(cursorY)
+            .selectedTableId(selectedTableId)
+            .selectedColumnId(selectedColumnId)
+            .isActive(true)
+            .isIdle(idle)
+            .status(idle ? "IDLE" : "ACTIVE")
+            .joinedAt(joinedAt)
+            .lastActivity(lastActivity)
+            .build();
+    }
+    
+    public record Snapshot(
+        String collaboratorId,
+        String diagramId,
+        String userId,
+        BigDecimal cursorX,
+        BigDecimal cursorY,
+        String selectedTableId,
+        String selectedColumnId,
+        boolean idle,
+        Instant lastSeen,
+        Instant lastActivity
+    ) {}
+}
@@ -0,0 +1,154 @@
+package com.chartdb.service.collaboration;
+
+import com.chartdb.dto.response.CollaboratorResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process store of live collaborator presence, keyed by diagramId and userId.
+ * Cursor, selection and idle updates only touch this registry; the database copy
+ * in active_collaborators is written on join/leave and by the periodic flush.
+ */
+@Slf4j
+@Component
+public class PresenceRegistry {
+    
+    private final Map<String, Map<String, PresenceEntry>> diagrams = new ConcurrentHashMap<>();
+    private final Map<String, PresenceEntry> bySocketSession = new ConcurrentHashMap<>();
+    
+    public PresenceEntry register(CollaboratorResponse joined, String websocketSessionId, boolean canEdit) {
+        PresenceEntry entry = new PresenceEntry(joined, websocketSessionId, canEdit);
+        PresenceEntry previous = diagrams
+            .computeIfAbsent(joined.getDiagramId(), id -> new ConcurrentHashMap<>())
+            .put(joined.getUserId(), entry);
+        if (previous != null && previous.getWebsocketSessionId() != null) {
+            bySocketSession.remove(previous.getWebsocketSessionId(), previous);
+        }
+        if (websocketSessionId != null) {
+            bySocketSession.put(websocketSessionId, entry);
+        }
+        return entry;
+    }
+    
+    public Optional<PresenceEntry> get(String diagramId, String userId) {
+        Map<String, PresenceEntry> users = diagrams.get(diagramId);
+        return users == null ? Optional.empty() : Optional.ofNullable(users.get(userId));
+    }
+    
+    public Optional<PresenceEntry> findByWebsocketSession(String websocketSessionId) {
+        return Optional.ofNullable(bySocketSession.get(websocketSessionId));
+    }
+    
+    public Collection<PresenceEntry> getDiagramEntries(String diagramId) {
+        Map<String, PresenceEntry> users = diagrams.get(diagramId);
+        return users == null ? List.of() : users.values();
+    }
+    
+    public boolean rebind(String diagramId, String userId, String websocketSessionId) {
+        return get(diagramId, userId).map(entry -> {
+            String previous = entry.getWebsocketSessionId();
+            if (previous != null) {
+                bySocketSession.remove(previous, entry);
+            }
+            entry.rebind(websocketSessionId, Instant.now());
+            if (websocketSessionId != null) {
+                bySocketSession.put(websocketSessionId, entry);
+            }
+            return true;
+        }).orElse(false);
+    }
+    
+    public boolean updateCursor(String diagramId, String userId, BigDecimal x, BigDecimal y) {
+        return get(diagramId, userId).map(entry -> {
+            entry.moveCursor(x, y, Instant.now());
+            return true;
+        }).orElse(false);
+    }
+    
+    public boolean updateSelection(String diagramId, String userId, String tableId, String columnId) {
+        return get(diagramId, userId).map(entry -> {
+            entry.select(tableId, columnId, Instant.now());
+            return true;
+        }).orElse(false);
+    }
+    
+    public Optional<PresenceEntry> markIdle(String diagramId, String userId, boolean idle) {
+        return get(diagramId, userId).map(entry -> {
+            entry.setIdle(idle, Instant.now());
+            return entry;
+        });
+    }
+    
+    public Optional<PresenceEntry> remove(String diagramId, String userId) {
+        Map<String, PresenceEntry> users = diagrams.get(diagramId);
+        if (users == null) {
+            return Optional.empty();
+        }
+        PresenceEntry removed = users.remove(userId);
+        if (users.isEmpty()) {
+            diagrams.remove(diagramId, users);
+        }
+        if (removed != null && removed.getWebsocketSessionId() != null) {
+            bySocketSession.remove(removed.getWebsocketSessionId(), removed);
+        }
+        return Optional.ofNullable(removed);
+    }
+    
+    /**
+     * Collect the state of every entry changed since the previous drain.
+     * Intermediate cursor positions are naturally coalesced into the latest one.
+     */
+    public List<PresenceEntry.Snapshot> drainDirty() {
+        List<PresenceEntry.Snapshot> dirty = new ArrayList<>();
+        for (Map<String, PresenceEntry> users : diagrams.values()) {
+            for (PresenceEntry entry : users.values()) {
+                PresenceEntry.Snapshot snapshot = entry.drain();
+                if (snapshot != null) {
+                    dirty.add(snapshot);
+                }
+            }
+        }
+        return dirty;
+    }
+    
+    /**
+     * Re-mark entries whose flush failed so the next cycle retries them.
+     */
+    public void requeue(List<PresenceEntry.Snapshot> snapshots) {
+        for (PresenceEntry.Snapshot snapshot : snapshots) {
+            get(snapshot.diagramId(), snapshot.userId()).ifPresent(PresenceEntry::markDirty);
+        }
+    }
+    
+    /**
+     * Drop entries that have not been seen since the threshold.
+     */
+    public int evictStale(Instant threshold) {
+        int evicted = 0;
+        for (Map<String, PresenceEntry> users : diagrams.values()) {
+            for (PresenceEntry entry : users.values()) {
+                if (entry.snapshot().lastSeen().isBefore(threshold)) {
+                    remove(entry.getDiagramId(), entry.getUserId());
+                    evicted++;
+                }
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} stale presence entries", evicted);
+        }
+        return evicted;
+    }
+    
+    public int size() {
+        return diagrams.values().stream().mapToInt(Map::size).sum();
+    }
+}
@@ -0,0 +1,24 @@
+package com.chartdb.service.collaboration;
+
+import java.time.Instant;
+
+/**
+ * Immutable edit lease on a table. Every acquire or extension installs a new
+ * instance, so compare-and-set on the lease map detects concurrent changes.
+ */
+public record TableLease(
+    String tableId,
+    String diagramId,
+    String userId,
+    Instant acquiredAt,
+    Instant expiresAt
+) {
+    
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+    
+    public boolean isHeldBy(String userId) {
+        return this.userId.equals(userId);
+    }
+}
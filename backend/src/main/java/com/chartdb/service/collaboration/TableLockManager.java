@@ -0,0 +1,278 @@
+package com.chartdb.service.collaboration;
+
+import com.chartdb.dto.websocket.LockMessage;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory table lock manager.
+ * Leases live in a ConcurrentHashMap keyed by tableId and change only through
+ * putIfAbsent/replace/remove with the expected previous lease, so two editors
+ * racing for the same table can never both win. Expiry is driven by a hashed
+ * timer wheel; table_locks is only written (asynchronously) when persistence is enabled.
+ * With a multi-node broker the authoritative lease lives in {@link ClusterLeaseStore};
+ * the local map then only tracks the leases this node granted, for expiry and releaseAll.
+ */
+@Slf4j
+@Component
+public class TableLockManager {
+    
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TableLockPersistence persistence;
+    private final ClusterLeaseStore cluster;
+    private final Duration leaseTtl;
+    private final boolean persistenceEnabled;
+    
+    private final Map<String, TableLease> leases = new ConcurrentHashMap<>();
+    // One pending timeout per table, so extending a lease does not pile up timeouts on the wheel
+    private final Map<String, ScheduledExpiry> expiries = new ConcurrentHashMap<>();
+    private final Timer expiryWheel = new HashedWheelTimer(runnable -> {
+        Thread thread = new Thread(runnable, "table-lock-expiry");
+        thread.setDaemon(true);
+        return thread;
+    }, 100, TimeUnit.MILLISECONDS);
+    private final ExecutorService persistenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "table-lock-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public TableLockManager(
+            SimpMessagingTemplate messagingTemplate,
+            TableLockPersistence persistence,
+            ObjectProvider<ClusterLeaseStore> cluster,
+            @Value("${collaboration.locks.ttl-seconds:120}") long ttlSeconds,
+            @Value("${collaboration.locks.persistence-enabled:false}") boolean persistenceEnabled) {
+        this.messagingTemplate = messagingTemplate;
+        this.persistence = persistence;
+        this.cluster = cluster.getIfAvailable();
+        this.leaseTtl = Duration.ofSeconds(ttlSeconds);
+        this.persistenceEnabled = persistenceEnabled;
+    }
+    
+    /**
+     * Try to acquire (or extend) the lease on a table.
+     * Returns the lease holding the table afterwards; the caller owns the lock
+     * if {@link TableLease#isHeldBy(String)} is true for its user.
+     */
+    public TableLease tryAcquire(String diagramId, String tableId, String userId) {
+        if (cluster != null) {
+            TableLease holder = cluster.acquire(diagramId, tableId, userId, leaseTtl);
+            if (holder.isHeldBy(userId)) {
+                leases.put(tableId, holder);
+                scheduleExpiry(holder);
+                persist(() -> persistence.save(holder));
+            }
+            return holder;
+        }
+        while (true) {
+            Instant now = Instant.now();
+            TableLease current = leases.get(tableId);
+            
+            if (current != null && !current.isHeldBy(userId) && !current.isExpired(now)) {
+                return current;
+            }
+            
+            Instant acquiredAt = current != null && current.isHeldBy(userId) && !current.isExpired(now)
+                ? current.acquiredAt()
+                : now;
+            TableLease lease = new TableLease(tableId, diagramId, userId, acquiredAt, now.plus(leaseTtl));
+            
+            boolean installed = current == null
+                ? leases.putIfAbsent(tableId, lease) == null
+                : leases.replace(tableId, current, lease);
+            if (installed) {
+                scheduleExpiry(lease);
+                persist(() -> persistence.save(lease));
+                return lease;
+            }
+            // Lost the race; re-read and decide again
+        }
+    }
+    
+    public boolean release(String tableId, String userId) {
+        if (cluster != null) {
+            dropLocal(tableId, userId);
+            if (!cluster.release(tableId, userId)) {
+                return false;
+            }
+            persist(() -> persistence.delete(tableId));
+            return true;
+        }
+        TableLease current = leases.get(tableId);
+        if (current == null || !current.isHeldBy(userId) || !leases.remove(tableId, current)) {
+            return false;
+        }
+        cancelExpiry(current);
+        persist(() -> persistence.delete(tableId));
+        return true;
+    }
+    
+    public Optional<TableLease> forceRelease(String tableId) {
+        TableLease removed = leases.remove(tableId);
+        if (removed != null) {
+            cancelExpiry(removed);
+        }
+        Optional<TableLease> released = cluster != null ? cluster.forceRelease(tableId) : Optional.ofNullable(removed);
+        if (released.isPresent()) {
+            persist(() -> persistence.delete(tableId));
+        }
+        return released;
+    }
+    
+    // In cluster mode this covers the leases granted through this node, i.e. those of the user's sessions here
+    public List<TableLease> releaseAll(String diagramId, String userId) {
+        List<TableLease> released = new ArrayList<>();
+        for (TableLease lease : leases.values()) {
+            if (lease.diagramId().equals(diagramId) && lease.isHeldBy(userId)
+                    && leases.remove(lease.tableId(), lease)) {
+                cancelExpiry(lease);
+                if (cluster == null || cluster.release(lease.tableId(), userId)) {
+                    released.add(lease);
+                }
+            }
+        }
+        if (!released.isEmpty()) {
+            persist(() -> persistence.deleteByDiagramAndUser(diagramId, userId));
+        }
+        return released;
+    }
+    
+    public Optional<TableLease> getLease(String tableId) {
+        if (cluster != null) {
+            return cluster.get(tableId);
+        }
+        TableLease lease = leases.get(tableId);
+        return lease == null || lease.isExpired(Instant.now()) ? Optional.empty() : Optional.of(lease);
+    }
+    
+    public boolean isLocked(String tableId) {
+        return getLease(tableId).isPresent();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void restorePersistedLocks() {
+        if (!persistenceEnabled) {
+            return;
+        }
+        if (cluster != null) {
+            // Redis keeps the leases across restarts; replaying table_locks would only resurrect stale ones
+            log.info("Skipping table lock restore: leases are held in Redis");
+            return;
+        }
+        try {
+            List<TableLease> restored = persistence.loadActive();
+            for (TableLease lease : restored) {
+                if (leases.putIfAbsent(lease.tableId(), lease) == null) {
+                    scheduleExpiry(lease);
+                }
+            }
+            log.info("Restored {} table locks from database", restored.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not restore table locks: {}", e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        expiryWheel.stop();
+        persistenceExecutor.shutdown();
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private void scheduleExpiry(TableLease lease) {
+        expiries.compute(lease.tableId(), (tableId, scheduled) -> {
+            // Installs racing on the same table may schedule out of order; the later expiry wins
+            if (scheduled != null) {
+                if (scheduled.lease().expiresAt().isAfter(lease.expiresAt())) {
+                    return scheduled;
+                }
+                scheduled.timeout().cancel();
+            }
+            long delayMillis = Math.max(0, Duration.between(Instant.now(), lease.expiresAt()).toMillis());
+            Timeout timeout = expiryWheel.newTimeout(t -> expire(lease), delayMillis, TimeUnit.MILLISECONDS);
+            return new ScheduledExpiry(lease, timeout);
+        });
+    }
+    
+    private void cancelExpiry(TableLease lease) {
+        expiries.computeIfPresent(lease.tableId(), (tableId, scheduled) -> {
+            if (!scheduled.lease().equals(lease)) {
+                return scheduled;
+            }
+            scheduled.timeout().cancel();
+            return null;
+        });
+    }
+    
+    private void expire(TableLease lease) {
+        // Cancelling the timeout that is already firing is a no-op; this just drops the entry
+        cancelExpiry(lease);
+        // A stale timeout is harmless: remove(key, value) only matches the exact lease it was scheduled for
+        if (!leases.remove(lease.tableId(), lease)) {
+            return;
+        }
+        if (cluster != null && cluster.get(lease.tableId()).isPresent()) {
+            // Extended or re-acquired through another node; that node owns the expiry now
+            return;
+        }
+        persist(() -> persistence.delete(lease.tableId()));
+        log.info("Lock on table {} held by user {} expired", lease.tableId(), lease.userId());
+        
+        LockMessage message = LockMessage.builder()
+            .type("EXPIRED")
+            .diagramId(lease.diagramId())
+            .tableId(lease.tableId())
+            .userId(lease.userId())
+            .action("unlocked")
+            .expiresAt(lease.expiresAt())
+            .timestamp(System.currentTimeMillis())
+            .build();
+        messagingTemplate.convertAndSend("/topic/diagram/" + lease.diagramId() + "/table-unlocked", message);
+    }
+    
+    private void dropLocal(String tableId, String userId) {
+        TableLease local = leases.get(tableId);
+        if (local != null && local.isHeldBy(userId) && leases.remove(tableId, local)) {
+            cancelExpiry(local);
+        }
+    }
+    
+    private void persist(Runnable write) {
+        if (!persistenceEnabled) {
+            return;
+        }
+        persistenceExecutor.execute(() -> {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                log.warn("Failed to persist table lock change: {}", e.getMessage());
+            }
+        });
+    }
+    
+    private record ScheduledExpiry(TableLease lease, Timeout timeout) {}
+}
@@ -0,0 +1,61 @@
+package com.chartdb.service.collaboration;
+
+import com.chartdb.model.TableLock;
+import com.chartdb.repository.TableLockRepository;
+import com.chartdb.repository.TableRepository;
+import com.chartdb.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Write-behind copy of in-memory table leases in table_locks, used only to
+ * restore locks after a restart when collaboration.locks.persistence-enabled is set.
+ */
+@Component
+@RequiredArgsConstructor
+public class TableLockPersistence {
+    
+    private final TableLockRepository lockRepository;
+    private final TableRepository tableRepository;
+    private final UserRepository userRepository;
+    
+    @Transactional
+    public void save(TableLease lease) {
+        TableLock lock = lockRepository.findByTableId(lease.tableId())
+            .orElseGet(() -> TableLock.builder()
+                .table(tableRepository.getReferenceById(lease.tableId()))
+                .build());
+        lock.setUser(userRepository.getReferenceById(lease.userId()));
+        lock.setAcquiredAt(lease.acquiredAt());
+        lock.setExpiresAt(lease.expiresAt());
+        lockRepository.save(lock);
+    }
+    
+    @Transactional
+    public void delete(String tableId) {
+        lockRepository.deleteByTableId(tableId);
+    }
+    
+    @Transactional
+    public void deleteByDiagramAndUser(String diagramId, String userId) {
+        lockRepository.deleteByDiagramIdAndLockedByUserId(diagramId, userId);
+    }
+    
+    @Transactional
+    public List<TableLease> loadActive() {
+        Instant now = Instant.now();
+        lockRepository.deleteExpiredLocks(now);
+        return lockRepository.findActiveWithTable(now).stream()
+            .map(lock -> new TableLease(
+                lock.getTable().getId(),
+                lock.getTable().getDiagram().getId(),
+                lock.getUser().getId(),
+                lock.getAcquiredAt(),
+                lock.getExpiresAt()))
+            .toList();
+    }
+}
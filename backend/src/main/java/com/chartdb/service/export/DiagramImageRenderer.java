@@ -0,0 +1,450 @@
+package com.chartdb.service.export;
+
+import com.chartdb.exception.ResourceNotFoundException;
+import com.chartdb.exception.ServiceUnavailableException;
+import com.chartdb.service.export.DiagramLayout.Edge;
+import com.chartdb.service.export.DiagramLayout.Row;
+import com.chartdb.service.export.DiagramLayout.TableBox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Area;
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless Java2D (PNG) and SVG rendering of a {@link DiagramLayout}.
+ * PNG output is painted tile by tile, each tile only drawing the boxes and edges that intersect it;
+ * the whole image is capped at a pixel budget, and {@link #pngTile} serves single tiles of canvases
+ * too large to export in one piece. A whole image and its encoding are held in memory at once, so
+ * only a few whole-image renders may run at the same time.
+ */
+@Component
+public class DiagramImageRenderer {
+    
+    private static final Font TITLE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 13);
+    private static final Font ROW_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private static final Font KEY_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+    
+    private static final Color BACKGROUND = new Color(0xF8FAFC);
+    private static final Color BODY = Color.WHITE;
+    private static final Color BORDER = new Color(0xCBD5E1);
+    private static final Color SEPARATOR = new Color(0xF1F5F9);
+    private static final Color TEXT = new Color(0x1E293B);
+    private static final Color MUTED = new Color(0x64748B);
+    private static final Color FOREIGN_KEY = new Color(0x4F46E5);
+    private static final Color FALLBACK_LINE = new Color(0x94A3B8);
+    
+    private static final double RADIUS = 8;
+    private static final double TEXT_INSET = 12;
+    private static final float[] DASH = {6f, 4f};
+    
+    private final int tileSize;
+    private final long maxPixels;
+    private final double maxScale;
+    private final Semaphore fullRenders;
+    private final long renderWaitMillis;
+    
+    public DiagramImageRenderer(
+            @Value("${export.render.tile-size:1024}") int tileSize,
+            @Value("${export.render.max-pixels:16000000}") long maxPixels,
+            @Value("${export.render.max-scale:4}") double maxScale,
+            @Value("${export.render.max-concurrent:2}") int maxConcurrent,
+            @Value("${export.render.wait-timeout-ms:10000}") long renderWaitMillis) {
+        this.tileSize = tileSize;
+        this.maxPixels = maxPixels;
+        this.maxScale = maxScale;
+        this.fullRenders = new Semaphore(Math.max(1, maxConcurrent), true);
+        this.renderWaitMillis = renderWaitMillis;
+        // Encode in memory instead of through temporary files
+        ImageIO.setUseCache(false);
+    }
+    
+    public double clampScale(double scale) {
+        return Math.max(0.25, Math.min(scale, maxScale));
+    }
+    
+    /**
+     * Render the whole diagram. The scale is lowered if the image would exceed the pixel budget.
+     * Waits for a free render slot and fails with 503 when none frees up in time.
+     */
+    public byte[] png(DiagramLayout layout, double scale) {
+        try {
+            if (!fullRenders.tryAcquire(renderWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException("Too many image exports in progress, please retry shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Image export was interrupted");
+        }
+        try {
+            return renderPng(layout, scale);
+        } finally {
+            fullRenders.release();
+        }
+    }
+    
+    private byte[] renderPng(DiagramLayout layout, double scale) {
+        Rectangle2D bounds = layout.bounds();
+        double pixels = bounds.getWidth() * bounds.getHeight() * scale * scale;
+        double effective = pixels > maxPixels ? scale * Math.sqrt(maxPixels / pixels) : scale;
+        
+        int width = Math.max(1, (int) Math.ceil(bounds.getWidth() * effective));
+        int height = Math.max(1, (int) Math.ceil(bounds.getHeight() * effective));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                Rectangle tile = new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+                Graphics2D g = image.createGraphics();
+                try {
+                    paint(g, layout, effective, tile);
+                } finally {
+                    g.dispose();
+                }
+            }
+        }
+        return encode(image);
+    }
+    
+    /**
+     * Render one tile of the full-resolution canvas; tiles are numbered from the top-left corner.
+     * Tiles outside the canvas do not exist.
+     */
+    public byte[] pngTile(DiagramLayout layout, double scale, int column, int row) {
+        Rectangle2D bounds = layout.bounds();
+        long columns = Math.max(1, (long) Math.ceil(bounds.getWidth() * scale / tileSize));
+        long rows = Math.max(1, (long) Math.ceil(bounds.getHeight() * scale / tileSize));
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            throw new ResourceNotFoundException("Tile " + column + "/" + row + " is outside the "
+                + columns + "x" + rows + " tile grid");
+        }
+        
+        // In range, so the offsets fit the canvas size, which is itself an int
+        Rectangle tile = new Rectangle(Math.multiplyExact(column, tileSize), Math.multiplyExact(row, tileSize),
+            tileSize, tileSize);
+        BufferedImage image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.translate(-tile.x, -tile.y);
+            paint(g, layout, scale, tile);
+        } finally {
+            g.dispose();
+        }
+        return encode(image);
+    }
+    
+    public String svg(DiagramLayout layout) {
+        Rectangle2D bounds = layout.bounds();
+        StringBuilder svg = new StringBuilder(256 + layout.tables().size() * 1024);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\"")
+            .append(" width=\"").append(num(bounds.getWidth())).append('"')
+            .append(" height=\"").append(num(bounds.getHeight())).append('"')
+            .append(" viewBox=\"").append(num(bounds.getX())).append(' ').append(num(bounds.getY())).append(' ')
+            .append(num(bounds.getWidth())).append(' ').append(num(bounds.getHeight())).append("\"")
+            .append(" font-family=\"sans-serif\">\n");
+        svg.append("<rect x=\"").append(num(bounds.getX())).append("\" y=\"").append(num(bounds.getY()))
+            .append("\" width=\"").append(num(bounds.getWidth())).append("\" height=\"").append(num(bounds.getHeight()))
+            .append("\" fill=\"").append(hex(BACKGROUND)).append("\"/>\n");
+        
+        for (Edge edge : layout.edges()) {
+            double[] p = edge.endpoints();
+            double[] c = controlPoints(p);
+            svg.append("<path d=\"M").append(num(p[0])).append(' ').append(num(p[1]))
+                .append(" C").append(num(c[0])).append(' ').append(num(c[1])).append(' ')
+                .append(num(c[2])).append(' ').append(num(c[3])).append(' ')
+                .append(num(p[2])).append(' ').append(num(p[3]))
+                .append("\" fill=\"none\" stroke=\"").append(hex(color(edge.color(), FALLBACK_LINE)))
+                .append("\" stroke-width=\"").append(num(edge.width())).append('"');
+            if (edge.dashed()) {
+                svg.append(" stroke-dasharray=\"6 4\"");
+            }
+            svg.append("/>\n");
+        }
+        
+        for (TableBox box : layout.tables()) {
+            Color header = color(box.color(), null);
+            svg.append("<g>\n");
+            svg.append("<rect x=\"").append(num(box.x())).append("\" y=\"").append(num(box.y()))
+                .append("\" width=\"").append(num(box.width())).append("\" height=\"").append(num(box.height()))
+                .append("\" rx=\"").append(num(RADIUS)).append("\" fill=\"").append(hex(BODY))
+                .append("\" stroke=\"").append(hex(BORDER)).append("\"/>\n");
+            svg.append("<path d=\"").append(headerPath(box)).append("\" fill=\"").append(hex(header)).append("\"/>\n");
+            text(svg, box.x() + TEXT_INSET, box.y() + DiagramLayout.HEADER_HEIGHT / 2, "start", 13, "bold",
+                contrast(header), fit(box.title(), Metrics.TITLE, box.width() - 2 * TEXT_INSET));
+            
+            if (!box.collapsed()) {
+                for (int i = 0; i < box.rows().size(); i++) {
+                    Row row = box.rows().get(i);
+                    double top = box.y() + DiagramLayout.HEADER_HEIGHT + i * DiagramLayout.ROW_HEIGHT;
+                    double middle = top + DiagramLayout.ROW_HEIGHT / 2;
+                    if (i > 0) {
+                        svg.append("<line x1=\"").append(num(box.x() + 1)).append("\" y1=\"").append(num(top))
+                            .append("\" x2=\"").append(num(box.x() + box.width() - 1)).append("\" y2=\"").append(num(top))
+                            .append("\" stroke=\"").append(hex(SEPARATOR)).append("\"/>\n");
+                    }
+                    double half = (box.width() - 2 * TEXT_INSET) / 2;
+                    text(svg, box.x() + TEXT_INSET, middle, "start", 12, row.primaryKey() ? "bold" : "normal",
+                        row.foreignKey() ? FOREIGN_KEY : TEXT,
+                        fit(row.name(), row.primaryKey() ? Metrics.KEY : Metrics.ROW, half));
+                    text(svg, box.x() + box.width() - TEXT_INSET, middle, "end", 12, "normal",
+                        MUTED, fit(row.dataType(), Metrics.ROW, half));
+                }
+            }
+            svg.append("</g>\n");
+        }
+        return svg.append("</svg>\n").toString();
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    /**
+     * Paint the part of the diagram inside {@code tile}, given in pixels of the full image.
+     */
+    private void paint(Graphics2D g, DiagramLayout layout, double scale, Rectangle tile) {
+        g.setClip(tile);
+        g.setColor(BACKGROUND);
+        g.fill(tile);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        
+        Rectangle2D bounds = layout.bounds();
+        g.scale(scale, scale);
+        g.translate(-bounds.getX(), -bounds.getY());
+        
+        // The tile in canvas units, widened by a margin for strokes and end markers
+        double margin = 4;
+        Rectangle2D visible = new Rectangle2D.Double(
+            bounds.getX() + tile.x / scale - margin, bounds.getY() + tile.y / scale - margin,
+            tile.width / scale + 2 * margin, tile.height / scale + 2 * margin);
+        
+        for (Edge edge : layout.edges()) {
+            if (edge.extent().intersects(visible)) {
+                paintEdge(g, edge);
+            }
+        }
+        for (TableBox box : layout.tables()) {
+            if (box.frame().intersects(visible)) {
+                paintTable(g, box);
+            }
+        }
+    }
+    
+    private void paintEdge(Graphics2D g, Edge edge) {
+        double[] p = edge.endpoints();
+        double[] c = controlPoints(p);
+        Stroke stroke = new BasicStroke(edge.width(), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f,
+            edge.dashed() ? DASH : null, 0f);
+        Color color = color(edge.color(), FALLBACK_LINE);
+        
+        g.setStroke(stroke);
+        g.setColor(color);
+        g.draw(new CubicCurve2D.Double(p[0], p[1], c[0], c[1], c[2], c[3], p[2], p[3]));
+        g.fill(new Ellipse2D.Double(p[0] - 3, p[1] - 3, 6, 6));
+        g.fill(new Ellipse2D.Double(p[2] - 3, p[3] - 3, 6, 6));
+    }
+    
+    private void paintTable(Graphics2D g, TableBox box) {
+        RoundRectangle2D frame = new RoundRectangle2D.Double(
+            box.x(), box.y(), box.width(), box.height(), 2 * RADIUS, 2 * RADIUS);
+        Color header = color(box.color(), null);
+        
+        g.setColor(BODY);
+        g.fill(frame);
+        Area headerArea = new Area(frame);
+        headerArea.intersect(new Area(new Rectangle2D.Double(box.x(), box.y(), box.width(), DiagramLayout.HEADER_HEIGHT)));
+        g.setColor(header);
+        g.fill(headerArea);
+        
+        g.setFont(TITLE_FONT);
+        g.setColor(contrast(header));
+        drawText(g, fit(box.title(), Metrics.TITLE, box.width() - 2 * TEXT_INSET),
+            box.x() + TEXT_INSET, box.y() + DiagramLayout.HEADER_HEIGHT / 2, Metrics.TITLE, false);
+        
+        if (!box.collapsed()) {
+            double half = (box.width() - 2 * TEXT_INSET) / 2;
+            g.setStroke(new BasicStroke(1f));
+            for (int i = 0; i < box.rows().size(); i++) {
+                Row row = box.rows().get(i);
+                double top = box.y() + DiagramLayout.HEADER_HEIGHT + i * DiagramLayout.ROW_HEIGHT;
+                double middle = top + DiagramLayout.ROW_HEIGHT / 2;
+                if (i > 0) {
+                    g.setColor(SEPARATOR);
+                    g.draw(new Line2D.Double(box.x() + 1, top, box.x() + box.width() - 1, top));
+                }
+                FontMetrics nameMetrics = row.primaryKey() ? Metrics.KEY : Metrics.ROW;
+                g.setFont(nameMetrics.getFont());
+                g.setColor(row.foreignKey() ? FOREIGN_KEY : TEXT);
+                drawText(g, fit(row.name(), nameMetrics, half), box.x() + TEXT_INSET, middle, nameMetrics, false);
+                g.setFont(ROW_FONT);
+                g.setColor(MUTED);
+                drawText(g, fit(row.dataType(), Metrics.ROW, half), box.x() + box.width() - TEXT_INSET, middle,
+                    Metrics.ROW, true);
+            }
+        }
+        
+        g.setStroke(new BasicStroke(1f));
+        g.setColor(BORDER);
+        g.draw(frame);
+    }
+    
+    private static void drawText(Graphics2D g, String text, double x, double middle, FontMetrics metrics, boolean alignEnd) {
+        if (text.isEmpty()) {
+            return;
+        }
+        double left = alignEnd ? x - metrics.stringWidth(text) : x;
+        double baseline = middle + (metrics.getAscent() - metrics.getDescent()) / 2.0;
+        g.drawString(text, (float) left, (float) baseline);
+    }
+    
+    private static void text(StringBuilder svg, double x, double middle, String anchor, int size, String weight,
+                             Color color, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        svg.append("<text x=\"").append(num(x)).append("\" y=\"").append(num(middle))
+            .append("\" dominant-baseline=\"central\" text-anchor=\"").append(anchor)
+            .append("\" font-size=\"").append(size).append("\" font-weight=\"").append(weight)
+            .append("\" fill=\"").append(hex(color)).append("\">").append(escape(text)).append("</text>\n");
+    }
+    
+    private static double[] controlPoints(double[] p) {
+        double direction = p[2] >= p[0] ? 1 : -1;
+        double offset = Math.min(DiagramLayout.CURVE_OFFSET, Math.max(20, Math.abs(p[2] - p[0]) / 2));
+        return new double[]{p[0] + direction * offset, p[1], p[2] - direction * offset, p[3]};
+    }
+    
+    private static String headerPath(TableBox box) {
+        double x = box.x();
+        double y = box.y();
+        double w = box.width();
+        double h = DiagramLayout.HEADER_HEIGHT;
+        double r = RADIUS;
+        // Rounded top corners; the bottom is rounded too when the table is collapsed to its header
+        double bottom = box.collapsed() ? r : 0;
+        return "M" + num(x) + " " + num(y + r)
+            + " A" + num(r) + " " + num(r) + " 0 0 1 " + num(x + r) + " " + num(y)
+            + " H" + num(x + w - r)
+            + " A" + num(r) + " " + num(r) + " 0 0 1 " + num(x + w) + " " + num(y + r)
+            + " V" + num(y + h - bottom)
+            + (bottom > 0 ? " A" + num(r) + " " + num(r) + " 0 0 1 " + num(x + w - r) + " " + num(y + h) : "")
+            + " H" + num(x + bottom)
+            + (bottom > 0 ? " A" + num(r) + " " + num(r) + " 0 0 1 " + num(x) + " " + num(y + h - r) : "")
+            + " Z";
+    }
+    
+    /**
+     * Truncate with an ellipsis so the text fits the given width in canvas units.
+     */
+    private static String fit(String text, FontMetrics metrics, double width) {
+        if (text == null) {
+            return "";
+        }
+        if (metrics.stringWidth(text) <= width) {
+            return text;
+        }
+        String ellipsis = "…";
+        int end = text.length();
+        while (end > 0 && metrics.stringWidth(text.substring(0, end)) + metrics.stringWidth(ellipsis) > width) {
+            end--;
+        }
+        return end == 0 ? "" : text.substring(0, end) + ellipsis;
+    }
+    
+    private static Color color(String hex, Color fallback) {
+        Color defaultColor = fallback != null ? fallback : new Color(0x6366F1);
+        if (hex == null || !hex.startsWith("#")) {
+            return defaultColor;
+        }
+        try {
+            String digits = hex.substring(1);
+            if (digits.length() == 3) {
+                digits = "" + digits.charAt(0) + digits.charAt(0) + digits.charAt(1) + digits.charAt(1)
+                    + digits.charAt(2) + digits.charAt(2);
+            }
+            return digits.length() >= 6 ? new Color(Integer.parseInt(digits.substring(0, 6), 16)) : defaultColor;
+        } catch (NumberFormatException e) {
+            return defaultColor;
+        }
+    }
+    
+    private static Color contrast(Color background) {
+        double luminance = 0.299 * background.getRed() + 0.587 * background.getGreen() + 0.114 * background.getBlue();
+        return luminance > 160 ? TEXT : Color.WHITE;
+    }
+    
+    private static String hex(Color color) {
+        return String.format("#%06X", color.getRGB() & 0xFFFFFF);
+    }
+    
+    private static String num(double value) {
+        return value == Math.rint(value)
+            ? Long.toString((long) value)
+            : String.format(Locale.ROOT, "%.2f", value);
+    }
+    
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (char ch : text.toCharArray()) {
+            switch (ch) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                default -> escaped.append(ch);
+            }
+        }
+        return escaped.toString();
+    }
+    
+    private static byte[] encode(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode diagram image", e);
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * Text is measured on a scratch surface, independent of the output scale. Initialized on first
+     * use so a host without a font configuration fails image exports rather than startup.
+     */
+    private static final class Metrics {
+        
+        static final FontMetrics TITLE;
+        static final FontMetrics ROW;
+        static final FontMetrics KEY;
+        
+        static {
+            Graphics2D scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+            TITLE = scratch.getFontMetrics(TITLE_FONT);
+            ROW = scratch.getFontMetrics(ROW_FONT);
+            KEY = scratch.getFontMetrics(KEY_FONT);
+            scratch.dispose();
+        }
+    }
+}
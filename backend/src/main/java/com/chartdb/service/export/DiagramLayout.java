@@ -0,0 +1,152 @@
+package com.chartdb.service.export;
+
+import com.chartdb.model.DiagramTable;
+import com.chartdb.model.Relationship;
+
+import java.awt.geom.Rectangle2D;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detached geometry of a diagram in canvas units, built once from the entities so rendering
+ * runs outside the transaction. Box sizes follow the editor: a fixed header plus one row per
+ * column, header only when the table is collapsed. Hidden tables and their edges are left out.
+ */
+public record DiagramLayout(List<TableBox> tables, List<Edge> edges, Rectangle2D bounds) {
+    
+    public static final double HEADER_HEIGHT = 36;
+    public static final double ROW_HEIGHT = 28;
+    public static final double PADDING = 40;
+    public static final double CURVE_OFFSET = 60;
+    
+    private static final double DEFAULT_WIDTH = 200;
+    private static final String DEFAULT_COLOR = "#6366F1";
+    private static final String DEFAULT_LINE_COLOR = "#94A3B8";
+    
+    public static DiagramLayout of(List<DiagramTable> tables, List<Relationship> relationships) {
+        List<TableBox> boxes = new ArrayList<>();
+        Map<String, TableBox> byId = new HashMap<>();
+        tables.stream()
+            .filter(table -> !Boolean.TRUE.equals(table.getIsHidden()))
+            .sorted(Comparator.comparing(table -> table.getZIndex() != null ? table.getZIndex() : 0))
+            .forEach(table -> {
+                TableBox box = TableBox.of(table);
+                boxes.add(box);
+                byId.put(box.id(), box);
+            });
+        
+        List<Edge> edges = new ArrayList<>();
+        for (Relationship rel : relationships) {
+            TableBox source = byId.get(rel.getSourceTable().getId());
+            TableBox target = byId.get(rel.getTargetTable().getId());
+            if (source == null || target == null) {
+                continue;
+            }
+            edges.add(new Edge(
+                source, source.rowIndex(rel.getSourceColumn() != null ? rel.getSourceColumn().getId() : null),
+                target, target.rowIndex(rel.getTargetColumn() != null ? rel.getTargetColumn().getId() : null),
+                rel.getLineColor() != null ? rel.getLineColor() : DEFAULT_LINE_COLOR,
+                rel.getLineWidth() != null ? rel.getLineWidth().floatValue() : 2f,
+                "dashed".equalsIgnoreCase(rel.getLineStyle()) || Boolean.TRUE.equals(rel.getIsVirtual())));
+        }
+        
+        return new DiagramLayout(List.copyOf(boxes), List.copyOf(edges), bounds(boxes));
+    }
+    
+    public boolean isEmpty() {
+        return tables.isEmpty();
+    }
+    
+    private static Rectangle2D bounds(List<TableBox> boxes) {
+        if (boxes.isEmpty()) {
+            return new Rectangle2D.Double(0, 0, 2 * PADDING, 2 * PADDING);
+        }
+        Rectangle2D bounds = boxes.get(0).frame();
+        for (TableBox box : boxes) {
+            bounds = bounds.createUnion(box.frame());
+        }
+        return new Rectangle2D.Double(bounds.getX() - PADDING, bounds.getY() - PADDING,
+            bounds.getWidth() + 2 * PADDING, bounds.getHeight() + 2 * PADDING);
+    }
+    
+    private static double value(BigDecimal value, double fallback) {
+        return value != null ? value.doubleValue() : fallback;
+    }
+    
+    public record TableBox(String id, String title, String color, boolean collapsed,
+                           double x, double y, double width, double height, List<Row> rows) {
+        
+        static TableBox of(DiagramTable table) {
+            List<Row> rows = table.getColumns().stream()
+                .map(column -> new Row(column.getId(), column.getName(), column.getDataType(),
+                    Boolean.TRUE.equals(column.getIsPrimaryKey()), Boolean.TRUE.equals(column.getIsForeignKey())))
+                .toList();
+            boolean collapsed = Boolean.TRUE.equals(table.getIsCollapsed());
+            String title = table.getDisplayName() != null && !table.getDisplayName().isBlank()
+                ? table.getDisplayName() : table.getName();
+            String color = table.getHeaderColor() != null ? table.getHeaderColor()
+                : table.getColor() != null ? table.getColor() : DEFAULT_COLOR;
+            double height = HEADER_HEIGHT + (collapsed ? 0 : rows.size() * ROW_HEIGHT);
+            return new TableBox(table.getId(), title, color, collapsed,
+                value(table.getPositionX(), 0), value(table.getPositionY(), 0),
+                value(table.getWidth(), DEFAULT_WIDTH), height, rows);
+        }
+        
+        public Rectangle2D frame() {
+            return new Rectangle2D.Double(x, y, width, height);
+        }
+        
+        /**
+         * Row of the column, or -1 when edges should attach to the header (collapsed or unknown column).
+         */
+        int rowIndex(String columnId) {
+            if (collapsed || columnId == null) {
+                return -1;
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                if (columnId.equals(rows.get(i).columnId())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        public double anchorY(int row) {
+            return row < 0 ? y + HEADER_HEIGHT / 2 : y + HEADER_HEIGHT + (row + 0.5) * ROW_HEIGHT;
+        }
+    }
+    
+    public record Row(String columnId, String name, String dataType, boolean primaryKey, boolean foreignKey) {}
+    
+    public record Edge(TableBox source, int sourceRow, TableBox target, int targetRow,
+                       String color, float width, boolean dashed) {
+        
+        /**
+         * Endpoints on the facing sides of both boxes: x1, y1, x2, y2.
+         */
+        public double[] endpoints() {
+            double sourceCenter = source.x() + source.width() / 2;
+            double targetCenter = target.x() + target.width() / 2;
+            boolean rightward = targetCenter >= sourceCenter;
+            double x1 = rightward ? source.x() + source.width() : source.x();
+            double x2 = rightward ? target.x() : target.x() + target.width();
+            return new double[]{x1, source.anchorY(sourceRow), x2, target.anchorY(targetRow)};
+        }
+        
+        public Rectangle2D extent() {
+            double[] p = endpoints();
+            Rectangle2D extent = new Rectangle2D.Double(Math.min(p[0], p[2]), Math.min(p[1], p[3]),
+                Math.abs(p[2] - p[0]), Math.abs(p[3] - p[1]));
+            // Curves bulge horizontally past their endpoints
+            extent.add(p[0] - CURVE_OFFSET, p[1]);
+            extent.add(p[0] + CURVE_OFFSET, p[1]);
+            extent.add(p[2] - CURVE_OFFSET, p[3]);
+            extent.add(p[2] + CURVE_OFFSET, p[3]);
+            return extent;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.chartdb.service.export;
+
+import com.chartdb.repository.DiagramRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts exports in memory and adds them to diagrams.export_count periodically,
+ * one UPDATE per diagram per flush instead of one per export.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExportCountBuffer {
+    
+    private final DiagramRepository diagramRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+    
+    public void increment(String diagramId) {
+        pending.merge(diagramId, 1, Integer::sum);
+    }
+    
+    @Scheduled(fixedDelayString = "${export.jobs.count-flush-interval-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        Map<String, Integer> drained = new HashMap<>();
+        for (String diagramId : pending.keySet()) {
+            // remove() is atomic with merge(), so no increment is lost between read and reset
+            Integer count = pending.remove(diagramId);
+            if (count != null) {
+                drained.put(diagramId, count);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                drained.forEach(diagramRepository::incrementExportCount));
+            log.debug("Flushed export counts for {} diagrams", drained.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush export counts for {} diagrams, will retry: {}", drained.size(), e.getMessage());
+            drained.forEach((diagramId, count) -> pending.merge(diagramId, count, Integer::sum));
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,37 @@
+package com.chartdb.service.export;
+
+import com.chartdb.exception.BadRequestException;
+
+import java.util.Locale;
+
+public enum ExportFormat {
+    
+    SQL("text/plain;charset=UTF-8", "sql"),
+    JSON("application/json", "json"),
+    PNG("image/png", "png"),
+    SVG("image/svg+xml", "svg");
+    
+    private final String contentType;
+    private final String extension;
+    
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    public static ExportFormat from(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported export format: " + value);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.chartdb.service.export;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * State of one background export. Shared by every request that was deduplicated onto it.
+ */
+@Getter
+public class ExportJob {
+    
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+    
+    // Progress is published in steps of at least this many percent
+    private static final int PROGRESS_STEP = 5;
+    
+    private final String id = UUID.randomUUID().toString();
+    private final String diagramId;
+    private final long revision;
+    private final ExportRequest request;
+    private final Instant createdAt = Instant.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile int progress;
+    private volatile String error;
+    private volatile Path result;
+    private volatile Instant finishedAt;
+    
+    public ExportJob(String diagramId, long revision, ExportRequest request) {
+        this.diagramId = diagramId;
+        this.revision = revision;
+        this.request = request;
+    }
+    
+    void start() {
+        status = Status.RUNNING;
+    }
+    
+    /**
+     * Raise the progress; returns true when it moved far enough to be worth publishing.
+     */
+    synchronized boolean advance(int percent) {
+        if (percent < progress + PROGRESS_STEP) {
+            return false;
+        }
+        progress = percent;
+        return true;
+    }
+    
+    void complete(Path file) {
+        result = file;
+        progress = 100;
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+    
+    void fail(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+    
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+    
+    public String getFileName() {
+        return "diagram-" + diagramId + "-r" + revision + "." + request.format().getExtension();
+    }
+}
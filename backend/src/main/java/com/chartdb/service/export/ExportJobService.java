@@ -0,0 +1,253 @@
+package com.chartdb.service.export;
+
+import com.chartdb.config.ThreadPools;
+import com.chartdb.dto.response.ExportJobResponse;
+import com.chartdb.exception.ConflictException;
+import com.chartdb.exception.ResourceNotFoundException;
+import com.chartdb.exception.ServiceUnavailableException;
+import com.chartdb.repository.TableRepository;
+import com.chartdb.service.DiagramRevisionService;
+import com.chartdb.service.ExportService;
+import com.chartdb.service.PermissionService;
+import com.chartdb.service.TablePositionBuffer;
+import com.chartdb.service.export.dialect.DialectRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background exports: submit returns a job id, workers write the export to the local result store,
+ * and progress is published on /topic/export-jobs/{jobId} and through polling.
+ * Identical requests (same diagram, revision and format options) share one in-flight job, and a
+ * request whose result is already on disk completes immediately without running again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportJobService {
+    
+    private final ExportService exportService;
+    private final PermissionService permissionService;
+    private final DiagramRevisionService revisionService;
+    private final TablePositionBuffer positionBuffer;
+    private final TableRepository tableRepository;
+    private final ExportResultStore resultStore;
+    private final ExportCountBuffer exportCounts;
+    private final DialectRegistry dialects;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${export.jobs.workers:2}")
+    private int workers;
+    
+    @Value("${export.jobs.queue-capacity:50}")
+    private int queueCapacity;
+    
+    @Value("${export.jobs.retention-minutes:30}")
+    private long retentionMinutes;
+    
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ExportJob> inFlight = new ConcurrentHashMap<>();
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void start() {
+        // Fixed size with a bounded queue; beyond that submissions are refused instead of piling up
+        executor = new ThreadPoolExecutor(
+            workers, workers,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            ThreadPools.threadFactory("export-", false),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "export.jobs", List.of()).bindTo(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    public ExportJobResponse submit(String diagramId, ExportRequest requested, String userId) {
+        permissionService.checkReadAccess(diagramId, userId);
+        ExportRequest request = canonical(requested);
+        exportCounts.increment(diagramId);
+        
+        // Buffered moves bump the revision when flushed, so flush before reading it
+        positionBuffer.flushDiagram(diagramId);
+        long revision = revisionService.currentRevision(diagramId)
+            .orElseThrow(() -> new ResourceNotFoundException("Diagram", "id", diagramId));
+        String resultKey = diagramId + ":" + revision + ":" + request.key();
+        
+        Optional<Path> cached = resultStore.get(resultKey);
+        if (cached.isPresent()) {
+            ExportJob job = new ExportJob(diagramId, revision, request);
+            job.complete(cached.get());
+            jobs.put(job.getId(), job);
+            return toResponse(job);
+        }
+        
+        while (true) {
+            ExportJob existing = inFlight.get(resultKey);
+            if (existing != null && !existing.isFinished()) {
+                return toResponse(existing);
+            }
+            if (existing != null) {
+                // Finished jobs leave on their own; never hand one back in place of a fresh run
+                inFlight.remove(resultKey, existing);
+                continue;
+            }
+            ExportJob job = new ExportJob(diagramId, revision, request);
+            if (inFlight.putIfAbsent(resultKey, job) == null) {
+                return toResponse(enqueue(resultKey, job));
+            }
+        }
+    }
+    
+    public ExportJobResponse getJob(String jobId, String userId) {
+        return toResponse(findJob(jobId, userId));
+    }
+    
+    /**
+     * The finished export file of a completed job.
+     */
+    public ExportDownload download(String jobId, String userId) {
+        ExportJob job = findJob(jobId, userId);
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            throw new ConflictException("Export job " + jobId + " is " + job.getStatus().name().toLowerCase());
+        }
+        if (!Files.exists(job.getResult())) {
+            throw new ResourceNotFoundException("Export result has expired; submit the export again");
+        }
+        return new ExportDownload(job.getResult(), job.getFileName(), job.getRequest().format().getContentType());
+    }
+    
+    @Scheduled(fixedDelayString = "${export.jobs.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        Instant threshold = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    // Rejects unknown dialects before queueing; aliases then share one job and one cached result
+    private ExportRequest canonical(ExportRequest request) {
+        if (request.format() != ExportFormat.SQL) {
+            return request;
+        }
+        String dialect = dialects.forName(request.dialect()).names().get(0);
+        return new ExportRequest(request.format(), dialect, request.scale());
+    }
+    
+    // The job is already registered in inFlight, so run() can always remove it again when it ends
+    private ExportJob enqueue(String resultKey, ExportJob job) {
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(resultKey, job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            inFlight.remove(resultKey, job);
+            throw new ServiceUnavailableException("Too many exports in progress, please retry shortly");
+        }
+        log.debug("Queued export job {} for diagram {} ({})", job.getId(), job.getDiagramId(), resultKey);
+        return job;
+    }
+    
+    private void run(String resultKey, ExportJob job) {
+        job.start();
+        publish(job);
+        Path temp = null;
+        try {
+            temp = resultStore.newTempFile();
+            long tables = Math.max(1, tableRepository.countByDiagramId(job.getDiagramId()));
+            AtomicLong written = new AtomicLong();
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                exportService.writeExport(job.getDiagramId(), job.getRequest(), out, () -> {
+                    // Relationships follow the tables, so keep the last few percent for them
+                    int percent = (int) Math.min(95, written.incrementAndGet() * 95 / tables);
+                    if (job.advance(percent)) {
+                        publish(job);
+                    }
+                });
+            }
+            job.complete(resultStore.commit(resultKey, temp));
+            log.info("Export job {} finished for diagram {}", job.getId(), job.getDiagramId());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Export job {} for diagram {} failed: {}", job.getId(), job.getDiagramId(), e.getMessage());
+            job.fail("Export failed");
+            deleteQuietly(temp);
+        } finally {
+            inFlight.remove(resultKey, job);
+            publish(job);
+        }
+    }
+    
+    private ExportJob findJob(String jobId, String userId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("ExportJob", "id", jobId);
+        }
+        permissionService.checkReadAccess(job.getDiagramId(), userId);
+        return job;
+    }
+    
+    private void publish(ExportJob job) {
+        messagingTemplate.convertAndSend("/topic/export-jobs/" + job.getId(), toResponse(job));
+    }
+    
+    private ExportJobResponse toResponse(ExportJob job) {
+        return ExportJobResponse.builder()
+            .id(job.getId())
+            .diagramId(job.getDiagramId())
+            .revision(job.getRevision())
+            .format(job.getRequest().format().name())
+            .status(job.getStatus().name())
+            .progress(job.getProgress())
+            .error(job.getError())
+            .downloadUrl(job.getStatus() == ExportJob.Status.COMPLETED
+                ? "/api/export/jobs/" + job.getId() + "/download" : null)
+            .createdAt(job.getCreatedAt())
+            .finishedAt(job.getFinishedAt())
+            .build();
+    }
+    
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete export temp file {}: {}", path, e.getMessage());
+        }
+    }
+    
+    public record ExportDownload(Path file, String fileName, String contentType) {}
+}
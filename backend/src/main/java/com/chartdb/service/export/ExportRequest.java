@@ -0,0 +1,20 @@
+package com.chartdb.service.export;
+
+import java.util.Locale;
+
+/**
+ * What to export; only the option relevant to the format (dialect for SQL, scale for PNG) is significant.
+ */
+public record ExportRequest(ExportFormat format, String dialect, int scale) {
+    
+    /**
+     * Identifies the output within one diagram revision, for in-flight dedupe and the result cache.
+     */
+    public String key() {
+        return switch (format) {
+            case SQL -> "sql:" + dialect.toLowerCase(Locale.ROOT);
+            case PNG -> "png:" + scale;
+            default -> format.getExtension();
+        };
+    }
+}
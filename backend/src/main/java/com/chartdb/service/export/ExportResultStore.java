@@ -0,0 +1,154 @@
+package com.chartdb.service.export;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Finished export files on local disk, named by a hash of their result key
+ * (diagram, revision and format options). Least recently used files are deleted once the
+ * directory exceeds its size budget. The index is rebuilt from the directory on startup.
+ */
+@Slf4j
+@Component
+public class ExportResultStore {
+    
+    private static final String RESULT_SUFFIX = ".export";
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private final Path directory;
+    private final long maxBytes;
+    
+    // File name to size, in access order
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    
+    public ExportResultStore(
+            @Value("${export.jobs.cache-dir:${java.io.tmpdir}/chartdb-exports}") String directory,
+            @Value("${export.jobs.cache-max-bytes:536870912}") long maxBytes) {
+        this.directory = Path.of(directory);
+        this.maxBytes = maxBytes;
+    }
+    
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> existing;
+        try (Stream<Path> listing = Files.list(directory)) {
+            existing = listing.toList();
+        }
+        existing.stream()
+            .filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX))
+            .forEach(ExportResultStore::delete);
+        existing.stream()
+            .filter(path -> path.getFileName().toString().endsWith(RESULT_SUFFIX))
+            .sorted(Comparator.comparingLong(ExportResultStore::lastModified))
+            .forEach(path -> add(path.getFileName().toString(), size(path)));
+        synchronized (this) {
+            evict(null);
+        }
+        log.info("Export result store at {} holds {} files ({} bytes)", directory, files.size(), totalBytes);
+    }
+    
+    public synchronized Optional<Path> get(String resultKey) {
+        String name = fileName(resultKey);
+        return files.get(name) != null ? Optional.of(directory.resolve(name)) : Optional.empty();
+    }
+    
+    public Path newTempFile() throws IOException {
+        return Files.createTempFile(directory, "export-", TEMP_SUFFIX);
+    }
+    
+    /**
+     * Move a fully written temp file into the store under the given key.
+     */
+    public Path commit(String resultKey, Path tempFile) throws IOException {
+        String name = fileName(resultKey);
+        Path target = directory.resolve(name);
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(target);
+        synchronized (this) {
+            add(name, size);
+            evict(name);
+        }
+        return target;
+    }
+    
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private synchronized void add(String name, long size) {
+        Long previous = files.put(name, size);
+        totalBytes += size - (previous != null ? previous : 0);
+    }
+    
+    // Delete least recently used files until within budget, never the one just written
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            delete(directory.resolve(entry.getKey()));
+        }
+    }
+    
+    private static String fileName(String resultKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(resultKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + RESULT_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete export file {}: {}", path, e.getMessage());
+        }
+    }
+    
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.chartdb.service.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+/**
+ * Rendered diagram images, keyed by the diagram revision they were drawn at.
+ * An entry can never be stale: any edit bumps the revision, so lookups for the new revision miss
+ * and entries of older revisions are dropped once a newer one is stored. Bounded by total bytes (LRU).
+ */
+@Component
+public class RenderCache {
+    
+    private final boolean enabled;
+    private final long maxBytes;
+    
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    
+    public RenderCache(
+            @Value("${export.render.cache-enabled:true}") boolean enabled,
+            @Value("${export.render.cache-max-bytes:67108864}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+    }
+    
+    public synchronized Optional<byte[]> get(Key key) {
+        return enabled ? Optional.ofNullable(entries.get(key)) : Optional.empty();
+    }
+    
+    public synchronized void put(Key key, byte[] image) {
+        if (!enabled || image.length > maxBytes) {
+            return;
+        }
+        // Renderings of earlier revisions can no longer be requested
+        entries.entrySet().removeIf(entry -> {
+            boolean outdated = entry.getKey().diagramId().equals(key.diagramId())
+                && entry.getKey().revision() < key.revision();
+            if (outdated) {
+                totalBytes -= entry.getValue().length;
+            }
+            return outdated;
+        });
+        
+        byte[] previous = entries.put(key, image);
+        totalBytes += image.length - (previous != null ? previous.length : 0);
+        Iterator<byte[]> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+    
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+    
+    /**
+     * One rendering of a diagram: the whole image ({@code column} and {@code row} are -1) or a single tile.
+     */
+    public record Key(String diagramId, long revision, String format, double scale, int column, int row) {
+        
+        public static Key image(String diagramId, long revision, String format, double scale) {
+            return new Key(diagramId, revision, format, scale, -1, -1);
+        }
+        
+        public static Key tile(String diagramId, long revision, double scale, int column, int row) {
+            return new Key(diagramId, revision, "png-tile", scale, column, row);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.chartdb.service.export.dialect;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * PostgreSQL wire-compatible; shares its type mapping except for types CockroachDB lacks.
+ */
+@Component
+public class CockroachDbDialect implements DialectGenerator {
+    
+    private static final TypeMapping TYPES = TypeMapping.builder()
+        .extend(PostgreSqlDialect.TYPES)
+        .map("DECIMAL(19,4)", "MONEY")
+        .map("STRING", "XML", "TSVECTOR", "TSQUERY")
+        .build();
+    
+    @Override
+    public List<String> names() {
+        return List.of("cockroachdb", "cockroach", "crdb");
+    }
+    
+    @Override
+    public TypeMapping types() {
+        return TYPES;
+    }
+    
+    @Override
+    public String quote(String identifier) {
+        return DialectGenerator.quote(identifier, "\"", "\"");
+    }
+    
+    @Override
+    public String tableComment(String tableName, String comment) {
+        return "COMMENT ON TABLE " + quote(tableName) + " IS " + stringLiteral(comment) + ";";
+    }
+}
@@ -0,0 +1,61 @@
+package com.chartdb.service.export.dialect;
+
+import java.util.List;
+
+/**
+ * SQL dialect used by the DDL export: type mapping, identifier quoting, literal escaping
+ * and the dialect-specific statements. Implementations are Spring beans collected by
+ * {@link DialectRegistry}; a new dialect only needs another implementation.
+ */
+public interface DialectGenerator {
+    
+    /**
+     * Lower-case names accepted for the export's dialect parameter; the first is the canonical one.
+     */
+    List<String> names();
+    
+    TypeMapping types();
+    
+    String quote(String identifier);
+    
+    default String mapType(String dataType) {
+        return types().map(dataType);
+    }
+    
+    default String stringLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+    
+    /**
+     * Statement attaching a comment to a table, or null if the dialect has none.
+     */
+    String tableComment(String tableName, String comment);
+    
+    /**
+     * ON DELETE / ON UPDATE clauses, each starting with a newline; unsupported actions are left out.
+     */
+    default String referentialActions(String onDelete, String onUpdate) {
+        StringBuilder actions = new StringBuilder();
+        if (onDelete != null && !onDelete.isEmpty()) {
+            actions.append("\n    ON DELETE ").append(onDelete.replace("_", " "));
+        }
+        if (onUpdate != null && !onUpdate.isEmpty()) {
+            actions.append("\n    ON UPDATE ").append(onUpdate.replace("_", " "));
+        }
+        return actions.toString();
+    }
+    
+    /**
+     * Whether foreign keys must be declared inside CREATE TABLE because ALTER TABLE cannot add them.
+     */
+    default boolean inlineForeignKeys() {
+        return false;
+    }
+    
+    /**
+     * Quote with the given delimiters, doubling any closing delimiter inside the identifier.
+     */
+    static String quote(String identifier, String open, String close) {
+        return open + identifier.replace(close, close + close) + close;
+    }
+}
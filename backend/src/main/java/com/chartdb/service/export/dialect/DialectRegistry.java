@@ -0,0 +1,37 @@
+package com.chartdb.service.export.dialect;
+
+import com.chartdb.exception.BadRequestException;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+@Component
+public class DialectRegistry {
+    
+    private final Map<String, DialectGenerator> byName;
+    
+    public DialectRegistry(List<DialectGenerator> generators) {
+        Map<String, DialectGenerator> names = new HashMap<>();
+        for (DialectGenerator generator : generators) {
+            for (String name : generator.names()) {
+                if (names.putIfAbsent(name, generator) != null) {
+                    throw new IllegalStateException("Duplicate SQL dialect name: " + name);
+                }
+            }
+        }
+        this.byName = Map.copyOf(names);
+    }
+    
+    public DialectGenerator forName(String dialect) {
+        DialectGenerator generator = dialect != null ? byName.get(dialect.toLowerCase(Locale.ROOT)) : null;
+        if (generator == null) {
+            throw new BadRequestException("Unsupported SQL dialect '" + dialect + "'; supported: "
+                + String.join(", ", new TreeSet<>(byName.keySet())));
+        }
+        return generator;
+    }
+}
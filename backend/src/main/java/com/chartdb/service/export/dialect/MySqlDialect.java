@@ -0,0 +1,57 @@
+package com.chartdb.service.export.dialect;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class MySqlDialect implements DialectGenerator {
+    
+    private static final TypeMapping TYPES = TypeMapping.builder()
+        .map("INT AUTO_INCREMENT", "SERIAL")
+        .map("BIGINT AUTO_INCREMENT", "BIGSERIAL")
+        .map("SMALLINT AUTO_INCREMENT", "SMALLSERIAL")
+        .map("SMALLINT", "INT2")
+        .map("INT", "INT4")
+        .map("BIGINT", "INT8")
+        .map("LONGTEXT", "TEXT", "CLOB", "NTEXT")
+        .map("TINYINT(1)", "BOOLEAN", "BOOL")
+        .map("CHAR(36)", "UUID", "UNIQUEIDENTIFIER")
+        .map("DOUBLE", "DOUBLE PRECISION", "FLOAT8", "BINARY_DOUBLE")
+        .map("FLOAT", "FLOAT4", "BINARY_FLOAT")
+        .rename("DATETIME", "TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE", "DATETIME2", "DATETIMEOFFSET")
+        .map("JSON", "JSONB")
+        .map("LONGBLOB", "BYTEA", "IMAGE")
+        .rename("VARCHAR", "NVARCHAR", "VARCHAR2", "NVARCHAR2", "CHARACTER VARYING")
+        .rename("CHAR", "NCHAR", "CHARACTER")
+        .rename("DECIMAL", "NUMBER")
+        .map("DECIMAL(19,4)", "MONEY")
+        .map("VARCHAR(45)", "INET", "CIDR")
+        .build();
+    
+    @Override
+    public List<String> names() {
+        return List.of("mysql", "mariadb");
+    }
+    
+    @Override
+    public TypeMapping types() {
+        return TYPES;
+    }
+    
+    @Override
+    public String quote(String identifier) {
+        return DialectGenerator.quote(identifier, "`", "`");
+    }
+    
+    // Backslash is an escape character in MySQL string literals by default
+    @Override
+    public String stringLiteral(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+    
+    @Override
+    public String tableComment(String tableName, String comment) {
+        return "ALTER TABLE " + quote(tableName) + " COMMENT = " + stringLiteral(comment) + ";";
+    }
+}
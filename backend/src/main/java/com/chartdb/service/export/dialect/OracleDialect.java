@@ -0,0 +1,61 @@
+package com.chartdb.service.export.dialect;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class OracleDialect implements DialectGenerator {
+    
+    private static final TypeMapping TYPES = TypeMapping.builder()
+        .map("NUMBER(10) GENERATED BY DEFAULT AS IDENTITY", "SERIAL")
+        .map("NUMBER(19) GENERATED BY DEFAULT AS IDENTITY", "BIGSERIAL")
+        .map("NUMBER(5) GENERATED BY DEFAULT AS IDENTITY", "SMALLSERIAL")
+        .map("NUMBER(3)", "TINYINT")
+        .map("NUMBER(5)", "SMALLINT", "INT2")
+        .map("NUMBER(10)", "INT", "INTEGER", "INT4", "MEDIUMINT")
+        .map("NUMBER(19)", "BIGINT", "INT8")
+        .map("NUMBER(1)", "BOOLEAN", "BOOL", "BIT")
+        .rename("NUMBER", "NUMERIC", "DECIMAL")
+        .rename("VARCHAR2", "VARCHAR", "CHARACTER VARYING")
+        .rename("NVARCHAR2", "NVARCHAR")
+        .map("CLOB", "TEXT", "TINYTEXT", "MEDIUMTEXT", "LONGTEXT", "NTEXT", "JSON", "JSONB")
+        .map("CHAR(36)", "UUID", "UNIQUEIDENTIFIER")
+        .map("BINARY_DOUBLE", "DOUBLE PRECISION", "DOUBLE", "FLOAT8")
+        .map("BINARY_FLOAT", "REAL", "FLOAT4")
+        .map("BLOB", "BYTEA", "LONGBLOB", "MEDIUMBLOB", "VARBINARY", "IMAGE")
+        .rename("TIMESTAMP", "DATETIME", "DATETIME2")
+        .rename("TIMESTAMP WITH TIME ZONE", "TIMESTAMPTZ", "DATETIMEOFFSET")
+        .map("VARCHAR2(45)", "INET", "CIDR")
+        .build();
+    
+    @Override
+    public List<String> names() {
+        return List.of("oracle");
+    }
+    
+    @Override
+    public TypeMapping types() {
+        return TYPES;
+    }
+    
+    @Override
+    public String quote(String identifier) {
+        return DialectGenerator.quote(identifier, "\"", "\"");
+    }
+    
+    @Override
+    public String tableComment(String tableName, String comment) {
+        return "COMMENT ON TABLE " + quote(tableName) + " IS " + stringLiteral(comment) + ";";
+    }
+    
+    // Oracle supports only ON DELETE CASCADE / SET NULL, and no ON UPDATE at all
+    @Override
+    public String referentialActions(String onDelete, String onUpdate) {
+        if (onDelete == null) {
+            return "";
+        }
+        String action = onDelete.replace("_", " ").toUpperCase();
+        return action.equals("CASCADE") || action.equals("SET NULL") ? "\n    ON DELETE " + action : "";
+    }
+}
@@ -0,0 +1,45 @@
+package com.chartdb.service.export.dialect;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class PostgreSqlDialect implements DialectGenerator {
+    
+    // PostgreSQL types pass through; only types from other databases are translated
+    static final TypeMapping TYPES = TypeMapping.builder()
+        .map("SMALLINT", "TINYINT")
+        .map("INTEGER", "MEDIUMINT")
+        .rename("TIMESTAMP", "DATETIME", "DATETIME2")
+        .rename("TIMESTAMPTZ", "DATETIMEOFFSET")
+        .map("TEXT", "TINYTEXT", "MEDIUMTEXT", "LONGTEXT", "NTEXT", "CLOB")
+        .map("BYTEA", "BLOB", "TINYBLOB", "MEDIUMBLOB", "LONGBLOB", "VARBINARY", "BINARY", "IMAGE", "RAW")
+        .map("UUID", "UNIQUEIDENTIFIER")
+        .map("DOUBLE PRECISION", "DOUBLE", "BINARY_DOUBLE")
+        .map("REAL", "BINARY_FLOAT")
+        .rename("VARCHAR", "NVARCHAR", "VARCHAR2", "NVARCHAR2")
+        .rename("CHAR", "NCHAR")
+        .rename("NUMERIC", "NUMBER")
+        .build();
+    
+    @Override
+    public List<String> names() {
+        return List.of("postgresql", "postgres", "pg");
+    }
+    
+    @Override
+    public TypeMapping types() {
+        return TYPES;
+    }
+    
+    @Override
+    public String quote(String identifier) {
+        return DialectGenerator.quote(identifier, "\"", "\"");
+    }
+    
+    @Override
+    public String tableComment(String tableName, String comment) {
+        return "COMMENT ON TABLE " + quote(tableName) + " IS " + stringLiteral(comment) + ";";
+    }
+}
@@ -0,0 +1,67 @@
+package com.chartdb.service.export.dialect;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class SqlServerDialect implements DialectGenerator {
+    
+    private static final TypeMapping TYPES = TypeMapping.builder()
+        .map("INT IDENTITY(1,1)", "SERIAL")
+        .map("BIGINT IDENTITY(1,1)", "BIGSERIAL")
+        .map("SMALLINT IDENTITY(1,1)", "SMALLSERIAL")
+        .map("SMALLINT", "INT2")
+        .map("INT", "INT4")
+        .map("BIGINT", "INT8")
+        .map("NVARCHAR(MAX)", "TEXT", "TINYTEXT", "MEDIUMTEXT", "LONGTEXT", "CLOB", "JSON", "JSONB")
+        .map("BIT", "BOOLEAN", "BOOL")
+        .map("UNIQUEIDENTIFIER", "UUID")
+        .rename("NVARCHAR", "VARCHAR", "CHARACTER VARYING", "VARCHAR2", "NVARCHAR2")
+        .rename("NCHAR", "CHAR", "CHARACTER")
+        // TIMESTAMP is a row version in SQL Server, not a date-time
+        .rename("DATETIME2", "TIMESTAMP", "TIMESTAMP WITHOUT TIME ZONE")
+        .rename("DATETIMEOFFSET", "TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE")
+        .map("FLOAT", "DOUBLE PRECISION", "DOUBLE", "FLOAT8", "BINARY_DOUBLE")
+        .map("REAL", "FLOAT4", "BINARY_FLOAT")
+        .map("VARBINARY(MAX)", "BYTEA", "BLOB", "MEDIUMBLOB", "LONGBLOB")
+        .rename("DECIMAL", "NUMBER")
+        .map("VARCHAR(45)", "INET", "CIDR")
+        .build();
+    
+    @Override
+    public List<String> names() {
+        return List.of("sqlserver", "mssql");
+    }
+    
+    @Override
+    public TypeMapping types() {
+        return TYPES;
+    }
+    
+    @Override
+    public String quote(String identifier) {
+        return DialectGenerator.quote(identifier, "[", "]");
+    }
+    
+    @Override
+    public String stringLiteral(String value) {
+        return "N'" + value.replace("'", "''") + "'";
+    }
+    
+    @Override
+    public String tableComment(String tableName, String comment) {
+        return "EXEC sp_addextendedproperty 'MS_Description', " + stringLiteral(comment)
+            + ", 'SCHEMA', 'dbo', 'TABLE', " + stringLiteral(tableName) + ";";
+    }
+    
+    // SQL Server has no RESTRICT; NO ACTION is its equivalent and the default
+    @Override
+    public String referentialActions(String onDelete, String onUpdate) {
+        return DialectGenerator.super.referentialActions(withoutRestrict(onDelete), withoutRestrict(onUpdate));
+    }
+    
+    private static String withoutRestrict(String action) {
+        return "RESTRICT".equalsIgnoreCase(action) ? "NO ACTION" : action;
+    }
+}
@@ -0,0 +1,46 @@
+package com.chartdb.service.export.dialect;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * SQLite only knows type affinities; integer-like types map to INTEGER so that an
+ * INTEGER PRIMARY KEY column becomes the auto-assigned rowid.
+ */
+@Component
+public class SqliteDialect implements DialectGenerator {
+    
+    private static final TypeMapping TYPES = TypeMapping.builder()
+        .map("INTEGER", "SERIAL", "BIGSERIAL", "SMALLSERIAL", "INT", "BIGINT", "SMALLINT", "TINYINT", "MEDIUMINT",
+            "INT2", "INT4", "INT8", "BOOLEAN", "BOOL")
+        .map("REAL", "DOUBLE PRECISION", "DOUBLE", "FLOAT", "FLOAT4", "FLOAT8")
+        .map("TEXT", "UUID", "JSON", "JSONB")
+        .map("BLOB", "BYTEA", "LONGBLOB")
+        .build();
+    
+    @Override
+    public List<String> names() {
+        return List.of("sqlite");
+    }
+    
+    @Override
+    public TypeMapping types() {
+        return TYPES;
+    }
+    
+    @Override
+    public String quote(String identifier) {
+        return DialectGenerator.quote(identifier, "\"", "\"");
+    }
+    
+    @Override
+    public String tableComment(String tableName, String comment) {
+        return null;
+    }
+    
+    @Override
+    public boolean inlineForeignKeys() {
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.chartdb.service.export.dialect;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable source-type to target-type table for one dialect, built once at startup.
+ * Lookups normalize the declared type to its base name (upper case, single spaces, parameters
+ * removed), so "varchar(255)", "VARCHAR (255)" and "character  varying(255)" hit one entry each.
+ * Results are memoized per distinct declared type, which on large schemas is a small set.
+ */
+public final class TypeMapping {
+    
+    private static final int MEMO_LIMIT = 4096;
+    
+    private final Map<String, Rule> rules;
+    private final Map<String, String> memo = new ConcurrentHashMap<>();
+    
+    private TypeMapping(Map<String, Rule> rules) {
+        this.rules = Map.copyOf(rules);
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Target type for a declared column type; types without a rule are returned unchanged.
+     */
+    public String map(String dataType) {
+        if (dataType == null || dataType.isBlank()) {
+            return dataType;
+        }
+        String cached = memo.get(dataType);
+        if (cached != null) {
+            return cached;
+        }
+        String mapped = translate(dataType.trim());
+        if (memo.size() < MEMO_LIMIT) {
+            memo.put(dataType, mapped);
+        }
+        return mapped;
+    }
+    
+    private String translate(String dataType) {
+        String base = dataType;
+        String params = "";
+        int open = dataType.indexOf('(');
+        int close = dataType.lastIndexOf(')');
+        if (open >= 0 && close > open) {
+            params = dataType.substring(open, close + 1);
+            base = dataType.substring(0, open) + " " + dataType.substring(close + 1);
+        }
+        
+        Rule rule = rules.get(normalize(base));
+        if (rule == null) {
+            return dataType;
+        }
+        if (!rule.keepParams() || params.isEmpty()) {
+            return rule.target();
+        }
+        // Parameters belong to the first word, e.g. TIMESTAMP(3) WITH TIME ZONE
+        int space = rule.target().indexOf(' ');
+        return space < 0
+            ? rule.target() + params
+            : rule.target().substring(0, space) + params + rule.target().substring(space);
+    }
+    
+    private static String normalize(String type) {
+        return type.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
+    
+    private record Rule(String target, boolean keepParams) {}
+    
+    public static final class Builder {
+        
+        private final Map<String, Rule> rules = new HashMap<>();
+        
+        /**
+         * Start from all rules of another mapping; later calls override them.
+         */
+        public Builder extend(TypeMapping base) {
+            rules.putAll(base.rules);
+            return this;
+        }
+        
+        /**
+         * Replace the source types with a fixed target, dropping any length or precision.
+         */
+        public Builder map(String target, String... sources) {
+            for (String source : sources) {
+                rules.put(normalize(source), new Rule(target, false));
+            }
+            return this;
+        }
+        
+        /**
+         * Rename the source types, keeping their length or precision.
+         */
+        public Builder rename(String target, String... sources) {
+            for (String source : sources) {
+                rules.put(normalize(source), new Rule(target, true));
+            }
+            return this;
+        }
+        
+        public TypeMapping build() {
+            return new TypeMapping(rules);
+        }
+    }
+}
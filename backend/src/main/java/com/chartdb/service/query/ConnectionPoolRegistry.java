@@ -0,0 +1,285 @@
+package com.chartdb.service.query;
+
+import com.chartdb.exception.ServiceUnavailableException;
+import com.chartdb.model.DatabaseConnection;
+import com.chartdb.util.EncryptionUtil;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One small Hikari pool per saved {@link DatabaseConnection}, created on first use.
+ * The password is decrypted once per pool instead of once per query. A pool is replaced when its
+ * connection settings change, closed when unused for a while, and the sum of all pool sizes is capped.
+ * A pool counts as in use from the moment a borrow starts until the borrowed connection is closed,
+ * so eviction never closes a pool a caller is about to take a connection from.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolRegistry {
+    
+    private final EncryptionUtil encryptionUtil;
+    private final MeterRegistry meterRegistry;
+    private final int maxPoolSize;
+    private final int maxTotalConnections;
+    private final Duration idlePoolTimeout;
+    private final Duration connectionTimeout;
+    
+    // Guarded by this
+    private final Map<String, Pool> pools = new HashMap<>();
+    
+    private MicrometerMetricsTrackerFactory metricsTrackerFactory;
+    
+    public ConnectionPoolRegistry(
+            EncryptionUtil encryptionUtil,
+            MeterRegistry meterRegistry,
+            @Value("${query.pool.max-size:3}") int maxPoolSize,
+            @Value("${query.pool.max-total-connections:100}") int maxTotalConnections,
+            @Value("${query.pool.idle-pool-timeout-minutes:10}") long idlePoolTimeoutMinutes,
+            @Value("${query.pool.connection-timeout-ms:10000}") long connectionTimeoutMs) {
+        this.encryptionUtil = encryptionUtil;
+        this.meterRegistry = meterRegistry;
+        this.maxPoolSize = maxPoolSize;
+        this.maxTotalConnections = maxTotalConnections;
+        this.idlePoolTimeout = Duration.ofMinutes(idlePoolTimeoutMinutes);
+        this.connectionTimeout = Duration.ofMillis(connectionTimeoutMs);
+    }
+    
+    @PostConstruct
+    void registerMetrics() {
+        // Per-pool hikaricp.* meters are tagged pool=query-<connectionId> and removed when the pool closes
+        metricsTrackerFactory = new MicrometerMetricsTrackerFactory(meterRegistry);
+        Gauge.builder("query.pools.open", this, registry -> registry.openPools())
+            .description("Open pools for saved database connections")
+            .register(meterRegistry);
+        Gauge.builder("query.pools.reserved.connections", this, registry -> registry.reservedConnections())
+            .description("Sum of the maximum sizes of all open pools")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Borrow a connection for the saved connection; close it to return it to the pool.
+     */
+    public Connection getConnection(DatabaseConnection connection) throws SQLException {
+        Pool pool = acquire(connection);
+        Connection borrowed;
+        try {
+            borrowed = pool.dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            pool.borrows.decrementAndGet();
+            throw e;
+        }
+        return trackReturn(borrowed, pool);
+    }
+    
+    /**
+     * Close the pool of a connection that was edited or deleted. Borrowed connections finish normally.
+     */
+    public void invalidate(String connectionId) {
+        Pool pool;
+        synchronized (this) {
+            pool = pools.remove(connectionId);
+        }
+        if (pool != null) {
+            close(pool);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${query.pool.eviction-interval-ms:60000}")
+    public void evictIdlePools() {
+        long threshold = System.nanoTime() - idlePoolTimeout.toNanos();
+        Map<String, Pool> idle = new HashMap<>();
+        synchronized (this) {
+            pools.entrySet().removeIf(entry -> {
+                Pool pool = entry.getValue();
+                boolean expired = pool.lastUsed - threshold < 0 && !pool.inUse();
+                if (expired) {
+                    idle.put(entry.getKey(), pool);
+                }
+                return expired;
+            });
+        }
+        idle.values().forEach(ConnectionPoolRegistry::close);
+        if (!idle.isEmpty()) {
+            log.debug("Closed {} idle query connection pools", idle.size());
+        }
+    }
+    
+    @PreDestroy
+    void closeAll() {
+        Map<String, Pool> open;
+        synchronized (this) {
+            open = new HashMap<>(pools);
+            pools.clear();
+        }
+        open.values().forEach(ConnectionPoolRegistry::close);
+    }
+    
+    public static String buildJdbcUrl(String databaseType, String host, Integer port,
+                                      String databaseName, Boolean sslEnabled) {
+        boolean useSsl = Boolean.TRUE.equals(sslEnabled);
+        
+        return switch (Objects.requireNonNull(databaseType, "databaseType").toLowerCase()) {
+            case "postgresql" -> {
+                String sslParam = useSsl ? "ssl=true&sslmode=require" : "sslmode=disable";
+                yield String.format("jdbc:postgresql://%s:%d/%s?%s", host, port, databaseName, sslParam);
+            }
+            case "mysql" -> {
+                String sslParam = useSsl ? "useSSL=true&requireSSL=true" : "useSSL=false";
+                // Without useCursorFetch Connector/J ignores a positive fetch size and buffers the whole result
+                yield String.format("jdbc:mysql://%s:%d/%s?%s&useCursorFetch=true", host, port, databaseName, sslParam);
+            }
+            case "sqlserver" ->
+                String.format("jdbc:sqlserver://%s:%d;databaseName=%s;encrypt=%s",
+                    host, port, databaseName, useSsl ? "true" : "false");
+            case "oracle" ->
+                String.format("jdbc:oracle:thin:@%s:%d:%s", host, port, databaseName);
+            default -> throw new IllegalArgumentException("Unsupported database type: " + databaseType);
+        };
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    // Returns the pool with a borrow registered; the caller must end it (see getConnection)
+    private Pool acquire(DatabaseConnection connection) {
+        String fingerprint = fingerprint(connection);
+        List<Pool> closing = new ArrayList<>();
+        Pool pool;
+        try {
+            synchronized (this) {
+                pool = pools.get(connection.getId());
+                if (pool != null && !pool.fingerprint.equals(fingerprint)) {
+                    // Settings changed since the pool was opened
+                    closing.add(pools.remove(connection.getId()));
+                    pool = null;
+                }
+                if (pool == null) {
+                    reserveCapacity(closing);
+                    pool = new Pool(createDataSource(connection), fingerprint);
+                    pools.put(connection.getId(), pool);
+                    log.debug("Opened query connection pool for connection {}", connection.getId());
+                }
+                pool.borrows.incrementAndGet();
+                pool.lastUsed = System.nanoTime();
+            }
+        } finally {
+            // Closing a pool blocks on its connections, so it happens outside the lock
+            closing.forEach(ConnectionPoolRegistry::close);
+        }
+        return pool;
+    }
+    
+    // Called with the lock held: removes least recently used idle pools until a new pool fits under the cap;
+    // the removed pools are added to evicted for the caller to close
+    private void reserveCapacity(List<Pool> evicted) {
+        while (reservedConnections() + maxPoolSize > maxTotalConnections) {
+            Map.Entry<String, Pool> eldest = pools.entrySet().stream()
+                .filter(entry -> !entry.getValue().inUse())
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                .orElseThrow(() -> new ServiceUnavailableException(
+                    "Too many open database connections, please retry shortly"));
+            pools.remove(eldest.getKey());
+            evicted.add(eldest.getValue());
+        }
+    }
+    
+    // Ends the pool's borrow when the caller closes the connection (once, however often close is called)
+    private static Connection trackReturn(Connection borrowed, Pool pool) {
+        AtomicBoolean returned = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                boolean closing = "close".equals(method.getName()) && method.getParameterCount() == 0;
+                try {
+                    return method.invoke(borrowed, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                } finally {
+                    if (closing && returned.compareAndSet(false, true)) {
+                        pool.borrows.decrementAndGet();
+                    }
+                }
+            });
+    }
+    
+    private HikariDataSource createDataSource(DatabaseConnection connection) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("query-" + connection.getId());
+        config.setJdbcUrl(buildJdbcUrl(connection.getDatabaseType(), connection.getHost(),
+            connection.getPort(), connection.getDatabaseName(), connection.getSslEnabled()));
+        config.setUsername(connection.getUsername());
+        config.setPassword(encryptionUtil.decrypt(connection.getEncryptedPassword()));
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(0);
+        config.setIdleTimeout(idlePoolTimeout.toMillis());
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        // Connect lazily so an unreachable database fails the query, not the pool construction
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(metricsTrackerFactory);
+        return new HikariDataSource(config);
+    }
+    
+    private synchronized int openPools() {
+        return pools.size();
+    }
+    
+    private synchronized int reservedConnections() {
+        return pools.size() * maxPoolSize;
+    }
+    
+    private static String fingerprint(DatabaseConnection connection) {
+        return String.join("\u0000",
+            connection.getDatabaseType(), connection.getHost(), String.valueOf(connection.getPort()),
+            connection.getDatabaseName(), connection.getUsername(), connection.getEncryptedPassword(),
+            String.valueOf(connection.getSslEnabled()), String.valueOf(connection.getAdditionalParams()));
+    }
+    
+    private static void close(Pool pool) {
+        try {
+            pool.dataSource.close();
+        } catch (RuntimeException e) {
+            log.warn("Failed to close query connection pool {}: {}", pool.dataSource.getPoolName(), e.getMessage());
+        }
+    }
+    
+    private static final class Pool {
+        
+        private final HikariDataSource dataSource;
+        private final String fingerprint;
+        // Borrows from acquire until the borrowed connection is closed
+        private final AtomicInteger borrows = new AtomicInteger();
+        private volatile long lastUsed = System.nanoTime();
+        
+        Pool(HikariDataSource dataSource, String fingerprint) {
+            this.dataSource = dataSource;
+            this.fingerprint = fingerprint;
+        }
+        
+        boolean inUse() {
+            return borrows.get() > 0;
+        }
+    }
+}
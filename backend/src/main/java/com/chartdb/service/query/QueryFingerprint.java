@@ -0,0 +1,146 @@
+package com.chartdb.service.query;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * A query with its literals, comments and formatting stripped, so repeated executions of the same
+ * statement with different values share one fingerprint.
+ */
+public record QueryFingerprint(String fingerprint, String normalizedQuery) {
+    
+    /**
+     * Upper bounds (inclusive, milliseconds) of the latency histogram buckets; one more bucket counts the rest.
+     */
+    public static final long[] BUCKET_BOUNDS_MS = {10, 50, 100, 500, 1000, 5000, 30000};
+    
+    // IN (?, ?, ?) and VALUES (?, ?) lists of any length normalize to the same text
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\?(?:, \\?)+\\)");
+    
+    // id=1 and id = 1 normalize to the same text
+    private static final Pattern COMPARISON = Pattern.compile(" ?(<>|!=|<=|>=|=|<|>) ?");
+    
+    public static QueryFingerprint of(String query) {
+        String normalized = normalize(query);
+        return new QueryFingerprint(hash(normalized), normalized);
+    }
+    
+    public static int bucket(long executionTimeMs) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (executionTimeMs <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+    
+    /**
+     * Lowercase, single-spaced, without comments, with string and numeric literals replaced by {@code ?}.
+     * Quoted identifiers are kept as written.
+     */
+    static String normalize(String query) {
+        StringBuilder out = new StringBuilder(query.length());
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            if (c == '-' && i + 1 < length && query.charAt(i + 1) == '-') {
+                while (i < length && query.charAt(i) != '\n') {
+                    i++;
+                }
+                space(out);
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+                int end = query.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                space(out);
+            } else if (c == '\'') {
+                // '' inside a literal is an escaped quote
+                i++;
+                while (i < length) {
+                    if (query.charAt(i) == '\'') {
+                        if (i + 1 < length && query.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            } else if (c == '"' || c == '`') {
+                int end = query.indexOf(c, i + 1);
+                end = end < 0 ? length : end + 1;
+                out.append(query, i, end);
+                i = end;
+            } else if (Character.isDigit(c) && !partOfIdentifier(out)) {
+                while (i < length && (Character.isLetterOrDigit(query.charAt(i)) || query.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else if (Character.isWhitespace(c)) {
+                space(out);
+                i++;
+            } else {
+                if (c == ',' || c == ')') {
+                    trimSpace(out);
+                }
+                out.append(Character.toLowerCase(c));
+                if (c == ',') {
+                    out.append(' ');
+                } else if (c == '(') {
+                    i++;
+                    while (i < length && Character.isWhitespace(query.charAt(i))) {
+                        i++;
+                    }
+                    continue;
+                }
+                i++;
+            }
+        }
+        
+        String normalized = out.toString().strip();
+        while (normalized.endsWith(";")) {
+            normalized = normalized.substring(0, normalized.length() - 1).strip();
+        }
+        normalized = COMPARISON.matcher(normalized).replaceAll(" $1 ");
+        return PLACEHOLDER_LIST.matcher(normalized).replaceAll("(?+)");
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private static void space(StringBuilder out) {
+        if (!out.isEmpty() && out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+    
+    private static void trimSpace(StringBuilder out) {
+        if (!out.isEmpty() && out.charAt(out.length() - 1) == ' ') {
+            out.setLength(out.length() - 1);
+        }
+    }
+    
+    // A digit right after a letter, digit or underscore belongs to a name such as t1 or col_2
+    private static boolean partOfIdentifier(StringBuilder out) {
+        if (out.isEmpty()) {
+            return false;
+        }
+        char previous = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+    
+    private static String hash(String normalized) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
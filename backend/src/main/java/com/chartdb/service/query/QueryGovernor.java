@@ -0,0 +1,227 @@
+package com.chartdb.service.query;
+
+import com.chartdb.exception.ConflictException;
+import com.chartdb.exception.ResourceNotFoundException;
+import com.chartdb.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for console queries: at most max-per-user queries run per user and max-per-connection
+ * per target database. Excess queries wait in arrival order; a waiter may only overtake earlier ones
+ * that are blocked on a different user or database, so nobody starves behind an unrelated busy target.
+ * Waiters park on a {@link Condition} rather than a monitor, so a queued query does not pin the
+ * carrier thread when requests run on virtual threads.
+ */
+@Slf4j
+@Component
+public class QueryGovernor {
+    
+    private final MeterRegistry meterRegistry;
+    private final int maxPerUser;
+    private final int maxPerConnection;
+    private final long queueTimeoutNanos;
+    
+    // Keyed by userId:queryId, so client-chosen ids never collide with (or reveal) another user's queries
+    private final Map<String, QueryHandle> handles = new ConcurrentHashMap<>();
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    
+    // Guarded by lock
+    private final LinkedHashSet<QueryHandle> queue = new LinkedHashSet<>();
+    private final Map<String, Integer> runningByUser = new HashMap<>();
+    private final Map<String, Integer> runningByConnection = new HashMap<>();
+    private int running;
+    
+    public QueryGovernor(
+            MeterRegistry meterRegistry,
+            @Value("${query.governor.max-per-user:2}") int maxPerUser,
+            @Value("${query.governor.max-per-connection:4}") int maxPerConnection,
+            @Value("${query.governor.queue-timeout-ms:30000}") long queueTimeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxPerUser = maxPerUser;
+        this.maxPerConnection = maxPerConnection;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+    }
+    
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("query.governor.queued", this, QueryGovernor::queueDepth)
+            .description("Console queries waiting for a slot")
+            .register(meterRegistry);
+        Gauge.builder("query.governor.running", this, QueryGovernor::runningCount)
+            .description("Console queries currently executing")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Wait for a slot and return the running handle; {@link #release} it when done.
+     *
+     * @throws CancellationException if the query was cancelled while queued
+     * @throws ServiceUnavailableException if no slot frees up within the queue timeout
+     */
+    public QueryHandle admit(String queryId, String userId, String connectionId) {
+        String id = queryId != null && !queryId.isBlank() ? queryId : UUID.randomUUID().toString();
+        QueryHandle handle = new QueryHandle(id, userId, connectionId);
+        if (handles.putIfAbsent(key(userId, id), handle) != null) {
+            throw new ConflictException("A query with id " + id + " is already active");
+        }
+        
+        lock.lock();
+        try {
+            queue.add(handle);
+            long remaining = queueTimeoutNanos;
+            try {
+                while (true) {
+                    if (handle.isCancelled()) {
+                        throw new CancellationException("Query " + id + " was cancelled while queued");
+                    }
+                    if (mayStart(handle)) {
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        throw new ServiceUnavailableException("Too many queries running, please retry shortly");
+                    }
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon(handle);
+                throw new CancellationException("Interrupted while waiting to run query " + id);
+            } catch (RuntimeException e) {
+                abandon(handle);
+                throw e;
+            }
+            
+            queue.remove(handle);
+            runningByUser.merge(userId, 1, Integer::sum);
+            runningByConnection.merge(connectionId, 1, Integer::sum);
+            running++;
+            handle.markStarted();
+        } finally {
+            lock.unlock();
+        }
+        return handle;
+    }
+    
+    public void release(QueryHandle handle) {
+        lock.lock();
+        try {
+            decrement(runningByUser, handle.getUserId());
+            decrement(runningByConnection, handle.getConnectionId());
+            running--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        handles.remove(key(handle.getUserId(), handle.getId()), handle);
+    }
+    
+    /**
+     * Cancel a queued or running query of the given user.
+     */
+    public void cancel(String queryId, String userId) {
+        QueryHandle handle = handles.get(key(userId, queryId));
+        if (handle == null) {
+            throw new ResourceNotFoundException("Query", "id", queryId);
+        }
+        handle.cancel();
+        lock.lock();
+        try {
+            // Wake a queued owner so it can leave the queue
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Cancelled query {} ({})", queryId, handle.getStatus());
+    }
+    
+    public List<QueryHandle> activeQueries(String userId) {
+        List<QueryHandle> active = new ArrayList<>();
+        for (QueryHandle handle : handles.values()) {
+            if (handle.getUserId().equals(userId)) {
+                active.add(handle);
+            }
+        }
+        return active;
+    }
+    
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int runningCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    // Called with the lock held
+    private boolean mayStart(QueryHandle handle) {
+        if (!hasSlot(handle)) {
+            return false;
+        }
+        // Earlier waiters competing for the same user or database slot go first
+        for (QueryHandle waiting : queue) {
+            if (waiting == handle) {
+                return true;
+            }
+            boolean competing = waiting.getUserId().equals(handle.getUserId())
+                || waiting.getConnectionId().equals(handle.getConnectionId());
+            if (competing && !waiting.isCancelled() && hasSlot(waiting)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean hasSlot(QueryHandle handle) {
+        return runningByUser.getOrDefault(handle.getUserId(), 0) < maxPerUser
+            && runningByConnection.getOrDefault(handle.getConnectionId(), 0) < maxPerConnection;
+    }
+    
+    // Called with the lock held
+    private void abandon(QueryHandle handle) {
+        queue.remove(handle);
+        handles.remove(key(handle.getUserId(), handle.getId()), handle);
+        // A waiter held back behind this one may now start
+        slotFreed.signalAll();
+    }
+    
+    private static String key(String userId, String queryId) {
+        return userId + ":" + queryId;
+    }
+    
+    private static void decrement(Map<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+}
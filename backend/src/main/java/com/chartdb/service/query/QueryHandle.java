@@ -0,0 +1,67 @@
+package com.chartdb.service.query;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+/**
+ * One console query from admission to completion. Cancelling a queued query removes it from the
+ * queue; cancelling a running one calls {@link Statement#cancel()} on its statement.
+ */
+@Slf4j
+@Getter
+public class QueryHandle {
+    
+    public enum Status { QUEUED, RUNNING }
+    
+    private final String id;
+    private final String userId;
+    private final String connectionId;
+    private final Instant queuedAt = Instant.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile boolean cancelled;
+    
+    // Guarded by this
+    @Getter(AccessLevel.NONE)
+    private Statement statement;
+    
+    QueryHandle(String id, String userId, String connectionId) {
+        this.id = id;
+        this.userId = userId;
+        this.connectionId = connectionId;
+    }
+    
+    /**
+     * Register the statement that is about to execute this query.
+     *
+     * @throws SQLException if the query was cancelled before it got this far
+     */
+    public synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query " + id + " was cancelled");
+        }
+        this.statement = statement;
+    }
+    
+    void markStarted() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+    
+    synchronized void cancel() {
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.warn("Failed to cancel query {}: {}", id, e.getMessage());
+            }
+        }
+    }
+}
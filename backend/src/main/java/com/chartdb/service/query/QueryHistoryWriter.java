@@ -0,0 +1,261 @@
+package com.chartdb.service.query;
+
+import com.chartdb.model.enums.QueryStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records console query executions off the request path. Entries are buffered and written
+ * periodically with one JDBC batch for the history rows and one upsert per query fingerprint
+ * (counters and a latency histogram). The two are committed separately, so a failed fingerprint
+ * upsert never loses history, and fingerprints are upserted in key order so nodes flushing at the
+ * same time lock shared rows in the same order. Expired history is deleted in small batches.
+ */
+@Slf4j
+@Component
+public class QueryHistoryWriter {
+    
+    // Rows for deleted connections are skipped instead of failing the whole batch
+    private static final String INSERT_HISTORY =
+        "INSERT INTO query_history (id, connection_id, user_id, query, execution_time_ms, rows_affected, " +
+        "status, error_message, executed_at, created_at, fingerprint) " +
+        "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM database_connections WHERE id = ?)";
+    
+    private static final String UPSERT_FINGERPRINT =
+        "INSERT INTO query_fingerprints AS f (user_id, connection_id, fingerprint, normalized_query, " +
+        "execution_count, error_count, total_time_ms, max_time_ms, time_buckets, first_executed_at, last_executed_at) " +
+        "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM database_connections WHERE id = ?) " +
+        "ON CONFLICT (user_id, connection_id, fingerprint) DO UPDATE SET " +
+        "execution_count = f.execution_count + EXCLUDED.execution_count, " +
+        "error_count = f.error_count + EXCLUDED.error_count, " +
+        "total_time_ms = f.total_time_ms + EXCLUDED.total_time_ms, " +
+        "max_time_ms = GREATEST(f.max_time_ms, EXCLUDED.max_time_ms), " +
+        "time_buckets = ARRAY(SELECT a + b FROM unnest(f.time_buckets, EXCLUDED.time_buckets) " +
+        "WITH ORDINALITY AS t(a, b, i) ORDER BY i), " +
+        "last_executed_at = GREATEST(f.last_executed_at, EXCLUDED.last_executed_at)";
+    
+    private static final String PRUNE_HISTORY =
+        "DELETE FROM query_history WHERE id IN (SELECT id FROM query_history WHERE executed_at < ? LIMIT ?)";
+    
+    private static final String PRUNE_FINGERPRINTS =
+        "DELETE FROM query_fingerprints WHERE (user_id, connection_id, fingerprint) IN " +
+        "(SELECT user_id, connection_id, fingerprint FROM query_fingerprints WHERE last_executed_at < ? LIMIT ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Entry> pending;
+    private final int batchSize;
+    private final int retentionDays;
+    private final int pruneBatchSize;
+    
+    private Counter dropped;
+    
+    public QueryHistoryWriter(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${query.history.buffer-capacity:10000}") int bufferCapacity,
+            @Value("${query.history.batch-size:500}") int batchSize,
+            @Value("${query.history.retention-days:30}") int retentionDays,
+            @Value("${query.history.prune-batch-size:1000}") int pruneBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.pending = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.retentionDays = retentionDays;
+        this.pruneBatchSize = pruneBatchSize;
+    }
+    
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("query.history.pending", pending, BlockingQueue::size)
+            .description("Query history entries waiting to be written")
+            .register(meterRegistry);
+        dropped = Counter.builder("query.history.dropped")
+            .description("Query history entries discarded because the buffer was full or the write failed")
+            .register(meterRegistry);
+    }
+    
+    public void record(String connectionId, String userId, String query, long executionTimeMs,
+                       int rowsAffected, QueryStatus status, String errorMessage) {
+        Entry entry = new Entry(UUID.randomUUID().toString(), connectionId, userId, query,
+            executionTimeMs, rowsAffected, status, errorMessage, Instant.now());
+        if (!pending.offer(entry)) {
+            // History is best effort; never slow down or fail the query for it
+            dropped.increment();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${query.history.flush-interval-ms:1000}")
+    public void flush() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (pending.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+    
+    @Scheduled(fixedDelayString = "${query.history.prune-interval-ms:3600000}",
+               initialDelayString = "${query.history.prune-interval-ms:3600000}")
+    public void pruneExpired() {
+        LocalDateTime cutoff = LocalDateTime.now(ZoneOffset.UTC).minusDays(retentionDays);
+        int history = deleteInBatches(PRUNE_HISTORY, cutoff);
+        int fingerprints = deleteInBatches(PRUNE_FINGERPRINTS, cutoff);
+        if (history > 0 || fingerprints > 0) {
+            log.info("Pruned {} query history rows and {} fingerprints older than {} days",
+                history, fingerprints, retentionDays);
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private void write(List<Entry> batch) {
+        Map<FingerprintKey, FingerprintStats> stats = new TreeMap<>(FingerprintKey.ORDER);
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            QueryFingerprint fingerprint = QueryFingerprint.of(entry.query());
+            rows.add(new Object[]{
+                entry.id(), entry.connectionId(), entry.userId(), entry.query(),
+                (int) Math.min(entry.executionTimeMs(), Integer.MAX_VALUE), entry.rowsAffected(),
+                entry.status().name(), entry.errorMessage(), utc(entry.executedAt()), utc(entry.executedAt()),
+                fingerprint.fingerprint(), entry.connectionId()});
+            stats.computeIfAbsent(
+                    new FingerprintKey(entry.userId(), entry.connectionId(), fingerprint.fingerprint()),
+                    key -> new FingerprintStats(fingerprint.normalizedQuery()))
+                .add(entry);
+        }
+        
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_HISTORY, rows));
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} query history entries: {}", batch.size(), e.getMessage());
+            dropped.increment(batch.size());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsertFingerprints(stats));
+        } catch (RuntimeException e) {
+            log.warn("Failed to update {} query fingerprints: {}", stats.size(), e.getMessage());
+        }
+        log.debug("Wrote {} query history entries ({} fingerprints)", batch.size(), stats.size());
+    }
+    
+    private void upsertFingerprints(Map<FingerprintKey, FingerprintStats> stats) {
+        List<Map.Entry<FingerprintKey, FingerprintStats>> entries = new ArrayList<>(stats.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_FINGERPRINT, entries, entries.size(), (ps, item) -> {
+            FingerprintKey key = item.getKey();
+            FingerprintStats value = item.getValue();
+            ps.setString(1, key.userId());
+            ps.setString(2, key.connectionId());
+            ps.setString(3, key.fingerprint());
+            ps.setString(4, value.normalizedQuery);
+            ps.setLong(5, value.count);
+            ps.setLong(6, value.errors);
+            ps.setLong(7, value.totalTimeMs);
+            ps.setLong(8, value.maxTimeMs);
+            ps.setArray(9, bigintArray(ps, value.buckets));
+            ps.setObject(10, utc(value.firstExecutedAt));
+            ps.setObject(11, utc(value.lastExecutedAt));
+            ps.setString(12, key.connectionId());
+        });
+    }
+    
+    private int deleteInBatches(String sql, LocalDateTime cutoff) {
+        int total = 0;
+        int deleted;
+        do {
+            // Each batch commits on its own, keeping locks short
+            deleted = jdbcTemplate.update(sql, cutoff, pruneBatchSize);
+            total += deleted;
+        } while (deleted >= pruneBatchSize);
+        return total;
+    }
+    
+    private static Array bigintArray(PreparedStatement ps, long[] values) throws SQLException {
+        Long[] boxed = new Long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return ps.getConnection().createArrayOf("bigint", boxed);
+    }
+    
+    // query_history and query_fingerprints use TIMESTAMP without time zone, written as UTC like Hibernate does
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+    
+    private record Entry(String id, String connectionId, String userId, String query, long executionTimeMs,
+                         int rowsAffected, QueryStatus status, String errorMessage, Instant executedAt) {}
+    
+    private record FingerprintKey(String userId, String connectionId, String fingerprint) {
+        
+        // Primary key order of query_fingerprints
+        static final Comparator<FingerprintKey> ORDER = Comparator.comparing(FingerprintKey::userId)
+            .thenComparing(FingerprintKey::connectionId)
+            .thenComparing(FingerprintKey::fingerprint);
+    }
+    
+    private static final class FingerprintStats {
+        
+        private final String normalizedQuery;
+        private final long[] buckets = new long[QueryFingerprint.BUCKET_BOUNDS_MS.length + 1];
+        private long count;
+        private long errors;
+        private long totalTimeMs;
+        private long maxTimeMs;
+        private Instant firstExecutedAt;
+        private Instant lastExecutedAt;
+        
+        FingerprintStats(String normalizedQuery) {
+            this.normalizedQuery = normalizedQuery;
+        }
+        
+        void add(Entry entry) {
+            count++;
+            if (entry.status() == QueryStatus.ERROR) {
+                errors++;
+            }
+            totalTimeMs += entry.executionTimeMs();
+            maxTimeMs = Math.max(maxTimeMs, entry.executionTimeMs());
+            buckets[QueryFingerprint.bucket(entry.executionTimeMs())]++;
+            if (firstExecutedAt == null || entry.executedAt().isBefore(firstExecutedAt)) {
+                firstExecutedAt = entry.executedAt();
+            }
+            if (lastExecutedAt == null || entry.executedAt().isAfter(lastExecutedAt)) {
+                lastExecutedAt = entry.executedAt();
+            }
+        }
+    }
+}
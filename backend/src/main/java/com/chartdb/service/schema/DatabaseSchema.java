@@ -0,0 +1,42 @@
+package com.chartdb.service.schema;
+
+import java.util.List;
+
+/**
+ * Structure of a live database as read through JDBC metadata: tables (and optionally views)
+ * with their columns, primary key, indexes and foreign keys. Values only, so two reads of an
+ * unchanged table compare equal.
+ */
+public record DatabaseSchema(List<Table> tables) {
+    
+    public record Table(String schema, String name, String type, String remarks, List<Column> columns,
+                        List<String> primaryKey, List<Index> indexes, List<ForeignKey> foreignKeys) {
+        
+        public String qualifiedName() {
+            return schema != null ? schema + "." + name : name;
+        }
+        
+        public boolean isView() {
+            return type != null && type.toUpperCase().contains("VIEW");
+        }
+    }
+    
+    public record Column(String name, String typeName, int jdbcType, Integer size, Integer decimalDigits,
+                         boolean nullable, String defaultValue, boolean autoIncrement, String remarks) {}
+    
+    /**
+     * A non-primary-key index.
+     */
+    public record Index(String name, boolean unique, List<String> columns) {}
+    
+    /**
+     * A foreign key; actions are SQL keywords such as {@code NO ACTION} or {@code CASCADE}.
+     */
+    public record ForeignKey(String name, List<String> columns, String targetSchema, String targetTable,
+                             List<String> targetColumns, String onDelete, String onUpdate) {
+        
+        public String targetQualifiedName() {
+            return targetSchema != null ? targetSchema + "." + targetTable : targetTable;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.chartdb.service.schema;
+
+import com.chartdb.config.ThreadPools;
+import com.chartdb.model.DatabaseConnection;
+import com.chartdb.model.enums.TableStatus;
+import com.chartdb.repository.DatabaseConnectionRepository;
+import com.chartdb.service.DiagramRevisionService;
+import com.chartdb.service.DiagramRevisionService.EntityType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically compares diagrams with the live databases they were imported from (diagrams with a
+ * schema_sync_status row and a connection). Each table is reduced to a {@link TableFingerprint} on both
+ * sides; only tables whose fingerprints differ, or that exist on one side only, end up in drift_details.
+ * Checks run on a small bounded pool, and each diagram's next check is spread by a random jitter so
+ * diagrams imported together do not keep hitting their databases at the same moment.
+ */
+@Slf4j
+@Component
+public class SchemaDriftDetector {
+    
+    private static final String SELECT_DUE =
+        "SELECT diagram_id, connection_id, next_auto_sync FROM schema_sync_status " +
+        "WHERE connection_id IS NOT NULL AND (next_auto_sync IS NULL OR next_auto_sync <= ?) " +
+        "ORDER BY next_auto_sync NULLS FIRST LIMIT ?";
+    
+    // Conditional on the value just read, so two instances never claim the same check
+    private static final String CLAIM =
+        "UPDATE schema_sync_status SET next_auto_sync = ? " +
+        "WHERE diagram_id = ? AND next_auto_sync IS NOT DISTINCT FROM CAST(? AS TIMESTAMP)";
+    
+    private static final String SELECT_DIAGRAM_COLUMNS =
+        "SELECT t.id, t.name, t.schema_name, t.status, t.sync_metadata->>'fingerprint', " +
+        "c.name, c.data_type, c.is_nullable, c.is_primary_key, ft.name, ft.schema_name, fc.name, t.table_type " +
+        "FROM tables t " +
+        "LEFT JOIN columns c ON c.table_id = t.id " +
+        "LEFT JOIN tables ft ON ft.id = c.fk_table_id " +
+        "LEFT JOIN columns fc ON fc.id = c.fk_column_id " +
+        "WHERE t.diagram_id = ? AND (t.status IS NULL OR t.status <> 'DEPRECATED')";
+    
+    private static final String UPDATE_TABLE =
+        "UPDATE tables SET status = ?, last_verified_at = ?, sync_metadata = ?::jsonb WHERE id = ?";
+    
+    private static final String UPDATE_SYNC_STATUS =
+        "UPDATE schema_sync_status SET drift_detected = ?, drift_details = ?::jsonb, updated_at = ? " +
+        "WHERE diagram_id = ?";
+    
+    private final SchemaMetadataReader metadataReader;
+    private final DatabaseConnectionRepository connectionRepository;
+    private final DiagramRevisionService revisionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int workers;
+    private final Duration interval;
+    private final double jitter;
+    
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    
+    private ThreadPoolExecutor executor;
+    private Counter clean;
+    private Counter drifted;
+    private Counter failed;
+    
+    public SchemaDriftDetector(
+            SchemaMetadataReader metadataReader,
+            DatabaseConnectionRepository connectionRepository,
+            DiagramRevisionService revisionService,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${schema.drift.enabled:true}") boolean enabled,
+            @Value("${schema.drift.workers:4}") int workers,
+            @Value("${schema.drift.interval-minutes:60}") long intervalMinutes,
+            @Value("${schema.drift.jitter-percent:20}") int jitterPercent) {
+        this.metadataReader = metadataReader;
+        this.connectionRepository = connectionRepository;
+        this.revisionService = revisionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.interval = Duration.ofMinutes(intervalMinutes);
+        this.jitter = jitterPercent / 100.0;
+    }
+    
+    @PostConstruct
+    void start() {
+        // Queue as deep as the pool: the poller only claims as many checks as can start soon
+        executor = new ThreadPoolExecutor(
+            workers, workers,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(workers),
+            ThreadPools.threadFactory("schema-drift-", false),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "schema.drift", List.of()).bindTo(meterRegistry);
+        clean = checks("clean");
+        drifted = checks("drift");
+        failed = checks("error");
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * When a diagram synced now should next be checked: one interval from now, plus or minus the jitter.
+     */
+    public Instant nextCheck() {
+        double factor = jitter > 0 ? 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter) : 1;
+        return Instant.now().plusMillis((long) (interval.toMillis() * factor));
+    }
+    
+    @Scheduled(fixedDelayString = "${schema.drift.poll-interval-ms:60000}",
+               initialDelayString = "${schema.drift.poll-interval-ms:60000}")
+    public void checkDue() {
+        if (!enabled) {
+            return;
+        }
+        int capacity = executor.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<Map<String, Object>> due = jdbcTemplate.queryForList(SELECT_DUE, now, capacity);
+        for (Map<String, Object> row : due) {
+            String diagramId = (String) row.get("diagram_id");
+            String connectionId = (String) row.get("connection_id");
+            if (inFlight.contains(diagramId)
+                    || jdbcTemplate.update(CLAIM, utc(nextCheck()), diagramId, row.get("next_auto_sync")) == 0) {
+                continue;
+            }
+            inFlight.add(diagramId);
+            try {
+                executor.execute(() -> {
+                    try {
+                        check(diagramId, connectionId);
+                    } finally {
+                        inFlight.remove(diagramId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Already claimed, so it runs after the next interval instead
+                inFlight.remove(diagramId);
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Compare one diagram with its database and record the result. Returns true if drift was found.
+     */
+    public boolean check(String diagramId, String connectionId) {
+        long start = System.currentTimeMillis();
+        try {
+            Optional<DatabaseConnection> connection = connectionRepository.findById(connectionId);
+            if (connection.isEmpty()) {
+                return false;
+            }
+            Map<String, TableState> diagramTables = loadTableStates(diagramId);
+            List<String> schemas = diagramTables.values().stream()
+                .filter(TableState::imported)
+                .map(TableState::schema)
+                .distinct()
+                .toList();
+            if (schemas.isEmpty()) {
+                schemas = metadataReader.listSchemas(connection.get());
+            }
+            // Views are only compared when the diagram has any, otherwise every view would count as added
+            boolean includeViews = diagramTables.values().stream().anyMatch(TableState::view);
+            DatabaseSchema live = metadataReader.read(connection.get(), schemas, includeViews, tables -> { });
+            
+            boolean drift = record(diagramId, diagramTables, live);
+            (drift ? drifted : clean).increment();
+            log.debug("Drift check of diagram {} finished in {} ms (drift: {})",
+                diagramId, System.currentTimeMillis() - start, drift);
+            return drift;
+        } catch (SQLException | RuntimeException e) {
+            failed.increment();
+            log.warn("Drift check of diagram {} against connection {} failed: {}", diagramId, connectionId, e.getMessage());
+            return false;
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private boolean record(String diagramId, Map<String, TableState> diagramTables, DatabaseSchema live) {
+        Set<String> liveSchemas = new LinkedHashSet<>();
+        Map<String, Object> changed = new TreeMap<>();
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        Instant checkedAt = Instant.now();
+        LocalDateTime now = utc(checkedAt);
+        
+        Set<String> seen = new LinkedHashSet<>();
+        for (DatabaseSchema.Table table : live.tables()) {
+            liveSchemas.add(table.schema());
+            TableState diagramTable = diagramTables.get(table.qualifiedName());
+            if (diagramTable == null) {
+                added.add(table.qualifiedName());
+                continue;
+            }
+            seen.add(table.qualifiedName());
+            TableFingerprint liveFingerprint = TableFingerprint.of(table);
+            TableFingerprint diagramFingerprint = diagramTable.fingerprint().build();
+            boolean matches = liveFingerprint.hash().equals(diagramFingerprint.hash());
+            if (!matches) {
+                changed.put(table.qualifiedName(), columnChanges(diagramFingerprint, liveFingerprint));
+            }
+            TableStatus status = matches ? TableStatus.SYNCED : TableStatus.DRIFT;
+            // Unchanged tables are not rewritten
+            if (status != diagramTable.status() || !liveFingerprint.hash().equals(diagramTable.liveFingerprint())) {
+                updates.add(new Object[]{status.name(), now,
+                    json(Map.of("fingerprint", liveFingerprint.hash())), diagramTable.id()});
+            }
+        }
+        for (TableState diagramTable : diagramTables.values()) {
+            // Planned tables are not expected to exist yet; only report imported ones that disappeared
+            if (diagramTable.imported() && liveSchemas.contains(diagramTable.schema())
+                    && !seen.contains(diagramTable.key())) {
+                removed.add(diagramTable.key());
+                if (diagramTable.status() != TableStatus.DRIFT) {
+                    updates.add(new Object[]{TableStatus.DRIFT.name(), now,
+                        json(Map.of("missing", true)), diagramTable.id()});
+                }
+            }
+        }
+        
+        boolean drift = !changed.isEmpty() || !added.isEmpty() || !removed.isEmpty();
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("checkedAt", checkedAt.toString());
+        details.put("addedTables", added);
+        details.put("removedTables", removed);
+        details.put("changedTables", changed);
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_TABLE, updates);
+                revisionService.recordAll(diagramId, EntityType.TABLE,
+                    updates.stream().map(update -> (String) update[3]).toList());
+            }
+            jdbcTemplate.update(UPDATE_SYNC_STATUS, drift, drift ? json(details) : null, now, diagramId);
+        });
+        return drift;
+    }
+    
+    private Map<String, TableState> loadTableStates(String diagramId) {
+        Map<String, TableState> tables = new HashMap<>();
+        jdbcTemplate.query(SELECT_DIAGRAM_COLUMNS, rs -> {
+            String key = key(rs.getString(3), rs.getString(2));
+            TableState table = tables.get(key);
+            if (table == null) {
+                table = new TableState(rs.getString(1), key, rs.getString(3), status(rs.getString(4)),
+                    rs.getString(5), "view".equals(rs.getString(13)), TableFingerprint.builder());
+                tables.put(key, table);
+            }
+            String column = rs.getString(6);
+            if (column != null) {
+                String reference = rs.getString(10) != null
+                    ? key(rs.getString(11), rs.getString(10)) + "." + rs.getString(12) : null;
+                boolean primaryKey = rs.getBoolean(9);
+                table.fingerprint().column(column, rs.getString(7), rs.getBoolean(8) && !primaryKey,
+                    primaryKey, reference);
+            }
+        }, diagramId);
+        return tables;
+    }
+    
+    private static Map<String, Object> columnChanges(TableFingerprint diagram, TableFingerprint live) {
+        List<String> addedColumns = new ArrayList<>();
+        List<String> removedColumns = new ArrayList<>();
+        Map<String, Object> changedColumns = new TreeMap<>();
+        live.columns().forEach((name, signature) -> {
+            String expected = diagram.columns().get(name);
+            if (expected == null) {
+                addedColumns.add(name);
+            } else if (!expected.equals(signature)) {
+                changedColumns.put(name, Map.of("diagram", expected, "database", signature));
+            }
+        });
+        diagram.columns().keySet().stream()
+            .filter(name -> !live.columns().containsKey(name))
+            .forEach(removedColumns::add);
+        
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("addedColumns", addedColumns);
+        changes.put("removedColumns", removedColumns);
+        changes.put("changedColumns", changedColumns);
+        return changes;
+    }
+    
+    // Imports name a table schema.name when its bare name was taken; both forms map to the same key
+    private static String key(String schema, String name) {
+        if (schema == null) {
+            return name;
+        }
+        return name.startsWith(schema + ".") ? name : schema + "." + name;
+    }
+    
+    private static TableStatus status(String value) {
+        return value != null ? TableStatus.valueOf(value) : TableStatus.PLANNED;
+    }
+    
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize drift details", e);
+        }
+    }
+    
+    private Counter checks(String outcome) {
+        return Counter.builder("schema.drift.checks")
+            .description("Completed schema drift checks by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+    
+    // schema_sync_status uses TIMESTAMP without time zone, written as UTC like Hibernate does
+    private static LocalDateTime utc(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+    
+    private record TableState(String id, String key, String schema, TableStatus status, String liveFingerprint,
+                              boolean view, TableFingerprint.Builder fingerprint) {
+        
+        boolean imported() {
+            return status != TableStatus.PLANNED;
+        }
+    }
+}
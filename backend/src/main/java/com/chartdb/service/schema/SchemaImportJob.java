@@ -0,0 +1,78 @@
+package com.chartdb.service.schema;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * State of one background schema import into a diagram.
+ */
+@Getter
+public class SchemaImportJob {
+    
+    public enum Status { QUEUED, READING, WRITING, COMPLETED, FAILED }
+    
+    // Progress is published in steps of at least this many percent
+    private static final int PROGRESS_STEP = 5;
+    
+    private final String id = UUID.randomUUID().toString();
+    private final String diagramId;
+    private final String connectionId;
+    private final String userId;
+    private final Instant createdAt = Instant.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile int progress;
+    private volatile int tablesImported;
+    private volatile int columnsImported;
+    private volatile int relationshipsImported;
+    private volatile int tablesSkipped;
+    private volatile String error;
+    private volatile Instant finishedAt;
+    
+    public SchemaImportJob(String diagramId, String connectionId, String userId) {
+        this.diagramId = diagramId;
+        this.connectionId = connectionId;
+        this.userId = userId;
+    }
+    
+    void reading() {
+        status = Status.READING;
+    }
+    
+    void writing() {
+        status = Status.WRITING;
+    }
+    
+    /**
+     * Raise the progress; returns true when it moved far enough to be worth publishing.
+     */
+    synchronized boolean advance(int percent) {
+        if (percent < progress + PROGRESS_STEP) {
+            return false;
+        }
+        progress = percent;
+        return true;
+    }
+    
+    void complete(int tables, int columns, int relationships, int skipped) {
+        tablesImported = tables;
+        columnsImported = columns;
+        relationshipsImported = relationships;
+        tablesSkipped = skipped;
+        progress = 100;
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+    
+    void fail(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+    
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,592 @@
+package com.chartdb.service.schema;
+
+import com.chartdb.config.ThreadPools;
+import com.chartdb.dto.request.SchemaImportRequest;
+import com.chartdb.dto.response.SchemaImportJobResponse;
+import com.chartdb.exception.AccessDeniedException;
+import com.chartdb.exception.ConflictException;
+import com.chartdb.exception.ResourceNotFoundException;
+import com.chartdb.exception.ServiceUnavailableException;
+import com.chartdb.model.DatabaseConnection;
+import com.chartdb.model.Diagram;
+import com.chartdb.repository.DatabaseConnectionRepository;
+import com.chartdb.service.DiagramRevisionService;
+import com.chartdb.service.DiagramRevisionService.EntityType;
+import com.chartdb.service.DiagramService;
+import com.chartdb.service.PermissionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reverse-engineers a saved connection's database into its diagram. Metadata is read per schema in
+ * parallel ({@link SchemaMetadataReader}), then tables, columns and relationships are written with
+ * chunked JDBC batch inserts in a single transaction, bumping the diagram revision once per entity type.
+ * Progress is published on /topic/schema-imports/{jobId}: reading covers 0-50%, writing 50-100%.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SchemaImportService {
+    
+    private static final String INSERT_TABLE =
+        "INSERT INTO tables (id, diagram_id, name, schema_name, description, position_x, position_y, " +
+        "table_type, is_view, is_materialized_view, indexes_json, status, source_database, last_verified_at, " +
+        "sort_order, z_index, is_collapsed, is_locked, is_hidden, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'EXISTS', ?, ?, ?, ?, false, false, false, ?, ?)";
+    
+    private static final String INSERT_COLUMN =
+        "INSERT INTO columns (id, table_id, name, description, data_type, native_type, length, precision, scale, " +
+        "is_primary_key, is_foreign_key, is_nullable, is_unique, is_auto_increment, is_indexed, default_value, " +
+        "fk_table_id, fk_column_id, fk_constraint_name, fk_on_delete, fk_on_update, order_index, is_hidden, " +
+        "created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false, ?, ?)";
+    
+    private static final String INSERT_RELATIONSHIP =
+        "INSERT INTO relationships (id, diagram_id, source_table_id, target_table_id, source_column_id, " +
+        "target_column_id, relationship_type, cardinality_source, cardinality_target, name, constraint_name, " +
+        "on_delete, on_update, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String UPSERT_SYNC_STATUS =
+        "INSERT INTO schema_sync_status (diagram_id, connection_id, last_sync_at, sync_direction, tables_synced, " +
+        "drift_detected, drift_details, next_auto_sync, created_at, updated_at) " +
+        "VALUES (?, ?, ?, 'FROM_DB', ?, false, NULL, ?, ?, ?) " +
+        "ON CONFLICT (diagram_id) DO UPDATE SET connection_id = EXCLUDED.connection_id, " +
+        "last_sync_at = EXCLUDED.last_sync_at, sync_direction = EXCLUDED.sync_direction, " +
+        "tables_synced = EXCLUDED.tables_synced, drift_detected = false, drift_details = NULL, " +
+        "next_auto_sync = EXCLUDED.next_auto_sync, updated_at = EXCLUDED.updated_at";
+    
+    // Canvas coordinates must stay within the tables.valid_position check (+/- 10000)
+    private static final int CANVAS_LIMIT = 9800;
+    private static final int CELL_WIDTH = 300;
+    private static final int HEADER_HEIGHT = 60;
+    private static final int ROW_HEIGHT = 28;
+    private static final int ROW_GAP = 80;
+    
+    private final SchemaMetadataReader metadataReader;
+    private final SchemaDriftDetector driftDetector;
+    private final DatabaseConnectionRepository connectionRepository;
+    private final DiagramService diagramService;
+    private final PermissionService permissionService;
+    private final DiagramRevisionService revisionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${schema.import.workers:2}")
+    private int workers;
+    
+    @Value("${schema.import.queue-capacity:10}")
+    private int queueCapacity;
+    
+    @Value("${schema.import.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${schema.import.retention-minutes:30}")
+    private long retentionMinutes;
+    
+    private final Map<String, SchemaImportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, SchemaImportJob> runningByDiagram = new ConcurrentHashMap<>();
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(
+            workers, workers,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            ThreadPools.threadFactory("schema-import-", false),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, "schema.import", List.of()).bindTo(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Queue an import of the connection's database into the diagram the connection belongs to.
+     * Only one import per diagram runs at a time.
+     */
+    @Transactional(readOnly = true)
+    public SchemaImportJobResponse startImport(String connectionId, String userId, SchemaImportRequest request) {
+        DatabaseConnection connection = connectionRepository.findByIdAndUserId(connectionId, userId)
+            .orElseThrow(() -> new ResourceNotFoundException("Connection not found"));
+        Diagram diagram = connection.getDiagram();
+        if (!diagramService.canUserEdit(diagram, userId)) {
+            throw new AccessDeniedException("You don't have permission to edit this diagram");
+        }
+        
+        SchemaImportJob job = new SchemaImportJob(diagram.getId(), connectionId, userId);
+        if (runningByDiagram.putIfAbsent(diagram.getId(), job) != null) {
+            throw new ConflictException("A schema import is already running for this diagram");
+        }
+        List<String> schemas = request.getSchemas() != null ? List.copyOf(request.getSchemas()) : List.of();
+        boolean includeViews = Boolean.TRUE.equals(request.getIncludeViews());
+        try {
+            executor.execute(() -> run(job, connection, schemas, includeViews));
+        } catch (RejectedExecutionException e) {
+            runningByDiagram.remove(diagram.getId(), job);
+            throw new ServiceUnavailableException("Too many schema imports in progress, please retry shortly");
+        }
+        jobs.put(job.getId(), job);
+        log.info("Queued schema import {} from connection {} into diagram {}", job.getId(), connectionId, diagram.getId());
+        return toResponse(job);
+    }
+    
+    public SchemaImportJobResponse getJob(String jobId, String userId) {
+        SchemaImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("SchemaImportJob", "id", jobId);
+        }
+        permissionService.checkReadAccess(job.getDiagramId(), userId);
+        return toResponse(job);
+    }
+    
+    @Scheduled(fixedDelayString = "${schema.import.cleanup-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        Instant threshold = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private void run(SchemaImportJob job, DatabaseConnection connection, List<String> requestedSchemas,
+                     boolean includeViews) {
+        long start = System.currentTimeMillis();
+        job.reading();
+        publish(job);
+        try {
+            List<String> schemas = requestedSchemas.isEmpty()
+                ? metadataReader.listSchemas(connection) : requestedSchemas;
+            AtomicInteger schemasRead = new AtomicInteger();
+            DatabaseSchema schema = metadataReader.read(connection, schemas, includeViews, tables -> {
+                if (job.advance(schemasRead.incrementAndGet() * 50 / Math.max(1, schemas.size()))) {
+                    publish(job);
+                }
+            });
+            
+            job.writing();
+            publish(job);
+            ImportPlan plan = plan(job.getDiagramId(), connection, schema);
+            transactionTemplate.executeWithoutResult(status -> write(job, connection, plan));
+            job.complete(plan.tables.size(), plan.columns.size(), plan.relationships.size(), plan.skipped);
+            broadcastImported(job);
+            log.info("Schema import {} wrote {} tables, {} columns and {} relationships into diagram {} in {} ms",
+                job.getId(), plan.tables.size(), plan.columns.size(), plan.relationships.size(),
+                job.getDiagramId(), System.currentTimeMillis() - start);
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Schema import {} into diagram {} failed: {}", job.getId(), job.getDiagramId(), e.getMessage());
+            job.fail("Import failed: " + e.getMessage());
+        } finally {
+            runningByDiagram.remove(job.getDiagramId(), job);
+            publish(job);
+        }
+    }
+    
+    /**
+     * Assign ids, names and positions for every row up front, so the write phase is only batch inserts.
+     * A table whose name is already taken in the diagram is imported as schema.name, or skipped if that is taken too.
+     */
+    private ImportPlan plan(String diagramId, DatabaseConnection connection, DatabaseSchema schema) {
+        Set<String> takenNames = new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT name FROM tables WHERE diagram_id = ?", String.class, diagramId));
+        Map<String, Object> existing = jdbcTemplate.queryForMap(
+            "SELECT COALESCE(MAX(sort_order), 0) AS sort_order, COALESCE(MAX(z_index), 0) AS z_index, " +
+            "MAX(position_y) AS max_y FROM tables WHERE diagram_id = ?", diagramId);
+        
+        ImportPlan plan = new ImportPlan();
+        Map<String, PlannedTable> byQualifiedName = new LinkedHashMap<>();
+        for (DatabaseSchema.Table table : schema.tables()) {
+            String name = truncate(table.name(), 255);
+            if (takenNames.contains(name) && table.schema() != null) {
+                name = truncate(table.qualifiedName(), 255);
+            }
+            if (!takenNames.add(name)) {
+                plan.skipped++;
+                continue;
+            }
+            Map<String, String> columnIds = new HashMap<>();
+            table.columns().forEach(column -> columnIds.put(column.name(), UUID.randomUUID().toString()));
+            byQualifiedName.put(table.qualifiedName(),
+                new PlannedTable(UUID.randomUUID().toString(), name, table, columnIds));
+        }
+        
+        List<PlannedTable> planned = new ArrayList<>(byQualifiedName.values());
+        double[][] positions = layout(planned, existing.get("max_y"));
+        int sortOrder = ((Number) existing.get("sort_order")).intValue();
+        int zIndex = ((Number) existing.get("z_index")).intValue();
+        for (int i = 0; i < planned.size(); i++) {
+            PlannedTable table = planned.get(i);
+            plan.tables.add(tableRow(table, connection, positions[i], ++sortOrder, ++zIndex));
+            planColumns(table, byQualifiedName, plan);
+            planRelationships(table, byQualifiedName, plan);
+        }
+        return plan;
+    }
+    
+    private TableRow tableRow(PlannedTable planned, DatabaseConnection connection, double[] position,
+                              int sortOrder, int zIndex) {
+        DatabaseSchema.Table table = planned.source();
+        String type = table.type() != null ? table.type().toUpperCase(Locale.ROOT) : "TABLE";
+        boolean materialized = type.contains("MATERIALIZED");
+        return new TableRow(planned.id(), planned.name(), truncate(table.schema(), 100), table.remarks(),
+            BigDecimal.valueOf(position[0]), BigDecimal.valueOf(position[1]),
+            table.isView() ? "view" : "table", table.isView() && !materialized, materialized,
+            indexesJson(planned), truncate(connection.getDatabaseName(), 100), sortOrder, zIndex);
+    }
+    
+    private void planColumns(PlannedTable planned, Map<String, PlannedTable> tables, ImportPlan plan) {
+        DatabaseSchema.Table table = planned.source();
+        Set<String> primaryKey = new HashSet<>(table.primaryKey());
+        Set<String> unique = new HashSet<>();
+        Set<String> indexed = new HashSet<>(primaryKey);
+        for (DatabaseSchema.Index index : table.indexes()) {
+            indexed.addAll(index.columns());
+            if (index.unique() && index.columns().size() == 1) {
+                unique.add(index.columns().get(0));
+            }
+        }
+        if (primaryKey.size() == 1) {
+            unique.addAll(primaryKey);
+        }
+        
+        // Column name -> referenced table and column, for single and composite foreign keys alike
+        Map<String, ForeignKeyColumn> foreignKeys = new HashMap<>();
+        for (DatabaseSchema.ForeignKey foreignKey : table.foreignKeys()) {
+            PlannedTable target = tables.get(foreignKey.targetQualifiedName());
+            for (int i = 0; i < foreignKey.columns().size(); i++) {
+                String targetColumnId = target != null ? target.columnIds().get(foreignKey.targetColumns().get(i)) : null;
+                foreignKeys.putIfAbsent(foreignKey.columns().get(i),
+                    new ForeignKeyColumn(target != null ? target.id() : null, targetColumnId, foreignKey));
+            }
+        }
+        
+        int orderIndex = 0;
+        for (DatabaseSchema.Column column : table.columns()) {
+            ForeignKeyColumn foreignKey = foreignKeys.get(column.name());
+            boolean lengthType = column.jdbcType() == Types.CHAR || column.jdbcType() == Types.VARCHAR
+                || column.jdbcType() == Types.NCHAR || column.jdbcType() == Types.NVARCHAR
+                || column.jdbcType() == Types.BINARY || column.jdbcType() == Types.VARBINARY;
+            boolean decimalType = column.jdbcType() == Types.NUMERIC || column.jdbcType() == Types.DECIMAL;
+            plan.columns.add(new ColumnRow(
+                planned.columnIds().get(column.name()),
+                planned.id(),
+                truncate(column.name(), 255),
+                column.remarks(),
+                truncate(TableFingerprint.dataType(column.typeName()), 100),
+                truncate(column.typeName(), 100),
+                lengthType ? boundedSize(column.size()) : null,
+                decimalType ? boundedSize(column.size()) : null,
+                decimalType && boundedSize(column.size()) != null ? column.decimalDigits() : null,
+                primaryKey.contains(column.name()),
+                foreignKey != null,
+                column.nullable() && !primaryKey.contains(column.name()),
+                unique.contains(column.name()),
+                column.autoIncrement(),
+                indexed.contains(column.name()),
+                column.defaultValue(),
+                foreignKey != null ? foreignKey.targetTableId() : null,
+                foreignKey != null ? foreignKey.targetColumnId() : null,
+                foreignKey != null ? truncate(foreignKey.source().name(), 255) : null,
+                foreignKey != null ? foreignKey.source().onDelete() : "NO ACTION",
+                foreignKey != null ? foreignKey.source().onUpdate() : "NO ACTION",
+                orderIndex++));
+        }
+    }
+    
+    /**
+     * One relationship per foreign key whose target was imported in this run. The table holding the
+     * key is the source, matching how the SQL export emits ALTER TABLE source ADD FOREIGN KEY.
+     */
+    private void planRelationships(PlannedTable planned, Map<String, PlannedTable> tables, ImportPlan plan) {
+        DatabaseSchema.Table table = planned.source();
+        for (DatabaseSchema.ForeignKey foreignKey : table.foreignKeys()) {
+            PlannedTable target = tables.get(foreignKey.targetQualifiedName());
+            if (target == null || foreignKey.columns().isEmpty()) {
+                continue;
+            }
+            String sourceColumnId = planned.columnIds().get(foreignKey.columns().get(0));
+            String targetColumnId = target.columnIds().get(foreignKey.targetColumns().get(0));
+            if (target == planned && sourceColumnId != null && sourceColumnId.equals(targetColumnId)) {
+                continue;
+            }
+            boolean oneToOne = foreignKey.columns().equals(table.primaryKey()) || table.indexes().stream()
+                .anyMatch(index -> index.unique() && index.columns().equals(foreignKey.columns()));
+            String name = foreignKey.name() != null ? foreignKey.name() : table.name() + "_" + target.source().name();
+            plan.relationships.add(new RelationshipRow(
+                UUID.randomUUID().toString(), planned.id(), target.id(), sourceColumnId, targetColumnId,
+                oneToOne ? "ONE_TO_ONE" : "MANY_TO_ONE", oneToOne ? "one" : "many", "one",
+                truncate(name, 255), truncate(foreignKey.name(), 255), foreignKey.onDelete(), foreignKey.onUpdate()));
+        }
+    }
+    
+    private void write(SchemaImportJob job, DatabaseConnection connection, ImportPlan plan) {
+        String diagramId = job.getDiagramId();
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        int total = Math.max(1, plan.tables.size() + plan.columns.size() + plan.relationships.size());
+        AtomicInteger written = new AtomicInteger();
+        Runnable onChunk = () -> {
+            if (job.advance(50 + (int) (written.get() * 50L / total))) {
+                publish(job);
+            }
+        };
+        
+        insertInChunks(INSERT_TABLE, plan.tables, (ps, row) -> {
+            ps.setString(1, row.id());
+            ps.setString(2, diagramId);
+            ps.setString(3, row.name());
+            ps.setString(4, row.schemaName());
+            ps.setString(5, row.description());
+            ps.setBigDecimal(6, row.x());
+            ps.setBigDecimal(7, row.y());
+            ps.setString(8, row.tableType());
+            ps.setBoolean(9, row.view());
+            ps.setBoolean(10, row.materializedView());
+            ps.setString(11, row.indexesJson());
+            ps.setString(12, row.sourceDatabase());
+            ps.setObject(13, now);
+            ps.setInt(14, row.sortOrder());
+            ps.setInt(15, row.zIndex());
+            ps.setObject(16, now);
+            ps.setObject(17, now);
+        }, written, onChunk);
+        
+        insertInChunks(INSERT_COLUMN, plan.columns, (ps, row) -> {
+            ps.setString(1, row.id());
+            ps.setString(2, row.tableId());
+            ps.setString(3, row.name());
+            ps.setString(4, row.description());
+            ps.setString(5, row.dataType());
+            ps.setString(6, row.nativeType());
+            ps.setObject(7, row.length(), Types.INTEGER);
+            ps.setObject(8, row.precision(), Types.INTEGER);
+            ps.setObject(9, row.scale(), Types.INTEGER);
+            ps.setBoolean(10, row.primaryKey());
+            ps.setBoolean(11, row.foreignKey());
+            ps.setBoolean(12, row.nullable());
+            ps.setBoolean(13, row.unique());
+            ps.setBoolean(14, row.autoIncrement());
+            ps.setBoolean(15, row.indexed());
+            ps.setString(16, row.defaultValue());
+            ps.setString(17, row.fkTableId());
+            ps.setString(18, row.fkColumnId());
+            ps.setString(19, row.fkConstraintName());
+            ps.setString(20, row.fkOnDelete());
+            ps.setString(21, row.fkOnUpdate());
+            ps.setInt(22, row.orderIndex());
+            ps.setObject(23, now);
+            ps.setObject(24, now);
+        }, written, onChunk);
+        
+        insertInChunks(INSERT_RELATIONSHIP, plan.relationships, (ps, row) -> {
+            ps.setString(1, row.id());
+            ps.setString(2, diagramId);
+            ps.setString(3, row.sourceTableId());
+            ps.setString(4, row.targetTableId());
+            ps.setString(5, row.sourceColumnId());
+            ps.setString(6, row.targetColumnId());
+            ps.setString(7, row.relationshipType());
+            ps.setString(8, row.cardinalitySource());
+            ps.setString(9, row.cardinalityTarget());
+            ps.setString(10, row.name());
+            ps.setString(11, row.constraintName());
+            ps.setString(12, row.onDelete());
+            ps.setString(13, row.onUpdate());
+            ps.setObject(14, now);
+            ps.setObject(15, now);
+        }, written, onChunk);
+        
+        revisionService.recordAll(diagramId, EntityType.TABLE, plan.tables.stream().map(TableRow::id).toList());
+        revisionService.recordAll(diagramId, EntityType.RELATIONSHIP,
+            plan.relationships.stream().map(RelationshipRow::id).toList());
+        // Just verified, so the first drift check waits a full (jittered) interval
+        jdbcTemplate.update(UPSERT_SYNC_STATUS, diagramId, connection.getId(), now, plan.tables.size(),
+            LocalDateTime.ofInstant(driftDetector.nextCheck(), ZoneOffset.UTC), now, now);
+    }
+    
+    private <T> void insertInChunks(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter,
+                                    AtomicInteger written, Runnable onChunk) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<T> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            jdbcTemplate.batchUpdate(sql, chunk, chunk.size(), setter);
+            written.addAndGet(chunk.size());
+            onChunk.run();
+        }
+    }
+    
+    /**
+     * Grid layout below any tables already on the canvas; row height follows the tallest table in the row.
+     * Large imports start at the top-left corner of the canvas to fit as many tables as possible.
+     */
+    private static double[][] layout(List<PlannedTable> tables, Object existingMaxY) {
+        double[][] positions = new double[tables.size()][];
+        int perRow = Math.max(1, (int) Math.ceil(Math.sqrt(tables.size())));
+        double originX = tables.size() <= 100 ? 100 : -CANVAS_LIMIT;
+        double y = existingMaxY != null
+            ? ((Number) existingMaxY).doubleValue() + 400
+            : (tables.size() <= 100 ? 100 : -CANVAS_LIMIT);
+        for (int row = 0; row * perRow < tables.size(); row++) {
+            int tallest = 0;
+            for (int col = 0; col < perRow && row * perRow + col < tables.size(); col++) {
+                int index = row * perRow + col;
+                positions[index] = new double[]{
+                    clamp(originX + col * CELL_WIDTH), clamp(y)};
+                tallest = Math.max(tallest, tables.get(index).source().columns().size());
+            }
+            y += HEADER_HEIGHT + Math.min(tallest, 40) * ROW_HEIGHT + ROW_GAP;
+        }
+        return positions;
+    }
+    
+    private String indexesJson(PlannedTable planned) {
+        List<Map<String, Object>> indexes = new ArrayList<>();
+        long createdAt = System.currentTimeMillis();
+        for (DatabaseSchema.Index index : planned.source().indexes()) {
+            List<String> fieldIds = index.columns().stream().map(planned.columnIds()::get).toList();
+            if (fieldIds.isEmpty() || fieldIds.contains(null)) {
+                continue;
+            }
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", UUID.randomUUID().toString());
+            json.put("name", index.name());
+            json.put("unique", index.unique());
+            json.put("fieldIds", fieldIds);
+            json.put("createdAt", createdAt);
+            indexes.add(json);
+        }
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(indexes);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize indexes of " + planned.name(), e);
+        }
+    }
+    
+    private void broadcastImported(SchemaImportJob job) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("jobId", job.getId());
+        payload.put("connectionId", job.getConnectionId());
+        payload.put("tablesImported", job.getTablesImported());
+        payload.put("relationshipsImported", job.getRelationshipsImported());
+        
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", "SCHEMA_IMPORTED");
+        event.put("diagramId", job.getDiagramId());
+        event.put("userId", job.getUserId());
+        event.put("sessionId", null); // null = from REST API, not WebSocket
+        event.put("payload", payload);
+        event.put("timestamp", Instant.now().toString());
+        
+        messagingTemplate.convertAndSend("/topic/diagram/" + job.getDiagramId() + "/events", event);
+    }
+    
+    private void publish(SchemaImportJob job) {
+        messagingTemplate.convertAndSend("/topic/schema-imports/" + job.getId(), toResponse(job));
+    }
+    
+    private SchemaImportJobResponse toResponse(SchemaImportJob job) {
+        boolean completed = job.getStatus() == SchemaImportJob.Status.COMPLETED;
+        return SchemaImportJobResponse.builder()
+            .id(job.getId())
+            .diagramId(job.getDiagramId())
+            .connectionId(job.getConnectionId())
+            .status(job.getStatus().name())
+            .progress(job.getProgress())
+            .error(job.getError())
+            .tablesImported(completed ? job.getTablesImported() : null)
+            .columnsImported(completed ? job.getColumnsImported() : null)
+            .relationshipsImported(completed ? job.getRelationshipsImported() : null)
+            .tablesSkipped(completed ? job.getTablesSkipped() : null)
+            .createdAt(job.getCreatedAt())
+            .finishedAt(job.getFinishedAt())
+            .build();
+    }
+    
+    // Unbounded types (text, unconstrained numeric) report sizes in the billions or the driver's maximum
+    private static Integer boundedSize(Integer size) {
+        return size != null && size > 0 && size < 1_000_000 ? size : null;
+    }
+    
+    private static double clamp(double coordinate) {
+        return Math.max(-CANVAS_LIMIT, Math.min(CANVAS_LIMIT, coordinate));
+    }
+    
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+    
+    private record PlannedTable(String id, String name, DatabaseSchema.Table source, Map<String, String> columnIds) {}
+    
+    private record ForeignKeyColumn(String targetTableId, String targetColumnId, DatabaseSchema.ForeignKey source) {}
+    
+    private record TableRow(String id, String name, String schemaName, String description, BigDecimal x, BigDecimal y,
+                            String tableType, boolean view, boolean materializedView, String indexesJson,
+                            String sourceDatabase, int sortOrder, int zIndex) {}
+    
+    private record ColumnRow(String id, String tableId, String name, String description, String dataType,
+                             String nativeType, Integer length, Integer precision, Integer scale,
+                             boolean primaryKey, boolean foreignKey, boolean nullable, boolean unique,
+                             boolean autoIncrement, boolean indexed, String defaultValue, String fkTableId,
+                             String fkColumnId, String fkConstraintName, String fkOnDelete, String fkOnUpdate,
+                             int orderIndex) {}
+    
+    private record RelationshipRow(String id, String sourceTableId, String targetTableId, String sourceColumnId,
+                                   String targetColumnId, String relationshipType, String cardinalitySource,
+                                   String cardinalityTarget, String name, String constraintName,
+                                   String onDelete, String onUpdate) {}
+    
+    private static final class ImportPlan {
+        
+        private final List<TableRow> tables = new ArrayList<>();
+        private final List<ColumnRow> columns = new ArrayList<>();
+        private final List<RelationshipRow> relationships = new ArrayList<>();
+        private int skipped;
+    }
+}
@@ -0,0 +1,416 @@
+package com.chartdb.service.schema;
+
+import com.chartdb.config.ThreadPools;
+import com.chartdb.model.DatabaseConnection;
+import com.chartdb.service.query.ConnectionPoolRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads the structure of a saved connection's database through JDBC metadata. Each schema is read
+ * with a handful of catalog-wide calls (all columns at once, and on PostgreSQL all keys and indexes
+ * at once) instead of several round trips per table, and several schemas are read in parallel on
+ * their own pooled connections.
+ */
+@Slf4j
+@Component
+public class SchemaMetadataReader {
+    
+    private static final Set<String> SYSTEM_SCHEMAS = Set.of(
+        "information_schema", "pg_catalog", "pg_toast", "sys", "guest", "db_owner", "db_accessadmin",
+        "db_securityadmin", "db_ddladmin", "db_backupoperator", "db_datareader", "db_datawriter",
+        "db_denydatareader", "db_denydatawriter", "mysql", "performance_schema");
+    
+    // Non-primary-key index columns of every table in one schema, in index column order
+    private static final String PG_INDEX_COLUMNS =
+        "SELECT t.relname, i.relname, ix.indisunique, a.attname " +
+        "FROM pg_index ix " +
+        "JOIN pg_class t ON t.oid = ix.indrelid " +
+        "JOIN pg_class i ON i.oid = ix.indexrelid " +
+        "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+        "CROSS JOIN LATERAL unnest(ix.indkey::int2[]) WITH ORDINALITY AS k(attnum, ord) " +
+        "JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = k.attnum " +
+        "WHERE n.nspname = ? AND NOT ix.indisprimary " +
+        "ORDER BY t.relname, i.relname, k.ord";
+    
+    private final ConnectionPoolRegistry connectionPools;
+    private final MeterRegistry meterRegistry;
+    private final int threads;
+    private final int parallelism;
+    
+    private ExecutorService executor;
+    
+    public SchemaMetadataReader(
+            ConnectionPoolRegistry connectionPools,
+            MeterRegistry meterRegistry,
+            @Value("${schema.import.read-threads:8}") int threads,
+            @Value("${schema.import.read-parallelism:2}") int parallelism) {
+        this.connectionPools = connectionPools;
+        this.meterRegistry = meterRegistry;
+        this.threads = threads;
+        this.parallelism = parallelism;
+    }
+    
+    @PostConstruct
+    void start() {
+        executor = Executors.newFixedThreadPool(threads, ThreadPools.threadFactory("schema-read-", false));
+        new ExecutorServiceMetrics(executor, "schema.read", List.of()).bindTo(meterRegistry);
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * User schemas of the database; on MySQL, which has no schemas, the connection's database.
+     */
+    public List<String> listSchemas(DatabaseConnection connection) throws SQLException {
+        try (Connection conn = connectionPools.getConnection(connection)) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            if (usesCatalogs(connection)) {
+                return List.of(conn.getCatalog());
+            }
+            if (isOracle(connection)) {
+                // Oracle lists every user as a schema; default to the connected one
+                return List.of(metaData.getUserName());
+            }
+            List<String> schemas = new ArrayList<>();
+            try (ResultSet rs = metaData.getSchemas()) {
+                while (rs.next()) {
+                    String schema = rs.getString("TABLE_SCHEM");
+                    if (!isSystemSchema(schema)) {
+                        schemas.add(schema);
+                    }
+                }
+            }
+            return schemas;
+        }
+    }
+    
+    /**
+     * Read the given schemas, at most read-parallelism at a time. {@code onSchemaRead} is called
+     * from the reading threads with the tables of each schema as soon as it is done.
+     */
+    public DatabaseSchema read(DatabaseConnection connection, List<String> schemas, boolean includeViews,
+                               Consumer<List<DatabaseSchema.Table>> onSchemaRead) throws SQLException {
+        Queue<String> remaining = new ConcurrentLinkedQueue<>(schemas);
+        Map<String, List<DatabaseSchema.Table>> read = new ConcurrentHashMap<>();
+        
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, schemas.size()); i++) {
+            workers.add(executor.submit(() -> {
+                String schema;
+                while ((schema = remaining.poll()) != null) {
+                    List<DatabaseSchema.Table> tables = readSchema(connection, schema, includeViews);
+                    read.put(schema, tables);
+                    onSchemaRead.accept(tables);
+                }
+                return null;
+            }));
+        }
+        await(workers);
+        
+        List<DatabaseSchema.Table> tables = new ArrayList<>();
+        for (String schema : schemas) {
+            tables.addAll(read.getOrDefault(schema, List.of()));
+        }
+        return new DatabaseSchema(tables);
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private List<DatabaseSchema.Table> readSchema(DatabaseConnection connection, String schema,
+                                                  boolean includeViews) throws SQLException {
+        long start = System.currentTimeMillis();
+        boolean catalogs = usesCatalogs(connection);
+        String catalog = catalogs ? schema : null;
+        String schemaPattern = catalogs ? null : schema;
+        
+        try (Connection conn = connectionPools.getConnection(connection)) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            Map<String, TableBuilder> tables = readTables(metaData, catalog, schemaPattern, schema, includeViews);
+            if (tables.isEmpty()) {
+                return List.of();
+            }
+            readColumns(metaData, catalog, schemaPattern, tables);
+            
+            if (isPostgres(connection)) {
+                // pgjdbc accepts a null table and answers for the whole schema in one query
+                readPrimaryKeys(metaData, catalog, schemaPattern, null, tables);
+                readForeignKeys(metaData, catalog, schemaPattern, null, tables);
+                readPostgresIndexes(conn, schema, tables);
+            } else {
+                for (TableBuilder table : tables.values()) {
+                    readPrimaryKeys(metaData, catalog, schemaPattern, table.name, tables);
+                    readForeignKeys(metaData, catalog, schemaPattern, table.name, tables);
+                    readIndexes(metaData, catalog, schemaPattern, table, tables);
+                }
+            }
+            
+            List<DatabaseSchema.Table> result = tables.values().stream().map(TableBuilder::build).toList();
+            log.debug("Read {} tables of schema {} on connection {} in {} ms",
+                result.size(), schema, connection.getId(), System.currentTimeMillis() - start);
+            return result;
+        }
+    }
+    
+    private Map<String, TableBuilder> readTables(DatabaseMetaData metaData, String catalog, String schemaPattern,
+                                                 String schema, boolean includeViews) throws SQLException {
+        String[] types = includeViews
+            ? new String[]{"TABLE", "PARTITIONED TABLE", "VIEW", "MATERIALIZED VIEW"}
+            : new String[]{"TABLE", "PARTITIONED TABLE"};
+        Map<String, TableBuilder> tables = new LinkedHashMap<>();
+        try (ResultSet rs = metaData.getTables(catalog, schemaPattern, "%", types)) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                tables.put(name, new TableBuilder(schema, name, rs.getString("TABLE_TYPE"), rs.getString("REMARKS")));
+            }
+        }
+        return tables;
+    }
+    
+    private void readColumns(DatabaseMetaData metaData, String catalog, String schemaPattern,
+                             Map<String, TableBuilder> tables) throws SQLException {
+        try (ResultSet rs = metaData.getColumns(catalog, schemaPattern, "%", "%")) {
+            while (rs.next()) {
+                TableBuilder table = tables.get(rs.getString("TABLE_NAME"));
+                if (table == null) {
+                    continue;
+                }
+                table.columns.add(new OrderedColumn(rs.getInt("ORDINAL_POSITION"), new DatabaseSchema.Column(
+                    rs.getString("COLUMN_NAME"),
+                    rs.getString("TYPE_NAME"),
+                    rs.getInt("DATA_TYPE"),
+                    nullableInt(rs, "COLUMN_SIZE"),
+                    nullableInt(rs, "DECIMAL_DIGITS"),
+                    rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls,
+                    rs.getString("COLUMN_DEF"),
+                    "YES".equalsIgnoreCase(rs.getString("IS_AUTOINCREMENT")),
+                    rs.getString("REMARKS"))));
+            }
+        }
+    }
+    
+    private void readPrimaryKeys(DatabaseMetaData metaData, String catalog, String schemaPattern, String tableName,
+                                 Map<String, TableBuilder> tables) throws SQLException {
+        try (ResultSet rs = metaData.getPrimaryKeys(catalog, schemaPattern, tableName)) {
+            while (rs.next()) {
+                TableBuilder table = tables.get(rs.getString("TABLE_NAME"));
+                if (table != null) {
+                    table.primaryKey.add(new OrderedName(rs.getInt("KEY_SEQ"), rs.getString("COLUMN_NAME")));
+                }
+            }
+        }
+    }
+    
+    private void readForeignKeys(DatabaseMetaData metaData, String catalog, String schemaPattern, String tableName,
+                                 Map<String, TableBuilder> tables) throws SQLException {
+        try (ResultSet rs = metaData.getImportedKeys(catalog, schemaPattern, tableName)) {
+            while (rs.next()) {
+                TableBuilder table = tables.get(rs.getString("FKTABLE_NAME"));
+                if (table == null) {
+                    continue;
+                }
+                String targetSchema = rs.getString(schemaPattern == null ? "PKTABLE_CAT" : "PKTABLE_SCHEM");
+                String targetTable = rs.getString("PKTABLE_NAME");
+                String name = rs.getString("FK_NAME");
+                // Rows arrive ordered by key sequence within each constraint
+                ForeignKeyBuilder foreignKey = table.foreignKeys.computeIfAbsent(
+                    (name != null ? name : "") + "\u0000" + targetSchema + "\u0000" + targetTable,
+                    key -> new ForeignKeyBuilder(name, targetSchema, targetTable));
+                foreignKey.columns.add(rs.getString("FKCOLUMN_NAME"));
+                foreignKey.targetColumns.add(rs.getString("PKCOLUMN_NAME"));
+                foreignKey.onDelete = action(rs.getInt("DELETE_RULE"));
+                foreignKey.onUpdate = action(rs.getInt("UPDATE_RULE"));
+            }
+        }
+    }
+    
+    private void readIndexes(DatabaseMetaData metaData, String catalog, String schemaPattern, TableBuilder table,
+                             Map<String, TableBuilder> tables) throws SQLException {
+        try (ResultSet rs = metaData.getIndexInfo(catalog, schemaPattern, table.name, false, true)) {
+            while (rs.next()) {
+                String column = rs.getString("COLUMN_NAME");
+                String name = rs.getString("INDEX_NAME");
+                if (name == null || column == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                table.addIndexColumn(name, !rs.getBoolean("NON_UNIQUE"), column);
+            }
+        }
+    }
+    
+    private void readPostgresIndexes(Connection conn, String schema, Map<String, TableBuilder> tables)
+            throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(PG_INDEX_COLUMNS)) {
+            statement.setString(1, schema);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    TableBuilder table = tables.get(rs.getString(1));
+                    if (table != null) {
+                        table.addIndexColumn(rs.getString(2), rs.getBoolean(3), rs.getString(4));
+                    }
+                }
+            }
+        }
+    }
+    
+    private static void await(List<Future<?>> workers) throws SQLException {
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.forEach(worker -> worker.cancel(true));
+            throw new SQLException("Interrupted while reading database metadata", e);
+        } catch (ExecutionException e) {
+            workers.forEach(worker -> worker.cancel(true));
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Failed to read database metadata: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    private static boolean usesCatalogs(DatabaseConnection connection) {
+        return "mysql".equalsIgnoreCase(connection.getDatabaseType());
+    }
+    
+    private static boolean isPostgres(DatabaseConnection connection) {
+        return "postgresql".equalsIgnoreCase(connection.getDatabaseType());
+    }
+    
+    private static boolean isOracle(DatabaseConnection connection) {
+        return "oracle".equalsIgnoreCase(connection.getDatabaseType());
+    }
+    
+    private static boolean isSystemSchema(String schema) {
+        String lower = schema.toLowerCase();
+        return SYSTEM_SCHEMAS.contains(lower) || lower.startsWith("pg_temp") || lower.startsWith("pg_toast");
+    }
+    
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+    
+    private static String action(int rule) {
+        return switch (rule) {
+            case DatabaseMetaData.importedKeyCascade -> "CASCADE";
+            case DatabaseMetaData.importedKeySetNull -> "SET NULL";
+            case DatabaseMetaData.importedKeySetDefault -> "SET DEFAULT";
+            case DatabaseMetaData.importedKeyRestrict -> "RESTRICT";
+            default -> "NO ACTION";
+        };
+    }
+    
+    private record OrderedColumn(int position, DatabaseSchema.Column column) {}
+    
+    private record OrderedName(int position, String name) {}
+    
+    private static final class TableBuilder {
+        
+        private final String schema;
+        private final String name;
+        private final String type;
+        private final String remarks;
+        private final List<OrderedColumn> columns = new ArrayList<>();
+        private final List<OrderedName> primaryKey = new ArrayList<>();
+        private final Map<String, ForeignKeyBuilder> foreignKeys = new LinkedHashMap<>();
+        private final Map<String, IndexBuilder> indexes = new LinkedHashMap<>();
+        
+        TableBuilder(String schema, String name, String type, String remarks) {
+            this.schema = schema;
+            this.name = name;
+            this.type = type;
+            this.remarks = remarks;
+        }
+        
+        void addIndexColumn(String index, boolean unique, String column) {
+            indexes.computeIfAbsent(index, key -> new IndexBuilder(unique)).columns.add(column);
+        }
+        
+        DatabaseSchema.Table build() {
+            List<String> pk = primaryKey.stream()
+                .sorted(Comparator.comparingInt(OrderedName::position))
+                .map(OrderedName::name)
+                .toList();
+            List<DatabaseSchema.Index> indexList = new ArrayList<>();
+            indexes.forEach((indexName, index) -> {
+                // getIndexInfo also reports the primary key's own index
+                if (!(index.unique && index.columns.equals(pk))) {
+                    indexList.add(new DatabaseSchema.Index(indexName, index.unique, List.copyOf(index.columns)));
+                }
+            });
+            return new DatabaseSchema.Table(schema, name, type, remarks,
+                columns.stream()
+                    .sorted(Comparator.comparingInt(OrderedColumn::position))
+                    .map(OrderedColumn::column)
+                    .toList(),
+                pk,
+                indexList,
+                foreignKeys.values().stream().map(ForeignKeyBuilder::build).toList());
+        }
+    }
+    
+    private static final class IndexBuilder {
+        
+        private final boolean unique;
+        private final List<String> columns = new ArrayList<>();
+        
+        IndexBuilder(boolean unique) {
+            this.unique = unique;
+        }
+    }
+    
+    private static final class ForeignKeyBuilder {
+        
+        private final String name;
+        private final String targetSchema;
+        private final String targetTable;
+        private final List<String> columns = new ArrayList<>();
+        private final List<String> targetColumns = new ArrayList<>();
+        private String onDelete;
+        private String onUpdate;
+        
+        ForeignKeyBuilder(String name, String targetSchema, String targetTable) {
+            this.name = name;
+            this.targetSchema = targetSchema;
+            this.targetTable = targetTable;
+        }
+        
+        DatabaseSchema.ForeignKey build() {
+            return new DatabaseSchema.ForeignKey(name, List.copyOf(columns), targetSchema, targetTable,
+                List.copyOf(targetColumns), onDelete, onUpdate);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.chartdb.service.schema;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Comparable definition of one table: a signature per column (type, nullability, primary key and
+ * referenced column) and a hash over all of them. Built the same way from live metadata and from
+ * diagram rows, so equal hashes mean the diagram still matches the database.
+ */
+public record TableFingerprint(String hash, SortedMap<String, String> columns) {
+    
+    // Short names reported by some drivers, mapped to the names the diagram editor uses
+    private static final Map<String, String> TYPE_ALIASES = Map.ofEntries(
+        Map.entry("int2", "smallint"),
+        Map.entry("int4", "integer"),
+        Map.entry("int", "integer"),
+        Map.entry("int8", "bigint"),
+        Map.entry("serial", "integer"),
+        Map.entry("bigserial", "bigint"),
+        Map.entry("float4", "real"),
+        Map.entry("float8", "double precision"),
+        Map.entry("bool", "boolean"),
+        Map.entry("bpchar", "char"),
+        Map.entry("timestamptz", "timestamp with time zone"),
+        Map.entry("timetz", "time with time zone"));
+    
+    public static TableFingerprint of(DatabaseSchema.Table table) {
+        Map<String, String> references = new TreeMap<>();
+        for (DatabaseSchema.ForeignKey foreignKey : table.foreignKeys()) {
+            for (int i = 0; i < foreignKey.columns().size(); i++) {
+                references.putIfAbsent(foreignKey.columns().get(i),
+                    foreignKey.targetQualifiedName() + "." + foreignKey.targetColumns().get(i));
+            }
+        }
+        Builder builder = builder();
+        for (DatabaseSchema.Column column : table.columns()) {
+            boolean primaryKey = table.primaryKey().contains(column.name());
+            builder.column(column.name(), column.typeName(), column.nullable() && !primaryKey, primaryKey,
+                references.get(column.name()));
+        }
+        return builder.build();
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Lowercase type name without driver-specific aliases; PostgreSQL's {@code _int4} becomes {@code integer[]}.
+     */
+    public static String dataType(String typeName) {
+        if (typeName == null) {
+            return "unknown";
+        }
+        String lower = typeName.trim().toLowerCase(Locale.ROOT);
+        if (lower.startsWith("_")) {
+            return dataType(lower.substring(1)) + "[]";
+        }
+        return TYPE_ALIASES.getOrDefault(lower, lower);
+    }
+    
+    public static final class Builder {
+        
+        private final SortedMap<String, String> columns = new TreeMap<>();
+        
+        private Builder() {
+        }
+        
+        /**
+         * Add a column; {@code reference} is the referenced schema.table.column, or null.
+         */
+        public Builder column(String name, String typeName, boolean nullable, boolean primaryKey, String reference) {
+            columns.put(name, dataType(typeName) + (nullable ? " null" : " not null")
+                + (primaryKey ? " pk" : "") + (reference != null ? " -> " + reference : ""));
+            return this;
+        }
+        
+        public TableFingerprint build() {
+            StringBuilder canonical = new StringBuilder();
+            columns.forEach((name, signature) -> canonical.append(name).append(' ').append(signature).append('\n'));
+            return new TableFingerprint(hash(canonical.toString()), new TreeMap<>(columns));
+        }
+        
+        private static String hash(String canonical) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest, 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.chartdb.websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Compact wire format for table-move events ("compact-v1").
+ *
+ * <pre>
+ * frame    := version type body             (all integers are LEB128 varints)
+ * ABSOLUTE := count { handle zz(x) zz(y) }   one position per table
+ * DELTA    := zz(dx) zz(dy) count { handle } same offset for every table
+ * </pre>
+ *
+ * Handles are per-diagram integers from {@link TableHandleRegistry}; coordinates are
+ * fixed-point hundredths of a pixel (the scale of tables.position_x/y), zigzag-encoded.
+ * Frames travel as base64url text because SockJS transports cannot carry binary frames.
+ */
+public final class CompactMoveCodec {
+    
+    public static final String ENCODING = "compact-v1";
+    
+    private static final int VERSION = 1;
+    private static final int TYPE_ABSOLUTE = 1;
+    private static final int TYPE_DELTA = 2;
+    private static final int MAX_TABLES_PER_FRAME = 10_000;
+    private static final int FIXED_POINT_SCALE = 2;
+    
+    private CompactMoveCodec() {
+    }
+    
+    public record Position(int handle, BigDecimal x, BigDecimal y) {}
+    
+    /**
+     * A decoded frame: either absolute positions, or one delta applied to several handles.
+     */
+    public record MoveFrame(List<Position> positions, List<Integer> handles, BigDecimal deltaX, BigDecimal deltaY) {
+        
+        public boolean isDelta() {
+            return positions == null;
+        }
+        
+        public static MoveFrame absolute(List<Position> positions) {
+            return new MoveFrame(positions, null, null, null);
+        }
+        
+        public static MoveFrame delta(List<Integer> handles, BigDecimal deltaX, BigDecimal deltaY) {
+            return new MoveFrame(null, handles, deltaX, deltaY);
+        }
+    }
+    
+    public static String encode(MoveFrame frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 8 * size(frame));
+        writeVarint(out, VERSION);
+        if (frame.isDelta()) {
+            writeVarint(out, TYPE_DELTA);
+            writeVarint(out, zigzag(toFixed(frame.deltaX())));
+            writeVarint(out, zigzag(toFixed(frame.deltaY())));
+            writeVarint(out, frame.handles().size());
+            for (int handle : frame.handles()) {
+                writeVarint(out, handle);
+            }
+        } else {
+            writeVarint(out, TYPE_ABSOLUTE);
+            writeVarint(out, frame.positions().size());
+            for (Position position : frame.positions()) {
+                writeVarint(out, position.handle());
+                writeVarint(out, zigzag(toFixed(position.x())));
+                writeVarint(out, zigzag(toFixed(position.y())));
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out.toByteArray());
+    }
+    
+    public static MoveFrame decode(String encoded) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(encoded.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Move frame is not valid base64url", e);
+        }
+        
+        Reader reader = new Reader(bytes);
+        long version = reader.readVarint();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported move frame version " + version);
+        }
+        
+        long type = reader.readVarint();
+        MoveFrame frame;
+        if (type == TYPE_ABSOLUTE) {
+            int count = reader.readCount();
+            List<Position> positions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int handle = reader.readHandle();
+                BigDecimal x = fromFixed(unzigzag(reader.readVarint()));
+                BigDecimal y = fromFixed(unzigzag(reader.readVarint()));
+                positions.add(new Position(handle, x, y));
+            }
+            frame = MoveFrame.absolute(positions);
+        } else if (type == TYPE_DELTA) {
+            BigDecimal deltaX = fromFixed(unzigzag(reader.readVarint()));
+            BigDecimal deltaY = fromFixed(unzigzag(reader.readVarint()));
+            int count = reader.readCount();
+            List<Integer> handles = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                handles.add(reader.readHandle());
+            }
+            frame = MoveFrame.delta(handles, deltaX, deltaY);
+        } else {
+            throw new IllegalArgumentException("Unknown move frame type " + type);
+        }
+        
+        if (reader.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes in move frame");
+        }
+        return frame;
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private static int size(MoveFrame frame) {
+        return frame.isDelta() ? frame.handles().size() : frame.positions().size();
+    }
+    
+    // Clamped rather than exact: an out-of-range coordinate from a client must not fail the broadcast
+    private static long toFixed(BigDecimal value) {
+        BigDecimal safe = value != null ? value : BigDecimal.ZERO;
+        BigInteger fixed = safe.setScale(FIXED_POINT_SCALE, RoundingMode.HALF_UP).unscaledValue();
+        if (fixed.bitLength() > 63) {
+            return fixed.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        return fixed.longValue();
+    }
+    
+    private static BigDecimal fromFixed(long value) {
+        return BigDecimal.valueOf(value, FIXED_POINT_SCALE);
+    }
+    
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static final class Reader {
+        private final byte[] bytes;
+        private int offset;
+        
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+        
+        private long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (offset >= bytes.length) {
+                    throw new IllegalArgumentException("Truncated move frame");
+                }
+                byte b = bytes[offset++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Varint too long in move frame");
+        }
+        
+        private int readCount() {
+            long count = readVarint();
+            if (count < 0 || count > MAX_TABLES_PER_FRAME) {
+                throw new IllegalArgumentException("Move frame table count out of range: " + count);
+            }
+            return (int) count;
+        }
+        
+        private int readHandle() {
+            long handle = readVarint();
+            if (handle < 0 || handle > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Table handle out of range: " + handle);
+            }
+            return (int) handle;
+        }
+        
+        private boolean hasRemaining() {
+            return offset < bytes.length;
+        }
+    }
+}
@@ -3,8 +3,11 @@ package com.chartdb.websocket;
 import com.chartdb.dto.websocket.*;
 import com.chartdb.security.UserPrincipal;
 import com.chartdb.service.CollaborationService;
+import com.chartdb.service.TablePositionBuffer;
+import com.chartdb.service.collaboration.CursorBroadcastCoalescer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
@@ -15,6 +18,9 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Controller
@@ -22,7 +28,16 @@ import java.security.Principal;
 public class DiagramWebSocketHandler {
     
     private final CollaborationService collaborationService;
+    private final CursorBroadcastCoalescer cursorCoalescer;
     private final SimpMessagingTemplate messagingTemplate;
+    private final TableHandleRegistry tableHandles;
+    private final TablePositionBuffer positionBuffer;
+    
+    @Value("${websocket.compact-moves.enabled:true}")
+    private boolean compactMovesEnabled;
+    
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
     
     // ═══════════════════════════════════════════════════════════════
     // JOIN / LEAVE DIAGRAM
@@ -63,6 +78,7 @@ public class DiagramWebSocketHandler {
         if (user == null) return;
         
         collaborationService.leaveDiagram(diagramId, user.getId());
+        cursorCoalescer.discard(diagramId, user.getId());
         
         // Broadcast to remaining users
         PresenceMessage presenceMessage = PresenceMessage.builder()
@@ -90,10 +106,10 @@ public class DiagramWebSocketHandler {
         UserPrincipal user = extractUserPrincipal(principal);
         if (user == null) return;
         
-        // Update in database
+        // Update in-memory presence state
         collaborationService.updateCursorPosition(diagramId, user.getId(), message.getX(), message.getY());
         
-        // Broadcast to other users
+        // Queue for the next batched broadcast tick
         CursorBroadcast broadcast = CursorBroadcast.builder()
             .userId(user.getId())
             .userDisplayName(user.getDisplayName())
@@ -103,7 +119,7 @@ public class DiagramWebSocketHandler {
             .y(message.getY())
             .build();
         
-        messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/cursors", broadcast);
+        cursorCoalescer.publishCursor(diagramId, broadcast);
     }
     
     @MessageMapping("/diagram/{diagramId}/selection")
@@ -115,10 +131,10 @@ public class DiagramWebSocketHandler {
         UserPrincipal user = extractUserPrincipal(principal);
         if (user == null) return;
         
-        // Update in database
+        // Update in-memory presence state
         collaborationService.updateSelection(diagramId, user.getId(), message.getTableId(), message.getColumnId());
         
-        // Broadcast to other users
+        // Queue for the next batched broadcast tick
         SelectionBroadcast broadcast = SelectionBroadcast.builder()
             .userId(user.getId())
             .userDisplayName(user.getDisplayName())
@@ -127,7 +143,7 @@ public class DiagramWebSocketHandler {
             .columnId(message.getColumnId())
             .build();
         
-        messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/selections", broadcast);
+        cursorCoalescer.publishSelection(diagramId, broadcast);
     }
     
     @MessageMapping("/diagram/{diagramId}/idle")
@@ -159,8 +175,111 @@ public class DiagramWebSocketHandler {
         message.setUserName(user.getDisplayName());
         message.setTimestamp(System.currentTimeMillis());
         
+        // Absolute positions are persisted through the write-behind buffer. Deltas are broadcast only:
+        // the same drag is saved through the REST batch-move, and buffering it here too would apply it twice
+        boolean multiMove = message.getTableIds() != null && !message.getTableIds().isEmpty();
+        if (!multiMove && message.getTableId() != null && message.getX() != null && message.getY() != null
+                && collaborationService.canPersistChanges(diagramId, user.getId())) {
+            positionBuffer.moveTo(diagramId, message.getTableId(), message.getX(), message.getY());
+        }
+        
         // Broadcast position update to all collaborators
         messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/table-moved", message);
+        
+        // Mirror to clients that negotiated the compact encoding
+        if (compactMovesAvailable()) {
+            CompactMoveCodec.MoveFrame frame = toCompactFrame(diagramId, message);
+            if (frame != null) {
+                sendCompactMove(diagramId, frame, user.getId());
+            }
+        }
+    }
+    
+    @MessageMapping("/diagram/{diagramId}/table-move-compact")
+    public void handleCompactTableMove(
+            @DestinationVariable String diagramId,
+            @Payload String payload,
+            SimpMessageHeaderAccessor headerAccessor,
+            Principal principal) {
+        
+        UserPrincipal user = extractUserPrincipal(principal);
+        if (user == null || !compactMovesAvailable()) return;
+        
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        if (attributes == null || !CompactMoveCodec.ENCODING.equals(attributes.get(WebSocketAuthInterceptor.MOVE_ENCODING_ATTRIBUTE))) {
+            log.debug("Ignoring compact move from session {} without negotiated encoding", headerAccessor.getSessionId());
+            return;
+        }
+        
+        CompactMoveCodec.MoveFrame frame;
+        try {
+            frame = CompactMoveCodec.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.debug("Dropping malformed compact move from user {}: {}", user.getId(), e.getMessage());
+            return;
+        }
+        
+        // Re-encode canonically so subscribers never see client-supplied bytes
+        sendCompactMove(diagramId, frame, user.getId());
+        
+        // Persist absolute positions and bridge to JSON subscribers
+        boolean persist = collaborationService.canPersistChanges(diagramId, user.getId());
+        long timestamp = System.currentTimeMillis();
+        if (frame.isDelta()) {
+            List<String> tableIds = new ArrayList<>(frame.handles().size());
+            for (int handle : frame.handles()) {
+                tableHandles.tableId(diagramId, handle).ifPresent(tableIds::add);
+            }
+            if (tableIds.isEmpty()) return;
+            // Broadcast only, as for JSON deltas: the REST batch-move persists the drag
+            TableMoveMessage legacy = TableMoveMessage.builder()
+                .diagramId(diagramId)
+                .tableIds(tableIds)
+                .deltaX(frame.deltaX())
+                .deltaY(frame.deltaY())
+                .userId(user.getId())
+                .userName(user.getDisplayName())
+                .timestamp(timestamp)
+                .build();
+            messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/table-moved", legacy);
+        } else {
+            for (CompactMoveCodec.Position position : frame.positions()) {
+                tableHandles.tableId(diagramId, position.handle()).ifPresent(tableId -> {
+                    if (persist) {
+                        positionBuffer.moveTo(diagramId, tableId, position.x(), position.y());
+                    }
+                    TableMoveMessage legacy = TableMoveMessage.builder()
+                        .diagramId(diagramId)
+                        .tableId(tableId)
+                        .x(position.x())
+                        .y(position.y())
+                        .userId(user.getId())
+                        .userName(user.getDisplayName())
+                        .timestamp(timestamp)
+                        .build();
+                    messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/table-moved", legacy);
+                });
+            }
+        }
+    }
+    
+    /**
+     * Resolve compact table handles. An empty request returns every handle known for the diagram.
+     */
+    @MessageMapping("/diagram/{diagramId}/table-handles")
+    @SendToUser("/queue/table-handles")
+    public Map<String, Integer> requestTableHandles(
+            @DestinationVariable String diagramId,
+            @Payload(required = false) List<String> tableIds,
+            Principal principal) {
+        
+        UserPrincipal user = extractUserPrincipal(principal);
+        if (user == null || !compactMovesAvailable()) return Map.of();
+        
+        if (tableIds == null || tableIds.isEmpty()) {
+            return tableHandles.allHandles(diagramId);
+        }
+        return tableHandles.handlesFor(diagramId, tableIds);
     }
     
     @MessageMapping("/diagram/{diagramId}/table-create")
@@ -215,8 +334,9 @@ public class DiagramWebSocketHandler {
         message.setSessionId(headerAccessor.getSessionId());
         message.setTimestamp(System.currentTimeMillis());
         
-        // Release any locks on this table
+        // Release any locks on this table and retire its compact move handle
         collaborationService.unlockTable(diagramId, message.getTableId());
+        tableHandles.release(diagramId, message.getTableId());
         
         messagingTemplate.convertAndSend("/topic/diagram/" + diagramId + "/table-deleted", message);
         log.info("User {} deleted table {} from diagram {}", user.getId(), message.getTableId(), diagramId);
@@ -401,6 +521,34 @@ public class DiagramWebSocketHandler {
     // HELPER METHODS
     // ═══════════════════════════════════════════════════════════════
     
+    private boolean compactMovesAvailable() {
+        return compactMovesEnabled && "simple".equalsIgnoreCase(brokerMode);
+    }
+    
+    private CompactMoveCodec.MoveFrame toCompactFrame(String diagramId, TableMoveMessage message) {
+        // Tables outside the diagram get no handle and are left out of the compact frame
+        if (message.getTableIds() != null && !message.getTableIds().isEmpty()) {
+            Map<String, Integer> handles = tableHandles.handlesFor(diagramId, message.getTableIds());
+            if (handles.isEmpty()) return null;
+            return CompactMoveCodec.MoveFrame.delta(
+                List.copyOf(handles.values()), message.getDeltaX(), message.getDeltaY());
+        }
+        if (message.getTableId() != null) {
+            Integer handle = tableHandles.handlesFor(diagramId, List.of(message.getTableId())).get(message.getTableId());
+            if (handle == null) return null;
+            return CompactMoveCodec.MoveFrame.absolute(
+                List.of(new CompactMoveCodec.Position(handle, message.getX(), message.getY())));
+        }
+        return null;
+    }
+    
+    private void sendCompactMove(String diagramId, CompactMoveCodec.MoveFrame frame, String userId) {
+        messagingTemplate.convertAndSend(
+            "/topic/diagram/" + diagramId + "/table-moved-compact",
+            CompactMoveCodec.encode(frame),
+            Map.of("user-id", userId));
+    }
+    
     private UserPrincipal extractUserPrincipal(Principal principal) {
         if (principal instanceof UsernamePasswordAuthenticationToken) {
             Object credentials = ((UsernamePasswordAuthenticationToken) principal).getPrincipal();
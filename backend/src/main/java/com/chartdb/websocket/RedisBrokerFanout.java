@@ -0,0 +1,232 @@
+package com.chartdb.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster fan-out for the in-JVM simple broker (websocket.broker.mode=redis).
+ * Every /topic message sent through the broker channel on this node is also
+ * published to a Redis channel sharded by diagram id; other nodes replay it into
+ * their own broker channel so their local subscribers receive it. A node only listens
+ * on the shards its own STOMP sessions are subscribed to, so traffic for diagrams
+ * nobody on it has open never reaches it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "redis")
+public class RedisBrokerFanout implements ChannelInterceptor, MessageListener {
+    
+    private static final String RELAYED_HEADER = "chartdbClusterRelayed";
+    private static final String DIAGRAM_TOPIC_PREFIX = "/topic/diagram/";
+    
+    private final AbstractSubscribableChannel brokerChannel;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisConnectionFactory connectionFactory;
+    private final ObjectMapper objectMapper;
+    private final String channelPrefix;
+    private final int shards;
+    private final String nodeId = UUID.randomUUID().toString();
+    
+    private RedisMessageListenerContainer listenerContainer;
+    
+    // Local STOMP subscriptions: session id -> subscription id -> shard channel
+    private final Map<String, Map<String, String>> localSubscriptions = new ConcurrentHashMap<>();
+    // Local subscriptions per shard channel; guarded by this
+    private final Map<String, Integer> shardRefs = new HashMap<>();
+    
+    public RedisBrokerFanout(
+            @Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+            StringRedisTemplate redisTemplate,
+            RedisConnectionFactory connectionFactory,
+            ObjectMapper objectMapper,
+            @Value("${websocket.broker.redis.channel-prefix:chartdb:ws:shard:}") String channelPrefix,
+            @Value("${websocket.broker.redis.shards:16}") int shards) {
+        this.brokerChannel = brokerChannel;
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.objectMapper = objectMapper;
+        this.channelPrefix = channelPrefix;
+        this.shards = Math.max(1, shards);
+    }
+    
+    @PostConstruct
+    public void start() {
+        // Shards are added as local sessions subscribe to them
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        
+        brokerChannel.addInterceptor(this);
+        log.info("Redis broker fan-out enabled over {} shards (node {})", shards, nodeId);
+    }
+    
+    @PreDestroy
+    public void stop() throws Exception {
+        brokerChannel.removeInterceptor(this);
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // SHARD SUBSCRIPTIONS: follow local STOMP subscriptions
+    // ═══════════════════════════════════════════════════════════════
+    
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith("/topic/")
+                || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String channel = channelFor(destination);
+        String previous = localSubscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+            .put(accessor.getSubscriptionId(), channel);
+        retain(channel);
+        if (previous != null) {
+            release(previous);
+        }
+    }
+    
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null
+            ? localSubscriptions.get(accessor.getSessionId())
+            : null;
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            String channel = subscriptions.remove(accessor.getSubscriptionId());
+            if (channel != null) {
+                release(channel);
+            }
+        }
+    }
+    
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = localSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // OUTBOUND: local broker channel -> Redis
+    // ═══════════════════════════════════════════════════════════════
+    
+    @Override
+    public org.springframework.messaging.Message<?> preSend(org.springframework.messaging.Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(RELAYED_HEADER)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !destination.startsWith("/topic/")) {
+            return message;
+        }
+        
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        Envelope envelope = new Envelope(nodeId, destination, contentType != null ? contentType.toString() : null, payload);
+        try {
+            redisTemplate.convertAndSend(channelFor(destination), objectMapper.writeValueAsString(envelope));
+        } catch (Exception e) {
+            // Local subscribers still get the message; only other nodes miss it
+            log.warn("Failed to publish {} to Redis: {}", destination, e.getMessage());
+        }
+        return message;
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // INBOUND: Redis -> local broker channel
+    // ═══════════════════════════════════════════════════════════════
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(message.getBody(), Envelope.class);
+        } catch (IOException e) {
+            log.warn("Discarding malformed cluster broadcast: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(envelope.origin())) {
+            return;
+        }
+        
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+        brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+    }
+    
+    // ═══════════════════════════════════════════════════════════════
+    // HELPER METHODS
+    // ═══════════════════════════════════════════════════════════════
+    
+    private synchronized void retain(String channel) {
+        if (shardRefs.merge(channel, 1, Integer::sum) == 1) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+            log.debug("Listening on {} (node {})", channel, nodeId);
+        }
+    }
+    
+    private synchronized void release(String channel) {
+        Integer remaining = shardRefs.computeIfPresent(channel, (key, refs) -> refs > 1 ? refs - 1 : null);
+        if (remaining == null) {
+            listenerContainer.removeMessageListener(this, new ChannelTopic(channel));
+            log.debug("Stopped listening on {} (node {})", channel, nodeId);
+        }
+    }
+    
+    // All traffic for one diagram hashes to the same shard, preserving per-diagram ordering
+    private String channelFor(String destination) {
+        String key = destination;
+        if (destination.startsWith(DIAGRAM_TOPIC_PREFIX)) {
+            int end = destination.indexOf('/', DIAGRAM_TOPIC_PREFIX.length());
+            key = end > 0
+                ? destination.substring(DIAGRAM_TOPIC_PREFIX.length(), end)
+                : destination.substring(DIAGRAM_TOPIC_PREFIX.length());
+        }
+        return channelPrefix + Math.floorMod(key.hashCode(), shards);
+    }
+    
+    record Envelope(String origin, String destination, String contentType, byte[] payload) {}
+}
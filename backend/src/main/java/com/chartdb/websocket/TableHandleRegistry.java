@@ -0,0 +1,154 @@
+package com.chartdb.websocket;
+
+import com.chartdb.repository.TableRepository;
+import com.chartdb.service.collaboration.PresenceRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns small integer handles to table ids, per diagram, for the compact move encoding.
+ * Handles are only given to tables of that diagram, stay stable for as long as the diagram has
+ * collaborators on this node, and are never reused: numbering continues from a per-diagram counter
+ * that survives eviction, so a stale handle resolves to nothing rather than to another table.
+ */
+@Component
+@RequiredArgsConstructor
+public class TableHandleRegistry {
+    
+    private final PresenceRegistry presenceRegistry;
+    private final TableRepository tableRepository;
+    private final Map<String, DiagramHandles> diagrams = new ConcurrentHashMap<>();
+    // Next handle per diagram; kept when the diagram's handle table is evicted
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    
+    /**
+     * Handles for those of {@code tableIds} that belong to the diagram; other ids are left out.
+     */
+    public Map<String, Integer> handlesFor(String diagramId, Collection<String> tableIds) {
+        Set<String> verified = new HashSet<>();
+        while (true) {
+            DiagramHandles handles = diagrams.computeIfAbsent(diagramId,
+                id -> new DiagramHandles(counters.computeIfAbsent(id, key -> new AtomicInteger())));
+            
+            // Ids that already have a handle were checked when it was assigned
+            List<String> unknown = tableIds.stream()
+                .filter(Objects::nonNull)
+                .filter(tableId -> !handles.has(tableId) && !verified.contains(tableId))
+                .distinct()
+                .toList();
+            if (!unknown.isEmpty()) {
+                verified.addAll(tableRepository.findIdsByDiagramIdAndIdIn(diagramId, unknown));
+            }
+            
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (String tableId : tableIds) {
+                if (tableId != null && (verified.contains(tableId) || handles.has(tableId))) {
+                    result.put(tableId, handles.handleFor(tableId));
+                }
+            }
+            // Evicted meanwhile: the handles went into a table nobody can look up, so assign them again
+            if (diagrams.get(diagramId) == handles) {
+                return result;
+            }
+        }
+    }
+    
+    public Map<String, Integer> allHandles(String diagramId) {
+        DiagramHandles handles = diagrams.get(diagramId);
+        return handles == null ? Map.of() : handles.snapshot();
+    }
+    
+    public Optional<String> tableId(String diagramId, int handle) {
+        DiagramHandles handles = diagrams.get(diagramId);
+        return handles == null ? Optional.empty() : handles.tableId(handle);
+    }
+    
+    /**
+     * Retire the handle of a deleted table.
+     */
+    public void release(String diagramId, String tableId) {
+        DiagramHandles handles = diagrams.get(diagramId);
+        if (handles != null) {
+            handles.release(tableId);
+        }
+    }
+    
+    // Drop handle tables of diagrams nobody on this node is editing any more, and handles of tables
+    // deleted through paths that bypass the table-delete message
+    @Scheduled(fixedRate = 60000)
+    public void evictInactiveDiagrams() {
+        for (String diagramId : List.copyOf(diagrams.keySet())) {
+            diagrams.computeIfPresent(diagramId,
+                (id, handles) -> presenceRegistry.getDiagramEntries(id).isEmpty() ? null : handles);
+        }
+        diagrams.forEach((diagramId, handles) -> {
+            Set<String> assigned = handles.snapshot().keySet();
+            if (!assigned.isEmpty()) {
+                handles.retainAll(new HashSet<>(tableRepository.findIdsByDiagramIdAndIdIn(diagramId, assigned)), assigned);
+            }
+        });
+    }
+    
+    private static final class DiagramHandles {
+        private final AtomicInteger counter;
+        private final Map<String, Integer> byTableId = new LinkedHashMap<>();
+        private final Map<Integer, String> byHandle = new HashMap<>();
+        
+        private DiagramHandles(AtomicInteger counter) {
+            this.counter = counter;
+        }
+        
+        private synchronized boolean has(String tableId) {
+            return byTableId.containsKey(tableId);
+        }
+        
+        private synchronized int handleFor(String tableId) {
+            Integer existing = byTableId.get(tableId);
+            if (existing != null) {
+                return existing;
+            }
+            int handle = counter.getAndIncrement();
+            byHandle.put(handle, tableId);
+            byTableId.put(tableId, handle);
+            return handle;
+        }
+        
+        private synchronized Optional<String> tableId(int handle) {
+            return Optional.ofNullable(byHandle.get(handle));
+        }
+        
+        // The counter never hands a retired handle out again, so a stale client frame cannot address another table
+        private synchronized void release(String tableId) {
+            Integer handle = byTableId.remove(tableId);
+            if (handle != null) {
+                byHandle.remove(handle);
+            }
+        }
+        
+        // Only ids from the checked snapshot are released; handles assigned since then were just verified
+        private synchronized void retainAll(Set<String> existing, Set<String> checked) {
+            for (String tableId : checked) {
+                if (!existing.contains(tableId)) {
+                    release(tableId);
+                }
+            }
+        }
+        
+        private synchronized Map<String, Integer> snapshot() {
+            return new LinkedHashMap<>(byTableId);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.chartdb.security.JwtProvider;
 import com.chartdb.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.stomp.StompCommand;
@@ -18,6 +19,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
@@ -27,6 +29,15 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
     private final JwtProvider jwtProvider;
     private final CustomUserDetailsService userDetailsService;
     
+    public static final String MOVE_ENCODING_ATTRIBUTE = "moveEncoding";
+    
+    @Value("${websocket.compact-moves.enabled:true}")
+    private boolean compactMovesEnabled;
+    
+    // Compact move handles are node-local, so they are only offered with the in-JVM broker
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+    
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
         StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
@@ -46,11 +57,28 @@ public class WebSocketAuthInterceptor implements ChannelInterceptor {
                 
                 log.debug("WebSocket authenticated for user: {}", userId);
             }
+            
+            negotiateMoveEncoding(accessor);
         }
         
         return message;
     }
     
+    private void negotiateMoveEncoding(StompHeaderAccessor accessor) {
+        String requested = accessor.getFirstNativeHeader("accept-move-encoding");
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (requested == null || attributes == null || !compactMovesEnabled || !"simple".equalsIgnoreCase(brokerMode)) {
+            return;
+        }
+        for (String encoding : requested.split(",")) {
+            if (CompactMoveCodec.ENCODING.equals(encoding.trim())) {
+                attributes.put(MOVE_ENCODING_ATTRIBUTE, CompactMoveCodec.ENCODING);
+                log.debug("Session {} negotiated {} move encoding", accessor.getSessionId(), CompactMoveCodec.ENCODING);
+                return;
+            }
+        }
+    }
+    
     private String extractToken(StompHeaderAccessor accessor) {
         // Try Authorization header
         List<String> authHeaders = accessor.getNativeHeader("Authorization");
@@ -0,0 +1,18 @@
+-- V18: Diagram revision counter and change log for conditional and delta loads
+
+ALTER TABLE diagrams ADD COLUMN IF NOT EXISTS revision BIGINT NOT NULL DEFAULT 0;
+
+-- Highest revision whose change rows were pruned; delta requests older than this need a full reload
+ALTER TABLE diagrams ADD COLUMN IF NOT EXISTS changes_floor BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS diagram_changes (
+    id BIGSERIAL PRIMARY KEY,
+    diagram_id VARCHAR(36) NOT NULL REFERENCES diagrams(id) ON DELETE CASCADE,
+    revision BIGINT NOT NULL,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id VARCHAR(36) NOT NULL,
+    changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_diagram_changes_revision ON diagram_changes(diagram_id, revision);
+CREATE INDEX IF NOT EXISTS idx_diagram_changes_changed_at ON diagram_changes(changed_at);
@@ -0,0 +1,7 @@
+-- V19: Per-connection statement timeout for the query console (NULL uses query.execution.default-timeout-seconds)
+
+ALTER TABLE database_connections ADD COLUMN IF NOT EXISTS query_timeout_seconds INTEGER;
+
+-- Cancelled console queries are recorded too
+ALTER TABLE query_history DROP CONSTRAINT IF EXISTS valid_query_status;
+ALTER TABLE query_history ADD CONSTRAINT valid_query_status CHECK (status IN ('SUCCESS', 'ERROR', 'CANCELLED'));
@@ -0,0 +1,31 @@
+-- V20: Normalized query fingerprints with per-fingerprint counters and timing histograms
+
+-- Columns of BaseEntity that V13 did not create
+ALTER TABLE query_history ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE query_history ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+
+ALTER TABLE query_history ADD COLUMN IF NOT EXISTS fingerprint VARCHAR(32);
+
+-- Retention pruning scans by age
+CREATE INDEX IF NOT EXISTS idx_query_history_executed_at ON query_history(executed_at);
+
+CREATE TABLE IF NOT EXISTS query_fingerprints (
+    user_id VARCHAR(36) NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    connection_id VARCHAR(36) NOT NULL REFERENCES database_connections(id) ON DELETE CASCADE,
+    fingerprint VARCHAR(32) NOT NULL,
+    normalized_query TEXT NOT NULL,
+    
+    execution_count BIGINT NOT NULL DEFAULT 0,
+    error_count BIGINT NOT NULL DEFAULT 0,
+    total_time_ms BIGINT NOT NULL DEFAULT 0,
+    max_time_ms BIGINT NOT NULL DEFAULT 0,
+    -- Execution counts per latency bucket, bounds in QueryFingerprint.BUCKET_BOUNDS_MS plus one overflow bucket
+    time_buckets BIGINT[] NOT NULL,
+    
+    first_executed_at TIMESTAMP NOT NULL,
+    last_executed_at TIMESTAMP NOT NULL,
+    
+    PRIMARY KEY (user_id, connection_id, fingerprint)
+);
+
+CREATE INDEX IF NOT EXISTS idx_query_fingerprints_last_executed ON query_fingerprints(last_executed_at);
@@ -0,0 +1,4 @@
+-- V21: Columns of DiagramTable that no earlier migration created; schema import stores indexes here
+ALTER TABLE tables ADD COLUMN IF NOT EXISTS indexes_json TEXT;
+ALTER TABLE tables ADD COLUMN IF NOT EXISTS is_view BOOLEAN DEFAULT false;
+ALTER TABLE tables ADD COLUMN IF NOT EXISTS is_materialized_view BOOLEAN DEFAULT false;
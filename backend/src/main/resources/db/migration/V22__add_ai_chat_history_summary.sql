@@ -0,0 +1,5 @@
+-- V22: Rolling summary of chat turns that no longer fit the prompt window
+-- Messages sharing a created_at are ordered by id, so the summary boundary needs both
+ALTER TABLE ai_chat_sessions ADD COLUMN IF NOT EXISTS history_summary TEXT;
+ALTER TABLE ai_chat_sessions ADD COLUMN IF NOT EXISTS summarized_through TIMESTAMP;
+ALTER TABLE ai_chat_sessions ADD COLUMN IF NOT EXISTS summarized_through_id VARCHAR(36);
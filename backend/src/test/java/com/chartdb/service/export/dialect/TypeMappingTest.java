@@ -0,0 +1,65 @@
+package com.chartdb.service.export.dialect;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TypeMappingTest {
+    
+    private final TypeMapping mapping = TypeMapping.builder()
+        .map("TEXT", "clob", "longtext")
+        .rename("VARCHAR", "varchar", "character varying")
+        .rename("TIMESTAMP WITH TIME ZONE", "timestamptz", "timestamp with time zone")
+        .build();
+    
+    @Test
+    void mapReplacesTheTypeAndDropsParameters() {
+        assertEquals("TEXT", mapping.map("longtext"));
+        assertEquals("TEXT", mapping.map("CLOB(1000)"));
+    }
+    
+    @Test
+    void renameKeepsParameters() {
+        assertEquals("VARCHAR(255)", mapping.map("varchar(255)"));
+        assertEquals("VARCHAR", mapping.map("varchar"));
+    }
+    
+    @Test
+    void matchesRegardlessOfCaseSpacingAndParameterPosition() {
+        assertEquals("VARCHAR(255)", mapping.map("VARCHAR (255)"));
+        assertEquals("VARCHAR(255)", mapping.map("character  varying(255)"));
+        assertEquals("TIMESTAMP(3) WITH TIME ZONE", mapping.map("timestamp(3) with time zone"));
+    }
+    
+    @Test
+    void placesParametersAfterTheFirstWordOfMultiWordTargets() {
+        assertEquals("TIMESTAMP(6) WITH TIME ZONE", mapping.map("timestamptz(6)"));
+        assertEquals("TIMESTAMP WITH TIME ZONE", mapping.map("TIMESTAMPTZ"));
+    }
+    
+    @Test
+    void returnsUnknownTypesUnchanged() {
+        assertEquals("geometry(Point, 4326)", mapping.map("geometry(Point, 4326)"));
+        assertEquals("uuid", mapping.map("  uuid "));
+        assertNull(mapping.map(null));
+        assertEquals(" ", mapping.map(" "));
+    }
+    
+    @Test
+    void repeatedLookupsReturnTheSameResult() {
+        assertEquals(mapping.map("varchar(64)"), mapping.map("varchar(64)"));
+    }
+    
+    @Test
+    void extendedMappingsOverrideTheirBase() {
+        TypeMapping extended = TypeMapping.builder()
+            .extend(mapping)
+            .map("NVARCHAR(MAX)", "longtext")
+            .build();
+        
+        assertEquals("NVARCHAR(MAX)", extended.map("longtext"));
+        assertEquals("VARCHAR(32)", extended.map("varchar(32)"));
+        assertEquals("TEXT", mapping.map("longtext"));
+    }
+}
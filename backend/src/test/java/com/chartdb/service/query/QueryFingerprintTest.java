@@ -0,0 +1,86 @@
+package com.chartdb.service.query;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class QueryFingerprintTest {
+    
+    @Test
+    void replacesLiteralsAndNormalizesWhitespaceAndCase() {
+        assertEquals("select * from users where id = ?",
+            QueryFingerprint.normalize("SELECT * FROM users WHERE id = 42"));
+        assertEquals("select * from users where id = ?",
+            QueryFingerprint.normalize("select *  from users\n where id=7;"));
+    }
+    
+    @Test
+    void sameStatementWithDifferentValuesSharesFingerprint() {
+        QueryFingerprint first = QueryFingerprint.of("SELECT * FROM users WHERE id = 42");
+        QueryFingerprint second = QueryFingerprint.of("select *  from users\n where id=7;");
+        
+        assertEquals(first, second);
+        assertEquals(32, first.fingerprint().length());
+        assertNotEquals(first.fingerprint(), QueryFingerprint.of("SELECT * FROM orders WHERE id = 42").fingerprint());
+    }
+    
+    @Test
+    void escapedQuoteStaysInsideStringLiteral() {
+        assertEquals("select * from t where name = ? and x = ?",
+            QueryFingerprint.normalize("SELECT * FROM t WHERE name = 'O''Brien' AND x = 1"));
+    }
+    
+    @Test
+    void unterminatedStringLiteralEndsTheQuery() {
+        assertEquals("select ?", QueryFingerprint.normalize("SELECT 'unterminated"));
+    }
+    
+    @Test
+    void stripsLineAndBlockComments() {
+        assertEquals("select a from t where b = ?",
+            QueryFingerprint.normalize("SELECT a -- trailing\nFROM t /* block */ WHERE b = 2"));
+    }
+    
+    @Test
+    void keepsDigitsThatArePartOfIdentifiers() {
+        assertEquals("select col_2, t1.c3 from t1 where t1.c3 > ?",
+            QueryFingerprint.normalize("SELECT col_2, t1.c3 FROM t1 WHERE t1.c3 > 10"));
+    }
+    
+    @Test
+    void keepsQuotedIdentifiersAsWritten() {
+        assertEquals("select \"UserName\" from `Users` where \"Age\" >= ?",
+            QueryFingerprint.normalize("SELECT \"UserName\" FROM `Users` WHERE \"Age\" >= 18"));
+    }
+    
+    @Test
+    void collapsesInAndValuesListsOfAnyLength() {
+        assertEquals("select * from t where id in (?+)",
+            QueryFingerprint.normalize("SELECT * FROM t WHERE id IN (1, 2)"));
+        assertEquals("select * from t where id in (?+)",
+            QueryFingerprint.normalize("SELECT * FROM t WHERE id IN ( 4,5 , 6 , 7, 8 )"));
+        assertEquals("insert into t (a, b) values (?+)",
+            QueryFingerprint.normalize("INSERT INTO t (a, b) VALUES (1, 'x')"));
+        // A single value is not a list
+        assertEquals("select * from t where id in (?)",
+            QueryFingerprint.normalize("SELECT * FROM t WHERE id IN (4)"));
+    }
+    
+    @Test
+    void normalizesNumericFormsAndComparisonOperators() {
+        assertEquals("select ?, -?, ?", QueryFingerprint.normalize("SELECT 1.5e3, -2, 0x1F"));
+        assertEquals("select a from t where b <> ? and c != ?",
+            QueryFingerprint.normalize("SELECT a FROM t WHERE b <> 3 AND c!=4"));
+        assertEquals("select ?", QueryFingerprint.normalize("SELECT 1;;"));
+    }
+    
+    @Test
+    void bucketsUseInclusiveUpperBounds() {
+        assertEquals(0, QueryFingerprint.bucket(0));
+        assertEquals(0, QueryFingerprint.bucket(10));
+        assertEquals(1, QueryFingerprint.bucket(11));
+        assertEquals(6, QueryFingerprint.bucket(30000));
+        assertEquals(QueryFingerprint.BUCKET_BOUNDS_MS.length, QueryFingerprint.bucket(30001));
+    }
+}
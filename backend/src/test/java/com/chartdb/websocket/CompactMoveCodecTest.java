@@ -0,0 +1,88 @@
+package com.chartdb.websocket;
+
+import com.chartdb.websocket.CompactMoveCodec.MoveFrame;
+import com.chartdb.websocket.CompactMoveCodec.Position;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactMoveCodecTest {
+    
+    @Test
+    void encodesAbsoluteFrameInTheDocumentedLayout() {
+        MoveFrame frame = MoveFrame.absolute(List.of(new Position(3, new BigDecimal("1"), new BigDecimal("-0.5"))));
+        
+        // version 1, type 1, count 1, handle 3, zz(100) = 200 (two varint bytes), zz(-50) = 99
+        assertEquals("AQEBA8gBYw", CompactMoveCodec.encode(frame));
+    }
+    
+    @Test
+    void roundTripsAbsolutePositions() {
+        MoveFrame frame = MoveFrame.absolute(List.of(
+            new Position(0, new BigDecimal("120.25"), new BigDecimal("-40.00")),
+            new Position(70000, new BigDecimal("0.00"), new BigDecimal("987654.32"))));
+        
+        MoveFrame decoded = CompactMoveCodec.decode(CompactMoveCodec.encode(frame));
+        
+        assertFalse(decoded.isDelta());
+        assertEquals(frame.positions(), decoded.positions());
+    }
+    
+    @Test
+    void roundTripsDeltaFrames() {
+        MoveFrame frame = MoveFrame.delta(List.of(1, 2, 300), new BigDecimal("-12.50"), new BigDecimal("7.00"));
+        
+        MoveFrame decoded = CompactMoveCodec.decode(CompactMoveCodec.encode(frame));
+        
+        assertTrue(decoded.isDelta());
+        assertEquals(List.of(1, 2, 300), decoded.handles());
+        assertEquals(new BigDecimal("-12.50"), decoded.deltaX());
+        assertEquals(new BigDecimal("7.00"), decoded.deltaY());
+    }
+    
+    @Test
+    void roundsCoordinatesToHundredthsAndTreatsMissingOnesAsZero() {
+        MoveFrame frame = MoveFrame.absolute(List.of(new Position(1, new BigDecimal("1.005"), null)));
+        
+        Position decoded = CompactMoveCodec.decode(CompactMoveCodec.encode(frame)).positions().get(0);
+        
+        assertEquals(new BigDecimal("1.01"), decoded.x());
+        assertEquals(new BigDecimal("0.00"), decoded.y());
+    }
+    
+    @Test
+    void clampsCoordinatesOutsideTheLongRange() {
+        MoveFrame frame = MoveFrame.absolute(List.of(new Position(1, new BigDecimal("1e30"), new BigDecimal("-1e30"))));
+        
+        Position decoded = CompactMoveCodec.decode(CompactMoveCodec.encode(frame)).positions().get(0);
+        
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2), decoded.x());
+        assertEquals(BigDecimal.valueOf(Long.MIN_VALUE, 2), decoded.y());
+    }
+    
+    @Test
+    void rejectsMalformedFrames() {
+        assertThrows(IllegalArgumentException.class, () -> CompactMoveCodec.decode("not base64!"));
+        // Version 2
+        assertThrows(IllegalArgumentException.class, () -> CompactMoveCodec.decode("AgE"));
+        // Unknown type 3
+        assertThrows(IllegalArgumentException.class, () -> CompactMoveCodec.decode("AQM"));
+        // Handle without coordinates
+        assertThrows(IllegalArgumentException.class, () -> CompactMoveCodec.decode("AQEBAw"));
+        // Trailing byte after an empty frame
+        assertThrows(IllegalArgumentException.class, () -> CompactMoveCodec.decode("AQEAAA"));
+        // Count 10001, above the per-frame limit
+        assertThrows(IllegalArgumentException.class, () -> CompactMoveCodec.decode("AQGRTg"));
+    }
+    
+    @Test
+    void acceptsEmptyFrames() {
+        assertEquals(List.of(), CompactMoveCodec.decode("AQEA").positions());
+    }
+}
@@ -252,23 +252,50 @@ class WebSocketService {
         const cursorSub = this.client.subscribe(
             `/topic/diagram/${diagramId}/cursors`,
             (message: IMessage) => {
-                const cursorData = JSON.parse(message.body);
-                // Convert cursor broadcast to diagram event format
-                const event: DiagramEvent = {
-                    type: 'CURSOR_MOVED',
-                    diagramId,
-                    userId: cursorData.userId,
-                    userEmail: cursorData.userDisplayName,
-                    payload: {
-                        x: cursorData.x,
-                        y: cursorData.y,
-                        userDisplayName: cursorData.userDisplayName,
-                        userAvatarUrl: cursorData.userAvatarUrl,
-                        cursorColor: cursorData.cursorColor,
-                    },
-                    timestamp: new Date().toISOString(),
-                };
-                this.notifyEventListeners(event);
+                const data = JSON.parse(message.body);
+                // Server batches cursors per tick; older servers send one cursor per frame
+                const cursors = Array.isArray(data.cursors)
+                    ? data.cursors
+                    : [data];
+                for (const cursorData of cursors) {
+                    // Convert cursor broadcast to diagram event format
+                    const event: DiagramEvent = {
+                        type: 'CURSOR_MOVED',
+                        diagramId,
+                        userId: cursorData.userId,
+                        userEmail: cursorData.userDisplayName,
+                        payload: {
+                            x: cursorData.x,
+                            y: cursorData.y,
+                            userDisplayName: cursorData.userDisplayName,
+                            userAvatarUrl: cursorData.userAvatarUrl,
+                            cursorColor: cursorData.cursorColor,
+                        },
+                        timestamp: new Date().toISOString(),
+                    };
+                    this.notifyEventListeners(event);
+                }
+                // Selection changes ride along in the same tick frame
+                const selections = Array.isArray(data.selections)
+                    ? data.selections
+                    : [];
+                for (const selectionData of selections) {
+                    const event: DiagramEvent = {
+                        type: 'SELECTION_CHANGED',
+                        diagramId,
+                        userId: selectionData.userId,
+                        userEmail: selectionData.userDisplayName,
+                        payload: {
+                            tableId: selectionData.tableId,
+                            tableName: selectionData.tableName,
+                            columnId: selectionData.columnId,
+                            userDisplayName: selectionData.userDisplayName,
+                            cursorColor: selectionData.cursorColor,
+                        },
+                        timestamp: new Date().toISOString(),
+                    };
+                    this.notifyEventListeners(event);
+                }
             }
         );
         this.subscriptions.set(`cursors-${diagramId}`, cursorSub);